@@ -0,0 +1,104 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.ChangeSet;
+
+/**
+ * Building and merging ChangeSets that cover a whole map, as the kernel does
+ * when it collects simulator updates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChangeSetBenchmark {
+  @Param({ "test", "sakae" })
+  public String map;
+
+  private StandardWorldModel world;
+  private List<StandardEntity> entities;
+  private ChangeSet full;
+  private ChangeSet firstHalf;
+  private ChangeSet secondHalf;
+
+  /**
+   * Load the map and build the ChangeSets.
+   *
+   * @throws Exception If the map cannot be loaded.
+   */
+  @Setup
+  public void setup() throws Exception {
+    world = MapFixture.loadWorld(MapFixture.loadConfig(map));
+    entities = new ArrayList<StandardEntity>(world.getAllEntities());
+    full = new ChangeSet();
+    full.addAll(entities);
+    firstHalf = new ChangeSet();
+    firstHalf.addAll(entities.subList(0, entities.size() / 2));
+    secondHalf = new ChangeSet();
+    secondHalf.addAll(entities.subList(entities.size() / 2, entities.size()));
+  }
+
+  /**
+   * Record every property of every entity.
+   *
+   * @return The new ChangeSet.
+   */
+  @Benchmark
+  public ChangeSet addAll() {
+    ChangeSet result = new ChangeSet();
+    result.addAll(entities);
+    return result;
+  }
+
+  /**
+   * Merge the updates from two simulators that each changed half the map.
+   *
+   * @return The merged ChangeSet.
+   */
+  @Benchmark
+  public ChangeSet merge() {
+    ChangeSet result = new ChangeSet(firstHalf);
+    result.merge(secondHalf);
+    return result;
+  }
+
+  /**
+   * Copy a ChangeSet, as the kernel does for each timestep record.
+   *
+   * @return The copy.
+   */
+  @Benchmark
+  public ChangeSet copy() {
+    return new ChangeSet(full);
+  }
+
+  /**
+   * Apply a ChangeSet that covers the whole map to the world model.
+   *
+   * @return The world model.
+   */
+  @Benchmark
+  public StandardWorldModel mergeIntoWorldModel() {
+    world.merge(full);
+    return world;
+  }
+}
@@ -0,0 +1,214 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import clear.ClearSimulator;
+import rescuecore2.config.Config;
+import rescuecore2.messages.Command;
+import rescuecore2.messages.control.KSCommands;
+import rescuecore2.misc.geometry.GeometryTools2D;
+import rescuecore2.standard.entities.Area;
+import rescuecore2.standard.entities.Blockade;
+import rescuecore2.standard.entities.PoliceForce;
+import rescuecore2.standard.entities.Road;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.standard.messages.AKClearArea;
+import rescuecore2.worldmodel.ChangeSet;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * One timestep of the clear simulator, in which every police force clears an
+ * area towards the centre of a neighbouring area. The maps have no blockades
+ * of their own, so every road is given a few overlapping blockades and the
+ * police forces are placed on random roads. Most of the time goes in the
+ * BlockadeGeometry union, intersection and difference operations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ClearBenchmark {
+  private static final int SIMULATOR_ID = 1;
+  private static final int MAX_BLOCKADES_PER_ROAD = 3;
+  private static final int FULL_HP = 10000;
+  // Converts square mm to square m, as in ClearSimulator
+  private static final double REPAIR_COST_FACTOR = 0.000001;
+
+  @Param({ "test", "sakae" })
+  public String map;
+
+  @Param({ "300" })
+  public int agents;
+
+  private BenchmarkClearSimulator simulator;
+  private StandardWorldModel world;
+  private Map<Road, List<Blockade>> blockades;
+  private List<Command> commands;
+  private int firstBlockadeID;
+  private int time;
+
+  /**
+   * Load the map, add the blockades and police forces and start the
+   * simulator.
+   *
+   * @throws Exception If the map cannot be loaded.
+   */
+  @Setup
+  public void setup() throws Exception {
+    Config config = MapFixture.loadConfig(map);
+    world = MapFixture.loadWorld(config);
+    Random random = new Random(1);
+    int nextID = 0;
+    List<Road> roads = new ArrayList<Road>();
+    for (StandardEntity next : world) {
+      nextID = Math.max(nextID, next.getID().getValue() + 1);
+      if (next instanceof Road && !((Road) next).getNeighbours().isEmpty()) {
+        roads.add((Road) next);
+      }
+    }
+    blockades = new HashMap<Road, List<Blockade>>();
+    for (Road road : roads) {
+      List<Blockade> list = new ArrayList<Blockade>();
+      int count = 1 + random.nextInt(MAX_BLOCKADES_PER_ROAD);
+      for (int i = 0; i < count; ++i) {
+        list.add(createBlockade(new EntityID(nextID++), road, random));
+      }
+      blockades.put(road, list);
+    }
+    commands = new ArrayList<Command>();
+    for (int i = 0; i < agents; ++i) {
+      Road road = roads.get(random.nextInt(roads.size()));
+      List<EntityID> neighbours = road.getNeighbours();
+      Area target = (Area) world.getEntity(neighbours.get(random.nextInt(neighbours.size())));
+      PoliceForce police = new PoliceForce(new EntityID(nextID++));
+      police.setPosition(road.getID());
+      police.setX(road.getX());
+      police.setY(road.getY());
+      police.setHP(FULL_HP);
+      world.addEntity(police);
+      commands.add(new AKClearArea(police.getID(), 0, target.getX(), target.getY()));
+    }
+    firstBlockadeID = nextID;
+    world.index();
+    simulator = new BenchmarkClearSimulator(config, world, firstBlockadeID);
+    time = 0;
+  }
+
+  /**
+   * Put back the blockades that the previous timestep cleared, so that every
+   * timestep starts from the same roads.
+   */
+  @Setup(Level.Invocation)
+  public void restoreBlockades() {
+    for (Map.Entry<Road, List<Blockade>> next : blockades.entrySet()) {
+      Road road = next.getKey();
+      if (road.isBlockadesDefined()) {
+        for (EntityID id : road.getBlockades()) {
+          world.removeEntity(id);
+        }
+      }
+      List<EntityID> ids = new ArrayList<EntityID>();
+      for (Blockade b : next.getValue()) {
+        world.addEntity(b.copy());
+        ids.add(b.getID());
+      }
+      road.setBlockades(ids);
+    }
+    simulator.resetEntityIDs();
+  }
+
+  /**
+   * Clear an area for every police force.
+   *
+   * @return The changes made by the simulator.
+   */
+  @Benchmark
+  public ChangeSet timestep() {
+    ++time;
+    ChangeSet changes = new ChangeSet();
+    simulator.timestep(new KSCommands(SIMULATOR_ID, time, commands), changes);
+    return changes;
+  }
+
+  /**
+   * Create a blockade with the outline of a road, shrunk towards a random
+   * point between the centre of the road and one of its corners.
+   */
+  private static Blockade createBlockade(EntityID id, Road road, Random random) {
+    int[] outline = road.getApexList();
+    int corner = random.nextInt(outline.length / 2) * 2;
+    double along = random.nextDouble();
+    double cx = road.getX() + (outline[corner] - road.getX()) * along;
+    double cy = road.getY() + (outline[corner + 1] - road.getY()) * along;
+    double scale = 0.3 + random.nextDouble() * 0.5;
+    int[] apexes = new int[outline.length];
+    for (int i = 0; i < outline.length; i += 2) {
+      apexes[i] = (int) (cx + (outline[i] - cx) * scale);
+      apexes[i + 1] = (int) (cy + (outline[i + 1] - cy) * scale);
+    }
+    Blockade result = new Blockade(id);
+    result.setPosition(road.getID());
+    result.setApexes(apexes);
+    result.setX((int) cx);
+    result.setY((int) cy);
+    result.setRepairCost((int) (GeometryTools2D.computeArea(GeometryTools2D.vertexArrayToPoints(apexes))
+        * REPAIR_COST_FACTOR));
+    return result;
+  }
+
+  /**
+   * A clear simulator that is driven directly instead of through a kernel
+   * connection. New blockade IDs are handed out from a counter instead of
+   * being requested from the kernel.
+   */
+  private static final class BenchmarkClearSimulator extends ClearSimulator {
+    private final int firstID;
+    private int nextID;
+
+    BenchmarkClearSimulator(Config config, StandardWorldModel world, int firstID) {
+      this.config = config;
+      this.model = world;
+      this.firstID = firstID;
+      this.nextID = firstID;
+      postConnect();
+    }
+
+    void resetEntityIDs() {
+      nextID = firstID;
+    }
+
+    void timestep(KSCommands commands, ChangeSet changes) {
+      processCommands(commands, changes);
+    }
+
+    @Override
+    protected List<EntityID> requestNewEntityIDs(int count) {
+      List<EntityID> result = new ArrayList<EntityID>(count);
+      for (int i = 0; i < count; ++i) {
+        result.add(new EntityID(nextID++));
+      }
+      return result;
+    }
+  }
+}
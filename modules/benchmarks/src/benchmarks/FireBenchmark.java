@@ -0,0 +1,126 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import firesimulator.FireSimulatorWrapper;
+import rescuecore2.config.Config;
+import rescuecore2.messages.Command;
+import rescuecore2.messages.control.KSCommands;
+import rescuecore2.messages.control.KSUpdate;
+import rescuecore2.standard.entities.Building;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardEntityURN;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.ChangeSet;
+
+/**
+ * The first timesteps of a fire, run through the fire simulator wrapper so
+ * that both Simulator.step and the copying of results back into the world
+ * model are measured. The cost of a timestep grows as the fire spreads, so each
+ * iteration starts again from a fresh map and reports the time for a fixed
+ * number of timesteps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, batchSize = FireBenchmark.TIMESTEPS)
+@Measurement(iterations = 5, batchSize = FireBenchmark.TIMESTEPS)
+@Fork(1)
+public class FireBenchmark {
+  /** The number of timesteps in each iteration. */
+  public static final int TIMESTEPS = 50;
+
+  private static final int SIMULATOR_ID = 1;
+
+  @Param({ "test", "sakae" })
+  public String map;
+
+  @Param({ "10" })
+  public int fires;
+
+  private Config config;
+  private BenchmarkFireSimulator simulator;
+  private int time;
+
+  /**
+   * Load the configuration.
+   *
+   * @throws Exception If the configuration cannot be loaded.
+   */
+  @Setup(Level.Trial)
+  public void loadConfig() throws Exception {
+    config = MapFixture.loadConfig(map);
+  }
+
+  /**
+   * Build a fresh world and start the fires.
+   *
+   * @throws Exception If the map cannot be loaded.
+   */
+  @Setup(Level.Iteration)
+  public void setup() throws Exception {
+    StandardWorldModel world = MapFixture.loadWorld(config);
+    simulator = new BenchmarkFireSimulator(new Config(config), world);
+    List<StandardEntity> buildings = new ArrayList<StandardEntity>(
+        world.getEntitiesOfType(StandardEntityURN.BUILDING));
+    Collections.sort(buildings, (a, b) -> Integer.compare(a.getID().getValue(), b.getID().getValue()));
+    Random random = new Random(1);
+    ChangeSet ignitions = new ChangeSet();
+    for (int i = 0; i < fires && !buildings.isEmpty(); ++i) {
+      Building b = (Building) buildings.remove(random.nextInt(buildings.size()));
+      b.setIgnition(true);
+      ignitions.addChange(b, b.getIgnitionProperty());
+    }
+    time = 1;
+    simulator.update(new KSUpdate(SIMULATOR_ID, time, ignitions));
+  }
+
+  /**
+   * Run one timestep.
+   *
+   * @return The changes made by the simulator.
+   */
+  @Benchmark
+  public ChangeSet timestep() {
+    ChangeSet changes = new ChangeSet();
+    simulator.timestep(new KSCommands(SIMULATOR_ID, time++, Collections.<Command>emptyList()), changes);
+    return changes;
+  }
+
+  /**
+   * A fire simulator that is driven directly instead of through a kernel
+   * connection.
+   */
+  private static final class BenchmarkFireSimulator extends FireSimulatorWrapper {
+    BenchmarkFireSimulator(Config config, StandardWorldModel world) {
+      this.config = config;
+      this.model = world;
+      postConnect();
+    }
+
+    void update(KSUpdate update) {
+      handleUpdate(update);
+    }
+
+    void timestep(KSCommands commands, ChangeSet changes) {
+      processCommands(commands, changes);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.LogManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rescuecore2.log.Logger;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * The debug logging of one timestep when debug logging is turned off: the
+ * full command list once and a few messages per agent, first by building the
+ * strings and then with the parameterised methods. Run with '-prof gc' to see
+ * the garbage each creates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoggingBenchmark {
+  private static final int COMMANDS_PER_AGENT = 5;
+  private static final int MESSAGES_PER_AGENT = 3;
+
+  @Param({ "200" })
+  public int agents;
+
+  private List<EntityID> ids;
+  private List<EntityID> commands;
+
+  /**
+   * Turn off debug logging and create the agent IDs and commands.
+   */
+  @Setup
+  public void setup() {
+    LogManager.getRootLogger().setLevel(Level.INFO);
+    ids = new ArrayList<EntityID>();
+    for (int i = 0; i < agents; ++i) {
+      ids.add(new EntityID(i));
+    }
+    commands = new ArrayList<EntityID>();
+    for (int i = 0; i < agents * COMMANDS_PER_AGENT; ++i) {
+      commands.add(new EntityID(i));
+    }
+  }
+
+  /**
+   * Log a timestep by concatenating the messages.
+   */
+  @Benchmark
+  public void concatenation() {
+    Logger.debug("Commands: " + commands);
+    for (EntityID next : ids) {
+      for (int i = 0; i < MESSAGES_PER_AGENT; ++i) {
+        Logger.debug(next + " sent command " + commands);
+      }
+    }
+  }
+
+  /**
+   * Log a timestep with the parameterised methods.
+   */
+  @Benchmark
+  public void parameterised() {
+    Logger.debug("Commands: {}", commands);
+    for (EntityID next : ids) {
+      for (int i = 0; i < MESSAGES_PER_AGENT; ++i) {
+        Logger.debug("{} sent command {}", next, commands);
+      }
+    }
+  }
+}
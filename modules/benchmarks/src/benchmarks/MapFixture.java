@@ -0,0 +1,127 @@
+package benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import gis2.GMLWorldModelCreator;
+import kernel.KernelException;
+import rescuecore2.Constants;
+import rescuecore2.config.Config;
+import rescuecore2.config.ConfigException;
+import rescuecore2.messages.Command;
+import rescuecore2.registry.Registry;
+import rescuecore2.standard.entities.Area;
+import rescuecore2.standard.entities.Human;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardEntityFactory;
+import rescuecore2.standard.entities.StandardPropertyFactory;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.standard.messages.StandardMessageComponentFactory;
+import rescuecore2.standard.messages.AKMove;
+import rescuecore2.standard.messages.StandardMessageFactory;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * Builds benchmark fixtures from the maps in the maps directory, without a
+ * running kernel. The maps directory is taken from the
+ * {@value #MAPS_DIR_PROPERTY} system property and defaults to "maps" in the
+ * working directory.
+ */
+public final class MapFixture {
+  /** The system property that names the maps directory. */
+  public static final String MAPS_DIR_PROPERTY = "rcrs.maps.dir";
+
+  private static final String DEFAULT_MAPS_DIR = "maps";
+  private static final String SEED = "1";
+  private static final int PATH_LENGTH = 10;
+
+  static {
+    // The kernel normally registers these by scanning jars
+    Registry.SYSTEM_REGISTRY.registerFactory(StandardEntityFactory.INSTANCE);
+    Registry.SYSTEM_REGISTRY.registerFactory(StandardPropertyFactory.INSTANCE);
+    Registry.SYSTEM_REGISTRY.registerFactory(StandardMessageFactory.INSTANCE);
+    Registry.SYSTEM_REGISTRY.registerFactory(StandardMessageComponentFactory.INSTANCE);
+  }
+
+  private MapFixture() {
+  }
+
+  /**
+   * Load the kernel configuration for a map, including the configuration of all
+   * simulators. The random seed is fixed so that runs are repeatable.
+   *
+   * @param map The name of the map, for example "test" or "sakae".
+   * @return The configuration.
+   * @throws ConfigException If the configuration cannot be read.
+   */
+  public static Config loadConfig(String map) throws ConfigException {
+    File dir = new File(System.getProperty(MAPS_DIR_PROPERTY, DEFAULT_MAPS_DIR), map);
+    Config config = new Config(new File(dir, "config/kernel.cfg"));
+    config.setValue("gis.map.dir", new File(dir, "map").getPath());
+    config.setValue(Constants.RANDOM_SEED_KEY, SEED);
+    return config;
+  }
+
+  /**
+   * Build a new world model from the GML map and scenario named in a
+   * configuration.
+   *
+   * @param config The configuration.
+   * @return A new world model.
+   * @throws KernelException If the map or scenario cannot be read.
+   */
+  public static StandardWorldModel loadWorld(Config config) throws KernelException {
+    return StandardWorldModel.createStandardWorldModel(new GMLWorldModelCreator().buildWorldModel(config));
+  }
+
+  /**
+   * Create a move command for every human that is standing in an area. Each
+   * path is a random walk through neighbouring areas.
+   *
+   * @param world  The world model.
+   * @param time   The timestep of the commands.
+   * @param random The random number generator to use.
+   * @return The move commands.
+   */
+  public static List<Command> createMoveCommands(StandardWorldModel world, int time, Random random) {
+    List<Command> result = new ArrayList<Command>();
+    for (StandardEntity next : world) {
+      if (next instanceof Human) {
+        Human h = (Human) next;
+        StandardEntity position = h.isPositionDefined() ? world.getEntity(h.getPosition()) : null;
+        if (position instanceof Area) {
+          result.add(new AKMove(h.getID(), time, randomPath(world, (Area) position, random)));
+        }
+      }
+    }
+    return result;
+  }
+
+  private static List<EntityID> randomPath(StandardWorldModel world, Area start, Random random) {
+    List<EntityID> path = new ArrayList<EntityID>();
+    Set<EntityID> seen = new HashSet<EntityID>();
+    Area current = start;
+    path.add(current.getID());
+    seen.add(current.getID());
+    while (path.size() < PATH_LENGTH) {
+      List<EntityID> options = new ArrayList<EntityID>();
+      for (EntityID next : current.getNeighbours()) {
+        if (!seen.contains(next) && world.getEntity(next) instanceof Area) {
+          options.add(next);
+        }
+      }
+      if (options.isEmpty()) {
+        break;
+      }
+      EntityID chosen = options.get(random.nextInt(options.size()));
+      path.add(chosen);
+      seen.add(chosen);
+      current = (Area) world.getEntity(chosen);
+    }
+    return path;
+  }
+}
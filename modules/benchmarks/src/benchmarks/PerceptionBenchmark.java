@@ -0,0 +1,81 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import kernel.AgentProxy;
+import rescuecore2.config.Config;
+import rescuecore2.connection.Connection;
+import rescuecore2.connection.StreamConnection;
+import rescuecore2.standard.entities.Human;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.standard.kernel.LineOfSightPerception;
+
+/**
+ * Line of sight perception for every agent on a map, as the kernel computes it
+ * at the start of each timestep.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PerceptionBenchmark {
+  @Param({ "test", "sakae" })
+  public String map;
+
+  private LineOfSightPerception perception;
+  private List<AgentProxy> agents;
+  private int time;
+
+  /**
+   * Load the map and create a proxy for every human. The proxies are never
+   * connected to anything.
+   *
+   * @throws Exception If the map cannot be loaded.
+   */
+  @Setup
+  public void setup() throws Exception {
+    Config config = MapFixture.loadConfig(map);
+    StandardWorldModel world = MapFixture.loadWorld(config);
+    perception = new LineOfSightPerception();
+    perception.initialise(config, world);
+    agents = new ArrayList<AgentProxy>();
+    Connection unused = StreamConnection.createConnectionPair().first();
+    for (StandardEntity next : world) {
+      if (next instanceof Human) {
+        agents.add(new AgentProxy("Benchmark", next, unused));
+      }
+    }
+    time = 0;
+  }
+
+  /**
+   * Compute what every agent can see in one timestep.
+   *
+   * @param bh The blackhole.
+   */
+  @Benchmark
+  public void timestep(Blackhole bh) {
+    perception.setTime(++time);
+    for (AgentProxy next : agents) {
+      bh.consume(perception.getVisibleEntities(next));
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package benchmarks;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rescuecore2.messages.Command;
+import rescuecore2.messages.Message;
+import rescuecore2.messages.control.KSCommands;
+import rescuecore2.messages.control.KSUpdate;
+import rescuecore2.messages.protobuf.MsgProtoBuf;
+import rescuecore2.messages.protobuf.RCRSProto.ChangeSetProto;
+import rescuecore2.messages.protobuf.RCRSProto.MessageProto;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.ChangeSet;
+
+/**
+ * Conversion between messages and protobuf, for the largest messages the kernel
+ * sends: a simulator update covering the whole map and the commands of every
+ * agent.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtobufBenchmark {
+  private static final int SIMULATOR_ID = 1;
+  private static final int TIME = 1;
+
+  @Param({ "test", "sakae" })
+  public String map;
+
+  private ChangeSet changes;
+  private ChangeSetProto changesProto;
+  private KSUpdate update;
+  private byte[] updateBytes;
+  private KSCommands commands;
+  private byte[] commandsBytes;
+
+  /**
+   * Load the map and build the messages.
+   *
+   * @throws Exception If the map cannot be loaded.
+   */
+  @Setup
+  public void setup() throws Exception {
+    StandardWorldModel world = MapFixture.loadWorld(MapFixture.loadConfig(map));
+    changes = new ChangeSet();
+    changes.addAll(world.getAllEntities());
+    changesProto = changes.toChangeSetProto();
+    update = new KSUpdate(SIMULATOR_ID, TIME, changes);
+    updateBytes = update.toMessageProto().toByteArray();
+    List<Command> moves = MapFixture.createMoveCommands(world, TIME, new Random(1));
+    commands = new KSCommands(SIMULATOR_ID, TIME, moves);
+    commandsBytes = commands.toMessageProto().toByteArray();
+  }
+
+  /**
+   * Convert a ChangeSet to protobuf.
+   *
+   * @return The protobuf ChangeSet.
+   */
+  @Benchmark
+  public ChangeSetProto changeSetToProto() {
+    return changes.toChangeSetProto();
+  }
+
+  /**
+   * Convert a protobuf ChangeSet back.
+   *
+   * @return The ChangeSet.
+   */
+  @Benchmark
+  public ChangeSet changeSetFromProto() {
+    ChangeSet result = new ChangeSet();
+    result.fromChangeSetProto(changesProto);
+    return result;
+  }
+
+  /**
+   * Encode a simulator update as it is written to a connection.
+   *
+   * @return The encoded message.
+   */
+  @Benchmark
+  public byte[] encodeUpdate() {
+    return update.toMessageProto().toByteArray();
+  }
+
+  /**
+   * Decode a simulator update as it is read from a connection.
+   *
+   * @return The decoded message.
+   * @throws Exception If the message cannot be parsed.
+   */
+  @Benchmark
+  public Message decodeUpdate() throws Exception {
+    return MsgProtoBuf.messageProto2Message(MessageProto.parseFrom(updateBytes));
+  }
+
+  /**
+   * Encode the commands sent to a simulator.
+   *
+   * @return The encoded message.
+   */
+  @Benchmark
+  public byte[] encodeCommands() {
+    return commands.toMessageProto().toByteArray();
+  }
+
+  /**
+   * Decode the commands sent to a simulator.
+   *
+   * @return The decoded message.
+   * @throws Exception If the message cannot be parsed.
+   */
+  @Benchmark
+  public Message decodeCommands() throws Exception {
+    return MsgProtoBuf.messageProto2Message(MessageProto.parseFrom(commandsBytes));
+  }
+}
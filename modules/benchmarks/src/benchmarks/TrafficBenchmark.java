@@ -0,0 +1,92 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import rescuecore2.config.Config;
+import rescuecore2.messages.control.KSCommands;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.ChangeSet;
+import traffic3.simulator.TrafficSimulator;
+
+/**
+ * One timestep of the traffic simulator, in which every human on the map is
+ * given a move command. Most of the time goes in the microsteps that call
+ * TrafficAgent.step.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TrafficBenchmark {
+  private static final int SIMULATOR_ID = 1;
+
+  @Param({ "test", "sakae" })
+  public String map;
+
+  private BenchmarkTrafficSimulator simulator;
+  private Random random;
+  private int time;
+
+  /**
+   * Load the map and start the simulator.
+   *
+   * @throws Exception If the map cannot be loaded.
+   */
+  @Setup
+  public void setup() throws Exception {
+    Config config = MapFixture.loadConfig(map);
+    simulator = new BenchmarkTrafficSimulator(config, MapFixture.loadWorld(config));
+    random = new Random(1);
+    time = 0;
+  }
+
+  /**
+   * Move every human for one timestep. Each move starts where the previous
+   * timestep left the human.
+   *
+   * @return The changes made by the simulator.
+   */
+  @Benchmark
+  public ChangeSet timestep() {
+    ++time;
+    ChangeSet changes = new ChangeSet();
+    simulator.timestep(new KSCommands(SIMULATOR_ID, time,
+        MapFixture.createMoveCommands(simulator.getWorld(), time, random)), changes);
+    return changes;
+  }
+
+  /**
+   * A traffic simulator that is driven directly instead of through a kernel
+   * connection.
+   */
+  private static final class BenchmarkTrafficSimulator extends TrafficSimulator {
+    BenchmarkTrafficSimulator(Config config, StandardWorldModel world) {
+      this.config = config;
+      this.model = world;
+      postConnect();
+    }
+
+    StandardWorldModel getWorld() {
+      return model;
+    }
+
+    void timestep(KSCommands commands, ChangeSet changes) {
+      processCommands(commands, changes);
+    }
+  }
+}
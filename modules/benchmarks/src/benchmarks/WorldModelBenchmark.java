@@ -0,0 +1,203 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import rescuecore2.config.Config;
+import rescuecore2.messages.control.KSUpdate;
+import rescuecore2.messages.protobuf.MsgProtoBuf;
+import rescuecore2.messages.protobuf.RCRSProto.MessageProto;
+import rescuecore2.misc.Pair;
+import rescuecore2.standard.entities.Building;
+import rescuecore2.standard.entities.Human;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardEntityURN;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.ChangeSet;
+import rescuecore2.worldmodel.EntityID;
+import rescuecore2.worldmodel.Property;
+
+/**
+ * StandardWorldModel queries that perception and the simulators make every
+ * timestep, and the decoding and merging of a timestep's updates. Run with
+ * '-prof gc' to see the garbage each creates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WorldModelBenchmark {
+  private static final String VIEW_DISTANCE_KEY = "perception.los.max-distance";
+  private static final int DEFAULT_VIEW_DISTANCE = 30000;
+  private static final int SIMULATOR_ID = 1;
+  private static final int TIME = 1;
+  // About as many as the simulators send in a busy timestep
+  private static final int TIMESTEP_CHANGES = 1000;
+
+  @Param({ "test", "sakae" })
+  public String map;
+
+  private StandardWorldModel world;
+  private List<Pair<Integer, Integer>> locations;
+  private int viewDistance;
+  private byte[] updateBytes;
+  private List<EntityID> ids;
+  private int[] values;
+
+  /**
+   * Load the map, find the location of every human and encode an update that
+   * changes the state of random humans and buildings.
+   *
+   * @throws Exception If the map cannot be loaded.
+   */
+  @Setup
+  public void setup() throws Exception {
+    Config config = MapFixture.loadConfig(map);
+    world = MapFixture.loadWorld(config);
+    viewDistance = config.getIntValue(VIEW_DISTANCE_KEY, DEFAULT_VIEW_DISTANCE);
+    locations = new ArrayList<Pair<Integer, Integer>>();
+    for (StandardEntity next : world) {
+      if (next instanceof Human) {
+        Pair<Integer, Integer> location = next.getLocation(world);
+        if (location != null) {
+          locations.add(location);
+        }
+      }
+    }
+    List<StandardEntity> entities = new ArrayList<StandardEntity>(world.getAllEntities());
+    Collections.shuffle(entities, new Random(1));
+    ChangeSet changes = new ChangeSet();
+    int count = 0;
+    for (StandardEntity next : entities) {
+      List<Property> properties = new ArrayList<Property>();
+      if (next instanceof Human) {
+        Human h = (Human) next;
+        Collections.addAll(properties, h.getXProperty(), h.getYProperty(), h.getPositionProperty(), h.getHPProperty(),
+            h.getDamageProperty(), h.getBuriednessProperty());
+      } else if (next instanceof Building) {
+        Building b = (Building) next;
+        Collections.addAll(properties, b.getTemperatureProperty(), b.getFierynessProperty(), b.getBrokennessProperty());
+      }
+      for (Property property : properties) {
+        if (property.isDefined() && count < TIMESTEP_CHANGES) {
+          changes.addChange(next, property);
+          ++count;
+        }
+      }
+    }
+    updateBytes = new KSUpdate(SIMULATOR_ID, TIME, changes).toMessageProto().toByteArray();
+    ids = new ArrayList<EntityID>(changes.getChangedEntities());
+    values = new int[ids.size()];
+    for (int i = 0; i < values.length; ++i) {
+      values[i] = ids.get(i).getValue();
+    }
+  }
+
+  /**
+   * Find the entities within view distance of every human.
+   *
+   * @param bh The blackhole.
+   */
+  @Benchmark
+  public void objectsInRange(Blackhole bh) {
+    for (Pair<Integer, Integer> next : locations) {
+      bh.consume(world.getObjectsInRange(next.first(), next.second(), viewDistance));
+    }
+  }
+
+  /**
+   * Look up the entities of the types the simulators iterate over.
+   *
+   * @param bh The blackhole.
+   */
+  @Benchmark
+  public void entitiesOfType(Blackhole bh) {
+    bh.consume(world.getEntitiesOfType(StandardEntityURN.BUILDING));
+    bh.consume(world.getEntitiesOfType(StandardEntityURN.ROAD));
+    bh.consume(world.getEntitiesOfType(StandardEntityURN.CIVILIAN, StandardEntityURN.FIRE_BRIGADE,
+        StandardEntityURN.POLICE_FORCE, StandardEntityURN.AMBULANCE_TEAM));
+  }
+
+  /**
+   * Rebuild the spatial index.
+   *
+   * @return The world model.
+   */
+  @Benchmark
+  public StandardWorldModel index() {
+    world.index();
+    return world;
+  }
+
+  /**
+   * Walk every entity in the world model.
+   *
+   * @return The number of entities.
+   */
+  @Benchmark
+  public int iterate() {
+    Collection<StandardEntity> all = world.getAllEntities();
+    int count = 0;
+    for (StandardEntity next : all) {
+      count += next.getID().getValue() & 1;
+    }
+    return count;
+  }
+
+  /**
+   * Decode a simulator update as it is read from a connection and merge it
+   * into the world model.
+   *
+   * @return The world model.
+   * @throws Exception If the message cannot be parsed.
+   */
+  @Benchmark
+  public StandardWorldModel decodeAndMerge() throws Exception {
+    KSUpdate update = (KSUpdate) MsgProtoBuf.messageProto2Message(MessageProto.parseFrom(updateBytes));
+    world.merge(update.getChangeSet());
+    return world;
+  }
+
+  /**
+   * Look up every entity in the update by EntityID.
+   *
+   * @param bh The blackhole.
+   */
+  @Benchmark
+  public void lookupByID(Blackhole bh) {
+    for (EntityID next : ids) {
+      bh.consume(world.getEntity(next));
+    }
+  }
+
+  /**
+   * Look up every entity in the update by raw ID.
+   *
+   * @param bh The blackhole.
+   */
+  @Benchmark
+  public void lookupByValue(Blackhole bh) {
+    for (int next : values) {
+      bh.consume(world.getEntity(next));
+    }
+  }
+}
@@ -1,12 +1,15 @@
 package clear;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
 import rescuecore2.log.Logger;
 import rescuecore2.messages.Command;
 import rescuecore2.messages.control.KSCommands;
@@ -21,6 +24,7 @@ import rescuecore2.standard.entities.Road;
 import rescuecore2.standard.entities.StandardEntity;
 import rescuecore2.standard.messages.AKClear;
 import rescuecore2.standard.messages.AKClearArea;
+import rescuecore2.standard.misc.BlockadeGeometry;
 import rescuecore2.worldmodel.ChangeSet;
 import rescuecore2.worldmodel.EntityID;
 
@@ -42,6 +46,9 @@ public class ClearSimulator extends StandardSimulator {
   private int repairRadius;
   private int repairDistance;
 
+  // Blockade outlines keyed by blockade, reused until the apexes change
+  private Map<EntityID, CachedGeometry> blockadeGeometry;
+
   @Override
   public String getName() {
     return SIMULATOR_NAME;
@@ -53,6 +60,7 @@ public class ClearSimulator extends StandardSimulator {
     this.repairRate = config.getIntValue(REPAIR_RATE_KEY);
     this.repairRadius = config.getIntValue(REPAIR_RAD_KEY);
     this.repairDistance = config.getIntValue(REPAIR_DISTANCE_KEY);
+    this.blockadeGeometry = new HashMap<>();
   }
 
 
@@ -61,6 +69,7 @@ public class ClearSimulator extends StandardSimulator {
     long start = System.currentTimeMillis();
     int time = c.getTime();
     Logger.info("Timestep " + time);
+    blockadeGeometry.keySet().removeIf(id -> model.getEntity(id) == null);
     Map<Blockade, Integer> partiallyCleared = new HashMap<>();
     Set<EntityID> cleared = new HashSet<>();
     for (Command command : c.getCommands()) {
@@ -139,37 +148,46 @@ public class ClearSimulator extends StandardSimulator {
 
     int length = this.repairDistance;
 
-    Map<Blockade, java.awt.geom.Area> blockades = new HashMap<>();
+    // Every area tried by the search below lies inside the longest one, so
+    // blockades outside it can neither be cleared nor change the search
+    PreparedGeometry reach = PreparedGeometryFactory.prepare(Geometry
+        .getClearArea(agent, targetX, targetY, 2 * length, this.repairRadius));
+    Map<Blockade, com.vividsolutions.jts.geom.Geometry> blockades = new HashMap<>();
     for (StandardEntity entity : model.getObjectsInRange(agent.getX(),
         agent.getY(), length)) {
       if ((entity instanceof Area area) && (area.isBlockadesDefined())) {
         for (EntityID blockadeID : area.getBlockades()) {
           Blockade blockade = (Blockade) model.getEntity(blockadeID);
           if (blockade != null) {
-            if (blockade.getShape() == null) {
+            if (!blockade.isApexesDefined()) {
               Logger.debug("Blockade Shape is null");
+              continue;
+            }
+            com.vividsolutions.jts.geom.Geometry geometry = getBlockadeGeometry(
+                blockade);
+            if (reach.intersects(geometry)) {
+              blockades.put(blockade, geometry);
             }
-            blockades.put(blockade,
-                new java.awt.geom.Area(blockade.getShape()));
           }
         }
       }
     }
 
+    // The surface cleared by a candidate area is its overlap with the union of
+    // all nearby blockades, so the union is built once for the whole search
+    com.vividsolutions.jts.geom.Geometry allBlockades = BlockadeGeometry
+        .union(blockades.values());
     int counter = 0;
     int min = 0;
     int max = 2 * length;
     while (true) {
       counter++;
       length = (min + max) / 2;
-      java.awt.geom.Area area = Geometry.getClearArea(agent, targetX, targetY,
-          length, this.repairRadius);
+      com.vividsolutions.jts.geom.Geometry area = Geometry.getClearArea(agent,
+          targetX, targetY, length, this.repairRadius);
 
-      double firstSurface = Geometry.surface(area);
-      for (java.awt.geom.Area blockade : blockades.values())
-        area.subtract(blockade);
-      double surface = Geometry.surface(area);
-      double clearedSurface = firstSurface - surface;
+      double clearedSurface = BlockadeGeometry
+          .getIntersectionArea(allBlockades, area);
 
       if ((clearedSurface * REPAIR_COST_FACTOR) > this.repairRate) {
         max = length;
@@ -180,18 +198,22 @@ public class ClearSimulator extends StandardSimulator {
       }
     }
 
-    java.awt.geom.Area area = Geometry.getClearArea(agent, targetX, targetY,
-        length, this.repairRadius);
-    for (Map.Entry<Blockade, java.awt.geom.Area> entry : blockades.entrySet()) {
+    PreparedGeometry area = PreparedGeometryFactory.prepare(Geometry
+        .getClearArea(agent, targetX, targetY, length, this.repairRadius));
+    for (Map.Entry<Blockade, com.vividsolutions.jts.geom.Geometry> entry : blockades
+        .entrySet()) {
       Blockade blockade = entry.getKey();
-      java.awt.geom.Area blockadeArea = entry.getValue();
+      com.vividsolutions.jts.geom.Geometry blockadeArea = entry.getValue();
+      if (!area.intersects(blockadeArea)) {
+        continue;
+      }
       Road road = (Road) model.getEntity(blockade.getPosition());
-      double firstSurface = Geometry.surface(blockadeArea);
-      blockadeArea.subtract(area);
-      double surface = Geometry.surface(blockadeArea);
+      double firstSurface = blockadeArea.getArea();
+      blockadeArea = blockadeArea.difference(area.getGeometry());
+      double surface = blockadeArea.getArea();
       if (surface < firstSurface) {
         changes.addChange(blockade, blockade.getApexesProperty());
-        List<int[]> areas = Geometry.getAreas(blockadeArea);
+        List<int[]> areas = BlockadeGeometry.toApexes(blockadeArea);
         if (areas.size() == 1) {
           Blockade backupBlockade = blockade;
           blockade = updateBlockadeApexes(blockade, areas.get(0));
@@ -242,6 +264,19 @@ public class ClearSimulator extends StandardSimulator {
   }
 
 
+  private com.vividsolutions.jts.geom.Geometry getBlockadeGeometry(
+      Blockade blockade) {
+    int[] apexes = blockade.getApexes();
+    CachedGeometry cached = blockadeGeometry.get(blockade.getID());
+    if (cached == null || !Arrays.equals(cached.apexes, apexes)) {
+      cached = new CachedGeometry(apexes.clone(),
+          BlockadeGeometry.toPolygon(apexes));
+      blockadeGeometry.put(blockade.getID(), cached);
+    }
+    return cached.geometry;
+  }
+
+
   private Blockade updateBlockadeApexes(Blockade blockade, int[] apexes) {
     List<Point2D> points = GeometryTools2D.vertexArrayToPoints(apexes);
     if (points.size() >= 2) {
@@ -374,4 +409,17 @@ public class ClearSimulator extends StandardSimulator {
     }
     return true;
   }
-}
\ No newline at end of file
+
+
+  private static class CachedGeometry {
+
+    private final int[] apexes;
+    private final com.vividsolutions.jts.geom.Geometry geometry;
+
+
+    CachedGeometry(int[] apexes, com.vividsolutions.jts.geom.Geometry geometry) {
+      this.apexes = apexes;
+      this.geometry = geometry;
+    }
+  }
+}
@@ -9,8 +9,6 @@ import rescuecore2.worldmodel.EntityID;
 import rescuecore2.worldmodel.WorldModelListener;
 import rescuecore2.worldmodel.WorldModel;
 import rescuecore2.misc.geometry.Point2D;
-import rescuecore2.misc.geometry.Line2D;
-import rescuecore2.misc.geometry.Vector2D;
 import rescuecore2.misc.geometry.GeometryTools2D;
 import rescuecore2.misc.collections.LazyMap;
 import rescuecore2.log.Logger;
@@ -22,9 +20,9 @@ import rescuecore2.standard.entities.StandardEntityURN;
 import rescuecore2.standard.entities.StandardEntityConstants;
 import rescuecore2.standard.entities.Building;
 import rescuecore2.standard.entities.Road;
-import rescuecore2.standard.entities.Edge;
 import rescuecore2.standard.entities.Blockade;
 import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.standard.misc.BlockadeGeometry;
 
 import org.uncommons.maths.random.GaussianGenerator;
 import org.uncommons.maths.random.ContinuousUniformGenerator;
@@ -40,9 +38,10 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Collection;
 
-import java.awt.geom.Path2D;
-import java.awt.geom.Ellipse2D;
-import java.awt.geom.PathIterator;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
 
 import javax.swing.JComponent;
 
@@ -125,6 +124,8 @@ public class CollapseSimulator extends StandardSimulator implements
 	private CollapseSimulatorGUI gui;
 	private Collection<Building> buildingCache;
 	private Collection<Road> roadCache;
+	// Roads never change shape so their outlines are built once
+	private Map<Road, Geometry> roadGeometry;
 
 	public CollapseSimulator() {
 	}
@@ -184,6 +185,7 @@ public class CollapseSimulator extends StandardSimulator implements
 				config.getRandom());
 		buildingCache = new HashSet<Building>();
 		roadCache = new HashSet<Road>();
+		roadGeometry = new HashMap<Road, Geometry>();
 		for (StandardEntity next : model) {
 			if (next instanceof Building) {
 				buildingCache.add((Building) next);
@@ -212,6 +214,7 @@ public class CollapseSimulator extends StandardSimulator implements
 				}
 				if (e instanceof Road) {
 					roadCache.remove((Road) e);
+					roadGeometry.remove((Road) e);
 				}
 			}
 		});
@@ -226,8 +229,7 @@ public class CollapseSimulator extends StandardSimulator implements
 			gui.timestep(time);
 		}
 		Collection<Building> collapsed = doCollapse(changes, time);
-		Map<Road, Collection<java.awt.geom.Area>> newBlock = doBlock(collapsed,
-				time);
+		Map<Road, Collection<int[]>> newBlock = doBlock(collapsed, time);
 		// Create blockade objects
 		Map<Road, Collection<Blockade>> blockades = createBlockadeObjects(newBlock);
 		for (Map.Entry<Road, Collection<Blockade>> entry : blockades.entrySet()) {
@@ -285,12 +287,12 @@ public class CollapseSimulator extends StandardSimulator implements
 	static long t2;
 	static long t3;
 
-	private Map<Road, Collection<java.awt.geom.Area>> doBlock(
+	private Map<Road, Collection<int[]>> doBlock(
 			Collection<Building> collapsed, int time) {
-		Map<Road, Collection<java.awt.geom.Area>> result = new LazyMap<Road, Collection<java.awt.geom.Area>>() {
+		Map<Road, Collection<int[]>> result = new LazyMap<Road, Collection<int[]>>() {
 			@Override
-			public Collection<java.awt.geom.Area> createValue() {
-				return new ArrayList<java.awt.geom.Area>();
+			public Collection<int[]> createValue() {
+				return new ArrayList<int[]>();
 			}
 		};
 		if (!block) {
@@ -427,7 +429,7 @@ public class CollapseSimulator extends StandardSimulator implements
 	}
 
 	private Map<Road, Collection<Blockade>> createBlockadeObjects(
-			Map<Road, Collection<java.awt.geom.Area>> blocks) {
+			Map<Road, Collection<int[]>> blocks) {
 		Map<Road, Collection<Blockade>> result = new LazyMap<Road, Collection<Blockade>>() {
 			@Override
 			public Collection<Blockade> createValue() {
@@ -435,7 +437,7 @@ public class CollapseSimulator extends StandardSimulator implements
 			}
 		};
 		int count = 0;
-		for (Collection<java.awt.geom.Area> c : blocks.values()) {
+		for (Collection<int[]> c : blocks.values()) {
 			count += c.size();
 		}
 		try {
@@ -443,12 +445,12 @@ public class CollapseSimulator extends StandardSimulator implements
 				List<EntityID> newIDs = requestNewEntityIDs(count);
 				Iterator<EntityID> it = newIDs.iterator();
 				Logger.debug("Creating new blockade objects");
-				for (Map.Entry<Road, Collection<java.awt.geom.Area>> entry : blocks
+				for (Map.Entry<Road, Collection<int[]>> entry : blocks
 						.entrySet()) {
 					Road r = entry.getKey();
-					for (java.awt.geom.Area area : entry.getValue()) {
+					for (int[] apexes : entry.getValue()) {
 						EntityID id = it.next();
-						Blockade blockade = makeBlockade(id, area, r.getID());
+						Blockade blockade = makeBlockade(id, apexes, r.getID());
 						if (blockade != null) {
 							result.get(r).add(blockade);
 						}
@@ -462,7 +464,7 @@ public class CollapseSimulator extends StandardSimulator implements
 	}
 
 	private void createBlockages(Building b,
-			Map<Road, Collection<java.awt.geom.Area>> roadBlockages, int time) {
+			Map<Road, Collection<int[]>> roadBlockages, int time) {
 		long t = System.currentTimeMillis();
 		Logger.debug("Creating blockages for " + b);
 		/*
@@ -494,15 +496,8 @@ public class CollapseSimulator extends StandardSimulator implements
 				(float) (d / model().getCSBuiding(b).getTotalCollapse(
 						floorHeight)));
 		// Place some blockages on surrounding roads
-		List<java.awt.geom.Area> wallAreas = new ArrayList<java.awt.geom.Area>();
-		// Project each wall out and build a list of wall areas
-		for (Edge edge : b.getEdges()) {
-			projectWall(edge, wallAreas, d);
-		}
-		java.awt.geom.Area fullArea = new java.awt.geom.Area();
-		for (java.awt.geom.Area wallArea : wallAreas) {
-			fullArea.add(wallArea);
-		}
+		// Project each wall out by d, with rounded ends at the corners
+		Geometry fullArea = BlockadeGeometry.projectWalls(b.getApexList(), d);
 
 		/*
 		 * new ShapeDebugFrame().show("Collapsed building", new
@@ -511,178 +506,77 @@ public class CollapseSimulator extends StandardSimulator implements
 		 * "Expanded building area (d = " + d + ")", Color.BLACK, false) );
 		 */
 		// Find existing blockade areas
-		java.awt.geom.Area existing = new java.awt.geom.Area();
+		Geometry existing = BlockadeGeometry.getFactory().createPolygon(null,
+				null);
 		if (policy.equals(CollapsePolicy.MERGE_BLOCKADES)) {
+			List<Geometry> blockades = new ArrayList<Geometry>();
 			for (StandardEntity e : model
 					.getEntitiesOfType(StandardEntityURN.BLOCKADE)) {
 				Blockade blockade = (Blockade) e;
-				existing.add(blockadeToArea(blockade));
+				blockades.add(BlockadeGeometry.toPolygon(blockade.getApexes()));
 			}
+			existing = BlockadeGeometry.union(blockades);
 		}
 		t2 += System.currentTimeMillis() - t;
 		// Intersect wall areas with roads
 		t = System.currentTimeMillis();
-		Map<Road, Collection<java.awt.geom.Area>> blockadesForRoads = createRoadBlockades(
+		Map<Road, Collection<int[]>> blockadesForRoads = createRoadBlockades(
 				fullArea, existing);
 		t3 += System.currentTimeMillis() - t;
 		// Add to roadBlockages
-		for (Map.Entry<Road, Collection<java.awt.geom.Area>> entry : blockadesForRoads
+		for (Map.Entry<Road, Collection<int[]>> entry : blockadesForRoads
 				.entrySet()) {
 			Road r = entry.getKey();
-			Collection<java.awt.geom.Area> c = entry.getValue();
+			Collection<int[]> c = entry.getValue();
 			roadBlockages.get(r).addAll(c);
 		}
 	}
 
-	private void projectWall(Edge edge,
-			Collection<java.awt.geom.Area> areaList, double d) {
-		Line2D wallLine = new Line2D(edge.getStartX(), edge.getStartY(),
-				edge.getEndX() - edge.getStartX(), edge.getEndY()
-						- edge.getStartY());
-		Vector2D wallDirection = wallLine.getDirection();
-		Vector2D offset = wallDirection.getNormal().normalised().scale(-d);
-		Path2D path = new Path2D.Double();
-                
-		Point2D right = wallLine.getOrigin();
-		Point2D left = wallLine.getEndPoint();
-                
-		Point2D first = left.plus(offset.scale(-1));
-		Point2D second = right.plus(offset.scale(-1));
-		Point2D third = right.plus(offset);
-		Point2D fourth = left.plus(offset);
-                
-		path.moveTo(first.getX(), first.getY());
-		path.lineTo(second.getX(), second.getY());
-		path.lineTo(third.getX(), third.getY());
-		path.lineTo(fourth.getX(), fourth.getY());
-		path.closePath();
-                
-		java.awt.geom.Area wallArea = new java.awt.geom.Area(path);
-		areaList.add(wallArea);
-		// Also add circles at each corner
-		double radius = offset.getLength();
-		Ellipse2D ellipse1 = new Ellipse2D.Double(right.getX() - radius,
-				right.getY() - radius, radius * 2, radius * 2);
-		Ellipse2D ellipse2 = new Ellipse2D.Double(left.getX() - radius,
-				left.getY() - radius, radius * 2, radius * 2);
-		areaList.add(new java.awt.geom.Area(ellipse1));
-		areaList.add(new java.awt.geom.Area(ellipse2));
-		// Logger.info("Edge from " + wallLine + " expanded to " + first + ", "
-		// + second + ", " + third + ", " + fourth);
-		// debug.show("Collapsed building",
-		// new ShapeDebugFrame.AWTShapeInfo(buildingArea,
-		// "Original building area", Color.RED, true),
-		// new ShapeDebugFrame.Line2DShapeInfo(wallLine, "Wall edge",
-		// Color.WHITE, true, true),
-		// new ShapeDebugFrame.AWTShapeInfo(wallArea, "Wall area (d = " + d +
-		// ")", Color.GREEN, false),
-		// new ShapeDebugFrame.AWTShapeInfo(ellipse1, "Ellipse 1", Color.BLUE,
-		// false),
-		// new ShapeDebugFrame.AWTShapeInfo(ellipse2, "Ellipse 2", Color.ORANGE,
-		// false)
-		// );
-	}
-
-	private Map<Road, Collection<java.awt.geom.Area>> createRoadBlockades(
-			java.awt.geom.Area buildingArea, java.awt.geom.Area existing) {
-		Map<Road, Collection<java.awt.geom.Area>> result = new HashMap<Road, Collection<java.awt.geom.Area>>();
-		java.awt.Rectangle rectangle = buildingArea.getBounds();
+	private Map<Road, Collection<int[]>> createRoadBlockades(
+			Geometry buildingArea, Geometry existing) {
+		Map<Road, Collection<int[]>> result = new HashMap<Road, Collection<int[]>>();
+		if (buildingArea.isEmpty()) {
+			return result;
+		}
+		PreparedGeometry preparedArea = PreparedGeometryFactory
+				.prepare(buildingArea);
+		Envelope bounds = buildingArea.getEnvelopeInternal();
 		Collection<StandardEntity> roads = model.getObjectsInRectangle(
-				(int) rectangle.getMinX(), (int) rectangle.getMinY(),
-				(int) rectangle.getMaxX(), (int) rectangle.getMaxY());
+				(int) bounds.getMinX(), (int) bounds.getMinY(),
+				(int) bounds.getMaxX(), (int) bounds.getMaxY());
 		for (StandardEntity e : roads) {
 			if (!(e instanceof Road)) {
 				continue;
 			}
 			Road r = (Road) e;
-			java.awt.geom.Area roadArea = areaToGeomArea(r);
-			java.awt.geom.Area intersection = new java.awt.geom.Area(roadArea);
-			intersection.intersect(buildingArea);
-			intersection.subtract(existing);
-			if (intersection.isEmpty()) {
+			Geometry roadArea = getRoadGeometry(r);
+			if (!preparedArea.intersects(roadArea)) {
 				continue;
 			}
-			existing.add(intersection);
-			List<java.awt.geom.Area> blockadeAreas = fix(intersection);
-			result.put(r, blockadeAreas);
-			// debug.show("Road blockage",
-			// new ShapeDebugFrame.AWTShapeInfo(buildingArea, "Building area",
-			// Color.BLACK, false),
-			// new ShapeDebugFrame.AWTShapeInfo(roadArea, "Road area",
-			// Color.BLUE, false),
-			// new ShapeDebugFrame.AWTShapeInfo(intersection, "Intersection",
-			// Color.GREEN, true)
-			// );
+			Geometry intersection = roadArea.intersection(buildingArea);
+			if (!existing.isEmpty()) {
+				intersection = intersection.difference(existing);
+			}
+			if (intersection.getArea() <= 0) {
+				continue;
+			}
+			existing = existing.union(intersection);
+			result.put(r, BlockadeGeometry.toApexes(intersection));
 		}
 		return result;
 	}
 
-	private java.awt.geom.Area areaToGeomArea(
-			rescuecore2.standard.entities.Area area) {
-		Path2D result = new Path2D.Double();
-		Iterator<Edge> it = area.getEdges().iterator();
-		Edge e = it.next();
-		result.moveTo(e.getStartX(), e.getStartY());
-		result.lineTo(e.getEndX(), e.getEndY());
-		while (it.hasNext()) {
-			e = it.next();
-			result.lineTo(e.getEndX(), e.getEndY());
-		}
-		return new java.awt.geom.Area(result);
-	}
-
-	private List<java.awt.geom.Area> fix(java.awt.geom.Area area) {
-		List<java.awt.geom.Area> result = new ArrayList<java.awt.geom.Area>();
-		if (area.isSingular()) {
-			result.add(area);
-			return result;
-		}
-		PathIterator it = area.getPathIterator(null);
-		Path2D current = null;
-		// CHECKSTYLE:OFF:MagicNumber
-		double[] d = new double[6];
-		while (!it.isDone()) {
-			switch (it.currentSegment(d)) {
-			case PathIterator.SEG_MOVETO:
-				if (current != null) {
-					result.add(new java.awt.geom.Area(current));
-				}
-				current = new Path2D.Double();
-				current.moveTo(d[0], d[1]);
-				break;
-			case PathIterator.SEG_LINETO:
-				current.lineTo(d[0], d[1]);
-				break;
-			case PathIterator.SEG_QUADTO:
-				current.quadTo(d[0], d[1], d[2], d[3]);
-				break;
-			case PathIterator.SEG_CUBICTO:
-				current.curveTo(d[0], d[1], d[2], d[3], d[4], d[5]);
-				break;
-			case PathIterator.SEG_CLOSE:
-				current.closePath();
-				break;
-			default:
-				throw new RuntimeException(
-						"Unexpected result from PathIterator.currentSegment: "
-								+ it.currentSegment(d));
-			}
-			it.next();
-		}
-		// CHECKSTYLE:ON:MagicNumber
-		if (current != null) {
-			result.add(new java.awt.geom.Area(current));
+	private Geometry getRoadGeometry(Road road) {
+		Geometry result = roadGeometry.get(road);
+		if (result == null) {
+			result = BlockadeGeometry.toPolygon(road.getApexList());
+			roadGeometry.put(road, result);
 		}
 		return result;
 	}
 
-	private Blockade makeBlockade(EntityID id, java.awt.geom.Area area,
-			EntityID roadID) {
-		if (area.isEmpty()) {
-			return null;
-		}
+	private Blockade makeBlockade(EntityID id, int[] apexes, EntityID roadID) {
 		Blockade result = new Blockade(id);
-		int[] apexes = getApexes(area);
 		List<Point2D> points = GeometryTools2D.vertexArrayToPoints(apexes);
 		if (points.size() < 2) {
 			return null;
@@ -700,90 +594,6 @@ public class CollapseSimulator extends StandardSimulator implements
 		return result;
 	}
 
-	private int[] getApexes(java.awt.geom.Area area) {
-		// Logger.debug("getApexes");
-		List<Integer> apexes = new ArrayList<Integer>();
-		// CHECKSTYLE:OFF:MagicNumber
-		PathIterator it = area.getPathIterator(null, 100);
-		double[] d = new double[6];
-		int moveX = 0;
-		int moveY = 0;
-		int lastX = 0;
-		int lastY = 0;
-		boolean finished = false;
-		while (!finished && !it.isDone()) {
-			int x = 0;
-			int y = 0;
-			switch (it.currentSegment(d)) {
-			case PathIterator.SEG_MOVETO:
-				x = (int) d[0];
-				y = (int) d[1];
-				moveX = x;
-				moveY = y;
-				// Logger.debug("Move to " + x + ", " + y);
-				break;
-			case PathIterator.SEG_LINETO:
-				x = (int) d[0];
-				y = (int) d[1];
-				// Logger.debug("Line to " + x + ", " + y);
-				if (x == moveX && y == moveY) {
-					finished = true;
-				}
-				break;
-			case PathIterator.SEG_QUADTO:
-				x = (int) d[2];
-				y = (int) d[3];
-				// Logger.debug("Quad to " + x + ", " + y);
-				if (x == moveX && y == moveY) {
-					finished = true;
-				}
-				break;
-			case PathIterator.SEG_CUBICTO:
-				x = (int) d[4];
-				y = (int) d[5];
-				// Logger.debug("Cubic to " + x + ", " + y);
-				if (x == moveX && y == moveY) {
-					finished = true;
-				}
-				break;
-			case PathIterator.SEG_CLOSE:
-				// Logger.debug("Close");
-				finished = true;
-				break;
-			default:
-				throw new RuntimeException(
-						"Unexpected result from PathIterator.currentSegment: "
-								+ it.currentSegment(d));
-			}
-			// Logger.debug(x + ", " + y);
-			if (!finished && (x != lastX || y != lastY)) {
-				apexes.add(x);
-				apexes.add(y);
-			}
-			lastX = x;
-			lastY = y;
-			it.next();
-		}
-		// CHECKSTYLE:ON:MagicNumber
-		int[] result = new int[apexes.size()];
-		int i = 0;
-		for (Integer next : apexes) {
-			result[i++] = next;
-		}
-		return result;
-	}
-
-	private java.awt.geom.Area blockadeToArea(Blockade b) {
-		Path2D result = new Path2D.Double();
-		int[] apexes = b.getApexes();
-		result.moveTo(apexes[0], apexes[1]);
-		for (int i = 2; i < apexes.length; i += 2) {
-			result.lineTo(apexes[i], apexes[i + 1]);
-		}
-		result.closePath();
-		return new java.awt.geom.Area(result);
-	}
-
 	private class CollapseStats {
 		private double pDestroyed;
 		private double pSevere;
@@ -1,8 +1,13 @@
 package gis2;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 import kernel.KernelException;
 import kernel.WorldModelCreator;
 import maps.CoordinateConversion;
@@ -23,6 +28,7 @@ import rescuecore2.config.Config;
 import rescuecore2.misc.geometry.GeometryTools2D;
 import rescuecore2.misc.geometry.Point2D;
 import rescuecore2.scenario.exceptions.ScenarioException;
+import rescuecore2.standard.entities.Area;
 import rescuecore2.standard.entities.Building;
 import rescuecore2.standard.entities.Edge;
 import rescuecore2.standard.entities.Road;
@@ -47,6 +53,9 @@ public class GMLWorldModelCreator implements WorldModelCreator {
   private static final String BUILDING_CODE_PLACEMENT_TYPE = "gis.map.building-code-placement.random";
   private static final String RANDOM_BUILDING_CODE_RATE = "gis.map.building-code-placement.random.code-rate.";
   private static final String MAX_BUILDING_CODE = "gis.map.max-building-code";
+  private static final String MAP_CACHE_KEY = "gis.map.cache";
+  private static final String CACHE_SUFFIX = ".cache";
+  private static final String SHARED_MAP_KEY = "gis.map.shared";
 
   private static final double SQ_MM_TO_SQ_M = 0.000001;
 
@@ -54,6 +63,11 @@ public class GMLWorldModelCreator implements WorldModelCreator {
   private static final Logger LOG = Logger
       .getLogger(GMLWorldModelCreator.class);
 
+  // Parsed maps kept for kernels running in the same JVM, keyed by file and
+  // modification time. Each kernel gets copies of the entities. Each map has
+  // its own task so different maps can be parsed at the same time.
+  private static final Map<String, FutureTask<List<Area>>> SHARED_MAPS = new ConcurrentHashMap<String, FutureTask<List<Area>>>();
+
   // private ShapeDebugFrame debug;
 
   private int nextID;
@@ -130,12 +144,132 @@ public class GMLWorldModelCreator implements WorldModelCreator {
       }
     }
 
+    List<Area> entities = config.getBooleanValue(SHARED_MAP_KEY, false)
+        ? readSharedMapEntities(mapFile, config)
+        : readMapEntities(mapFile, config);
+    for (Area next : entities) {
+      if (next instanceof Building) {
+        Building b = (Building) next;
+        // Building properties
+        int floors = Math.min(maxFloor, b.getFloors());
+        if (randomfloorPlacement) {
+          int rnd = config.getRandom().nextInt(floorRatesCumulative[maxFloor])
+              + 1;
+          for (int i = 1; i <= maxFloor; i++) {
+            if (rnd <= floorRatesCumulative[i]) {
+              floors = i;
+              break;
+            }
+          }
+        }
+
+        int code = Math.min(maxBuildingCode, b.getBuildingCode());
+        if (randomBuildingCodePlacement) {
+          int rnd = config.getRandom()
+              .nextInt(buildingCodesCumulative[maxBuildingCode]) + 1;
+          for (int i = 0; i <= maxBuildingCode; i++) {
+            if (rnd <= buildingCodesCumulative[i]) {
+              code = i;
+              break;
+            }
+          }
+        }
+
+        b.setFloors(floors);
+        b.setFieryness(0);
+        b.setBrokenness(0);
+        b.setBuildingCode(code);
+        b.setBuildingAttributes(0);
+        b.setTotalArea(b.getGroundArea() * b.getFloors());
+        b.setCapacity(0);
+      }
+      result.addEntity(next);
+    }
+  }
+
+
+  @Override
+  public void clearSharedData() {
+    SHARED_MAPS.clear();
+  }
+
+
+  /**
+   * Get copies of the Building and Road entities described by a map file. The
+   * map is only read the first time it is asked for in this JVM.
+   */
+  private List<Area> readSharedMapEntities(File mapFile, Config config)
+      throws MapException {
+    String key;
+    try {
+      key = mapFile.getCanonicalPath() + ":" + mapFile.lastModified();
+    } catch (IOException e) {
+      throw new MapException(e);
+    }
+    FutureTask<List<Area>> task = SHARED_MAPS.computeIfAbsent(key,
+        k -> new FutureTask<List<Area>>(() -> readMapEntities(mapFile, config)));
+    // Only the first caller parses the map, the others wait for it
+    task.run();
+    List<Area> shared;
+    try {
+      shared = task.get();
+    } catch (ExecutionException e) {
+      // Let a later run try again
+      SHARED_MAPS.remove(key, task);
+      if (e.getCause() instanceof MapException) {
+        throw (MapException) e.getCause();
+      }
+      throw new MapException(e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new MapException(e);
+    }
+    List<Area> result = new ArrayList<Area>(shared.size());
+    for (Area next : shared) {
+      result.add((Area) next.copy());
+    }
+    return result;
+  }
+
+
+  /**
+   * Get the Building and Road entities described by a map file, before any
+   * configured floor or building code placement is applied. If the map cache
+   * is enabled the entities are read from the cache when it matches the map
+   * file, and the cache is rewritten otherwise.
+   */
+  private List<Area> readMapEntities(File mapFile, Config config)
+      throws MapException {
+    if (!config.getBooleanValue(MAP_CACHE_KEY, false)) {
+      return createMapEntities(mapFile);
+    }
+    File cacheFile = new File(mapFile.getPath() + CACHE_SUFFIX);
+    byte[] hash;
+    try {
+      hash = MapEntityCache.hash(mapFile);
+    } catch (IOException e) {
+      throw new MapException(e);
+    }
+    List<Area> cached = MapEntityCache.read(cacheFile, hash);
+    if (cached != null) {
+      LOG.debug("Read " + cached.size() + " entities from map cache");
+      return cached;
+    }
+    List<Area> entities = createMapEntities(mapFile);
+    MapEntityCache.write(cacheFile, hash, entities);
+    return entities;
+  }
+
+
+  private List<Area> createMapEntities(File mapFile) throws MapException {
     GMLMap map = (GMLMap) MapReader.readMap(mapFile);
     CoordinateConversion conversion = getCoordinateConversion(map);
     LOG.debug("Creating entities");
     LOG.debug(map.getBuildings().size() + " buildings");
     LOG.debug(map.getRoads().size() + " roads");
 
+    List<Area> result = new ArrayList<Area>(
+        map.getBuildings().size() + map.getRoads().size());
     for (GMLBuilding next : map.getBuildings()) {
       // Create a new Building entity
       EntityID id = new EntityID(next.getID());
@@ -144,45 +278,16 @@ public class GMLWorldModelCreator implements WorldModelCreator {
       double area = GeometryTools2D.computeArea(vertices) * SQ_MM_TO_SQ_M;
       Point2D centroid = GeometryTools2D.computeCentroid(vertices);
 
-      // Building properties
-      int floors = Math.min(maxFloor, next.getFloors());
-      if (randomfloorPlacement) {
-        int rnd = config.getRandom().nextInt(floorRatesCumulative[maxFloor])
-            + 1;
-        for (int i = 1; i <= maxFloor; i++) {
-          if (rnd <= floorRatesCumulative[i]) {
-            floors = i;
-            break;
-          }
-        }
-      }
-
-      int code = Math.min(maxBuildingCode, next.getCode());
-      if (randomBuildingCodePlacement) {
-        int rnd = config.getRandom()
-            .nextInt(buildingCodesCumulative[maxBuildingCode]) + 1;
-        for (int i = 0; i <= maxBuildingCode; i++) {
-          if (rnd <= buildingCodesCumulative[i]) {
-            code = i;
-            break;
-          }
-        }
-      }
-
-      b.setFloors(floors);
-      b.setFieryness(0);
-      b.setBrokenness(0);
-      b.setBuildingCode(code);
-      b.setBuildingAttributes(0);
+      // Building properties as given in the map
+      b.setFloors(next.getFloors());
+      b.setBuildingCode(next.getCode());
       b.setGroundArea((int) Math.abs(area));
-      b.setTotalArea(((int) Math.abs(area)) * b.getFloors());
       b.setImportance(next.getImportance());
-      b.setCapacity(0);
       // Area properties
       b.setEdges(createEdges(next, conversion));
       b.setX((int) centroid.getX());
       b.setY((int) centroid.getY());
-      result.addEntity(b);
+      result.add(b);
     }
     for (GMLRoad next : map.getRoads()) {
       // Create a new Road entity
@@ -196,8 +301,9 @@ public class GMLWorldModelCreator implements WorldModelCreator {
       r.setX((int) centroid.getX());
       r.setY((int) centroid.getY());
       r.setEdges(createEdges(next, conversion));
-      result.addEntity(r);
+      result.add(r);
     }
+    return result;
   }
 
 
@@ -0,0 +1,218 @@
+package gis2;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.log4j.Logger;
+import rescuecore2.standard.entities.Area;
+import rescuecore2.standard.entities.Building;
+import rescuecore2.standard.entities.Edge;
+import rescuecore2.standard.entities.Road;
+import rescuecore2.worldmodel.EntityID;
+
+/**
+ * A compact binary cache of the Building and Road entities that
+ * GMLWorldModelCreator derives from a GML map. The cache is stored next to
+ * the map file and is tagged with a SHA-256 hash of the map file contents, so
+ * any change to the map invalidates it.
+ */
+final class MapEntityCache {
+
+  private static final int MAGIC = 0x52435243;
+  private static final int VERSION = 1;
+  private static final String HASH_ALGORITHM = "SHA-256";
+  private static final int BUFFER_SIZE = 65536;
+
+  private static final byte TYPE_BUILDING = 0;
+  private static final byte TYPE_ROAD = 1;
+
+  private static final Logger LOG = Logger.getLogger(MapEntityCache.class);
+
+  private MapEntityCache() {
+  }
+
+
+  /**
+   * Compute the content hash of a map file.
+   *
+   * @param mapFile
+   *          The map file.
+   * @return The hash of the file contents.
+   * @throws IOException
+   *           If the file cannot be read.
+   */
+  static byte[] hash(File mapFile) throws IOException {
+    MessageDigest digest;
+    try {
+      digest = MessageDigest.getInstance(HASH_ALGORITHM);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IOException(e);
+    }
+    byte[] buffer = new byte[BUFFER_SIZE];
+    try (InputStream in = new FileInputStream(mapFile)) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return digest.digest();
+  }
+
+
+  /**
+   * Read cached entities.
+   *
+   * @param cacheFile
+   *          The cache file.
+   * @param hash
+   *          The hash of the current map file.
+   * @return The cached entities in their original order, or null if the cache
+   *         is missing, stale or unreadable.
+   */
+  static List<Area> read(File cacheFile, byte[] hash) {
+    if (!cacheFile.exists()) {
+      return null;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+        new FileInputStream(cacheFile), BUFFER_SIZE))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        LOG.info("Ignoring map cache with unknown format: " + cacheFile);
+        return null;
+      }
+      byte[] cachedHash = new byte[in.readInt()];
+      in.readFully(cachedHash);
+      if (!Arrays.equals(hash, cachedHash)) {
+        LOG.info("Map cache is stale: " + cacheFile);
+        return null;
+      }
+      int count = in.readInt();
+      List<Area> result = new ArrayList<Area>(count);
+      for (int i = 0; i < count; ++i) {
+        result.add(readArea(in));
+      }
+      return result;
+    } catch (IOException e) {
+      LOG.warn("Couldn't read map cache " + cacheFile, e);
+      return null;
+    }
+  }
+
+
+  /**
+   * Write entities to the cache. Failures are logged and otherwise ignored.
+   *
+   * @param cacheFile
+   *          The cache file.
+   * @param hash
+   *          The hash of the map file the entities were built from.
+   * @param areas
+   *          The entities to write.
+   */
+  static void write(File cacheFile, byte[] hash, List<Area> areas) {
+    File temp = new File(cacheFile.getPath() + ".tmp");
+    try {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+          new FileOutputStream(temp), BUFFER_SIZE))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(hash.length);
+        out.write(hash);
+        out.writeInt(areas.size());
+        for (Area next : areas) {
+          writeArea(next, out);
+        }
+      }
+      try {
+        Files.move(temp.toPath(), cacheFile.toPath(),
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp.toPath(), cacheFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING);
+      }
+      LOG.info("Wrote map cache " + cacheFile);
+    } catch (IOException e) {
+      LOG.warn("Couldn't write map cache " + cacheFile, e);
+      temp.delete();
+    }
+  }
+
+
+  private static void writeArea(Area area, DataOutputStream out)
+      throws IOException {
+    boolean building = area instanceof Building;
+    out.writeByte(building ? TYPE_BUILDING : TYPE_ROAD);
+    out.writeInt(area.getID().getValue());
+    out.writeInt(area.getX());
+    out.writeInt(area.getY());
+    if (building) {
+      Building b = (Building) area;
+      out.writeInt(b.getFloors());
+      out.writeInt(b.getBuildingCode());
+      out.writeInt(b.getImportance());
+      out.writeInt(b.getGroundArea());
+    }
+    List<Edge> edges = area.getEdges();
+    out.writeInt(edges.size());
+    for (Edge next : edges) {
+      out.writeInt(next.getStartX());
+      out.writeInt(next.getStartY());
+      out.writeInt(next.getEndX());
+      out.writeInt(next.getEndY());
+      EntityID neighbour = next.getNeighbour();
+      out.writeBoolean(neighbour != null);
+      if (neighbour != null) {
+        out.writeInt(neighbour.getValue());
+      }
+    }
+  }
+
+
+  private static Area readArea(DataInputStream in) throws IOException {
+    byte type = in.readByte();
+    EntityID id = new EntityID(in.readInt());
+    int x = in.readInt();
+    int y = in.readInt();
+    Area result;
+    if (type == TYPE_BUILDING) {
+      Building b = new Building(id);
+      b.setFloors(in.readInt());
+      b.setBuildingCode(in.readInt());
+      b.setImportance(in.readInt());
+      b.setGroundArea(in.readInt());
+      result = b;
+    } else if (type == TYPE_ROAD) {
+      result = new Road(id);
+    } else {
+      throw new IOException("Unknown entity type in map cache: " + type);
+    }
+    int edgeCount = in.readInt();
+    List<Edge> edges = new ArrayList<Edge>(edgeCount);
+    for (int i = 0; i < edgeCount; ++i) {
+      int sx = in.readInt();
+      int sy = in.readInt();
+      int ex = in.readInt();
+      int ey = in.readInt();
+      EntityID neighbour = in.readBoolean() ? new EntityID(in.readInt())
+          : null;
+      edges.add(new Edge(sx, sy, ex, ey, neighbour));
+    }
+    result.setX(x);
+    result.setY(y);
+    result.setEdges(edges);
+    return result;
+  }
+}
@@ -10,6 +10,12 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import maps.MapException;
 import maps.MapReader;
@@ -36,6 +42,8 @@ public class RandomScenarioGenerator {
   private static final int DEFAULT_MAX_REFUGES = 5;
   private static final int DEFAULT_MIN_FIRES = 1;
   private static final int DEFAULT_MAX_FIRES = 10;
+  private static final String SCENARIO_FILE = "scenario.xml";
+  private static final String BATCH_FILE_FORMAT = "scenario-%04d.xml";
 
   private int minCivs;
   private int maxCivs;
@@ -85,7 +93,8 @@ public class RandomScenarioGenerator {
    *
    * @param args Command line arguments: <map directory> [-civ min max] [-fb min
    *             max] [-fs min max] [-pf min max] [-po min max] [-at min max] [-ac
-   *             min max] [-refuge min max] [-fire min max].
+   *             min max] [-refuge min max] [-fire min max] [-seed seed] [-n
+   *             count] [-o output directory].
    */
   public static void main(String[] args) {
 
@@ -96,8 +105,20 @@ public class RandomScenarioGenerator {
 
     String dirName = args[0];
     RandomScenarioGenerator generator = new RandomScenarioGenerator();
+    Long seed = null;
+    int count = 0;
+    String outName = null;
     for (int i = 1; i < args.length; ++i) {
-      if ("-civ".equals(args[i])) {
+      if ("-seed".equals(args[i])) {
+        seed = Long.parseLong(args[i + 1]);
+        i += 1;
+      } else if ("-n".equals(args[i])) {
+        count = Integer.parseInt(args[i + 1]);
+        i += 1;
+      } else if ("-o".equals(args[i])) {
+        outName = args[i + 1];
+        i += 1;
+      } else if ("-civ".equals(args[i])) {
         int min = Integer.parseInt(args[i + 1]);
         int max = Integer.parseInt(args[i + 2]);
         i += 2;
@@ -147,18 +168,23 @@ public class RandomScenarioGenerator {
     try {
       File dir = new File(dirName);
       GMLMap map = (GMLMap) MapReader.readMap(new File(dir, "map.gml"));
-      GisScenario s = generator.makeRandomScenario(map, new Random());
-      Document doc = DocumentHelper.createDocument();
-      s.write(doc);
-      XMLWriter writer = new XMLWriter(new FileOutputStream(new File(dir, "scenario.xml")),
-          OutputFormat.createPrettyPrint());
-      writer.write(doc);
-      writer.flush();
-      writer.close();
+      if (count > 0) {
+        File out = outName == null ? new File(dir, "scenarios") : new File(outName);
+        long start = System.currentTimeMillis();
+        generator.writeRandomScenarios(map, out, count, seed == null ? System.nanoTime() : seed);
+        System.out.println("Wrote " + count + " scenarios to " + out + " in " + (System.currentTimeMillis() - start)
+            + "ms");
+      } else {
+        Random random = seed == null ? new Random() : new Random(seed);
+        File out = outName == null ? dir : new File(outName);
+        writeScenario(generator.makeRandomScenario(map, random), new File(out, SCENARIO_FILE));
+      }
     } catch (IOException e) {
       e.printStackTrace();
     } catch (MapException e) {
       e.printStackTrace();
+    } catch (InterruptedException e) {
+      e.printStackTrace();
     }
   }
 
@@ -177,6 +203,10 @@ public class RandomScenarioGenerator {
     System.out.println("-ac\tmin max\tSet the minimum and maximum number of ambulance centers");
     System.out.println("-refuge\tmin max\tSet the minimum and maximum number of refuges");
     System.out.println("-fire\tmin max\tSet the minimum and maximum number of fires");
+    System.out.println("-seed\tseed\tSet the random seed");
+    System.out.println("-n\tcount\tGenerate count scenarios named scenario-0001.xml etc.");
+    System.out.println("-o\tdir\tSet the output directory (default: the map directory, or its");
+    System.out.println("\t\tscenarios subdirectory when generating several scenarios)");
   }
 
   /**
@@ -286,6 +316,66 @@ public class RandomScenarioGenerator {
    * @return A new Scenario.
    */
   public GisScenario makeRandomScenario(GMLMap map, Random random) {
+    return makeRandomScenario(new ReachabilityIndex(map), random);
+  }
+
+  /**
+   * Generate several random scenarios in parallel and write them to a
+   * directory. The map is indexed once and shared by all scenarios. Each
+   * scenario has its own random number generator seeded from the given seed,
+   * so the output only depends on the seed and not on the number of threads.
+   *
+   * @param map   The map to generate scenarios for.
+   * @param dir   The directory to write the scenarios to.
+   * @param count The number of scenarios.
+   * @param seed  The seed.
+   * @throws IOException          If a scenario cannot be written.
+   * @throws InterruptedException If this thread is interrupted.
+   */
+  public void writeRandomScenarios(GMLMap map, final File dir, int count, long seed)
+      throws IOException, InterruptedException {
+    final ReachabilityIndex index = new ReachabilityIndex(map);
+    dir.mkdirs();
+    SplittableRandom seeds = new SplittableRandom(seed);
+    List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(count);
+    for (int i = 1; i <= count; ++i) {
+      final File file = new File(dir, String.format(BATCH_FILE_FORMAT, i));
+      final long scenarioSeed = seeds.nextLong();
+      tasks.add(new Callable<Void>() {
+        @Override
+        public Void call() throws IOException {
+          writeScenario(makeRandomScenario(index, new Random(scenarioSeed)), file);
+          return null;
+        }
+      });
+    }
+    ExecutorService service = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    try {
+      for (Future<Void> next : service.invokeAll(tasks)) {
+        try {
+          next.get();
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) {
+            throw (IOException) e.getCause();
+          }
+          throw new RuntimeException(e.getCause());
+        }
+      }
+    } finally {
+      service.shutdownNow();
+    }
+  }
+
+  /**
+   * Generate a random scenario. Everything is placed in the largest connected
+   * part of the map so that all agents can reach each other.
+   *
+   * @param index  The reachability index of the map to generate a scenario
+   *               for.
+   * @param random A source of randomness.
+   * @return A new Scenario.
+   */
+  public GisScenario makeRandomScenario(ReachabilityIndex index, Random random) {
     GisScenario result = new GisScenario();
     int civ = random.nextInt(maxCivs - minCivs + 1) + minCivs;
     int fb = random.nextInt(maxFBs - minFBs + 1) + minFBs;
@@ -296,16 +386,28 @@ public class RandomScenarioGenerator {
     int ac = random.nextInt(maxACs - minACs + 1) + minACs;
     int fire = random.nextInt(maxFires - minFires + 1) + minFires;
     int refuge = random.nextInt(maxRefuges - minRefuges + 1) + minRefuges;
-    List<GMLBuilding> buildings = new ArrayList<GMLBuilding>(map.getBuildings());
+    List<GMLBuilding> buildings = new ArrayList<GMLBuilding>(index.getReachableBuildings());
     Collections.shuffle(buildings, random);
     Iterator<GMLBuilding> it = buildings.iterator();
     placeRefuges(it, result, refuge);
     placeCentres(it, result, fs, po, ac);
     placeFires(it, result, fire);
-    placeAgents(map, result, random, fb, pf, at, civ);
+    placeAgents(index, result, random, fb, pf, at, civ);
     return result;
   }
 
+  private static void writeScenario(GisScenario scenario, File file) throws IOException {
+    Document doc = DocumentHelper.createDocument();
+    scenario.write(doc);
+    XMLWriter writer = new XMLWriter(new FileOutputStream(file), OutputFormat.createPrettyPrint());
+    try {
+      writer.write(doc);
+      writer.flush();
+    } finally {
+      writer.close();
+    }
+  }
+
   private void placeRefuges(Iterator<GMLBuilding> it, GisScenario result, int num) {
     for (int i = 0; i < num; ++i) {
       result.addRefuge(it.next().getID(), 1000, 1000);
@@ -330,10 +432,10 @@ public class RandomScenarioGenerator {
     }
   }
 
-  private void placeAgents(GMLMap map, GisScenario result, Random random, int fire, int police, int ambulance,
-      int civ) {
-    List<GMLShape> all = new ArrayList<GMLShape>(map.getAllShapes());
-    List<GMLBuilding> buildings = new ArrayList<GMLBuilding>(map.getBuildings());
+  private void placeAgents(ReachabilityIndex index, GisScenario result, Random random, int fire, int police,
+      int ambulance, int civ) {
+    List<GMLShape> all = index.getReachableShapes();
+    List<GMLBuilding> buildings = index.getReachableBuildings();
     for (int i = 0; i < fire; ++i) {
       int id = all.get(random.nextInt(all.size())).getID();
       result.addFireBrigade(id);
@@ -0,0 +1,178 @@
+package gis2.scenario;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import maps.gml.GMLBuilding;
+import maps.gml.GMLDirectedEdge;
+import maps.gml.GMLMap;
+import maps.gml.GMLShape;
+
+/**
+ * Groups the roads and buildings of a map into connected components. Two
+ * shapes are in the same component if an agent can move from one to the other
+ * through passable edges, for example through a building entrance. Agents,
+ * refuges, centres and fires placed in the largest component can all reach
+ * each other.
+ * <p>
+ * The index does not change once it has been built, so one instance can be
+ * shared by several threads.
+ */
+public class ReachabilityIndex {
+  private static final Comparator<GMLShape> BY_ID = new Comparator<GMLShape>() {
+    @Override
+    public int compare(GMLShape s1, GMLShape s2) {
+      return Integer.compare(s1.getID(), s2.getID());
+    }
+  };
+
+  private final Map<Integer, Integer> components;
+  private final int componentCount;
+  private final List<GMLShape> reachableShapes;
+  private final List<GMLBuilding> reachableBuildings;
+
+  /**
+   * Build the index for a map.
+   *
+   * @param map The map to index.
+   */
+  public ReachabilityIndex(GMLMap map) {
+    // Sorted so that the same seed always gives the same scenario
+    List<GMLShape> shapes = new ArrayList<GMLShape>();
+    shapes.addAll(map.getRoads());
+    shapes.addAll(map.getBuildings());
+    Collections.sort(shapes, BY_ID);
+    Map<Integer, Integer> index = new HashMap<Integer, Integer>();
+    for (GMLShape next : shapes) {
+      index.put(next.getID(), index.size());
+    }
+    int[] parent = new int[shapes.size()];
+    for (int i = 0; i < parent.length; ++i) {
+      parent[i] = i;
+    }
+    for (GMLShape next : shapes) {
+      int from = index.get(next.getID());
+      for (GMLDirectedEdge edge : next.getEdges()) {
+        Integer neighbour = next.getNeighbour(edge);
+        Integer to = neighbour == null ? null : index.get(neighbour);
+        if (to != null) {
+          union(parent, from, to);
+        }
+      }
+    }
+    // Number the components from largest to smallest
+    Map<Integer, List<GMLShape>> byRoot = new HashMap<Integer, List<GMLShape>>();
+    for (GMLShape next : shapes) {
+      int root = find(parent, index.get(next.getID()));
+      List<GMLShape> members = byRoot.get(root);
+      if (members == null) {
+        members = new ArrayList<GMLShape>();
+        byRoot.put(root, members);
+      }
+      members.add(next);
+    }
+    List<List<GMLShape>> sorted = new ArrayList<List<GMLShape>>(byRoot.values());
+    Collections.sort(sorted, new Comparator<List<GMLShape>>() {
+      @Override
+      public int compare(List<GMLShape> c1, List<GMLShape> c2) {
+        if (c1.size() != c2.size()) {
+          return Integer.compare(c2.size(), c1.size());
+        }
+        return BY_ID.compare(c1.get(0), c2.get(0));
+      }
+    });
+    components = new HashMap<Integer, Integer>();
+    for (int i = 0; i < sorted.size(); ++i) {
+      for (GMLShape next : sorted.get(i)) {
+        components.put(next.getID(), i);
+      }
+    }
+    componentCount = sorted.size();
+    List<GMLShape> largest = sorted.isEmpty() ? new ArrayList<GMLShape>() : sorted.get(0);
+    List<GMLBuilding> buildings = new ArrayList<GMLBuilding>();
+    for (GMLShape next : largest) {
+      if (next instanceof GMLBuilding) {
+        buildings.add((GMLBuilding) next);
+      }
+    }
+    reachableShapes = Collections.unmodifiableList(largest);
+    reachableBuildings = Collections.unmodifiableList(buildings);
+  }
+
+  /**
+   * Get the number of connected components.
+   *
+   * @return The number of components.
+   */
+  public int getComponentCount() {
+    return componentCount;
+  }
+
+  /**
+   * Get the component a road or building belongs to. Components are numbered
+   * from the largest, which is component zero.
+   *
+   * @param id The ID of the road or building.
+   * @return The component number, or -1 if the ID is not a road or building.
+   */
+  public int getComponent(int id) {
+    Integer result = components.get(id);
+    return result == null ? -1 : result;
+  }
+
+  /**
+   * Find out if an agent can move between two roads or buildings.
+   *
+   * @param first  The ID of the first road or building.
+   * @param second The ID of the second road or building.
+   * @return True if both are in the same component.
+   */
+  public boolean isReachable(int first, int second) {
+    int component = getComponent(first);
+    return component != -1 && component == getComponent(second);
+  }
+
+  /**
+   * Get the roads and buildings in the largest component, sorted by ID.
+   *
+   * @return An unmodifiable list of roads and buildings.
+   */
+  public List<GMLShape> getReachableShapes() {
+    return reachableShapes;
+  }
+
+  /**
+   * Get the buildings in the largest component, sorted by ID.
+   *
+   * @return An unmodifiable list of buildings.
+   */
+  public List<GMLBuilding> getReachableBuildings() {
+    return reachableBuildings;
+  }
+
+  private static int find(int[] parent, int i) {
+    int root = i;
+    while (parent[root] != root) {
+      root = parent[root];
+    }
+    // Path compression
+    while (parent[i] != root) {
+      int next = parent[i];
+      parent[i] = root;
+      i = next;
+    }
+    return root;
+  }
+
+  private static void union(int[] parent, int a, int b) {
+    int rootA = find(parent, a);
+    int rootB = find(parent, b);
+    if (rootA != rootB) {
+      parent[Math.max(rootA, rootB)] = Math.min(rootA, rootB);
+    }
+  }
+}
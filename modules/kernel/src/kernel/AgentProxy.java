@@ -1,7 +1,6 @@
 package kernel;
 
 import java.util.Collection;
-import java.util.Map;
 import java.util.ArrayList;
 
 import rescuecore2.connection.Connection;
@@ -13,15 +12,18 @@ import rescuecore2.worldmodel.Entity;
 import rescuecore2.worldmodel.EntityID;
 import rescuecore2.worldmodel.ChangeSet;
 import rescuecore2.log.Logger;
-import rescuecore2.misc.collections.LazyMap;
+import rescuecore2.misc.collections.TimestepRing;
 import rescuecore2.registry.Registry;
 
 /**
    This class is the kernel interface to an agent.
  */
 public class AgentProxy extends AbstractKernelComponent {
+    // Commands are only kept for the timesteps the kernel has not finished yet
+    private static final int COMMAND_BUFFER_SIZE = 4;
+
     private Entity entity;
-    private Map<Integer, Collection<Command>> commands;
+    private TimestepRing<Collection<Command>> commands;
 
     /**
        Construct an agent.
@@ -32,7 +34,7 @@ public class AgentProxy extends AbstractKernelComponent {
     public AgentProxy(String name, Entity e, Connection c) {
         super(name, c);
         this.entity = e;
-        commands = new LazyMap<Integer, Collection<Command>>() {
+        commands = new TimestepRing<Collection<Command>>(COMMAND_BUFFER_SIZE) {
             @Override
             public Collection<Command> createValue() {
                 return new ArrayList<Command>();
@@ -62,12 +64,23 @@ public class AgentProxy extends AbstractKernelComponent {
     public Collection<Command> getAgentCommands(int timestep) {
         Collection<Command> result;
         synchronized (commands) {
-            result = new ArrayList<>(commands.get(timestep));
+            Collection<Command> received = commands.peek(timestep);
+            result = received == null ? new ArrayList<Command>() : new ArrayList<Command>(received);
         }
-        Logger.trace(entity.toString() + " getAgentCommands(" + timestep + ") returning " + result);
+        Logger.trace("{} getAgentCommands({}) returning {}", entity, timestep, result);
         return result;
     }
 
+    /**
+       Discard the commands received for a timestep and all earlier timesteps. Commands for these timesteps that arrive later are ignored.
+       @param timestep The last completed timestep.
+     */
+    public void releaseTimestep(int timestep) {
+        synchronized (commands) {
+            commands.release(timestep);
+        }
+    }
+
     /**
        Notify the of a perception update.
        @param time The current timestep.
@@ -90,9 +103,13 @@ public class AgentProxy extends AbstractKernelComponent {
             return;
         }
         int time = c.getTime();
-        Logger.trace("AgentProxy " + entity + " received " + c);
+        Logger.trace("AgentProxy {} received {}", entity, c);
         synchronized (commands) {
             Collection<Command> result = commands.get(time);
+            if (result == null) {
+                Logger.debug("Ignoring late command from agent {}: {}", entity.getID(), c);
+                return;
+            }
             result.add(c);
             commands.notifyAll();
         }
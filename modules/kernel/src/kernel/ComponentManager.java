@@ -11,6 +11,12 @@ import java.util.Collections;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import rescuecore2.config.Config;
 import rescuecore2.connection.Connection;
@@ -30,6 +36,8 @@ import rescuecore2.messages.control.AKConnect;
 import rescuecore2.messages.control.AKAcknowledge;
 import rescuecore2.messages.control.KAConnectError;
 import rescuecore2.messages.control.KAConnectOK;
+import rescuecore2.metrics.MetricsRegistry;
+import rescuecore2.metrics.PhaseTimer;
 import rescuecore2.scenario.Scenario;
 import rescuecore2.scenario.exceptions.UncompatibleScenarioException;
 import rescuecore2.worldmodel.Entity;
@@ -45,6 +53,13 @@ import javax.swing.JComponent;
 /**
  * Class that manages connecting components (agents, simulators, viewers) to the
  * kernel.
+ * <p>
+ * Connection requests are handled on the thread that reads from the
+ * connection, but only for as long as it takes to assign an ID or entity. The
+ * replies, which contain the whole world model, are encoded and sent by a small
+ * pool of worker threads so that many agents connecting at once do not each
+ * hold a thread encoding the world. The time from each connection request to
+ * its acknowledgement is logged and recorded in the kernel metrics.
  */
 public class ComponentManager implements ConnectionManagerListener,
 		GUIComponent {
@@ -52,6 +67,15 @@ public class ComponentManager implements ConnectionManagerListener,
 
 	private static final int WAIT_TIME = 10000;
 
+	// Delay before refreshing the GUI, so that a burst of connections only
+	// causes one refresh
+	private static final int GUI_UPDATE_DELAY = 250;
+
+	// Idle worker threads exit after this long
+	private static final int WORKER_KEEP_ALIVE = 10000;
+
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
 	private Kernel kernel;
 	private ComponentManagerGUI gui;
 
@@ -81,6 +105,20 @@ public class ComponentManager implements ConnectionManagerListener,
 
 	private final Scenario scenario;
 
+	// Encodes and sends connection replies and refreshes the GUI
+	private final ScheduledThreadPoolExecutor workers;
+
+	// Set while a GUI refresh is waiting to run
+	private final AtomicBoolean uncontrolledAgentsChanged = new AtomicBoolean();
+	private final AtomicBoolean agentAckChanged = new AtomicBoolean();
+	private final AtomicBoolean simulatorAckChanged = new AtomicBoolean();
+	private final AtomicBoolean viewerAckChanged = new AtomicBoolean();
+
+	// Connection request to acknowledgement
+	private final PhaseTimer agentStartupTimer;
+	private final PhaseTimer simulatorStartupTimer;
+	private final PhaseTimer viewerStartupTimer;
+
 	/**
 	 * Create a ComponentManager.
 	 * 
@@ -103,6 +141,15 @@ public class ComponentManager implements ConnectionManagerListener,
 		viewersToAcknowledge = new HashSet<ViewerAck>();
 		nextID = STARTING_ID;
 		gui = new ComponentManagerGUI();
+		workers = new ScheduledThreadPoolExecutor(config.getIntValue(
+				KernelConstants.CONNECT_THREADS_KEY, Runtime.getRuntime()
+						.availableProcessors()), new WorkerThreadFactory());
+		workers.setKeepAliveTime(WORKER_KEEP_ALIVE, TimeUnit.MILLISECONDS);
+		workers.allowCoreThreadTimeOut(true);
+		MetricsRegistry metrics = kernel.getMetrics();
+		agentStartupTimer = metrics.getTimer("kernel.startup.agent");
+		simulatorStartupTimer = metrics.getTimer("kernel.startup.simulator");
+		viewerStartupTimer = metrics.getTimer("kernel.startup.viewer");
 	}
 
 	/**
@@ -166,6 +213,7 @@ public class ComponentManager implements ConnectionManagerListener,
 				}
 			} while (!done);
 		}
+		logStartupTimes("agents", agentStartupTimer);
 	}
 
 	/**
@@ -182,6 +230,7 @@ public class ComponentManager implements ConnectionManagerListener,
 						+ " simulators to acknowledge");
 			}
 		}
+		logStartupTimes("simulators", simulatorStartupTimer);
 	}
 
 	/**
@@ -198,6 +247,7 @@ public class ComponentManager implements ConnectionManagerListener,
 						+ " viewers to acknowledge");
 			}
 		}
+		logStartupTimes("viewers", viewerStartupTimer);
 	}
 
 	@Override
@@ -215,7 +265,7 @@ public class ComponentManager implements ConnectionManagerListener,
 		return "Component manager";
 	}
 
-	private boolean agentAcknowledge(int requestID, EntityID agentID,
+	private AgentAck agentAcknowledge(int requestID, EntityID agentID,
 			Connection c) {
 		synchronized (agentLock) {
 			for (AgentAck next : agentsToAcknowledge) {
@@ -224,14 +274,15 @@ public class ComponentManager implements ConnectionManagerListener,
 					agentsToAcknowledge.remove(next);
 					kernel.addAgent(next.agent);
 					agentLock.notifyAll();
-					return true;
+					return next;
 				}
 			}
-			return false;
+			return null;
 		}
 	}
 
-	private boolean simAcknowledge(int requestID, int simulatorID, Connection c) {
+	private SimulatorAck simAcknowledge(int requestID, int simulatorID,
+			Connection c) {
 		synchronized (simLock) {
 			for (SimulatorAck next : simsToAcknowledge) {
 				if (next.requestID == requestID
@@ -240,14 +291,15 @@ public class ComponentManager implements ConnectionManagerListener,
 					simsToAcknowledge.remove(next);
 					kernel.addSimulator(next.sim);
 					simLock.notifyAll();
-					return true;
+					return next;
 				}
 			}
-			return false;
+			return null;
 		}
 	}
 
-	private boolean viewerAcknowledge(int requestID, int viewerID, Connection c) {
+	private ViewerAck viewerAcknowledge(int requestID, int viewerID,
+			Connection c) {
 		synchronized (viewerLock) {
 			for (ViewerAck next : viewersToAcknowledge) {
 				if (next.requestID == requestID && next.viewerID == viewerID
@@ -255,10 +307,10 @@ public class ComponentManager implements ConnectionManagerListener,
 					viewersToAcknowledge.remove(next);
 					kernel.addViewer(next.viewer);
 					viewerLock.notifyAll();
-					return true;
+					return next;
 				}
 			}
-			return false;
+			return null;
 		}
 	}
 
@@ -289,7 +341,84 @@ public class ComponentManager implements ConnectionManagerListener,
 		return null;
 	}
 
+	/**
+	 * Run a task on a worker thread with the current thread's registries and
+	 * log context. Nobody waits for the result, so exceptions thrown by the
+	 * task are logged here.
+	 */
+	private void submit(final String description, final Callable<Void> task,
+			long delay) {
+		Callable<Void> logged = new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				try {
+					return task.call();
+				} catch (RuntimeException | Error e) {
+					Logger.error("Error while trying to " + description, e);
+					throw e;
+				}
+			}
+		};
+		workers.schedule(MetricsRegistry.withCurrentRegistry(Registry
+				.withCurrentRegistry(Logger.withCurrentContext(logged))), delay,
+				TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Refresh part of the GUI after a short delay, unless a refresh is
+	 * already waiting to run.
+	 */
+	private void scheduleGUIUpdate(final AtomicBoolean changed,
+			final Runnable update) {
+		if (changed.compareAndSet(false, true)) {
+			submit("refresh the component manager GUI", new Callable<Void>() {
+				@Override
+				public Void call() {
+					changed.set(false);
+					update.run();
+					return null;
+				}
+			}, GUI_UPDATE_DELAY);
+		}
+	}
+
 	private void updateGUIUncontrolledAgents() {
+		scheduleGUIUpdate(uncontrolledAgentsChanged, new Runnable() {
+			@Override
+			public void run() {
+				refreshGUIUncontrolledAgents();
+			}
+		});
+	}
+
+	private void updateGUIAgentAck() {
+		scheduleGUIUpdate(agentAckChanged, new Runnable() {
+			@Override
+			public void run() {
+				refreshGUIAgentAck();
+			}
+		});
+	}
+
+	private void updateGUISimulatorAck() {
+		scheduleGUIUpdate(simulatorAckChanged, new Runnable() {
+			@Override
+			public void run() {
+				refreshGUISimulatorAck();
+			}
+		});
+	}
+
+	private void updateGUIViewerAck() {
+		scheduleGUIUpdate(viewerAckChanged, new Runnable() {
+			@Override
+			public void run() {
+				refreshGUIViewerAck();
+			}
+		});
+	}
+
+	private void refreshGUIUncontrolledAgents() {
 		List<String> data = new ArrayList<String>();
 		synchronized (agentLock) {
 			for (Queue<ControlledEntityInfo> q : uncontrolledEntities.values()) {
@@ -301,7 +430,7 @@ public class ComponentManager implements ConnectionManagerListener,
 		gui.updateUncontrolledAgents(data);
 	}
 
-	private void updateGUIAgentAck() {
+	private void refreshGUIAgentAck() {
 		List<String> data = new ArrayList<String>();
 		synchronized (agentLock) {
 			for (AgentAck ack : agentsToAcknowledge) {
@@ -311,7 +440,7 @@ public class ComponentManager implements ConnectionManagerListener,
 		gui.updateAgentAck(data);
 	}
 
-	private void updateGUISimulatorAck() {
+	private void refreshGUISimulatorAck() {
 		List<String> data = new ArrayList<String>();
 		synchronized (simLock) {
 			for (SimulatorAck ack : simsToAcknowledge) {
@@ -321,7 +450,7 @@ public class ComponentManager implements ConnectionManagerListener,
 		gui.updateSimulatorAck(data);
 	}
 
-	private void updateGUIViewerAck() {
+	private void refreshGUIViewerAck() {
 		List<String> data = new ArrayList<String>();
 		synchronized (viewerLock) {
 			for (ViewerAck ack : viewersToAcknowledge) {
@@ -331,6 +460,18 @@ public class ComponentManager implements ConnectionManagerListener,
 		gui.updateViewerAck(data);
 	}
 
+	private void logStartupTimes(String type, PhaseTimer timer) {
+		if (timer.getCount() > 0) {
+			Logger.info("Startup time for " + timer.getCount() + " " + type
+					+ ": mean " + format(timer.getMeanNanos()) + " ms, max "
+					+ format(timer.getMaxNanos()) + " ms");
+		}
+	}
+
+	private static String format(long nanos) {
+		return String.format("%.1f", nanos / NANOS_PER_MILLI);
+	}
+
 	private class ComponentConnectionListener implements ConnectionListener {
 		@Override
 		public void messageReceived(Connection connection, Message msg) {
@@ -340,12 +481,8 @@ public class ComponentManager implements ConnectionManagerListener,
 			if (msg instanceof AKAcknowledge) {
 				handleAKAcknowledge((AKAcknowledge) msg, connection);
 			}
-			try {
-				if (msg instanceof SKConnect) {
-					handleSKConnect((SKConnect) msg, connection);
-				}
-			} catch (UncompatibleScenarioException e) {
-				e.printStackTrace();
+			if (msg instanceof SKConnect) {
+				handleSKConnect((SKConnect) msg, connection);
 			}
 			if (msg instanceof SKAcknowledge) {
 				handleSKAcknowledge((SKAcknowledge) msg, connection);
@@ -358,52 +495,65 @@ public class ComponentManager implements ConnectionManagerListener,
 			}
 		}
 
-		private void handleAKConnect(AKConnect connect, Connection connection) {
+		private void handleAKConnect(final AKConnect connect,
+				final Connection connection) {
+			long connectTime = System.nanoTime();
 			// Pull out the request ID and requested entity type list
-			int requestID = connect.getRequestID();
+			final int requestID = connect.getRequestID();
 			List<Integer> types = connect.getRequestedEntityTypes();
 			// See if we can find an entity for this agent to control.
-			Message reply = null;
+			final ControlledEntityInfo result;
 			Logger.debug("AKConnect received: " + types);
 			synchronized (agentLock) {
-				ControlledEntityInfo result = findEntityToControl(types);
-				if (result == null) {
-					Logger.debug("No suitable entities found");
-					// Send an error
-					reply = new KAConnectError(requestID, "No more agents");
-				} else {
+				result = findEntityToControl(types);
+				if (result != null) {
 					Logger.debug("Found entity to control: " + result);
-					Entity entity = result.entity;
 					AgentProxy agent = new AgentProxy(connect.getAgentName(),
-							entity, connection);
-					agentsToAcknowledge.add(new AgentAck(agent, entity.getID(),
-							requestID, connection));
-					Logger.info("Agent '" + connect.getAgentName() + "' id "
-							+ entity.getID() + " (" + connection
-							+ " request ID " + requestID + ") connected");
-					// Send an OK
-					reply = new KAConnectOK(requestID, entity.getID(),
-							result.visibleSet, result.config);
+							result.entity, connection);
+					agentsToAcknowledge.add(new AgentAck(agent, result.entity
+							.getID(), requestID, connection, connectTime));
 				}
 			}
-			if (reply != null) {
-				try {
-					connection.sendMessage(reply);
-				} catch (ConnectionException e) {
-					Logger.error("Error sending reply", e);
-				}
+			if (result == null) {
+				Logger.debug("No suitable entities found");
+				// Send an error
+				send(connection, new KAConnectError(requestID, "No more agents"));
+			} else {
+				Logger.info("Agent '" + connect.getAgentName() + "' id "
+						+ result.entity.getID() + " (" + connection
+						+ " request ID " + requestID + ") connected");
+				// Send an OK. The world is copied and encoded by a worker.
+				submit("send KAConnectOK to " + connection, new Callable<Void>() {
+					@Override
+					public Void call() {
+						send(connection, new KAConnectOK(requestID, result.entity
+								.getID(), result.visibleSet, result.config));
+						return null;
+					}
+				}, 0);
 			}
 			updateGUIUncontrolledAgents();
 			updateGUIAgentAck();
 		}
 
+		private void send(Connection connection, Message reply) {
+			try {
+				connection.sendMessage(reply);
+			} catch (ConnectionException e) {
+				Logger.error("Error sending reply", e);
+			}
+		}
+
 		private void handleAKAcknowledge(AKAcknowledge msg,
 				Connection connection) {
 			int requestID = msg.getRequestID();
 			EntityID agentID = msg.getAgentID();
-			if (agentAcknowledge(requestID, agentID, connection)) {
+			AgentAck ack = agentAcknowledge(requestID, agentID, connection);
+			if (ack != null) {
+				long elapsed = agentStartupTimer.stop(ack.connectTime);
 				Logger.info("Agent " + agentID + " (" + connection
-						+ " request ID " + requestID + ") acknowledged");
+						+ " request ID " + requestID + ") acknowledged after "
+						+ format(elapsed) + " ms");
 			} else {
 				Logger.warn("Unexpected acknowledge from agent " + agentID
 						+ " (request ID " + requestID + ")");
@@ -411,23 +561,34 @@ public class ComponentManager implements ConnectionManagerListener,
 			updateGUIAgentAck();
 		}
 
-		private void handleSKConnect(SKConnect msg, Connection connection)
-				throws UncompatibleScenarioException {
-			int simID = getNextSimulatorID();
-			int requestID = msg.getRequestID();
+		private void handleSKConnect(SKConnect msg, Connection connection) {
+			long connectTime = System.nanoTime();
+			final int simID = getNextSimulatorID();
+			final int requestID = msg.getRequestID();
 			Logger.info("Simulator '" + msg.getSimulatorName() + "' id "
 					+ simID + " (" + connection + " request ID " + requestID
 					+ ") connected");
-			SimulatorProxy sim = new SimulatorProxy(msg.getSimulatorName(),
-					simID, connection);
+			final SimulatorProxy sim = new SimulatorProxy(
+					msg.getSimulatorName(), simID, connection);
 			synchronized (simLock) {
 				simsToAcknowledge.add(new SimulatorAck(sim, simID, requestID,
-						connection));
+						connection, connectTime));
 			}
-			// Send an OK
-			sim.send(Collections.singleton(new KSConnectOK(simID, requestID,
-					world.getAllEntities(), config)));
-			sendAdditionalInfoToSim(sim);
+			// Send an OK. The world is copied and encoded by a worker.
+			submit("send KSConnectOK to " + sim, new Callable<Void>() {
+				@Override
+				public Void call() {
+					sim.send(Collections.singleton(new KSConnectOK(simID,
+							requestID, world.getAllEntities(), config)));
+					try {
+						sendAdditionalInfoToSim(sim);
+					} catch (UncompatibleScenarioException e) {
+						Logger.error("Couldn't send aftershock information to "
+								+ sim, e);
+					}
+					return null;
+				}
+			}, 0);
 			updateGUISimulatorAck();
 		}
 
@@ -447,9 +608,12 @@ public class ComponentManager implements ConnectionManagerListener,
 				Connection connection) {
 			int requestID = msg.getRequestID();
 			int simID = msg.getSimulatorID();
-			if (simAcknowledge(requestID, simID, connection)) {
+			SimulatorAck ack = simAcknowledge(requestID, simID, connection);
+			if (ack != null) {
+				long elapsed = simulatorStartupTimer.stop(ack.connectTime);
 				Logger.info("Simulator " + simID + " (" + connection
-						+ " request ID " + requestID + ") acknowledged");
+						+ " request ID " + requestID + ") acknowledged after "
+						+ format(elapsed) + " ms");
 			} else {
 				Logger.warn("Unexpected acknowledge from simulator " + simID
 						+ " (request ID " + requestID + ")");
@@ -458,20 +622,27 @@ public class ComponentManager implements ConnectionManagerListener,
 		}
 
 		private void handleVKConnect(VKConnect msg, Connection connection) {
-			int requestID = msg.getRequestID();
-			int viewerID = getNextViewerID();
+			long connectTime = System.nanoTime();
+			final int requestID = msg.getRequestID();
+			final int viewerID = getNextViewerID();
 			Logger.info("Viewer '" + msg.getViewerName() + "' id " + viewerID
 					+ " (" + connection + " request ID " + requestID
 					+ ") connected");
-			ViewerProxy viewer = new ViewerProxy(msg.getViewerName(), viewerID,
-					connection);
+			final ViewerProxy viewer = new ViewerProxy(msg.getViewerName(),
+					viewerID, connection);
 			synchronized (viewerLock) {
 				viewersToAcknowledge.add(new ViewerAck(viewer, viewerID,
-						requestID, connection));
+						requestID, connection, connectTime));
 			}
-			// Send an OK
-			viewer.send(Collections.singleton(new KVConnectOK(viewerID,
-					requestID, world.getAllEntities(), config)));
+			// Send an OK. The world is copied and encoded by a worker.
+			submit("send KVConnectOK to " + viewer, new Callable<Void>() {
+				@Override
+				public Void call() {
+					viewer.send(Collections.singleton(new KVConnectOK(viewerID,
+							requestID, world.getAllEntities(), config)));
+					return null;
+				}
+			}, 0);
 			updateGUIViewerAck();
 		}
 
@@ -479,9 +650,12 @@ public class ComponentManager implements ConnectionManagerListener,
 				Connection connection) {
 			int requestID = msg.getRequestID();
 			int viewerID = msg.getViewerID();
-			if (viewerAcknowledge(requestID, viewerID, connection)) {
+			ViewerAck ack = viewerAcknowledge(requestID, viewerID, connection);
+			if (ack != null) {
+				long elapsed = viewerStartupTimer.stop(ack.connectTime);
 				Logger.info("Viewer " + viewerID + " (" + connection
-						+ " request ID " + requestID + ") acknowledged");
+						+ " request ID " + requestID + ") acknowledged after "
+						+ format(elapsed) + " ms");
 			} else {
 				Logger.warn("Unexpected acknowledge from viewer " + viewerID
 						+ " (" + requestID + ")");
@@ -490,18 +664,36 @@ public class ComponentManager implements ConnectionManagerListener,
 		}
 	}
 
+	/**
+	 * Makes daemon threads for the worker pool, so that a kernel that is not
+	 * shut down cleanly does not keep the JVM alive.
+	 */
+	private static class WorkerThreadFactory implements ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread result = new Thread(r, "Component manager worker "
+					+ count.incrementAndGet());
+			result.setDaemon(true);
+			return result;
+		}
+	}
+
 	private static class AgentAck {
 		AgentProxy agent;
 		EntityID agentID;
 		int requestID;
 		Connection connection;
+		long connectTime;
 
 		public AgentAck(AgentProxy agent, EntityID agentID, int requestID,
-				Connection c) {
+				Connection c, long connectTime) {
 			this.agent = agent;
 			this.agentID = agentID;
 			this.requestID = requestID;
 			this.connection = c;
+			this.connectTime = connectTime;
 		}
 
 		@Override
@@ -518,13 +710,15 @@ public class ComponentManager implements ConnectionManagerListener,
 		int simulatorID;
 		int requestID;
 		Connection connection;
+		long connectTime;
 
 		public SimulatorAck(SimulatorProxy sim, int simID, int requestID,
-				Connection c) {
+				Connection c, long connectTime) {
 			this.sim = sim;
 			this.simulatorID = simID;
 			this.requestID = requestID;
 			this.connection = c;
+			this.connectTime = connectTime;
 		}
 
 		@Override
@@ -539,13 +733,15 @@ public class ComponentManager implements ConnectionManagerListener,
 		int viewerID;
 		int requestID;
 		Connection connection;
+		long connectTime;
 
 		public ViewerAck(ViewerProxy viewer, int viewerID, int requestID,
-				Connection c) {
+				Connection c, long connectTime) {
 			this.viewer = viewer;
 			this.viewerID = viewerID;
 			this.requestID = requestID;
 			this.connection = c;
+			this.connectTime = connectTime;
 		}
 
 		@Override
@@ -0,0 +1,63 @@
+package kernel;
+
+import rescuecore2.connection.Connection;
+import rescuecore2.metrics.Gauge;
+import rescuecore2.metrics.MetricsRegistry;
+import rescuecore2.metrics.PhaseTimer;
+
+/**
+   The connection metrics the kernel keeps for an agent, simulator or viewer.
+ */
+class ComponentMetrics {
+    private final KernelComponent component;
+    private final String prefix;
+    private final MetricsRegistry registry;
+    private final Gauge bytesSent;
+    private final Gauge bytesReceived;
+    private final Gauge queueSize;
+    private PhaseTimer perception;
+
+    /**
+       Construct a ComponentMetrics.
+       @param component The component to watch.
+       @param prefix The prefix for the names of the metrics.
+       @param registry The registry to add the metrics to.
+    */
+    ComponentMetrics(KernelComponent component, String prefix, MetricsRegistry registry) {
+        this.component = component;
+        this.prefix = prefix;
+        this.registry = registry;
+        bytesSent = registry.getGauge(prefix + ".bytes-sent");
+        bytesReceived = registry.getGauge(prefix + ".bytes-received");
+        queueSize = registry.getGauge(prefix + ".queue-size");
+    }
+
+    /**
+       Get the prefix of the names of these metrics.
+       @return The prefix.
+    */
+    String getPrefix() {
+        return prefix;
+    }
+
+    /**
+       Get the timer for computing what this component perceives. The timer is only created when first used, since only agents have perception.
+       @return The perception timer.
+    */
+    PhaseTimer getPerceptionTimer() {
+        if (perception == null) {
+            perception = registry.getTimer(prefix + ".perception");
+        }
+        return perception;
+    }
+
+    /**
+       Copy the current state of the component's connection into the gauges.
+    */
+    void update() {
+        Connection c = component.getConnection();
+        bytesSent.set(c.getBytesSent());
+        bytesReceived.set(c.getBytesReceived());
+        queueSize.set(c.getQueueSize());
+    }
+}
@@ -6,8 +6,10 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.concurrent.Callable;
@@ -30,6 +32,9 @@ import rescuecore2.log.RCRSLogFactory;
 import rescuecore2.log.StartLogRecord;
 import rescuecore2.log.UpdatesRecord;
 import rescuecore2.messages.Command;
+import rescuecore2.metrics.MetricsRegistry;
+import rescuecore2.metrics.MetricsWriter;
+import rescuecore2.metrics.PhaseTimer;
 import rescuecore2.score.ScoreFunction;
 //import rescuecore2.misc.gui.ChangeSetComponent;
 import rescuecore2.worldmodel.ChangeSet;
@@ -44,6 +49,15 @@ public class Kernel {
 	/** The log context for kernel log messages. */
 	public static final String KERNEL_LOG_CONTEXT = "kernel";
 
+	/** The config key for the file that metrics are written to. */
+	public static final String METRICS_FILE_KEY = "kernel.metrics.file";
+
+	/** The config key for the number of timesteps between metrics dumps. */
+	public static final String METRICS_INTERVAL_KEY = "kernel.metrics.interval";
+
+	private static final long MEGABYTE = 1024 * 1024;
+	private static final long NANOS_PER_MILLI = 1000000;
+
 	private Config config;
 	private Perception perception;
 	private CommunicationModel communicationModel;
@@ -56,7 +70,7 @@ public class Kernel {
 	private Collection<SimulatorProxy> sims;
 	private Collection<ViewerProxy> viewers;
 	private int time;
-	private Timestep previousTimestep;
+	private Collection<Command> previousCommands;
 
 	private EntityIDGenerator idGenerator;
 	private CommandFilter commandFilter;
@@ -67,6 +81,18 @@ public class Kernel {
 
 	private boolean isShutdown;
 
+	private MetricsRegistry metrics;
+	private MetricsWriter metricsWriter;
+	private int metricsInterval;
+	private Map<KernelComponent, ComponentMetrics> componentMetrics;
+	private PhaseTimer perceptionTimer;
+	private PhaseTimer commandsTimer;
+	private PhaseTimer simulatorsTimer;
+	private PhaseTimer mergeTimer;
+	private PhaseTimer broadcastTimer;
+	private PhaseTimer scoreTimer;
+	private PhaseTimer timestepTimer;
+
 	// private ChangeSetComponent simulatorChanges;
 
 	/**
@@ -110,6 +136,27 @@ public class Kernel {
 			sims = new HashSet<SimulatorProxy>();
 			viewers = new HashSet<ViewerProxy>();
 			time = 0;
+			metrics = MetricsRegistry.getCurrentRegistry();
+			componentMetrics = new HashMap<KernelComponent, ComponentMetrics>();
+			perceptionTimer = metrics.getTimer("kernel.perception");
+			commandsTimer = metrics.getTimer("kernel.commands");
+			simulatorsTimer = metrics.getTimer("kernel.simulators");
+			mergeTimer = metrics.getTimer("kernel.merge");
+			broadcastTimer = metrics.getTimer("kernel.broadcast");
+			scoreTimer = metrics.getTimer("kernel.score");
+			timestepTimer = metrics.getTimer("kernel.timestep");
+			String metricsName = config.getValue(METRICS_FILE_KEY, "");
+			if (!metricsName.isEmpty()) {
+				try {
+					metricsWriter = new MetricsWriter(new File(metricsName));
+					metricsInterval = Math.max(1,
+							config.getIntValue(METRICS_INTERVAL_KEY, 1));
+					Logger.info("Writing metrics to " + metricsName);
+				} catch (IOException e) {
+					throw new KernelException(
+							"Couldn't open metrics file for writing", e);
+				}
+			}
 			try {
 				String logName = config.getValue("kernel.logname");
 				Logger.info("Logging to " + logName);
@@ -171,6 +218,15 @@ public class Kernel {
 		return config;
 	}
 
+	/**
+	 * Get the registry that holds the kernel's timers and other metrics.
+	 *
+	 * @return The kernel's metrics.
+	 */
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+
 	/**
 	 * Get a snapshot of the kernel's state.
 	 *
@@ -188,6 +244,8 @@ public class Kernel {
 	public void addAgent(AgentProxy agent) {
 		synchronized (this) {
 			agents.add(agent);
+			componentMetrics.put(agent,
+					new ComponentMetrics(agent, "agent." + agent.getControlledEntity().getID(), metrics));
 		}
 		fireAgentAdded(agent);
 	}
@@ -200,6 +258,7 @@ public class Kernel {
 	public void removeAgent(AgentProxy agent) {
 		synchronized (this) {
 			agents.remove(agent);
+			removeMetrics(agent);
 		}
 		fireAgentRemoved(agent);
 	}
@@ -223,6 +282,8 @@ public class Kernel {
 	public void addSimulator(SimulatorProxy sim) {
 		synchronized (this) {
 			sims.add(sim);
+			componentMetrics.put(sim,
+					new ComponentMetrics(sim, "simulator." + sim.getID(), metrics));
 			sim.setEntityIDGenerator(idGenerator);
 		}
 		fireSimulatorAdded(sim);
@@ -236,6 +297,7 @@ public class Kernel {
 	public void removeSimulator(SimulatorProxy sim) {
 		synchronized (this) {
 			sims.remove(sim);
+			removeMetrics(sim);
 		}
 		fireSimulatorRemoved(sim);
 	}
@@ -259,6 +321,8 @@ public class Kernel {
 	public void addViewer(ViewerProxy viewer) {
 		synchronized (this) {
 			viewers.add(viewer);
+			componentMetrics.put(viewer,
+					new ComponentMetrics(viewer, "viewer." + viewer.getID(), metrics));
 		}
 		fireViewerAdded(viewer);
 	}
@@ -271,6 +335,7 @@ public class Kernel {
 	public void removeViewer(ViewerProxy viewer) {
 		synchronized (this) {
 			viewers.remove(viewer);
+			removeMetrics(viewer);
 		}
 		fireViewerRemoved(viewer);
 	}
@@ -368,55 +433,74 @@ public class Kernel {
 				// Send perception, commands and updates to viewers
 				Timestep nextTimestep = new Timestep(time);
 				Logger.info("Timestep " + time);
+				metrics.setTime(time);
 				Logger.debug("Sending agent updates");
-				long start = System.currentTimeMillis();
+				long start = System.nanoTime();
 				sendAgentUpdates(nextTimestep,
-						previousTimestep == null ? new HashSet<Command>()
-								: previousTimestep.getCommands());
-				long perceptionTime = System.currentTimeMillis();
+						previousCommands == null ? new HashSet<Command>()
+								: previousCommands);
+				long perceptionTime = perceptionTimer.stop(start);
 				Logger.debug("Waiting for commands");
+				long phase = System.nanoTime();
 				Collection<Command> commands = waitForCommands(time);
 				nextTimestep.setCommands(commands);
 				log.writeRecord(new CommandsRecord(time, commands));
-				long commandsTime = System.currentTimeMillis();
+				long commandsTime = commandsTimer.stop(phase);
 				Logger.debug("Broadcasting commands");
+				phase = System.nanoTime();
 				ChangeSet changes = sendCommandsToSimulators(time, commands);
 				// simulatorUpdates.show(changes);
 				nextTimestep.setChangeSet(changes);
 				log.writeRecord(new UpdatesRecord(time, changes));
-				long updatesTime = System.currentTimeMillis();
+				long updatesTime = simulatorsTimer.stop(phase);
 				// Merge updates into world model
+				phase = System.nanoTime();
 				worldModel.merge(changes);
-				long mergeTime = System.currentTimeMillis();
+				long mergeTime = mergeTimer.stop(phase);
 				Logger.debug("Broadcasting updates");
+				phase = System.nanoTime();
 				sendUpdatesToSimulators(time, changes);
 				sendToViewers(nextTimestep);
-				long broadcastTime = System.currentTimeMillis();
+				long broadcastTime = broadcastTimer.stop(phase);
 				Logger.debug("Computing score");
+				phase = System.nanoTime();
 				double s = score.score(worldModel, nextTimestep);
-				long scoreTime = System.currentTimeMillis();
+				long scoreTime = scoreTimer.stop(phase);
+				long totalTime = timestepTimer.stop(start);
 				nextTimestep.setScore(s);
 				Logger.info("Timestep " + time + " complete");
-				Logger.debug("Score: " + s);
-				Logger.debug("Perception took        : "
-						+ (perceptionTime - start) + "ms");
-				Logger.debug("Agent commands took    : "
-						+ (commandsTime - perceptionTime) + "ms");
-				Logger.debug("Simulator updates took : "
-						+ (updatesTime - commandsTime) + "ms");
-				Logger.debug("World model merge took : "
-						+ (mergeTime - updatesTime) + "ms");
-				Logger.debug("Update broadcast took  : "
-						+ (broadcastTime - mergeTime) + "ms");
-				Logger.debug("Score calculation took : "
-						+ (scoreTime - broadcastTime) + "ms");
-				Logger.debug("Total time             : " + (scoreTime - start)
-						+ "ms");
+				if (Logger.isDebugEnabled()) {
+					Logger.debug("Score: " + s);
+					Logger.debug("Perception took        : "
+							+ perceptionTime / NANOS_PER_MILLI + "ms");
+					Logger.debug("Agent commands took    : "
+							+ commandsTime / NANOS_PER_MILLI + "ms");
+					Logger.debug("Simulator updates took : "
+							+ updatesTime / NANOS_PER_MILLI + "ms");
+					Logger.debug("World model merge took : "
+							+ mergeTime / NANOS_PER_MILLI + "ms");
+					Logger.debug("Update broadcast took  : "
+							+ broadcastTime / NANOS_PER_MILLI + "ms");
+					Logger.debug("Score calculation took : "
+							+ scoreTime / NANOS_PER_MILLI + "ms");
+					Logger.debug("Total time             : "
+							+ totalTime / NANOS_PER_MILLI + "ms");
+				}
+				updateMetrics();
 				fireTimestepCompleted(nextTimestep);
-				previousTimestep = nextTimestep;
-				Logger.debug("Commands: " + commands);
-				Logger.debug(
-						"Timestep commands: " + previousTimestep.getCommands());
+				// Only the commands are needed next timestep, so let the
+				// perception and buffered messages for this one go
+				previousCommands = nextTimestep.getCommands();
+				releaseTimestep(time);
+				Logger.debug("Commands: {}", commands);
+				Logger.debug("Timestep commands: {}", previousCommands);
+				if (Logger.isDebugEnabled()) {
+					Runtime runtime = Runtime.getRuntime();
+					Logger.debug("Heap used              : "
+							+ (runtime.totalMemory() - runtime.freeMemory())
+									/ MEGABYTE
+							+ "MB");
+				}
 			}
 		} finally {
 			Logger.popLogContext();
@@ -474,6 +558,14 @@ public class Kernel {
 			} catch (LogException e) {
 				Logger.error("Error closing log", e);
 			}
+			if (metricsWriter != null) {
+				try {
+					metricsWriter.close();
+				} catch (IOException e) {
+					Logger.error("Error closing metrics file", e);
+				}
+				metricsWriter = null;
+			}
 			Logger.info("Kernel has shut down");
 			isShutdown = true;
 			fireShutdown();
@@ -489,9 +581,11 @@ public class Kernel {
 			if (Thread.interrupted()) {
 				throw new InterruptedException();
 			}
+			long start = System.nanoTime();
 			ChangeSet visible = perception.getVisibleEntities(next);
 			Collection<Command> heard = communicationModel
 					.getHearing(next.getControlledEntity());
+			componentMetrics.get(next).getPerceptionTimer().stop(start);
 			EntityID id = next.getControlledEntity().getID();
 			timestep.registerPerception(id, visible, heard);
 			log.writeRecord(new PerceptionRecord(time, id, visible, heard));
@@ -499,13 +593,41 @@ public class Kernel {
 		}
 	}
 
+	private void updateMetrics() {
+		for (ComponentMetrics next : componentMetrics.values()) {
+			next.update();
+		}
+		metrics.timestepCompleted(time);
+		if (metricsWriter != null && time % metricsInterval == 0) {
+			try {
+				metricsWriter.write(metrics, time);
+			} catch (IOException e) {
+				Logger.error("Error writing metrics; no more will be written",
+						e);
+				try {
+					metricsWriter.close();
+				} catch (IOException ex) {
+					Logger.error("Error closing metrics file", ex);
+				}
+				metricsWriter = null;
+			}
+		}
+	}
+
+	private void removeMetrics(KernelComponent c) {
+		ComponentMetrics m = componentMetrics.remove(c);
+		if (m != null) {
+			metrics.removeAll(m.getPrefix() + ".");
+		}
+	}
+
 	private Collection<Command> waitForCommands(int timestep)
 			throws InterruptedException {
 		Collection<Command> commands = commandCollector.getAgentCommands(agents,
 				timestep);
-		Logger.debug("Raw commands: " + commands);
+		Logger.debug("Raw commands: {}", commands);
 		commandFilter.filter(commands, getState());
-		Logger.debug("Filtered commands: " + commands);
+		Logger.debug("Filtered commands: {}", commands);
 		return commands;
 	}
 
@@ -521,12 +643,21 @@ public class Kernel {
 		// Wait until all simulators have sent updates
 		ChangeSet result = new ChangeSet();
 		for (SimulatorProxy next : sims) {
-			Logger.debug("Fetching updates from " + next);
+			Logger.debug("Fetching updates from {}", next);
 			result.merge(next.getUpdates(timestep));
 		}
 		return result;
 	}
 
+	private void releaseTimestep(int timestep) {
+		for (AgentProxy next : agents) {
+			next.releaseTimestep(timestep);
+		}
+		for (SimulatorProxy next : sims) {
+			next.releaseTimestep(timestep);
+		}
+	}
+
 	private void sendUpdatesToSimulators(int timestep, ChangeSet updates)
 			throws InterruptedException {
 		for (SimulatorProxy next : sims) {
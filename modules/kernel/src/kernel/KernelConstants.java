@@ -31,5 +31,8 @@ public final class KernelConstants {
     /** The config key for ignoring agent commands at the start of the simulation. */
     public static final String IGNORE_AGENT_COMMANDS_KEY = "kernel.agents.ignoreuntil";
 
+    /** The config key for the number of threads that send replies to connecting components. Defaults to the number of processors. */
+    public static final String CONNECT_THREADS_KEY = "kernel.startup.connect-threads";
+
     private KernelConstants() {}
 }
@@ -0,0 +1,250 @@
+package kernel;
+
+import static rescuecore2.misc.java.JavaTools.instantiate;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.dom4j.DocumentException;
+
+import rescuecore2.Constants;
+import rescuecore2.GUIComponent;
+import rescuecore2.components.Agent;
+import rescuecore2.components.Component;
+import rescuecore2.components.Viewer;
+import rescuecore2.config.Config;
+import rescuecore2.config.ConfigException;
+import rescuecore2.connection.AbstractConnection;
+import rescuecore2.log.CommandsRecord;
+import rescuecore2.log.LogException;
+import rescuecore2.log.LogReader;
+import rescuecore2.log.Logger;
+import rescuecore2.log.RCRSLogFactory;
+import rescuecore2.messages.Command;
+import rescuecore2.messages.protobuf.RCRSProto.MessageProto;
+import rescuecore2.metrics.Metric;
+import rescuecore2.metrics.MetricsRegistry;
+import rescuecore2.metrics.PhaseTimer;
+import rescuecore2.misc.CommandLineOptions;
+import rescuecore2.registry.Registry;
+import rescuecore2.score.ScoreFunction;
+import rescuecore2.worldmodel.Entity;
+import rescuecore2.worldmodel.EntityID;
+import rescuecore2.worldmodel.WorldModel;
+
+/**
+ * Replays the agent commands recorded in a kernel log through a new kernel
+ * and reports how long each phase of the timestep took. No agents are
+ * started: every agent in the log gets an AgentProxy whose connection discards
+ * everything the kernel sends, and the commands it sent in the recorded run are
+ * handed to the proxy before each timestep. The simulators named in the config
+ * run inline as usual, so a whole run can be replayed as fast as the kernel and
+ * simulators allow.
+ * <p>
+ * The configuration recorded in the log is used with any options given on the
+ * command line on top. Unless kernel.logname is given the new log is written
+ * to a "replay" directory next to the original. Set kernel.metrics.file to get
+ * the per-timestep timings as well as the summary.
+ */
+public final class ReplayKernel {
+  private static final String LOG_NAME_KEY = "kernel.logname";
+  private static final String COMMAND_COLLECTOR_KEY = "kernel.commandcollectors";
+  private static final String THINK_TIME_KEY = "kernel.agents.think-time";
+  private static final String REPLAY_DIR = "replay";
+  private static final String AGENT_NAME = "Replay agent";
+
+  private static final double NANOS_PER_MILLI = 1000000.0;
+
+  /** Utility class: private constructor. */
+  private ReplayKernel() {
+  }
+
+  /**
+   * Replay a kernel log.
+   *
+   * @param args Command line arguments: config options followed by the name of
+   *             the log file.
+   */
+  public static void main(String[] args) {
+    Config options = new Config();
+    Logger.setLogContext("startup");
+    try {
+      args = CommandLineOptions.processArgs(args, options);
+      if (args.length != 1) {
+        Logger.error("Usage: ReplayKernel [options] <log file>");
+        return;
+      }
+      // The factories are needed to read the log
+      StartKernel.processJarFiles(options);
+      Logger.info("Reading " + args[0]);
+      LogReader reader = RCRSLogFactory.getLogReader(args[0], Registry.SYSTEM_REGISTRY);
+      Config config = makeReplayConfig(reader.getConfig(), options, new File(args[0]));
+      Registry registry = StartKernel.createLocalRegistry(config, "Kernel local registry");
+      Logger.setLogContext("kernel");
+      replay(reader, config, registry);
+      // The simulators and the command collector do not stop their threads
+      System.exit(0);
+    } catch (ConfigException e) {
+      Logger.fatal("Couldn't start kernel", e);
+    } catch (KernelException e) {
+      Logger.fatal("Couldn't start kernel", e);
+    } catch (IOException e) {
+      Logger.fatal("Couldn't read log", e);
+    } catch (LogException e) {
+      Logger.fatal("Couldn't read or write log", e);
+    } catch (InterruptedException e) {
+      Logger.fatal("Kernel interrupted");
+    } catch (DocumentException e) {
+      Logger.fatal("Document Exception ", e);
+    }
+  }
+
+  private static Config makeReplayConfig(Config recorded, Config options, File logFile) {
+    Config result = new Config(recorded);
+    result.merge(options);
+    if (!options.isDefined(LOG_NAME_KEY)) {
+      File dir = new File(logFile.getAbsoluteFile().getParentFile(), REPLAY_DIR);
+      result.setValue(LOG_NAME_KEY, new File(dir, logFile.getName()).getPath());
+    }
+    // Recorded commands are all present before the timestep starts, so there is
+    // nothing to wait for
+    result.setValue(COMMAND_COLLECTOR_KEY, TimedCommandCollector.class.getName());
+    result.setIntValue(THINK_TIME_KEY, 0);
+    result.setBooleanValue(KernelConstants.INLINE_ONLY_KEY, true);
+    StartKernel.addConstraints(result);
+    return result;
+  }
+
+  private static void replay(LogReader reader, Config config, Registry registry)
+      throws KernelException, LogException, InterruptedException, DocumentException {
+    KernelStartupOptions options = new KernelStartupOptions(config);
+    // Only the simulators are started
+    for (Agent next : options.getAvailableAgents()) {
+      options.setInstanceCount(next, 0);
+    }
+    for (Viewer next : options.getAvailableViewers()) {
+      options.setInstanceCount(next, 0);
+    }
+    for (Component next : options.getAvailableComponents()) {
+      options.setInstanceCount(next, 0);
+    }
+    WorldModelCreator gis = options.getWorldModelCreator();
+    WorldModel<? extends Entity> world = gis.buildWorldModel(config);
+    ScoreFunction score = instantiate(config.getValue(Constants.SCORE_FUNCTION_KEY), ScoreFunction.class);
+    Kernel kernel = new Kernel(config, options.getPerception(), options.getCommunicationModel(), world, gis,
+        StartKernel.makeCommandFilter(config), StartKernel.makeTerminationCondition(config), score,
+        StartKernel.makeCommandCollector(config));
+    ComponentManager componentManager = new ComponentManager(kernel, world, config, gis.getScenario(config));
+    Map<EntityID, AgentProxy> agents = createAgents(reader, kernel, world);
+    int last = reader.getMaxTimestep();
+    Map<Integer, Collection<Command>> commands = readCommands(reader, last);
+    StartKernel.KernelInfo info = new StartKernel.KernelInfo(kernel, options, componentManager,
+        new ArrayList<GUIComponent>());
+    ExecutorService service = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    try {
+      StartKernel.autostartComponents(info, registry, null, config, service);
+    } finally {
+      service.shutdown();
+    }
+    StartKernel.waitForComponentManager(info, config);
+    Logger.info("Replaying " + last + " timesteps with " + agents.size() + " agents");
+    long start = System.nanoTime();
+    while (!kernel.hasTerminated() && kernel.getTime() < last) {
+      Collection<Command> next = commands.remove(kernel.getTime() + 1);
+      if (next != null) {
+        for (Command c : next) {
+          AgentProxy agent = agents.get(c.getAgentID());
+          if (agent != null) {
+            agent.commandReceived(c);
+          }
+        }
+      }
+      kernel.timestep();
+    }
+    long elapsed = System.nanoTime() - start;
+    kernel.shutdown();
+    printSummary(kernel.getMetrics(), kernel.getTime(), elapsed);
+  }
+
+  /**
+   * Create a proxy for every agent that was sent a perception update in the
+   * first timestep of the recorded run.
+   */
+  private static Map<EntityID, AgentProxy> createAgents(LogReader reader, Kernel kernel,
+      WorldModel<? extends Entity> world) throws LogException {
+    Map<EntityID, AgentProxy> result = new HashMap<EntityID, AgentProxy>();
+    for (EntityID next : reader.getEntitiesWithUpdates(1)) {
+      Entity entity = world.getEntity(next);
+      if (entity == null) {
+        Logger.warn("Agent " + next + " is not in the world model: its commands will be ignored");
+        continue;
+      }
+      ReplayConnection connection = new ReplayConnection();
+      connection.setName(AGENT_NAME + " " + next);
+      connection.startup();
+      AgentProxy agent = new AgentProxy(AGENT_NAME, entity, connection);
+      kernel.addAgent(agent);
+      result.put(next, agent);
+    }
+    return result;
+  }
+
+  /**
+   * Read all recorded commands up front so that decoding the log is not part
+   * of the measured time.
+   */
+  private static Map<Integer, Collection<Command>> readCommands(LogReader reader, int last) throws LogException {
+    Map<Integer, Collection<Command>> result = new HashMap<Integer, Collection<Command>>();
+    for (int i = 1; i <= last; ++i) {
+      CommandsRecord record = reader.getCommands(i);
+      if (record != null) {
+        result.put(i, record.getCommands());
+      }
+    }
+    return result;
+  }
+
+  private static void printSummary(MetricsRegistry metrics, int timesteps, long elapsed) {
+    System.out.println("Replayed " + timesteps + " timesteps in " + format(elapsed) + " ms");
+    System.out.println(String.format("%-30s %8s %12s %12s %12s", "Phase", "Count", "Mean (ms)", "Max (ms)",
+        "Total (ms)"));
+    for (Metric next : metrics.getMetrics()) {
+      // Per-agent timers would bury the phases
+      if (!(next instanceof PhaseTimer) || next.getName().startsWith("agent.")) {
+        continue;
+      }
+      PhaseTimer t = (PhaseTimer) next;
+      System.out.println(String.format("%-30s %8d %12s %12s %12s", t.getName(), t.getCount(),
+          format(t.getMeanNanos()), format(t.getMaxNanos()), format(t.getTotalNanos())));
+    }
+  }
+
+  private static String format(long nanos) {
+    return String.format("%.3f", nanos / NANOS_PER_MILLI);
+  }
+
+  /**
+   * A connection to an agent that is not there. Messages are encoded as they
+   * would be for a real agent, counted and then dropped.
+   */
+  private static class ReplayConnection extends AbstractConnection {
+    @Override
+    protected void sendMessageProto(MessageProto messageProto) {
+      recordBytesSent(messageProto.getSerializedSize());
+    }
+
+    @Override
+    protected void startupImpl() {
+    }
+
+    @Override
+    protected void shutdownImpl() {
+    }
+  }
+}
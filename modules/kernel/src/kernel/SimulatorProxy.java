@@ -12,10 +12,9 @@ import rescuecore2.messages.control.EntityIDResponse;
 import rescuecore2.worldmodel.ChangeSet;
 import rescuecore2.worldmodel.EntityID;
 import rescuecore2.log.Logger;
+import rescuecore2.misc.collections.TimestepRing;
 
 import java.util.Collection;
-import java.util.Map;
-import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
 
@@ -23,7 +22,10 @@ import java.util.ArrayList;
    This class is the kernel interface to a simulator.
  */
 public class SimulatorProxy extends AbstractKernelComponent {
-    private Map<Integer, ChangeSet> updates;
+    // Updates are only kept for the timesteps the kernel has not finished yet
+    private static final int UPDATE_BUFFER_SIZE = 4;
+
+    private TimestepRing<ChangeSet> updates;
     private int id;
     private EntityIDGenerator idGenerator;
 
@@ -36,7 +38,12 @@ public class SimulatorProxy extends AbstractKernelComponent {
     public SimulatorProxy(String name, int id, Connection c) {
         super(name, c);
         this.id = id;
-        updates = new HashMap<Integer, ChangeSet>();
+        updates = new TimestepRing<ChangeSet>(UPDATE_BUFFER_SIZE) {
+            @Override
+            public ChangeSet createValue() {
+                return new ChangeSet();
+            }
+        };
         c.addConnectionListener(new SimulatorConnectionListener());
     }
 
@@ -50,7 +57,7 @@ public class SimulatorProxy extends AbstractKernelComponent {
         ChangeSet result = null;
         synchronized (updates) {
             while (result == null) {
-                result = updates.get(time);
+                result = updates.peek(time);
                 if (result == null) {
                     updates.wait(1000);
                 }
@@ -59,6 +66,16 @@ public class SimulatorProxy extends AbstractKernelComponent {
         return result;
     }
 
+    /**
+       Discard the updates received for a timestep and all earlier timesteps. Updates for these timesteps that arrive later are ignored.
+       @param time The last completed timestep.
+    */
+    public void releaseTimestep(int time) {
+        synchronized (updates) {
+            updates.release(time);
+        }
+    }
+
     /**
        Send an update message to this simulator.
        @param time The simulation time.
@@ -77,6 +94,14 @@ public class SimulatorProxy extends AbstractKernelComponent {
         send(new KSCommands(id, time, commands));
     }
 
+    /**
+       Get the ID of this simulator.
+       @return The simulator ID.
+    */
+    public int getID() {
+        return id;
+    }
+
     @Override
     public String toString() {
         return getName() + " (" + id + "): " + getConnection().toString();
@@ -99,8 +124,8 @@ public class SimulatorProxy extends AbstractKernelComponent {
         synchronized (updates) {
             ChangeSet c = updates.get(time);
             if (c == null) {
-                c = new ChangeSet();
-                updates.put(time, c);
+                Logger.debug("Ignoring late update from simulator " + id + " for timestep " + time);
+                return;
             }
             c.merge(changes);
             updates.notifyAll();
@@ -9,14 +9,17 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -51,6 +54,7 @@ import rescuecore2.misc.Pair;
 import rescuecore2.misc.java.LoadableType;
 import rescuecore2.misc.java.LoadableTypeProcessor;
 import rescuecore2.registry.Factory;
+import rescuecore2.metrics.MetricsRegistry;
 import rescuecore2.registry.Registry;
 import rescuecore2.scenario.Scenario;
 import rescuecore2.score.ScoreFunction;
@@ -64,6 +68,7 @@ public final class StartKernel {
   private static final String NO_STARTUP_MENU = "--nomenu";
   private static final String NO_GUI = "--nogui";
   private static final String AUTORUN = "--autorun";
+  private static final String BATCH = "--batch";
 
   private static final String GIS_MANIFEST_KEY = "Gis";
   private static final String PERCEPTION_MANIFEST_KEY = "Perception";
@@ -90,12 +95,19 @@ public final class StartKernel {
   private static final String AGENT_REGISTRAR_KEY = "kernel.agents.registrar";
   private static final String GUI_COMPONENTS_KEY = "kernel.ui.components";
 
+  private static final String BATCH_RUNS_KEY = "kernel.batch.concurrent-runs";
+  private static final String LOG_NAME_KEY = "kernel.logname";
+  // Read by the GML world model creator
+  private static final String SHARED_MAP_KEY = "gis.map.shared";
+
   /** Utility class: private constructor. */
   private StartKernel() {
   }
 
   /**
-   * Start a kernel.
+   * Start a kernel. With the --batch option each following argument names a
+   * config file for one run: every run gets its own kernel built from the
+   * command line config plus that file, and the runs share this JVM.
    *
    * @param args Command line arguments.
    * @throws DocumentException
@@ -105,6 +117,8 @@ public final class StartKernel {
     boolean showStartupMenu = true;
     boolean showGUI = true;
     boolean autorun = false;
+    boolean batch = false;
+    List<String> runFiles = new ArrayList<String>();
     Logger.setLogContext("startup");
     try {
       args = CommandLineOptions.processArgs(args, config);
@@ -115,31 +129,22 @@ public final class StartKernel {
           showStartupMenu = false;
         } else if (arg.equalsIgnoreCase(AUTORUN)) {
           autorun = true;
+        } else if (arg.equalsIgnoreCase(BATCH)) {
+          batch = true;
+        } else if (batch) {
+          runFiles.add(arg);
         } else {
           Logger.warn("Unrecognised option: " + arg);
         }
       }
       // Process jar files
       processJarFiles(config);
-      Registry localRegistry = new Registry("Kernel local registry");
-      // Register preferred message, entity and property factories
-      for (String next : config.getArrayValue(Constants.FACTORY_KEY, "")) {
-        Factory factory = instantiateFactory(next, Factory.class);
-        if (factory != null) {
-          localRegistry.registerFactory(factory);
-          Logger.info("Registered local factory: " + next);
-        }
+      if (batch) {
+        runBatch(config, runFiles);
+        return;
       }
-
-      config.addConstraint(new IntegerValueConstraint(Constants.KERNEL_PORT_NUMBER_KEY, 1, 65535));
-      config.addConstraint(new IntegerValueConstraint(KERNEL_STARTUP_TIME_KEY, 0, Integer.MAX_VALUE));
-      config.addConstraint(new ClassNameSetValueConstraint(Constants.FACTORY_KEY, Factory.class));
-      config.addConstraint(new ClassNameSetValueConstraint(COMMAND_FILTERS_KEY, CommandFilter.class));
-      config.addConstraint(new ClassNameSetValueConstraint(TERMINATION_KEY, TerminationCondition.class));
-      config.addConstraint(new ClassNameSetValueConstraint(COMMAND_COLLECTOR_KEY, CommandCollector.class));
-      config.addConstraint(new ClassNameSetValueConstraint(GUI_COMPONENTS_KEY, GUIComponent.class));
-      config.addConstraint(new ClassNameValueConstraint(AGENT_REGISTRAR_KEY, AgentRegistrar.class));
-      config.addConstraint(new ClassNameValueConstraint(Constants.SCORE_FUNCTION_KEY, ScoreFunction.class));
+      Registry localRegistry = createLocalRegistry(config, "Kernel local registry");
+      addConstraints(config);
 
       Logger.setLogContext("kernel");
       final KernelInfo kernelInfo = createKernel(config, showStartupMenu);
@@ -168,7 +173,8 @@ public final class StartKernel {
         frame.setVisible(true);
       }
       initialiseKernel(kernelInfo, config, localRegistry);
-      autostartComponents(kernelInfo, localRegistry, gui, config);
+      autostartComponents(kernelInfo, localRegistry, gui, config,
+          Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors()));
       if (!showGUI || autorun) {
         waitForComponentManager(kernelInfo, config);
         Kernel kernel = kernelInfo.kernel;
@@ -192,6 +198,96 @@ public final class StartKernel {
     }
   }
 
+  /**
+   * Run several kernels side by side. Runs share the jar scan, parsed maps
+   * and a worker pool for starting inline components, but each has its own
+   * config, registry, components and log. Unless its config file says
+   * otherwise a run only accepts inline components and writes its log to a
+   * directory named after the run.
+   */
+  private static void runBatch(Config config, List<String> runFiles) throws ConfigException, InterruptedException {
+    if (runFiles.isEmpty()) {
+      Logger.error("No run configurations given for batch mode");
+      return;
+    }
+    List<BatchRun> runs = new ArrayList<BatchRun>();
+    for (String next : runFiles) {
+      File file = new File(next);
+      String name = file.getName().replaceFirst("\\.[^.]*$", "");
+      runs.add(new BatchRun(name, makeRunConfig(config, file, name)));
+    }
+    int concurrent = Math.max(1, config.getIntValue(BATCH_RUNS_KEY, runs.size()));
+    ExecutorService workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    ExecutorService runners = Executors.newFixedThreadPool(Math.min(concurrent, runs.size()));
+    try {
+      List<Future<Void>> results = new ArrayList<Future<Void>>();
+      for (BatchRun next : runs) {
+        next.workers = workers;
+        results.add(runners.submit(next));
+      }
+      for (int i = 0; i < results.size(); ++i) {
+        try {
+          results.get(i).get();
+          Logger.info("Run " + runs.get(i).name + " finished");
+        } catch (ExecutionException e) {
+          Logger.error("Run " + runs.get(i).name + " failed", e.getCause());
+        }
+      }
+    } finally {
+      runners.shutdownNow();
+      workers.shutdownNow();
+      // Shared maps are only needed while the batch runs
+      for (BatchRun next : runs) {
+        if (next.gis != null) {
+          next.gis.clearSharedData();
+        }
+      }
+    }
+  }
+
+  private static Config makeRunConfig(Config config, File file, String name) throws ConfigException {
+    Config overrides = new Config(file);
+    Config result = new Config(config);
+    result.merge(overrides);
+    if (!overrides.isDefined(KernelConstants.INLINE_ONLY_KEY)) {
+      result.setBooleanValue(KernelConstants.INLINE_ONLY_KEY, true);
+    }
+    if (!overrides.isDefined(LOG_NAME_KEY)) {
+      File log = new File(config.getValue(LOG_NAME_KEY));
+      result.setValue(LOG_NAME_KEY, new File(new File(log.getParentFile(), name), log.getName()).getPath());
+    }
+    if (!overrides.isDefined(SHARED_MAP_KEY)) {
+      result.setBooleanValue(SHARED_MAP_KEY, true);
+    }
+    addConstraints(result);
+    return result;
+  }
+
+  static Registry createLocalRegistry(Config config, String name) {
+    Registry result = new Registry(name);
+    // Register preferred message, entity and property factories
+    for (String next : config.getArrayValue(Constants.FACTORY_KEY, "")) {
+      Factory factory = instantiateFactory(next, Factory.class);
+      if (factory != null) {
+        result.registerFactory(factory);
+        Logger.info("Registered local factory: " + next);
+      }
+    }
+    return result;
+  }
+
+  static void addConstraints(Config config) {
+    config.addConstraint(new IntegerValueConstraint(Constants.KERNEL_PORT_NUMBER_KEY, 1, 65535));
+    config.addConstraint(new IntegerValueConstraint(KERNEL_STARTUP_TIME_KEY, 0, Integer.MAX_VALUE));
+    config.addConstraint(new ClassNameSetValueConstraint(Constants.FACTORY_KEY, Factory.class));
+    config.addConstraint(new ClassNameSetValueConstraint(COMMAND_FILTERS_KEY, CommandFilter.class));
+    config.addConstraint(new ClassNameSetValueConstraint(TERMINATION_KEY, TerminationCondition.class));
+    config.addConstraint(new ClassNameSetValueConstraint(COMMAND_COLLECTOR_KEY, CommandCollector.class));
+    config.addConstraint(new ClassNameSetValueConstraint(GUI_COMPONENTS_KEY, GUIComponent.class));
+    config.addConstraint(new ClassNameValueConstraint(AGENT_REGISTRAR_KEY, AgentRegistrar.class));
+    config.addConstraint(new ClassNameValueConstraint(Constants.SCORE_FUNCTION_KEY, ScoreFunction.class));
+  }
+
   private static KernelInfo createKernel(Config config, boolean showMenu) throws KernelException, DocumentException {
     KernelStartupOptions options = new KernelStartupOptions(config);
     // Show the chooser GUI
@@ -287,7 +383,7 @@ public final class StartKernel {
     }
   }
 
-  private static void waitForComponentManager(final KernelInfo kernel, Config config) throws KernelException {
+  static void waitForComponentManager(final KernelInfo kernel, Config config) throws KernelException {
     // Wait for all connections
     // Set up a CountDownLatch
     final CountDownLatch latch = new CountDownLatch(1);
@@ -336,18 +432,20 @@ public final class StartKernel {
     }
   }
 
-  private static void autostartComponents(KernelInfo info, Registry registry, KernelGUI gui, Config config)
-      throws InterruptedException {
+  static void autostartComponents(KernelInfo info, Registry registry, KernelGUI gui, Config config,
+      ExecutorService service) throws InterruptedException {
     KernelStartupOptions options = info.options;
     Collection<Callable<Void>> all = new ArrayList<Callable<Void>>();
     Config launchConfig = new Config(config);
     launchConfig.removeExcept(Constants.RANDOM_SEED_KEY, Constants.RANDOM_CLASS_KEY);
     for (Pair<String, Integer> next : options.getInlineComponents()) {
       if (next.second() > 0) {
-        all.add(new ComponentStarter(next.first(), info.componentManager, next.second(), registry, gui, launchConfig));
+        // The pool may be shared with other kernels, so carry over this
+        // thread's registries and log context
+        all.add(MetricsRegistry.withCurrentRegistry(Registry.withCurrentRegistry(Logger.withCurrentContext(
+            new ComponentStarter(next.first(), info.componentManager, next.second(), registry, gui, launchConfig)))));
       }
     }
-    ExecutorService service = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
     service.invokeAll(all);
   }
 
@@ -360,7 +458,7 @@ public final class StartKernel {
     ar.registerAgents(model, config, c);
   }
 
-  private static CommandFilter makeCommandFilter(Config config) {
+  static CommandFilter makeCommandFilter(Config config) {
     ChainedCommandFilter result = new ChainedCommandFilter();
     List<String> classNames = config.getArrayValue(COMMAND_FILTERS_KEY, null);
     for (String next : classNames) {
@@ -373,7 +471,7 @@ public final class StartKernel {
     return result;
   }
 
-  private static TerminationCondition makeTerminationCondition(Config config) {
+  static TerminationCondition makeTerminationCondition(Config config) {
     List<TerminationCondition> result = new ArrayList<TerminationCondition>();
     for (String next : config.getArrayValue(TERMINATION_KEY, null)) {
       TerminationCondition t = instantiate(next, TerminationCondition.class);
@@ -390,7 +488,7 @@ public final class StartKernel {
     return new ScoreTable(result);
   }
 
-  private static CommandCollector makeCommandCollector(Config config) {
+  static CommandCollector makeCommandCollector(Config config) {
     List<String> classNames = config.getArrayValue(COMMAND_COLLECTOR_KEY);
     CompositeCommandCollector result = new CompositeCommandCollector();
     for (String next : classNames) {
@@ -422,7 +520,7 @@ public final class StartKernel {
     return result;
   }
 
-  private static void processJarFiles(Config config) throws IOException {
+  static void processJarFiles(Config config) throws IOException {
     LoadableTypeProcessor processor = new LoadableTypeProcessor(config);
     processor.addFactoryRegisterCallbacks(Registry.SYSTEM_REGISTRY);
     processor.addConfigUpdater(LoadableType.AGENT, config, KernelConstants.AGENTS_KEY);
@@ -486,7 +584,46 @@ public final class StartKernel {
     }
   }
 
-  private static class KernelInfo {
+  private static class BatchRun implements Callable<Void> {
+    private final String name;
+    private final Config config;
+    private ExecutorService workers;
+    private volatile WorldModelCreator gis;
+
+    BatchRun(String name, Config config) {
+      this.name = name;
+      this.config = config;
+    }
+
+    public Void call() throws Exception {
+      Logger.setLogContext("kernel");
+      Logger.pushNDC(name);
+      Registry registry = createLocalRegistry(config, "Kernel local registry (" + name + ")");
+      // Inline components started from this thread inherit the run's registries
+      Registry.setCurrentRegistry(registry);
+      MetricsRegistry.setCurrentRegistry(new MetricsRegistry(name));
+      try {
+        Logger.info("Starting run " + name);
+        KernelInfo kernelInfo = createKernel(config, false);
+        gis = kernelInfo.options.getWorldModelCreator();
+        initialiseKernel(kernelInfo, config, registry);
+        autostartComponents(kernelInfo, registry, null, config, workers);
+        waitForComponentManager(kernelInfo, config);
+        Kernel kernel = kernelInfo.kernel;
+        while (!kernel.hasTerminated()) {
+          kernel.timestep();
+        }
+        kernel.shutdown();
+        return null;
+      } finally {
+        Registry.setCurrentRegistry(Registry.SYSTEM_REGISTRY);
+        MetricsRegistry.setCurrentRegistry(MetricsRegistry.SYSTEM_REGISTRY);
+        Logger.popNDC();
+      }
+    }
+  }
+
+  static class KernelInfo {
     Kernel kernel;
     KernelStartupOptions options;
     ComponentManager componentManager;
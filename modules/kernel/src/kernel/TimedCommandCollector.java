@@ -27,7 +27,7 @@ public class TimedCommandCollector implements CommandCollector {
         long end = now + time;
         while (now < end) {
             long diff = end - now;
-            Logger.trace(this + " waiting for " + diff + "ms");
+            Logger.trace("{} waiting for {}ms", this, diff);
             Thread.sleep(diff);
             now = System.currentTimeMillis();
         }
@@ -36,8 +36,8 @@ public class TimedCommandCollector implements CommandCollector {
             Collection<Command> commands = next.getAgentCommands(timestep);
             result.addAll(commands);
         }
-        Logger.trace(this + " returning " + result.size() + " commands");
-        Logger.trace(this + " returning " + result);
+        Logger.trace("{} returning {} commands", this, result.size());
+        Logger.trace("{} returning {}", this, result);
         return result;
     }
 
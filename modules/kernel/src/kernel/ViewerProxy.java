@@ -29,6 +29,14 @@ public class ViewerProxy extends AbstractKernelComponent {
         send(new KVTimestep(id, time.getTime(), time.getCommands(), time.getChangeSet()));
     }
 
+    /**
+       Get the ID of this viewer.
+       @return The viewer ID.
+    */
+    public int getID() {
+        return id;
+    }
+
     @Override
     public String toString() {
         return getName() + " (" + id + "): " + getConnection().toString();
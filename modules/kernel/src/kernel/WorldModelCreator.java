@@ -32,4 +32,12 @@ public interface WorldModelCreator extends EntityIDGenerator {
 	 * @return a scenario 
 	 */
 	public Scenario getScenario(Config config) throws DocumentException;
+
+	/**
+	 * Drop anything this creator keeps between kernels running in the same
+	 * JVM, for example parsed maps. This is called when a batch of runs has
+	 * finished.
+	 */
+	default void clearSharedData() {
+	}
 }
@@ -48,7 +48,7 @@ public class KernelGUI extends JPanel {
             control.activate();
         }
         addGUIComponent(componentManager);
-        
+        tabs.addTab("Metrics", new MetricsPanel(kernel));
     }
 
     /**
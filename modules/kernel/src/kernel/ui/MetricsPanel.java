@@ -0,0 +1,115 @@
+package kernel.ui;
+
+import java.awt.BorderLayout;
+import java.util.ArrayList;
+import java.util.List;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+
+import kernel.Kernel;
+import kernel.KernelListenerAdapter;
+
+import rescuecore2.Timestep;
+import rescuecore2.metrics.Metric;
+import rescuecore2.metrics.PhaseTimer;
+
+/**
+   A table of the kernel's timers, counters and gauges that is refreshed at the end of every timestep.
+ */
+public class MetricsPanel extends JPanel {
+    private static final String[] COLUMNS = {"Name", "Type", "Last", "Mean", "Max", "Count"};
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private MetricsModel model;
+
+    /**
+       Construct a MetricsPanel.
+       @param kernel The kernel to watch.
+    */
+    public MetricsPanel(final Kernel kernel) {
+        super(new BorderLayout());
+        model = new MetricsModel();
+        JTable table = new JTable(model);
+        table.setAutoCreateRowSorter(true);
+        add(new JScrollPane(table), BorderLayout.CENTER);
+        kernel.addKernelListener(new KernelListenerAdapter() {
+                @Override
+                public void timestepCompleted(Kernel k, Timestep time) {
+                    // Copy the values now so the table shows a consistent view of this timestep
+                    final List<Object[]> rows = new ArrayList<Object[]>();
+                    for (Metric next : k.getMetrics().getMetrics()) {
+                        rows.add(toRow(next));
+                    }
+                    SwingUtilities.invokeLater(new Runnable() {
+                            @Override
+                            public void run() {
+                                model.setRows(rows);
+                            }
+                        });
+                }
+            });
+    }
+
+    private static Object[] toRow(Metric m) {
+        if (m instanceof PhaseTimer) {
+            PhaseTimer t = (PhaseTimer)m;
+            return new Object[] {m.getName(), "timer (ms)", millis(t.getValue()), millis(t.getMeanNanos()), millis(t.getMaxNanos()), t.getCount()};
+        }
+        return new Object[] {m.getName(), m.getType(), m.getValue(), null, null, null};
+    }
+
+    private static Double millis(long nanos) {
+        return nanos / NANOS_PER_MILLI;
+    }
+
+    private static class MetricsModel extends AbstractTableModel {
+        private List<Object[]> rows;
+
+        MetricsModel() {
+            rows = new ArrayList<Object[]>();
+        }
+
+        void setRows(List<Object[]> newRows) {
+            boolean sameShape = !newRows.isEmpty() && newRows.size() == rows.size();
+            for (int i = 0; sameShape && i < rows.size(); ++i) {
+                sameShape = rows.get(i)[0].equals(newRows.get(i)[0]);
+            }
+            rows = newRows;
+            if (sameShape) {
+                // Keep the selection and sort order when only the values have changed
+                fireTableRowsUpdated(0, rows.size() - 1);
+            }
+            else {
+                fireTableDataChanged();
+            }
+        }
+
+        @Override
+        public String getColumnName(int col) {
+            return COLUMNS[col];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int col) {
+            return col < 2 ? String.class : Number.class;
+        }
+
+        @Override
+        public int getRowCount() {
+            return rows.size();
+        }
+
+        @Override
+        public int getColumnCount() {
+            return COLUMNS.length;
+        }
+
+        @Override
+        public Object getValueAt(int row, int column) {
+            return rows.get(row)[column];
+        }
+    }
+}
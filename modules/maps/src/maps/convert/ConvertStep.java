@@ -12,11 +12,14 @@ import rescuecore2.log.Logger;
    A step in the map conversion process.
 */
 public abstract class ConvertStep {
+    private static final long NANOS_PER_MILLI = 1000000;
+
     /** A ShapeDebugFrame for use by subclasses. */
     protected ShapeDebugFrame debug;
 
     private JProgressBar progress;
     private JLabel status;
+    private long elapsedNanos;
 
     /**
        Construct a ConvertStep.
@@ -116,10 +119,19 @@ public abstract class ConvertStep {
         return status;
     }
 
+    /**
+       Get the wall-clock time taken by the last call to {@link #doStep()}.
+       @return The elapsed time in nanoseconds, or zero if the step has not run.
+    */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
     /**
        Perform the conversion step.
     */
     public final void doStep() {
+        long start = System.nanoTime();
         try {
             Logger.pushLogContext(getClass().getName());
             SwingUtilities.invokeLater(new Runnable() {
@@ -137,6 +149,8 @@ public abstract class ConvertStep {
             debug.deactivate();
         }
         finally {
+            elapsedNanos = System.nanoTime() - start;
+            Logger.info(getDescription() + " took " + (elapsedNanos / NANOS_PER_MILLI) + "ms");
             Logger.popLogContext();
         }
     }
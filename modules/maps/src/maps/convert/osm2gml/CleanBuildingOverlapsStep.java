@@ -32,14 +32,19 @@ public class CleanBuildingOverlapsStep extends BaseModificationStep {
             return;
         }
 
-        int cleanedCount = 0;
-        List<TemporaryObject> newObjects = new ArrayList<>();
-        List<TemporaryObject> objectsToRemove = new ArrayList<>();
+        SpatialGrid<TemporaryBuilding> buildingGrid = new SpatialGrid<>(map.getBounds(), ConvertTools.sizeOfMeters(map.getOSMMap(), 100));
+        for (TemporaryBuilding building : buildings) {
+            buildingGrid.add(building);
+            // Populate the cached shape before it is shared between worker threads.
+            building.getShape();
+        }
 
-        for (TemporaryObject shape : initialPassableShapes) {
+        // Subtracting buildings only reads the map, so every passable shape can be processed in parallel.
+        List<TemporaryObject> shapes = new ArrayList<>(initialPassableShapes);
+        List<Area> cleanedAreas = shapes.parallelStream().map(shape -> {
             Area roadArea = new Area(shape.getShape());
             boolean modified = false;
-            for (TemporaryBuilding building : buildings) {
+            for (TemporaryBuilding building : buildingGrid.getNearbyItems(shape)) {
                 // Quick check using bounds for performance
                 if (!shape.getBounds().intersects(building.getBounds())) {
                     continue;
@@ -55,7 +60,17 @@ public class CleanBuildingOverlapsStep extends BaseModificationStep {
                     modified = true;
                 }
             }
-            if (modified) {
+            return modified ? roadArea : null;
+        }).toList();
+
+        int cleanedCount = 0;
+        List<TemporaryObject> newObjects = new ArrayList<>();
+        List<TemporaryObject> objectsToRemove = new ArrayList<>();
+
+        for (int i = 0; i < shapes.size(); i++) {
+            Area roadArea = cleanedAreas.get(i);
+            if (roadArea != null) {
+                TemporaryObject shape = shapes.get(i);
                 objectsToRemove.add(shape);
                 newObjects.addAll(areaToTemporaryPassableShapes(roadArea, shape, map));
                 cleanedCount++;
@@ -45,19 +45,24 @@ public class ConnectBuildingsStep extends BaseModificationStep {
         for (TemporaryRoad road : map.getRoads()) {
             roadGrid.add(road);
         }
+        SpatialGrid<TemporaryObject> objectGrid = new SpatialGrid<>(map.getBounds(), maxConnectDistance * 2);
+        for (TemporaryObject object : map.getAllObjects()) {
+            objectGrid.add(object);
+        }
 
 
         for (int i = 0; i < buildings.size(); i++) {
             TemporaryBuilding building = buildings.get(i);
             setProgress(i);
 
-            if (isAlreadyConnected(building, map.getRoads())) continue;
+            if (isAlreadyConnected(building)) continue;
 
-            EntrancePlan bestPlan = findBestPlanForBuilding(building, roadGrid);
+            EntrancePlan bestPlan = findBestPlanForBuilding(building, roadGrid, objectGrid);
             if (bestPlan != null) {
                 map.splitEdge(bestPlan.buildingEdge(), bestPlan.buildingNode1(), bestPlan.buildingNode2());
                 map.splitEdge(bestPlan.roadEdge(), bestPlan.roadNode1(), bestPlan.roadNode2());
                 map.addIntersection(bestPlan.entranceObject());
+                objectGrid.add(bestPlan.entranceObject());
 
                 entrances.add(bestPlan.entranceObject());
             }
@@ -72,7 +77,7 @@ public class ConnectBuildingsStep extends BaseModificationStep {
         visualizeDifference(Collections.emptyList(), entrances, "Building Connection Results");
     }
 
-    private EntrancePlan findBestPlanForBuilding(TemporaryBuilding building, SpatialGrid<TemporaryObject> roadGrid) {
+    private EntrancePlan findBestPlanForBuilding(TemporaryBuilding building, SpatialGrid<TemporaryObject> roadGrid, SpatialGrid<TemporaryObject> objectGrid) {
         EntrancePlan bestPlan = null;
         double bestAngleDeviation = Double.MAX_VALUE;
 
@@ -146,7 +151,7 @@ public class ConnectBuildingsStep extends BaseModificationStep {
                     boolean exceedsAngleToTolerance = maxAngleDeviation < angleDeviation;
                     if (exceedsAngleToTolerance) continue;
 
-                    if (hasCollision(entrance, building, road)) continue;
+                    if (hasCollision(entrance, building, road, objectGrid)) continue;
 
                     if (angleDeviation < bestAngleDeviation) {
                         bestAngleDeviation = angleDeviation;
@@ -167,14 +172,10 @@ public class ConnectBuildingsStep extends BaseModificationStep {
         return Math.max(angleToBuilding, angleToRoad);
     }
 
-    private boolean isAlreadyConnected(TemporaryBuilding building, Collection<TemporaryRoad> roads) {
-        Set<Edge> buildingEdges = new HashSet<>();
+    private boolean isAlreadyConnected(TemporaryBuilding building) {
         for (DirectedEdge de : building.getEdges()) {
-            buildingEdges.add(de.getEdge());
-        }
-        for (TemporaryRoad road : roads) {
-            for (DirectedEdge de : road.getEdges()) {
-                if (buildingEdges.contains(de.getEdge())) {
+            for (TemporaryObject attached : map.getAttachedObjects(de.getEdge())) {
+                if (attached instanceof TemporaryRoad) {
                     return true;
                 }
             }
@@ -183,11 +184,11 @@ public class ConnectBuildingsStep extends BaseModificationStep {
         return false;
     }
 
-    private boolean hasCollision(TemporaryIntersection candidate, TemporaryBuilding building, TemporaryRoad road) {
+    private boolean hasCollision(TemporaryIntersection candidate, TemporaryBuilding building, TemporaryRoad road, SpatialGrid<TemporaryObject> objectGrid) {
         if (candidate.getShape() == null) return false;
         Area entranceArea = new Area(candidate.getShape());
 
-        for (TemporaryObject otherObject : map.getAllObjects()) {
+        for (TemporaryObject otherObject : objectGrid.getNearbyItems(candidate)) {
             if (otherObject.getShape() == null) continue;
 
             Area otherArea = new Area(otherObject.getShape());
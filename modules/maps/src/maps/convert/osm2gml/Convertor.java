@@ -3,6 +3,7 @@ package maps.convert.osm2gml;
 import maps.osm.OSMMap;
 import maps.gml.GMLMap;
 import maps.convert.ConvertStep;
+import rescuecore2.log.Logger;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
@@ -28,6 +29,8 @@ public class Convertor {
     private static final int STATUS_WIDTH = 500;
     private static final int STATUS_HEIGHT = 10;
     private static final int MARGIN = 4;
+    private static final double NANOS_PER_MILLI = 1000000.0;
+    private static final double PERCENT = 100.0;
 
     /**
        Convert an OSMMap to a GMLMap.
@@ -84,10 +87,25 @@ public class Convertor {
         for (ConvertStep next : steps) {
             next.doStep();
         }
+        logTimings(steps);
 
         return gmlMap;
     }
 
+    private void logTimings(List<ConvertStep> steps) {
+        long total = 0;
+        for (ConvertStep next : steps) {
+            total += next.getElapsedNanos();
+        }
+        StringBuilder report = new StringBuilder("Conversion timings:");
+        for (ConvertStep next : steps) {
+            long nanos = next.getElapsedNanos();
+            report.append(String.format("%n  %-60s %10.1f ms %5.1f%%", next.getDescription(), nanos / NANOS_PER_MILLI, total == 0 ? 0 : PERCENT * nanos / total));
+        }
+        report.append(String.format("%n  %-60s %10.1f ms", "Total", total / NANOS_PER_MILLI));
+        Logger.info(report.toString());
+    }
+
     private void addStep(ConvertStep step, List<ConvertStep> steps, JComponent panel, GridBagLayout layout, GridBagConstraints c) {
         JLabel title = new JLabel(step.getDescription());
         JProgressBar progress = step.getProgressBar();
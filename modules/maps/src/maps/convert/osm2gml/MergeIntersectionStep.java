@@ -4,12 +4,21 @@ import maps.osm.OSMNode;
 import rescuecore2.log.Logger;
 import rescuecore2.misc.geometry.Point2D;
 
+import java.awt.geom.Rectangle2D;
 import java.util.*;
 import java.util.List;
 
 public class MergeIntersectionStep extends BaseSimplificationStep {
     private final double mergeDistance;
 
+    private record IndexedIntersection(OSMIntersectionInfo info) implements SpatialIndexable {
+        @Override
+        public Rectangle2D getBounds() {
+            Point2D location = info.getLocation();
+            return location == null ? null : new Rectangle2D.Double(location.getX(), location.getY(), 0, 0);
+        }
+    }
+
     public MergeIntersectionStep(TemporaryMap map) {
         super(map);
 
@@ -88,6 +97,10 @@ public class MergeIntersectionStep extends BaseSimplificationStep {
     private List<Set<OSMIntersectionInfo>> groupIntersections(List<OSMIntersectionInfo> intersections) {
         List<Set<OSMIntersectionInfo>> groups = new ArrayList<>();
         Set<OSMIntersectionInfo> visited = new HashSet<>();
+        SpatialGrid<IndexedIntersection> grid = new SpatialGrid<>(mergeDistance);
+        for (OSMIntersectionInfo intersection : intersections) {
+            grid.add(new IndexedIntersection(intersection));
+        }
         for (OSMIntersectionInfo startNode : intersections) {
             if (visited.contains(startNode)) continue;
 
@@ -99,8 +112,13 @@ public class MergeIntersectionStep extends BaseSimplificationStep {
             while (!queue.isEmpty()) {
                 OSMIntersectionInfo current = queue.poll();
                 currentGroup.add(current);
-                for (OSMIntersectionInfo neighbour : intersections) {
-                    if (!visited.contains(neighbour) && isNear(current.getLocation(), neighbour.getLocation())) {
+                Point2D location = current.getLocation();
+                if (location == null) continue;
+                Set<IndexedIntersection> candidates = grid.getItemsInRegion(location.getX() - mergeDistance, location.getY() - mergeDistance,
+                                                                            location.getX() + mergeDistance, location.getY() + mergeDistance);
+                for (IndexedIntersection candidate : candidates) {
+                    OSMIntersectionInfo neighbour = candidate.info();
+                    if (!visited.contains(neighbour) && isNear(location, neighbour.getLocation())) {
                         visited.add(neighbour);
                         queue.add(neighbour);
                     }
@@ -26,23 +26,34 @@ public class MergePassableShapesStep extends BaseModificationStep {
         List<TemporaryObject> passableShapesToAdd = new ArrayList<>();
         List<TemporaryObject> passableShapesToRemove = new ArrayList<>();
 
+        // We only merge if a group contains more than one passable shape.
+        List<List<TemporaryObject>> mergeGroups = new ArrayList<>();
         for (List<TemporaryObject> group : groups) {
-            // We only merge if a group contains more than one passable shape.
             if (1 < group.size()) {
-                Area combinedArea = new Area();
-                for (TemporaryObject object : group) {
-                    if (object.getShape() != null) {
-                        combinedArea.add(new Area(object.getShape()));
-                    }
+                mergeGroups.add(group);
+            }
+        }
+
+        // The unions are independent of each other and of the map so they can be computed in parallel.
+        List<Area> combinedAreas = mergeGroups.parallelStream().map(group -> {
+            Area combinedArea = new Area();
+            for (TemporaryObject object : group) {
+                if (object.getShape() != null) {
+                    combinedArea.add(new Area(object.getShape()));
                 }
+            }
+            return combinedArea;
+        }).toList();
 
-                // Convert the combined area back to new passable shapes. ignoring any holes.
-                List<TemporaryObject> mergedPassableShapes = areaToTemporaryPassableShapes(combinedArea, group.get(0), map);
+        for (int i = 0; i < mergeGroups.size(); i++) {
+            List<TemporaryObject> group = mergeGroups.get(i);
 
-                if (!mergedPassableShapes.isEmpty()) {
-                    passableShapesToRemove.addAll(group);
-                    passableShapesToAdd.addAll(mergedPassableShapes);
-                }
+            // Convert the combined area back to new passable shapes. ignoring any holes.
+            List<TemporaryObject> mergedPassableShapes = areaToTemporaryPassableShapes(combinedAreas.get(i), group.get(0), map);
+
+            if (!mergedPassableShapes.isEmpty()) {
+                passableShapesToRemove.addAll(group);
+                passableShapesToAdd.addAll(mergedPassableShapes);
             }
         }
 
@@ -72,6 +83,13 @@ public class MergePassableShapesStep extends BaseModificationStep {
         Set<TemporaryObject> visited = new HashSet<>();
         List<TemporaryObject> objectList = new ArrayList<>(passableShapes);
 
+        SpatialGrid<TemporaryObject> grid = new SpatialGrid<>(map.getBounds(), ConvertTools.sizeOfMeters(map.getOSMMap(), 100));
+        Map<TemporaryObject, Area> areas = new HashMap<>();
+        for (TemporaryObject object : objectList) {
+            grid.add(object);
+            areas.put(object, new Area(object.getShape()));
+        }
+
         for (int i = 0; i < objectList.size(); i++) {
             TemporaryObject startObject = objectList.get(i);
             if (visited.contains(startObject)) continue;
@@ -86,12 +104,11 @@ public class MergePassableShapesStep extends BaseModificationStep {
                 TemporaryObject current = queue.poll();
                 currentGroup.add(current);
 
-                for (int j = i; j < objectList.size(); j++) {
-                    TemporaryObject neighbour = objectList.get(j);
+                for (TemporaryObject neighbour : grid.getNearbyItems(current)) {
                     if (!visited.contains(neighbour) && !current.equals(neighbour)) {
                         if (current.getBounds().intersects(neighbour.getBounds())) {
-                            Area intersection = new Area(current.getShape());
-                            intersection.intersect(new Area(neighbour.getShape()));
+                            Area intersection = new Area(areas.get(current));
+                            intersection.intersect(areas.get(neighbour));
                             if (!intersection.isEmpty()) {
                                 visited.add(neighbour);
                                 queue.add(neighbour);
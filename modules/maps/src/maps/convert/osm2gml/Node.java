@@ -1,11 +1,13 @@
 package maps.convert.osm2gml;
 
+import java.awt.geom.Rectangle2D;
+
 import rescuecore2.misc.geometry.Point2D;
 
 /**
    A node object.
  */
-public class Node extends ManagedObject {
+public class Node extends ManagedObject implements SpatialIndexable {
     private Point2D coordinates;
 
     /**
@@ -52,6 +54,11 @@ public class Node extends ManagedObject {
         return coordinates.getY();
     }
 
+    @Override
+    public Rectangle2D getBounds() {
+        return new Rectangle2D.Double(coordinates.getX(), coordinates.getY(), 0, 0);
+    }
+
     @Override
     public String toString() {
         return "Node " + getID() + " at " + coordinates;
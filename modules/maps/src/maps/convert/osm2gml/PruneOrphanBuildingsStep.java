@@ -75,26 +75,18 @@ public class PruneOrphanBuildingsStep extends BaseModificationStep {
         Map<TemporaryBuilding, Set<TemporaryBuilding>> adjacency = new HashMap<>();
         for (TemporaryBuilding b : buildings) adjacency.put(b, new HashSet<>());
 
-        List<TemporaryBuilding> buildingList = new ArrayList<>(buildings);
-        for (int i = 0; i < buildingList.size(); i++) {
-            for (int j = i + 1; j < buildingList.size(); j++) {
-                TemporaryBuilding b1 = buildingList.get(i);
-                TemporaryBuilding b2 = buildingList.get(j);
-                if (areBuildingsConnected(b1, b2)) {
-                    adjacency.get(b1).add(b2);
-                    adjacency.get(b2).add(b1);
+        // Buildings are connected when they share an edge, so walking each building's edges finds every neighbour.
+        for (TemporaryBuilding b1 : buildings) {
+            for (DirectedEdge de : b1.getEdges()) {
+                for (TemporaryObject attached : map.getAttachedObjects(de.getEdge())) {
+                    if (attached != b1 && attached instanceof TemporaryBuilding b2 && adjacency.containsKey(b2)) {
+                        adjacency.get(b1).add(b2);
+                        adjacency.get(b2).add(b1);
+                    }
                 }
             }
         }
         return adjacency;
     }
 
-    private boolean areBuildingsConnected(TemporaryBuilding b1, TemporaryBuilding b2) {
-        for (DirectedEdge de : b1.getEdges()) {
-            Collection<TemporaryObject> attached = map.getAttachedObjects(de.getEdge());
-            if (attached.contains(b2)) return true;
-        }
-        return false;
-    }
-
 }
@@ -14,6 +14,8 @@ import rescuecore2.log.Logger;
    This step removes shapes that are duplicates or contained entirely inside another shape.
 */
 public class RemoveShapesStep extends ConvertStep {
+    private static final double GRID_CELL_SIZE_M = 100;
+
     private TemporaryMap map;
 
     /**
@@ -36,21 +38,25 @@ public class RemoveShapesStep extends ConvertStep {
         debug.setAutozoomEnabled(false);
         Collection<TemporaryObject> allObjects = map.getAllObjects();
         setProgressLimit(allObjects.size() * 2);
+        SpatialGrid<TemporaryObject> grid = new SpatialGrid<TemporaryObject>(map.getBounds(), ConvertTools.sizeOfMeters(map.getOSMMap(), GRID_CELL_SIZE_M));
+        for (TemporaryObject next : allObjects) {
+            grid.add(next);
+        }
         Set<TemporaryObject> removed = new HashSet<TemporaryObject>();
         setStatus("Removing duplicate shapes");
         int duplicateCount = 0;
         int interiorCount = 0;
         Logger.debug("Removing building duplicates");
-        duplicateCount += removeDuplicates(map.getBuildings(), removed, allObjects);
+        duplicateCount += removeDuplicates(map.getBuildings(), removed, grid);
         Logger.debug("Removing intersection duplicates");
-        duplicateCount += removeDuplicates(map.getIntersections(), removed, allObjects);
+        duplicateCount += removeDuplicates(map.getIntersections(), removed, grid);
         Logger.debug("Removing road duplicates");
-        duplicateCount += removeDuplicates(map.getRoads(), removed, allObjects);
+        duplicateCount += removeDuplicates(map.getRoads(), removed, grid);
         Logger.debug("Removing interior faces");
         setStatus("Removing interior faces");
-        interiorCount += removeInterior(map.getRoads(), removed, allObjects);
-        interiorCount += removeInterior(map.getIntersections(), removed, allObjects);
-        interiorCount += removeInterior(map.getBuildings(), removed, allObjects);
+        interiorCount += removeInterior(map.getRoads(), removed, grid);
+        interiorCount += removeInterior(map.getIntersections(), removed, grid);
+        interiorCount += removeInterior(map.getBuildings(), removed, grid);
         setStatus("Removed " + removed.size() + " faces: " + duplicateCount + " duplicates and " + interiorCount + " interior");
         debug.clearBackground();
         debug.activate();
@@ -61,19 +67,20 @@ public class RemoveShapesStep extends ConvertStep {
        Remove all shapes that are duplicates of a test set.
        @param test The set of objects to test against.
        @param removed The set of removed objects.
-       @param toCheck The set of shapes to check.
+       @param grid A grid of all shapes to check against.
        @return The number of objects removed.
     */
-    private int removeDuplicates(Collection<? extends TemporaryObject> test, Set<TemporaryObject> removed, Collection<TemporaryObject> toCheck) {
+    private int removeDuplicates(Collection<? extends TemporaryObject> test, Set<TemporaryObject> removed, SpatialGrid<TemporaryObject> grid) {
         int count = 0;
-        Logger.debug(test.size() + " test objects, " + toCheck.size() + " to check, " + removed.size() + " already removed");
+        Logger.debug(test.size() + " test objects, " + removed.size() + " already removed");
         for (TemporaryObject first : test) {
             bumpProgress();
             if (removed.contains(first)) {
                 continue;
             }
             Logger.debug("Next test object: " + first);
-            for (TemporaryObject second : toCheck) {
+            // Duplicates share edges so only objects in nearby cells need to be checked
+            for (TemporaryObject second : grid.getNearbyItems(first)) {
                 if (removed.contains(second)) {
                     continue;
                 }
@@ -99,17 +106,18 @@ public class RemoveShapesStep extends ConvertStep {
        Remove any shapes that are entirely inside another shapes.
        @param toCheck The set of objects to check.
        @param removed The set of removed objects.
-       @param allObjects All objects.
+       @param grid A grid of all shapes that might enclose another shape.
        @return The number of removed objects.
     */
-    private int removeInterior(Collection<? extends TemporaryObject> toCheck, Set<TemporaryObject> removed, Collection<TemporaryObject> allObjects) {
+    private int removeInterior(Collection<? extends TemporaryObject> toCheck, Set<TemporaryObject> removed, SpatialGrid<TemporaryObject> grid) {
         int count = 0;
         for (TemporaryObject first : toCheck) {
             bumpProgress();
             if (removed.contains(first)) {
                 continue;
             }
-            for (TemporaryObject second : allObjects) {
+            // An enclosing shape must overlap the bounds of this shape
+            for (TemporaryObject second : grid.getNearbyItems(first)) {
                 if (removed.contains(second)) {
                     continue;
                 }
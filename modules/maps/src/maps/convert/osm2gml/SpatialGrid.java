@@ -34,13 +34,26 @@ public class SpatialGrid<T extends SpatialIndexable> {
         this.grid = new HashMap<>();
     }
 
+    /**
+     * Create a grid anchored at the origin. Useful when the extent of the indexed objects is not known in advance.
+     * @param cellSize The width and height of each cell.
+     */
+    public SpatialGrid(double cellSize) {
+        this.minX = 0;
+        this.minY = 0;
+        this.cellWidth = cellSize > 0 ? cellSize : 1;
+        this.cellHeight = this.cellWidth;
+        this.grid = new HashMap<>();
+    }
+
     /**
      * Registers a SpatialIndexable object into the grid.
+     * Points and axis-aligned lines have empty bounds but are still indexed.
      * @param item The object to add.
      */
     public void add(T item) {
         Rectangle2D bounds = item.getBounds();
-        if (bounds == null || bounds.isEmpty()) return;
+        if (bounds == null) return;
 
         int minCellX = getXCell(bounds.getMinX());
         int minCellY = getYCell(bounds.getMinY());
@@ -54,30 +67,82 @@ public class SpatialGrid<T extends SpatialIndexable> {
         }
     }
 
+    /**
+     * Removes a SpatialIndexable object from the grid. The bounds of the object must not have changed since it was added.
+     * @param item The object to remove.
+     */
+    public void remove(T item) {
+        Rectangle2D bounds = item.getBounds();
+        if (bounds == null) return;
+
+        int minCellX = getXCell(bounds.getMinX());
+        int minCellY = getYCell(bounds.getMinY());
+        int maxCellX = getXCell(bounds.getMaxX());
+        int maxCellY = getYCell(bounds.getMaxY());
+
+        for (int x = minCellX; x <= maxCellX; x++) {
+            for (int y = minCellY; y <= maxCellY; y++) {
+                GridPoint key = new GridPoint(x, y);
+                Set<T> cellContent = grid.get(key);
+                if (cellContent != null) {
+                    cellContent.remove(item);
+                    if (cellContent.isEmpty()) {
+                        grid.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all objects from the grid.
+     */
+    public void clear() {
+        grid.clear();
+    }
+
     /**
      * Gets all objects that are potentially near the given object.
      * @param item The object to find neighbors for.
      * @return A Set of nearby objects.
      */
-    public Set<T> getNearbyItems(T item) {
+    public Set<T> getNearbyItems(SpatialIndexable item) {
         Set<T> nearby = new HashSet<>();
         Rectangle2D bounds = item.getBounds();
-        if (bounds == null || bounds.isEmpty()) return nearby;
+        if (bounds == null) return nearby;
 
         int minCellX = getXCell(bounds.getMinX()) - 1;
         int minCellY = getYCell(bounds.getMinY()) - 1;
         int maxCellX = getXCell(bounds.getMaxX()) + 1;
         int maxCellY = getYCell(bounds.getMaxY()) + 1;
 
+        collect(minCellX, minCellY, maxCellX, maxCellY, nearby);
+        return nearby;
+    }
+
+    /**
+     * Gets all objects whose cells overlap a region. The result may contain objects that do not actually intersect the region.
+     * @param minX The lower X bound of the region.
+     * @param minY The lower Y bound of the region.
+     * @param maxX The upper X bound of the region.
+     * @param maxY The upper Y bound of the region.
+     * @return A Set of candidate objects.
+     */
+    public Set<T> getItemsInRegion(double minX, double minY, double maxX, double maxY) {
+        Set<T> result = new HashSet<>();
+        collect(getXCell(minX), getYCell(minY), getXCell(maxX), getYCell(maxY), result);
+        return result;
+    }
+
+    private void collect(int minCellX, int minCellY, int maxCellX, int maxCellY, Set<T> result) {
         for (int x = minCellX; x <= maxCellX; x++) {
             for (int y = minCellY; y <= maxCellY; y++) {
                 Set<T> cellContent = getFromCell(x, y);
                 if (cellContent != null) {
-                    nearby.addAll(cellContent);
+                    result.addAll(cellContent);
                 }
             }
         }
-        return nearby;
     }
 
     private int getXCell(double x) { return (int) Math.floor((x - minX) / cellWidth); }
@@ -21,6 +21,7 @@ public class TemporaryMap {
     private double threshold;
 
     private Set<Node> nodes;
+    private SpatialGrid<Node> nodeIndex;
     private Set<Edge> edges;
     private Map<Node, Set<Edge>> edgesAtNode;
     private Map<Edge, Set<TemporaryObject>> objectsAtEdge;
@@ -51,6 +52,7 @@ public class TemporaryMap {
         nodes = new HashSet<Node>();
         edges = new HashSet<Edge>();
         threshold = ConvertTools.nearbyThreshold(osmMap, NEARBY_THRESHOLD_M);
+        nodeIndex = new SpatialGrid<Node>(threshold);
         tempRoads = new HashSet<TemporaryRoad>();
         tempIntersections = new HashSet<TemporaryIntersection>();
         tempBuildings = new HashSet<TemporaryBuilding>();
@@ -316,6 +318,10 @@ public class TemporaryMap {
     */
     public void setNearbyThreshold(double t) {
         threshold = t;
+        nodeIndex = new SpatialGrid<Node>(threshold);
+        for (Node next : nodes) {
+            nodeIndex.add(next);
+        }
     }
 
     /**
@@ -369,7 +375,7 @@ public class TemporaryMap {
        @return A Node.
     */
     public Node getNode(double x, double y) {
-        for (Node next : nodes) {
+        for (Node next : nodeIndex.getItemsInRegion(x - threshold, y - threshold, x + threshold, y + threshold)) {
             if (isNear(x, y, next.getX(), next.getY())) {
                 return next;
             }
@@ -384,7 +390,7 @@ public class TemporaryMap {
        @return An Edge.
     */
     public Edge getEdge(Node from, Node to) {
-        for (Edge next : edges) {
+        for (Edge next : edgesAtNode.get(from)) {
             if (next.getStart().equals(from) && next.getEnd().equals(to)
                 || next.getStart().equals(to) && next.getEnd().equals(from)) {
                 return next;
@@ -451,6 +457,7 @@ public class TemporaryMap {
     private Node createNode(double x, double y) {
         Node result = new Node(nextID++, x, y);
         nodes.add(result);
+        nodeIndex.add(result);
 
         invalidateBoundsCache();
 
@@ -475,6 +482,7 @@ public class TemporaryMap {
 
     private void removeNode(Node n) {
         nodes.remove(n);
+        nodeIndex.remove(n);
         edgesAtNode.remove(n);
 
         invalidateBoundsCache();
@@ -532,6 +540,7 @@ public class TemporaryMap {
     public void resynchronizeStateFromObjects() {
         // Clear all existing low-level geometric data.
         nodes.clear();
+        nodeIndex.clear();
         edges.clear();
         edgesAtNode.clear();
         objectsAtEdge.clear();
@@ -544,8 +553,12 @@ public class TemporaryMap {
                 Node end = edge.getEnd();
 
                 // Add nodes to the global node list
-                nodes.add(start);
-                nodes.add(end);
+                if (nodes.add(start)) {
+                    nodeIndex.add(start);
+                }
+                if (nodes.add(end)) {
+                    nodeIndex.add(end);
+                }
 
                 // Add edge to the global edge list
                 edges.add(edge);
@@ -11,6 +11,9 @@ import java.util.List;
 import java.util.ArrayList;
 import java.util.Iterator;
 
+import java.awt.Shape;
+import java.awt.geom.Rectangle2D;
+
 import maps.CoordinateConversion;
 
 import rescuecore2.misc.geometry.Point2D;
@@ -23,6 +26,9 @@ import rescuecore2.misc.collections.LazyMap;
    A GML map. All coordinates are specified in m.
 */
 public class GMLMap implements maps.Map {
+    // Average number of nodes in each spatial index cell
+    private static final int NODES_PER_CELL = 4;
+
     private double minX;
     private double maxX;
     private double minY;
@@ -42,6 +48,12 @@ public class GMLMap implements maps.Map {
 
     private int nextID;
 
+    // Spatial indexes for nodes, edges and shapes. These are built on demand and then kept up to date as the map changes.
+    private GMLSpatialIndex<GMLNode> nodeIndex;
+    private GMLSpatialIndex<GMLEdge> edgeIndex;
+    private GMLSpatialIndex<GMLShape> shapeIndex;
+    private Map<GMLShape, Shape> shapeGeometry;
+
     /**
        Construct an empty GML map.
      */
@@ -208,7 +220,11 @@ public class GMLMap implements maps.Map {
         }
         addObject(n);
         nodes.put(n.getID(), n);
+        n.setMap(this);
         boundsKnown = false;
+        if (nodeIndex != null) {
+            indexNode(n);
+        }
     }
 
     /**
@@ -225,6 +241,9 @@ public class GMLMap implements maps.Map {
         addNode(e.getEnd());
         attachedEdges.get(e.getStart()).add(e);
         attachedEdges.get(e.getEnd()).add(e);
+        if (edgeIndex != null) {
+            indexEdge(e);
+        }
     }
 
     /**
@@ -318,6 +337,12 @@ public class GMLMap implements maps.Map {
         if (nodes.containsKey(n.getID())) {
             removeObject(n);
             nodes.remove(n.getID());
+            if (n.getMap() == this) {
+                n.setMap(null);
+            }
+            if (nodeIndex != null) {
+                nodeIndex.remove(n);
+            }
             Collection<GMLEdge> attached = new HashSet<GMLEdge>(getAttachedEdges(n));
             for (GMLEdge next : attached) {
                 result.add(next);
@@ -338,6 +363,9 @@ public class GMLMap implements maps.Map {
         if (edges.containsKey(e.getID())) {
             removeObject(e);
             edges.remove(e.getID());
+            if (edgeIndex != null) {
+                edgeIndex.remove(e);
+            }
             Collection<GMLShape> attached = new HashSet<GMLShape>(getAttachedShapes(e));
             for (GMLShape next : attached) {
                 result.add(next);
@@ -441,6 +469,7 @@ public class GMLMap implements maps.Map {
         attachedEdges.clear();
         attachedShapes.clear();
         boundsKnown = false;
+        discardIndex();
     }
 
     /**
@@ -455,6 +484,7 @@ public class GMLMap implements maps.Map {
         allObjects.retainAll(nodes.values());
         attachedEdges.clear();
         attachedShapes.clear();
+        discardIndex();
     }
 
     /**
@@ -467,6 +497,7 @@ public class GMLMap implements maps.Map {
         allShapes.removeAll(buildings.values());
         allObjects.removeAll(buildings.values());
         buildings.clear();
+        discardIndex();
     }
 
     /**
@@ -479,6 +510,7 @@ public class GMLMap implements maps.Map {
         allShapes.removeAll(roads.values());
         allObjects.removeAll(roads.values());
         roads.clear();
+        discardIndex();
     }
 
     /**
@@ -491,6 +523,7 @@ public class GMLMap implements maps.Map {
         allShapes.removeAll(spaces.values());
         allObjects.removeAll(spaces.values());
         spaces.clear();
+        discardIndex();
     }
 
     /**
@@ -697,6 +730,7 @@ public class GMLMap implements maps.Map {
             next.convert(conversion);
         }
         boundsKnown = false;
+        discardIndex();
     }
 
     /**
@@ -706,7 +740,8 @@ public class GMLMap implements maps.Map {
        @return A new GMLEdge with a unique ID or an existing edge. The returned edge may be reversed with respect to first and second.
     */
     public GMLEdge ensureEdge(GMLNode first, GMLNode second) {
-        for (GMLEdge next : edges.values()) {
+        // Any edge between the two nodes is attached to both of them
+        for (GMLEdge next : getAttachedEdges(first)) {
             if ((next.getStart().equals(first) && next.getEnd().equals(second))
                 || (next.getStart().equals(second) && next.getEnd().equals(first))
                 ) {
@@ -755,8 +790,9 @@ public class GMLMap implements maps.Map {
        @return All GMLNodes inside the region.
     */
     public Collection<GMLNode> getNodesInRegion(double xMin, double yMin, double xMax, double yMax) {
+        ensureIndex();
         Collection<GMLNode> result = new ArrayList<GMLNode>();
-        for (GMLNode next : nodes.values()) {
+        for (GMLNode next : nodeIndex.getCandidates(xMin, yMin, xMax, yMax)) {
             double x = next.getX();
             double y = next.getY();
             if (x >= xMin && x <= xMax && y >= yMin && y <= yMax) {
@@ -772,19 +808,14 @@ public class GMLMap implements maps.Map {
        @param y The Y coordinate.
        @return The nearest GMLNode.
     */
-    public GMLNode findNearestNode(double x, double y) {
-        GMLNode best = null;
-        double bestDistance = Double.NaN;
-        for (GMLNode next : nodes.values()) {
-            double dx = x - next.getX();
-            double dy = y - next.getY();
-            double d = (dx * dx) + (dy * dy);
-            if (best == null || d < bestDistance) {
-                best = next;
-                bestDistance = d;
+    public GMLNode findNearestNode(final double x, final double y) {
+        ensureIndex();
+        return nodeIndex.findNearest(x, y, new GMLSpatialIndex.Distance<GMLNode>() {
+            @Override
+            public double distance(GMLNode node) {
+                return Math.hypot(x - node.getX(), y - node.getY());
             }
-        }
-        return best;
+        });
     }
 
     /**
@@ -794,7 +825,14 @@ public class GMLMap implements maps.Map {
        @return The nearest GMLEdge.
     */
     public GMLEdge findNearestEdge(double x, double y) {
-        return findNearestEdge(x, y, edges.values());
+        ensureIndex();
+        final Point2D test = new Point2D(x, y);
+        return edgeIndex.findNearest(x, y, new GMLSpatialIndex.Distance<GMLEdge>() {
+            @Override
+            public double distance(GMLEdge edge) {
+                return GeometryTools2D.getDistance(test, GeometryTools2D.getClosestPointOnSegment(GMLTools.toLine(edge), test));
+            }
+        });
     }
 
     /**
@@ -827,8 +865,9 @@ public class GMLMap implements maps.Map {
        @return The shape under the point or null if no shapes are found.
     */
     public GMLShape findShapeUnder(double x, double y) {
-        for (GMLShape next : allShapes) {
-            if (GMLTools.coordsToShape(next.getUnderlyingCoordinates()).contains(x, y)) {
+        ensureIndex();
+        for (GMLShape next : shapeIndex.getCandidates(x, y, x, y)) {
+            if (shapeGeometry.get(next).contains(x, y)) {
                 return next;
             }
         }
@@ -890,6 +929,7 @@ public class GMLMap implements maps.Map {
                 attachedEdges.get(oldNode).remove(next);
                 attachedEdges.get(newNode).add(next);
             }
+            edgeMoved(next);
         }
     }
 
@@ -981,10 +1021,14 @@ public class GMLMap implements maps.Map {
     private void addShape(GMLShape shape) {
         addObject(shape);
         allShapes.add(shape);
+        shape.setMap(this);
         for (GMLDirectedEdge edge : shape.getEdges()) {
             addEdge(edge.getEdge());
             attachedShapes.get(edge.getEdge()).add(shape);
         }
+        if (shapeIndex != null) {
+            indexShape(shape);
+        }
     }
 
     private void addObject(GMLObject object) {
@@ -995,15 +1039,114 @@ public class GMLMap implements maps.Map {
     private void removeShape(GMLShape shape) {
         removeObject(shape);
         allShapes.remove(shape);
+        if (shape.getMap() == this) {
+            shape.setMap(null);
+        }
         for (GMLDirectedEdge edge : shape.getEdges()) {
             attachedShapes.get(edge.getEdge()).remove(shape);
         }
+        if (shapeIndex != null) {
+            shapeIndex.remove(shape);
+            shapeGeometry.remove(shape);
+        }
     }
 
     private void removeObject(GMLObject object) {
         allObjects.remove(object);
     }
 
+    /**
+       Update the spatial index after a node has moved.
+       @param node The node that moved.
+    */
+    void nodeMoved(GMLNode node) {
+        boundsKnown = false;
+        if (nodeIndex == null || !nodes.containsKey(node.getID())) {
+            return;
+        }
+        indexNode(node);
+        for (GMLEdge next : getAttachedEdges(node)) {
+            edgeMoved(next);
+        }
+    }
+
+    /**
+       Update the spatial index after the outline of a shape has changed.
+       @param shape The shape that changed.
+    */
+    void shapeChanged(GMLShape shape) {
+        if (shapeIndex != null && allShapes.contains(shape)) {
+            indexShape(shape);
+        }
+    }
+
+    private void edgeMoved(GMLEdge edge) {
+        if (edgeIndex == null || !edges.containsKey(edge.getID())) {
+            return;
+        }
+        indexEdge(edge);
+        for (GMLShape next : getAttachedShapes(edge)) {
+            shapeChanged(next);
+        }
+    }
+
+    private void ensureIndex() {
+        if (nodeIndex != null) {
+            return;
+        }
+        double cellSize = 1;
+        if (hasSize()) {
+            double extent = Math.max(getMaxX() - getMinX(), getMaxY() - getMinY());
+            cellSize = extent / Math.ceil(Math.sqrt((double)nodes.size() / NODES_PER_CELL));
+            if (!(cellSize > 0) || Double.isInfinite(cellSize)) {
+                cellSize = 1;
+            }
+        }
+        nodeIndex = new GMLSpatialIndex<GMLNode>(cellSize);
+        edgeIndex = new GMLSpatialIndex<GMLEdge>(cellSize);
+        shapeIndex = new GMLSpatialIndex<GMLShape>(cellSize);
+        shapeGeometry = new HashMap<GMLShape, Shape>();
+        for (GMLNode next : nodes.values()) {
+            indexNode(next);
+        }
+        for (GMLEdge next : edges.values()) {
+            indexEdge(next);
+        }
+        for (GMLShape next : allShapes) {
+            indexShape(next);
+        }
+    }
+
+    private void discardIndex() {
+        nodeIndex = null;
+        edgeIndex = null;
+        shapeIndex = null;
+        shapeGeometry = null;
+    }
+
+    private void indexNode(GMLNode node) {
+        nodeIndex.put(node, node.getX(), node.getY(), node.getX(), node.getY());
+    }
+
+    private void indexEdge(GMLEdge edge) {
+        GMLNode start = edge.getStart();
+        GMLNode end = edge.getEnd();
+        edgeIndex.put(edge, Math.min(start.getX(), end.getX()), Math.min(start.getY(), end.getY()), Math.max(start.getX(), end.getX()), Math.max(start.getY(), end.getY()));
+    }
+
+    private void indexShape(GMLShape shape) {
+        List<GMLCoordinates> coords = shape.getUnderlyingCoordinates();
+        if (coords.isEmpty()) {
+            shapeIndex.remove(shape);
+            shapeGeometry.remove(shape);
+            return;
+        }
+        Shape geometry = GMLTools.coordsToShape(coords);
+        Rectangle2D bounds = geometry.getBounds2D();
+        shapeIndex.put(shape, bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY());
+        shapeGeometry.put(shape, geometry);
+    }
+
     private void calculateBounds() {
         if (boundsKnown) {
             return;
@@ -7,6 +7,7 @@ import maps.CoordinateConversion;
  */
 public class GMLNode extends GMLObject {
     private GMLCoordinates coordinates;
+    private GMLMap map;
 
     /**
        Construct a new GML node.
@@ -45,6 +46,9 @@ public class GMLNode extends GMLObject {
             throw new IllegalArgumentException("Coordinates cannot be null");
         }
         this.coordinates = c;
+        if (map != null) {
+            map.nodeMoved(this);
+        }
     }
 
     /**
@@ -75,6 +79,22 @@ public class GMLNode extends GMLObject {
         coordinates = new GMLCoordinates(newX, newY);
     }
 
+    /**
+       Set the map that is told when this node moves.
+       @param m The map, or null.
+    */
+    void setMap(GMLMap m) {
+        map = m;
+    }
+
+    /**
+       Get the map that is told when this node moves.
+       @return The map, or null.
+    */
+    GMLMap getMap() {
+        return map;
+    }
+
     @Override
     public String toString() {
         return "GMLNode " + getID() + " at " + coordinates;
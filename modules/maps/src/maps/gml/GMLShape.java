@@ -22,6 +22,7 @@ public abstract class GMLShape extends GMLObject {
     private List<GMLCoordinates> points;
     private Rectangle2D bounds;
     private Point2D centroid;
+    private GMLMap map;
 
     /**
        Construct a GMLShape.
@@ -81,6 +82,7 @@ public abstract class GMLShape extends GMLObject {
         bounds = null;
         centroid = null;
         points = getUnderlyingCoordinates();
+        changed();
     }
 
     /**
@@ -93,6 +95,7 @@ public abstract class GMLShape extends GMLObject {
         points = getUnderlyingCoordinates();
         centroid = null;
         neighbours.keySet().retainAll(newEdges);
+        changed();
     }
 
     /**
@@ -113,6 +116,7 @@ public abstract class GMLShape extends GMLObject {
         bounds = null;
         centroid = null;
         points = getUnderlyingCoordinates();
+        changed();
     }
 
     /**
@@ -130,6 +134,7 @@ public abstract class GMLShape extends GMLObject {
         bounds = null;
         centroid = null;
         points = getUnderlyingCoordinates();
+        changed();
     }
 
     /**
@@ -232,6 +237,7 @@ public abstract class GMLShape extends GMLObject {
         points.addAll(newPoints);
         bounds = null;
         centroid = null;
+        changed();
     }
 
     /**
@@ -272,6 +278,28 @@ public abstract class GMLShape extends GMLObject {
         return centroid;
     }
 
+    /**
+       Set the map that is told when the shape of this object changes.
+       @param m The map, or null.
+    */
+    void setMap(GMLMap m) {
+        map = m;
+    }
+
+    /**
+       Get the map that is told when the shape of this object changes.
+       @return The map, or null.
+    */
+    GMLMap getMap() {
+        return map;
+    }
+
+    private void changed() {
+        if (map != null) {
+            map.shapeChanged(this);
+        }
+    }
+
     private GMLDirectedEdge findDirectedEdge(GMLEdge e) {
         for (GMLDirectedEdge next : edges) {
             if (next.getEdge().equals(e)) {
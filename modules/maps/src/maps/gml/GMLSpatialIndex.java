@@ -0,0 +1,214 @@
+package maps.gml;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Collection;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ArrayList;
+import java.util.Set;
+import java.util.HashSet;
+
+/**
+   A grid of square cells that records which objects have bounds overlapping each cell. Objects can be moved or removed without knowing their old bounds, so the grid can be kept up to date as a map is edited.
+   @param <T> The type of object in the grid.
+*/
+final class GMLSpatialIndex<T> {
+    private final double cellSize;
+    private final Map<Long, List<T>> cells;
+    private final Map<T, int[]> ranges;
+    // Cells that have ever been occupied lie within these bounds
+    private int minCellX;
+    private int minCellY;
+    private int maxCellX;
+    private int maxCellY;
+
+    /**
+       Construct an empty index.
+       @param cellSize The width and height of each cell.
+    */
+    GMLSpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+        cells = new HashMap<Long, List<T>>();
+        ranges = new HashMap<T, int[]>();
+        minCellX = Integer.MAX_VALUE;
+        minCellY = Integer.MAX_VALUE;
+        maxCellX = Integer.MIN_VALUE;
+        maxCellY = Integer.MIN_VALUE;
+    }
+
+    /**
+       A measure of the distance from a point to an object.
+       @param <T> The type of object.
+    */
+    interface Distance<T> {
+        /**
+           Compute the distance to an object.
+           @param item The object.
+           @return The distance to the object.
+        */
+        double distance(T item);
+    }
+
+    /**
+       Add an object or move it to new bounds.
+       @param item The object.
+       @param minX The lower X bound of the object.
+       @param minY The lower Y bound of the object.
+       @param maxX The upper X bound of the object.
+       @param maxY The upper Y bound of the object.
+    */
+    void put(T item, double minX, double minY, double maxX, double maxY) {
+        int[] range = new int[] {cell(minX), cell(minY), cell(maxX), cell(maxY)};
+        int[] old = ranges.put(item, range);
+        if (old != null) {
+            if (Arrays.equals(old, range)) {
+                return;
+            }
+            removeFromCells(item, old);
+        }
+        minCellX = Math.min(minCellX, range[0]);
+        minCellY = Math.min(minCellY, range[1]);
+        maxCellX = Math.max(maxCellX, range[2]);
+        maxCellY = Math.max(maxCellY, range[3]);
+        for (int x = range[0]; x <= range[2]; ++x) {
+            for (int y = range[1]; y <= range[3]; ++y) {
+                List<T> list = cells.get(key(x, y));
+                if (list == null) {
+                    list = new ArrayList<T>(2);
+                    cells.put(key(x, y), list);
+                }
+                list.add(item);
+            }
+        }
+    }
+
+    /**
+       Remove an object.
+       @param item The object to remove.
+    */
+    void remove(T item) {
+        int[] old = ranges.remove(item);
+        if (old != null) {
+            removeFromCells(item, old);
+        }
+    }
+
+    /**
+       Get the objects whose cells overlap a region. Some of these may lie outside the region itself.
+       @param xMin The lower X bound of the region.
+       @param yMin The lower Y bound of the region.
+       @param xMax The upper X bound of the region.
+       @param yMax The upper Y bound of the region.
+       @return The candidate objects.
+    */
+    Collection<T> getCandidates(double xMin, double yMin, double xMax, double yMax) {
+        int minX = cell(xMin);
+        int minY = cell(yMin);
+        int maxX = cell(xMax);
+        int maxY = cell(yMax);
+        if (((double)maxX - minX + 1) * ((double)maxY - minY + 1) > cells.size()) {
+            // Cheaper to look at every occupied cell than every cell in the region
+            Set<T> result = new HashSet<T>();
+            for (Map.Entry<T, int[]> next : ranges.entrySet()) {
+                int[] range = next.getValue();
+                if (range[0] <= maxX && range[2] >= minX && range[1] <= maxY && range[3] >= minY) {
+                    result.add(next.getKey());
+                }
+            }
+            return result;
+        }
+        Set<T> result = new HashSet<T>();
+        for (int x = minX; x <= maxX; ++x) {
+            for (int y = minY; y <= maxY; ++y) {
+                List<T> list = cells.get(key(x, y));
+                if (list != null) {
+                    result.addAll(list);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+       Find the object nearest a point. Cells are searched in rings around the point until no unsearched cell can hold anything nearer.
+       @param x The X coordinate.
+       @param y The Y coordinate.
+       @param distance The distance from the point to an object. This must never be less than the distance to the nearest point of the object's bounds.
+       @return The nearest object, or null if the index is empty.
+    */
+    T findNearest(double x, double y, Distance<T> distance) {
+        if (ranges.isEmpty()) {
+            return null;
+        }
+        int cx = cell(x);
+        int cy = cell(y);
+        long maxRing = Math.max(Math.max((long)cx - minCellX, (long)maxCellX - cx), Math.max((long)cy - minCellY, (long)maxCellY - cy));
+        T best = null;
+        double bestDistance = Double.NaN;
+        Set<T> seen = new HashSet<T>();
+        for (int ring = 0; ring <= maxRing; ++ring) {
+            if ((2.0 * ring + 1) * (2.0 * ring + 1) > 2.0 * cells.size()) {
+                // The point is far from the objects or they are sparse: just look at everything
+                for (T next : ranges.keySet()) {
+                    if (seen.contains(next)) {
+                        continue;
+                    }
+                    double d = distance.distance(next);
+                    if (best == null || d < bestDistance) {
+                        best = next;
+                        bestDistance = d;
+                    }
+                }
+                break;
+            }
+            for (int i = cx - ring; i <= cx + ring; ++i) {
+                // Only the first and last columns of the ring are searched in full; the cells in between were searched by earlier rings
+                int step = (i == cx - ring || i == cx + ring) ? 1 : 2 * ring;
+                for (int j = cy - ring; j <= cy + ring; j += step) {
+                    List<T> list = cells.get(key(i, j));
+                    if (list == null) {
+                        continue;
+                    }
+                    for (T next : list) {
+                        if (!seen.add(next)) {
+                            continue;
+                        }
+                        double d = distance.distance(next);
+                        if (best == null || d < bestDistance) {
+                            best = next;
+                            bestDistance = d;
+                        }
+                    }
+                }
+            }
+            // Anything outside this ring is at least this far away
+            if (best != null && bestDistance <= ring * cellSize) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    private void removeFromCells(T item, int[] range) {
+        for (int x = range[0]; x <= range[2]; ++x) {
+            for (int y = range[1]; y <= range[3]; ++y) {
+                List<T> list = cells.get(key(x, y));
+                if (list != null) {
+                    list.remove(item);
+                    if (list.isEmpty()) {
+                        cells.remove(key(x, y));
+                    }
+                }
+            }
+        }
+    }
+
+    private int cell(double d) {
+        return (int)Math.floor(d / cellSize);
+    }
+
+    private static Long key(int x, int y) {
+        return ((long)x << Integer.SIZE) | (y & 0xFFFFFFFFL);
+    }
+}
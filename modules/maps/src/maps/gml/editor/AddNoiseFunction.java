@@ -44,6 +44,8 @@ public class AddNoiseFunction extends ProgressFunction {
             GMLCoordinates c = next.getCoordinates();
             c.setX(c.getX() + (generator.nextValue() * FACTOR));
             c.setY(c.getY() + (generator.nextValue() * FACTOR));
+            // Tell the map the node has moved
+            next.setCoordinates(c);
             bumpProgress();
         }
         editor.setChanged();
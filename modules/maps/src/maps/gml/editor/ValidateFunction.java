@@ -3,6 +3,7 @@ package maps.gml.editor;
 import java.awt.Color;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 import maps.gml.GMLBuilding;
 import maps.gml.GMLEdge;
@@ -54,11 +55,11 @@ public class ValidateFunction extends AbstractFunction {
         overlay.clearAllDecorators();
 
         Collection<ValidationError> allErrors = new ArrayList<ValidationError>();
-        for (MapValidator<GMLMap> validator : GMLMapValidator
-                .getDefaultValidators()) {
-            Logger.info("Validating " + validator);
-            Collection<ValidationError> errors = validator.validate(editor
-                    .getMap());
+        List<MapValidator<GMLMap>> validators = GMLMapValidator
+                .getDefaultValidators();
+        Logger.info("Validating with " + validators);
+        for (Collection<ValidationError> errors : GMLMapValidator.validate(
+                editor.getMap(), validators)) {
             allErrors.addAll(errors);
 
             for (ValidationError e : errors) {
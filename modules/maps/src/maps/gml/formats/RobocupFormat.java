@@ -14,11 +14,13 @@ import maps.gml.GMLMapFormat;
 import maps.MapException;
 
 import org.dom4j.Document;
+import org.dom4j.DocumentException;
 import org.dom4j.Element;
 import org.dom4j.QName;
 import org.dom4j.Namespace;
 import org.dom4j.DocumentHelper;
 
+import java.io.Reader;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
@@ -98,6 +100,18 @@ public final class RobocupFormat extends GMLMapFormat {
         return RCR_NAMESPACE_URI.equals(uri) && "map".equals(localName);
     }
 
+    /**
+       Read a GMLMap from a Reader. This streams the document rather than building a DOM tree first.
+       @param reader The Reader to read.
+       @return A new GMLMap.
+       @throws DocumentException Never thrown; kept for compatibility with the superclass.
+       @throws MapException If there is a problem reading the map.
+    */
+    @Override
+    public GMLMap read(Reader reader) throws DocumentException, MapException {
+        return new RobocupStreamReader(RCR_NAMESPACE_URI).read(reader);
+    }
+
     @Override
     public GMLMap read(Document doc) throws MapException {
         GMLMap result = new GMLMap();
@@ -0,0 +1,360 @@
+package maps.gml.formats;
+
+import maps.gml.GMLMap;
+import maps.gml.GMLCoordinates;
+import maps.gml.GMLBuilding;
+import maps.gml.GMLRoad;
+import maps.gml.GMLSpace;
+import maps.gml.GMLNode;
+import maps.gml.GMLEdge;
+import maps.gml.GMLDirectedEdge;
+import maps.MapException;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import java.io.Reader;
+import java.util.List;
+import java.util.ArrayList;
+
+import rescuecore2.log.Logger;
+
+/**
+   Reads Robocup Rescue GML maps with a StAX parser so that the document never has to be held in memory as a DOM tree. Only the compact per-object data needed to resolve references is kept until the end of the stream.
+ */
+final class RobocupStreamReader {
+    private static final String NODE_LIST = "nodelist";
+    private static final String EDGE_LIST = "edgelist";
+    private static final String BUILDING_LIST = "buildinglist";
+    private static final String ROAD_LIST = "roadlist";
+    private static final String SPACE_LIST = "spacelist";
+    private static final String BUILDING = "building";
+    private static final String ROAD = "road";
+    private static final String SPACE = "space";
+
+    private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+    private final String rcrNamespace;
+
+    private final GMLMap result;
+    private final List<PendingEdge> edges;
+    private final List<PendingShape> buildings;
+    private final List<PendingShape> roads;
+    private final List<PendingShape> spaces;
+
+    private String currentList;
+    private int nodeID;
+    private String nodeCoordinates;
+    private PendingEdge currentEdge;
+    private PendingShape currentShape;
+
+    /**
+       Construct a RobocupStreamReader.
+       @param rcrNamespace The namespace URI of the Robocup Rescue elements.
+     */
+    RobocupStreamReader(String rcrNamespace) {
+        this.rcrNamespace = rcrNamespace;
+        result = new GMLMap();
+        edges = new ArrayList<PendingEdge>();
+        buildings = new ArrayList<PendingShape>();
+        roads = new ArrayList<PendingShape>();
+        spaces = new ArrayList<PendingShape>();
+    }
+
+    /**
+       Read a GMLMap from a Reader.
+       @param in The Reader to read.
+       @return A new GMLMap.
+       @throws MapException If there is a problem reading the map.
+     */
+    GMLMap read(Reader in) throws MapException {
+        Logger.debug("Streaming GML");
+        try {
+            XMLStreamReader reader;
+            synchronized (FACTORY) {
+                reader = FACTORY.createXMLStreamReader(in);
+            }
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        startElement(reader);
+                    }
+                    else if (event == XMLStreamConstants.END_ELEMENT) {
+                        endElement(reader);
+                    }
+                }
+            }
+            finally {
+                reader.close();
+            }
+        }
+        catch (XMLStreamException e) {
+            throw new MapException(e);
+        }
+        Logger.debug("Read " + result.getNodes().size() + " nodes");
+        for (PendingEdge next : edges) {
+            result.addEdge(new GMLEdge(next.id, result.getNode(next.startID), result.getNode(next.endID), false));
+        }
+        Logger.debug("Read " + result.getEdges().size() + " edges");
+        for (PendingShape next : buildings) {
+            GMLBuilding b = new GMLBuilding(next.id, next.resolveEdges(result), next.neighbours);
+            b.setFloors(next.floors);
+            b.setCode(next.code);
+            b.setImportance(next.importance);
+            b.setCapacity(next.capacity);
+            result.addBuilding(b);
+        }
+        Logger.debug("Read " + result.getBuildings().size() + " buildings");
+        for (PendingShape next : roads) {
+            result.addRoad(new GMLRoad(next.id, next.resolveEdges(result), next.neighbours));
+        }
+        Logger.debug("Read " + result.getRoads().size() + " roads");
+        for (PendingShape next : spaces) {
+            result.addSpace(new GMLSpace(next.id, next.resolveEdges(result), next.neighbours));
+        }
+        Logger.debug("Read " + result.getSpaces().size() + " spaces");
+        return result;
+    }
+
+    private void startElement(XMLStreamReader reader) throws XMLStreamException, MapException {
+        String uri = reader.getNamespaceURI();
+        String name = reader.getLocalName();
+        if (rcrNamespace.equals(uri)) {
+            switch (name) {
+            case NODE_LIST:
+            case EDGE_LIST:
+            case BUILDING_LIST:
+            case ROAD_LIST:
+            case SPACE_LIST:
+                currentList = name;
+                break;
+            case BUILDING:
+                startShape(reader, BUILDING_LIST, buildings);
+                break;
+            case ROAD:
+                startShape(reader, ROAD_LIST, roads);
+                break;
+            case SPACE:
+                startShape(reader, SPACE_LIST, spaces);
+                break;
+            default:
+                break;
+            }
+            return;
+        }
+        if (!Common.GML_NAMESPACE_URI.equals(uri) || currentList == null) {
+            return;
+        }
+        switch (name) {
+        case "Node":
+            if (NODE_LIST.equals(currentList)) {
+                nodeID = readID(reader);
+                nodeCoordinates = null;
+            }
+            break;
+        case "coordinates":
+            if (NODE_LIST.equals(currentList)) {
+                nodeCoordinates = reader.getElementText();
+            }
+            break;
+        case "Edge":
+            if (EDGE_LIST.equals(currentList)) {
+                currentEdge = new PendingEdge(readID(reader));
+            }
+            break;
+        case "directedNode":
+            if (currentEdge != null) {
+                readDirectedNode(reader);
+            }
+            break;
+        case "Face":
+            if (currentShape != null && !currentShape.hasFace) {
+                currentShape.hasFace = true;
+                currentShape.floors = readInt(reader, "floors", 1);
+                currentShape.code = readInt(reader, "buildingcode", 0);
+                currentShape.importance = readInt(reader, "importance", 1);
+                currentShape.capacity = readInt(reader, "capacity", 0);
+            }
+            break;
+        case "directedEdge":
+            if (currentShape != null) {
+                readDirectedEdge(reader);
+            }
+            break;
+        default:
+            break;
+        }
+    }
+
+    private void endElement(XMLStreamReader reader) throws MapException {
+        String uri = reader.getNamespaceURI();
+        String name = reader.getLocalName();
+        if (rcrNamespace.equals(uri)) {
+            if (name.equals(currentList)) {
+                currentList = null;
+            }
+            else if (currentShape != null && (BUILDING.equals(name) || ROAD.equals(name) || SPACE.equals(name))) {
+                if (!currentShape.hasFace) {
+                    throw new MapException("Shape does not contain a gml:Face: " + currentShape.id);
+                }
+                if (currentShape.edgeIDs.isEmpty()) {
+                    throw new MapException("Shape contains no edges: " + currentShape.id);
+                }
+                currentShape = null;
+            }
+            return;
+        }
+        if (!Common.GML_NAMESPACE_URI.equals(uri)) {
+            return;
+        }
+        if ("Node".equals(name) && NODE_LIST.equals(currentList)) {
+            if (nodeCoordinates == null) {
+                throw new MapException("Couldn't find gml:coordinates child of node");
+            }
+            result.addNode(new GMLNode(nodeID, new GMLCoordinates(nodeCoordinates)));
+        }
+        else if ("Edge".equals(name) && currentEdge != null) {
+            edges.add(currentEdge);
+            currentEdge = null;
+        }
+    }
+
+    private void startShape(XMLStreamReader reader, String list, List<PendingShape> shapes) throws MapException {
+        if (list.equals(currentList)) {
+            currentShape = new PendingShape(readID(reader));
+            shapes.add(currentShape);
+        }
+    }
+
+    private void readDirectedNode(XMLStreamReader reader) throws MapException {
+        String orientation = reader.getAttributeValue(null, "orientation");
+        if ("-".equals(orientation)) {
+            if (currentEdge.startID != -1) {
+                throw new MapException("Edge has multiple start nodes: " + currentEdge.id);
+            }
+            currentEdge.startID = readHref(reader, "start node");
+        }
+        if ("+".equals(orientation)) {
+            if (currentEdge.endID != -1) {
+                throw new MapException("Edge has multiple end nodes: " + currentEdge.id);
+            }
+            currentEdge.endID = readHref(reader, "end node");
+        }
+    }
+
+    private void readDirectedEdge(XMLStreamReader reader) throws MapException {
+        int edgeID = readHref(reader, "underlying edge");
+        String orientation = reader.getAttributeValue(null, "orientation");
+        boolean forward;
+        if (orientation == null) {
+            throw new MapException("Directed edge has no orientation attribute: " + currentShape.id);
+        }
+        if ("+".equals(orientation)) {
+            forward = true;
+        }
+        else if ("-".equals(orientation)) {
+            forward = false;
+        }
+        else {
+            throw new MapException("Directed edge has invalid orientation attribute: " + currentShape.id);
+        }
+        String neighbourString = reader.getAttributeValue(rcrNamespace, "neighbour");
+        Integer neighbourID = null;
+        if (neighbourString != null) {
+            try {
+                neighbourID = Integer.valueOf(neighbourString);
+            }
+            catch (NumberFormatException ex) {
+                throw new MapException("Directed edge has invalid neighbour: " + currentShape.id, ex);
+            }
+        }
+        currentShape.edgeIDs.add(edgeID);
+        currentShape.forward.add(forward);
+        currentShape.neighbours.add(neighbourID);
+    }
+
+    private int readID(XMLStreamReader reader) throws MapException {
+        String s = reader.getAttributeValue(Common.GML_NAMESPACE_URI, "id");
+        if (s == null) {
+            throw new MapException("No ID attribute found: " + reader.getLocalName());
+        }
+        try {
+            return Integer.parseInt(s);
+        }
+        catch (NumberFormatException ex) {
+            throw new MapException("Couldn't parse ID attribute", ex);
+        }
+    }
+
+    private int readHref(XMLStreamReader reader, String type) throws MapException {
+        String href = reader.getAttributeValue(Common.XLINK_NAMESPACE_URI, "href");
+        if (href == null || href.length() == 0) {
+            throw new MapException("Edge has no " + type + " ID");
+        }
+        try {
+            return Integer.parseInt(href.substring(1));
+        }
+        catch (NumberFormatException ex) {
+            throw new MapException("Edge has invalid " + type + " ID");
+        }
+    }
+
+    private int readInt(XMLStreamReader reader, String attributeName, int defaultValue) throws MapException {
+        String s = reader.getAttributeValue(rcrNamespace, attributeName);
+        if (s == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(s);
+        }
+        catch (NumberFormatException ex) {
+            throw new MapException("Attribute " + attributeName + " is not an integer: " + currentShape.id);
+        }
+    }
+
+    private static final class PendingEdge {
+        private final int id;
+        private int startID;
+        private int endID;
+
+        private PendingEdge(int id) {
+            this.id = id;
+            startID = -1;
+            endID = -1;
+        }
+    }
+
+    private static final class PendingShape {
+        private final int id;
+        private final List<Integer> edgeIDs;
+        private final List<Boolean> forward;
+        private final List<Integer> neighbours;
+        private boolean hasFace;
+        private int floors;
+        private int code;
+        private int importance;
+        private int capacity;
+
+        private PendingShape(int id) {
+            this.id = id;
+            edgeIDs = new ArrayList<Integer>();
+            forward = new ArrayList<Boolean>();
+            neighbours = new ArrayList<Integer>();
+        }
+
+        private List<GMLDirectedEdge> resolveEdges(GMLMap map) {
+            List<GMLDirectedEdge> result = new ArrayList<GMLDirectedEdge>(edgeIDs.size());
+            for (int i = 0; i < edgeIDs.size(); ++i) {
+                GMLEdge edge = map.getEdge(edgeIDs.get(i));
+                if (neighbours.get(i) != null) {
+                    edge.setPassable(true);
+                }
+                result.add(new GMLDirectedEdge(edge, forward.get(i)));
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package maps.validate;
+
+import java.util.Collection;
+
+import maps.gml.GMLMap;
+
+/**
+ * A GML map validator that works on JTS geometries. Converted shapes can be
+ * shared with other validators through a {@link ShapeGeometryCache}.
+ */
+public interface GMLGeometryValidator extends MapValidator<GMLMap> {
+
+    /**
+     * Check if the given map is valid, taking shape geometries from a cache.
+     * @param map Map that should be checked.
+     * @param cache Cache of converted shape geometries.
+     * @return Collection of errors.
+     */
+    Collection<ValidationError> validate(GMLMap map, ShapeGeometryCache cache);
+
+    @Override
+    default Collection<ValidationError> validate(GMLMap map) {
+        return validate(map, new ShapeGeometryCache());
+    }
+}
@@ -3,6 +3,7 @@ package maps.validate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import maps.MapException;
 import maps.MapReader;
@@ -33,15 +34,40 @@ public final class GMLMapValidator {
         return new ArrayList<MapValidator<GMLMap>>(validators);
     }
 
+    /**
+     * Run several validators on a map in parallel. Validators that work on
+     * JTS geometries share one {@link ShapeGeometryCache} so that each shape
+     * is converted only once.
+       @param map The map to validate.
+       @param mapValidators The validators to run.
+       @return The errors reported by each validator, in the same order as the validators.
+     */
+    public static List<Collection<ValidationError>> validate(GMLMap map, List<MapValidator<GMLMap>> mapValidators) {
+        ShapeGeometryCache cache = new ShapeGeometryCache();
+        List<CompletableFuture<Collection<ValidationError>>> futures = new ArrayList<CompletableFuture<Collection<ValidationError>>>();
+        for (MapValidator<GMLMap> val : mapValidators) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                if (val instanceof GMLGeometryValidator) {
+                    return ((GMLGeometryValidator) val).validate(map, cache);
+                }
+                return val.validate(map);
+            }));
+        }
+        List<Collection<ValidationError>> result = new ArrayList<Collection<ValidationError>>();
+        for (CompletableFuture<Collection<ValidationError>> next : futures) {
+            result.add(next.join());
+        }
+        return result;
+    }
+
     /**
      * @param args The command line arguments.
      */
     public static void main(String[] args) {
         try {
             GMLMap map = (GMLMap)MapReader.readMap(args[0]);
-            boolean hasErrors = true;
-            for (MapValidator<GMLMap> val : validators) {
-                Collection<ValidationError> errors = val.validate(map);
+            boolean hasErrors = false;
+            for (Collection<ValidationError> errors : validate(map, validators)) {
                 for (ValidationError e : errors) {
                     System.err.println(e);
                     hasErrors = true;
@@ -2,50 +2,80 @@ package maps.validate;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import maps.gml.GMLMap;
 import maps.gml.GMLShape;
 
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.index.strtree.STRtree;
 
 /**
    Validate the correctness of basic shape properties.
    @author goebelbe
  */
-public class GMLShapeValidator implements MapValidator<GMLMap> {
+public class GMLShapeValidator implements GMLGeometryValidator {
 
     @Override
-    public Collection<ValidationError> validate(GMLMap map) {
-        List<ValidationError> errors = new ArrayList<ValidationError>();
-        List<Geometry> polygons = new ArrayList<Geometry>();
+    public Collection<ValidationError> validate(GMLMap map, ShapeGeometryCache cache) {
         List<GMLShape> shapes = new ArrayList<GMLShape>(map.getAllShapes());
+        ValidationError[] checkErrors = new ValidationError[shapes.size()];
+        Geometry[] polygons = new Geometry[shapes.size()];
 
-        for (GMLShape shape : shapes) {
+        IntStream.range(0, shapes.size()).parallel().forEach(i -> {
             try {
-                Geometry polygon = checkShape(shape);
-                polygons.add(polygon);
+                polygons[i] = checkShape(shapes.get(i), cache);
             }
             catch (ValidationException e) {
-                errors.add(e.getError());
-                polygons.add(null);
+                checkErrors[i] = e.getError();
+            }
+        });
+
+        // Only pairs whose envelopes overlap can intersect
+        STRtree index = new STRtree();
+        for (int i = 0; i < polygons.length; i++) {
+            if (polygons[i] != null) {
+                index.insert(polygons[i].getEnvelopeInternal(), i);
             }
         }
+        index.build();
 
-        for (int i = 0; i < polygons.size(); i++) {
-            Geometry s1 = polygons.get(i);
+        List<List<ValidationError>> overlapErrors = IntStream.range(0, polygons.length).parallel().mapToObj(i -> {
+            Geometry s1 = polygons[i];
             if (s1 == null) {
-                continue;
+                return Collections.<ValidationError>emptyList();
+            }
+            List<Integer> candidates = new ArrayList<Integer>();
+            for (Object next : index.query(s1.getEnvelopeInternal())) {
+                int j = (Integer) next;
+                if (j > i) {
+                    candidates.add(j);
+                }
             }
-            for (int j = i + 1; j < polygons.size(); j++) {
-                Geometry s2 = polygons.get(j);
-                if (s2 != null && s1.intersects(s2) && !s1.touches(s2)) {
+            Collections.sort(candidates);
+            List<ValidationError> result = new ArrayList<ValidationError>();
+            for (int j : candidates) {
+                Geometry s2 = polygons[j];
+                if (s1.intersects(s2) && !s1.touches(s2)) {
                     int s1Id = shapes.get(i).getID();
                     int s2Id = shapes.get(j).getID();
                     String message = " Shape overlaps with shape " + s2Id;
-                    errors.add(new ValidationError(s1Id, message));
+                    result.add(new ValidationError(s1Id, message));
                 }
             }
+            return result;
+        }).toList();
+
+        List<ValidationError> errors = new ArrayList<ValidationError>();
+        for (ValidationError next : checkErrors) {
+            if (next != null) {
+                errors.add(next);
+            }
+        }
+        for (List<ValidationError> next : overlapErrors) {
+            errors.addAll(next);
         }
         return errors;
     }
@@ -53,10 +83,11 @@ public class GMLShapeValidator implements MapValidator<GMLMap> {
     /**
        Check if the given shape is correct.
        @param shape
+       @param cache
        @return
      */
-    private static Geometry checkShape(GMLShape shape) throws ValidationException {
-        Geometry polygon = JTSTools.shapeToPolygon(shape);
+    private static Geometry checkShape(GMLShape shape, ShapeGeometryCache cache) throws ValidationException {
+        Geometry polygon = cache.getPolygon(shape);
         if (!polygon.isValid()) {
             throw new ValidationException(shape.getID(), "invalid shape");
         }
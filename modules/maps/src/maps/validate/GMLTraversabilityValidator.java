@@ -3,6 +3,7 @@ package maps.validate;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Objects;
 
 import maps.gml.GMLDirectedEdge;
 import maps.gml.GMLMap;
@@ -23,26 +24,19 @@ import com.vividsolutions.jts.operation.linemerge.LineSequencer;
  * road.
  *
  */
-public class GMLTraversabilityValidator implements MapValidator<GMLMap> {
+public class GMLTraversabilityValidator implements GMLGeometryValidator {
     private static final double MIN_ROAD_WIDTH = 1.0;
     private static final double SHAPE_PADDING = 0.01;
 
     @Override
-    public Collection<ValidationError> validate(GMLMap map) {
-        Collection<ValidationError> errors = new ArrayList<ValidationError>();
-        for (GMLShape shape : map.getRoads()) {
-            ValidationError error = checkTraversability(shape, MIN_ROAD_WIDTH);
-            if (error != null) {
-                errors.add(error);
-            }
-        }
-        for (GMLShape shape : map.getBuildings()) {
-            ValidationError error = checkTraversability(shape, MIN_ROAD_WIDTH);
-            if (error != null) {
-                errors.add(error);
-            }
-        }
-        return errors;
+    public Collection<ValidationError> validate(GMLMap map, ShapeGeometryCache cache) {
+        List<GMLShape> shapes = new ArrayList<GMLShape>(map.getRoads());
+        shapes.addAll(map.getBuildings());
+        // Shapes are checked independently of each other
+        return new ArrayList<ValidationError>(shapes.parallelStream()
+                .map(shape -> checkTraversability(shape, MIN_ROAD_WIDTH, cache))
+                .filter(Objects::nonNull)
+                .toList());
     }
 
     /**
@@ -51,16 +45,17 @@ public class GMLTraversabilityValidator implements MapValidator<GMLMap> {
      *
      * @param shape
      * @param agentWidth
+     * @param cache
      * @return
      */
-    private ValidationError checkTraversability(GMLShape shape, double minWidth) {
+    private ValidationError checkTraversability(GMLShape shape, double minWidth, ShapeGeometryCache cache) {
         // To check for traversability, we shrink the non-traversable edges
         // of the shape by the radius of the agent.
         // We then check, if all entrance edges are part of the same part
         // of the resulting polygon
 
         try {
-            Geometry polygon = JTSTools.shapeToPolygon(shape);
+            Geometry polygon = cache.getPolygon(shape);
             if (!polygon.isValid()) {
                 return new ValidationError(shape.getID(), "invalid shape");
             }
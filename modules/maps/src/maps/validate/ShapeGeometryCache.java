@@ -0,0 +1,52 @@
+package maps.validate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import maps.gml.GMLShape;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Cache of JTS polygons converted from GML shapes. A cache is meant to live
+ * for a single validation run so that several validators can share the
+ * conversions; it does not notice later edits to the shapes. Safe for use by
+ * several threads at once.
+ */
+public class ShapeGeometryCache {
+    private final Map<GMLShape, Object> polygons;
+
+    /**
+     * Create an empty cache.
+     */
+    public ShapeGeometryCache() {
+        polygons = new ConcurrentHashMap<GMLShape, Object>();
+    }
+
+    /**
+     * Get the polygon for a shape, converting it on first use. Conversion
+     * failures are cached as well and rethrown on every call.
+     * @param shape
+     *            The shape to convert.
+     * @return Polygon geometry.
+     * @throws ValidationException
+     *             If the shape cannot be converted.
+     */
+    public Geometry getPolygon(GMLShape shape) throws ValidationException {
+        Object result = polygons.get(shape);
+        if (result == null) {
+            try {
+                result = JTSTools.shapeToPolygon(shape);
+            }
+            catch (ValidationException e) {
+                result = e;
+            }
+            polygons.put(shape, result);
+        }
+        if (result instanceof ValidationException) {
+            ValidationException e = (ValidationException) result;
+            throw new ValidationException(e.getError().getId(), e.getError().getMessage());
+        }
+        return (Geometry) result;
+    }
+}
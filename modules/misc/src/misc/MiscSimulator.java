@@ -8,7 +8,9 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import javax.swing.JComponent;
 
@@ -17,6 +19,7 @@ import rescuecore2.log.Logger;
 import rescuecore2.messages.Command;
 import rescuecore2.messages.control.KSCommands;
 import rescuecore2.messages.control.KSUpdate;
+import rescuecore2.metrics.MetricsRegistry;
 import rescuecore2.misc.geometry.GeometryTools2D;
 import rescuecore2.misc.geometry.Point2D;
 import rescuecore2.standard.components.StandardSimulator;
@@ -51,7 +54,16 @@ import rescuecore2.worldmodel.Property;
  */
 public class MiscSimulator extends StandardSimulator implements GUIComponent {
 
+  // Below this many humans a parallel damage pass costs more than it saves
+  private static final int PARALLEL_DAMAGE_THRESHOLD = 256;
+  private static final long NANOS_PER_MILLI = 1000000;
+
   private Map<EntityID, HumanAttributes> humans;
+  // The same humans indexed by ordinal, with per-timestep scratch state
+  private HumanAttributes[] humanArray;
+  private int[] oldDamage;
+  private boolean[] outsideRefuge;
+  private Map<EntityID, Integer> sentOccupiedBeds;
   private Set<EntityID> newlyBrokenBuildings;
   private Map<EntityID, Integer> oldBrokenBuildingsBuriedness = new HashMap<>();
   private MiscParameters parameters;
@@ -118,11 +130,15 @@ public class MiscSimulator extends StandardSimulator implements GUIComponent {
         humans.put(ha.getID(), ha);
       }
     }
+    humanArray = humans.values().toArray(new HumanAttributes[humans.size()]);
+    oldDamage = new int[humanArray.length];
+    outsideRefuge = new boolean[humanArray.length];
+    sentOccupiedBeds = new HashMap<EntityID, Integer>();
   }
 
   @Override
   protected void processCommands(KSCommands c, ChangeSet changes) {
-    long start = System.currentTimeMillis();
+    long start = System.nanoTime();
     int time = c.getTime();
     Logger.info("Timestep " + time);
 
@@ -164,8 +180,8 @@ public class MiscSimulator extends StandardSimulator implements GUIComponent {
     if (gui != null) {
       gui.refresh(humans.values());
     }
-    long end = System.currentTimeMillis();
-    Logger.info("Timestep " + time + " took " + (end - start) + " ms");
+    long elapsed = MetricsRegistry.getCurrentRegistry().getTimer("misc.timestep").stop(start);
+    Logger.info("Timestep {} took {} ms", time, elapsed / NANOS_PER_MILLI);
   }
 
   private void processExplodedGasStations(ChangeSet changes) {
@@ -270,26 +286,25 @@ public class MiscSimulator extends StandardSimulator implements GUIComponent {
   }
 
   private void updateDamage(ChangeSet changes) {
-    for (HumanAttributes ha : humans.values()) {
+    for (int i = 0; i < humanArray.length; ++i) {
+      Human h = humanArray[i].getHuman();
+      oldDamage[i] = humanArray[i].getTotalDamage();
+      outsideRefuge[i] = h.isPositionDefined() && !(h.getPosition(model) instanceof Refuge);
+    }
+    // Progressing damage outside refuges only touches each human's own damage
+    // and random sequence, so it can be done in parallel before the results are
+    // written to the world model and change set in order
+    IntStream indices = IntStream.range(0, humanArray.length);
+    if (humanArray.length >= PARALLEL_DAMAGE_THRESHOLD) {
+      indices = indices.parallel();
+    }
+    indices.filter(i -> outsideRefuge[i]).forEach(i -> updateDamage(humanArray[i]));
+
+    for (int i = 0; i < humanArray.length; ++i) {
+      HumanAttributes ha = humanArray[i];
       Human h = ha.getHuman();
-      int oldDamage = ha.getTotalDamage();
-      if (h.isPositionDefined() && !(h.getPosition(model) instanceof Refuge)) {
-        updateDamage(ha);
-        int hp = h.isHPDefined() ? h.getHP() : 0;
-        int damage = ha.getTotalDamage();
-
-        h.setDamage(damage);
-        changes.addChange(ha.getHuman(), ha.getHuman().getDamageProperty());
-
-        // Update HP
-        boolean isAlive = hp > 0;
-        boolean hasDamage = damage > 0;
-
-        if (isAlive && hasDamage) {
-          int newHP = Math.max(0, hp - damage);
-          h.setHP(newHP);
-          changes.addChange(ha.getHuman(), ha.getHuman().getHPProperty());
-        }
+      if (outsideRefuge[i]) {
+        applyDamage(ha, changes);
       }
       /*
        * For the implementation of Refuge Bed Capacity Damage increases and HP
@@ -301,33 +316,17 @@ public class MiscSimulator extends StandardSimulator implements GUIComponent {
       else if (h.isPositionDefined() && (h.getPosition(model) instanceof Refuge) && h.isHPDefined() && h.getHP() > 0) {
         if (h instanceof FireBrigade || h instanceof AmbulanceTeam || h instanceof PoliceForce) {
           ha.clearDamage();
-          h.setDamage(0);
-          changes.addChange(ha.getHuman(), ha.getHuman().getDamageProperty());
+          setDamage(h, 0, changes);
           continue;
         }
         if (waitingList.get(h.getPosition()).size() > 0 && waitingList.get(h.getPosition()).contains(h.getID())) {
           updateDamage(ha);
-          int hp = h.isHPDefined() ? h.getHP() : 0;
-          int damage = ha.getTotalDamage();
-
-          h.setDamage(damage);
-          changes.addChange(ha.getHuman(), ha.getHuman().getDamageProperty());
-
-          // Update HP
-          boolean isAlive = hp > 0;
-          boolean hasDamage = damage > 0;
-
-          if (isAlive && hasDamage) {
-            int newHP = Math.max(0, hp - damage);
-            h.setHP(newHP);
-            changes.addChange(ha.getHuman(), ha.getHuman().getHPProperty());
-          }
+          applyDamage(ha, changes);
         } else if (beds.get(h.getPosition()).size() > 0 && beds.get(h.getPosition()).contains(h.getID())) {
           updateDamageInRefuge(ha);
-          h.setDamage(ha.getTotalDamage());
-          changes.addChange(ha.getHuman(), ha.getHuman().getDamageProperty());
+          setDamage(h, ha.getTotalDamage(), changes);
 
-          if (oldDamage > 0 && h.getDamage() <= 0) {
+          if (oldDamage[i] > 0 && h.getDamage() <= 0) {
 
             if (beds.get(h.getPosition()).remove(h.getID())) {
               ((Refuge) h.getPosition(model)).decreaseOccupiedBeds();
@@ -343,6 +342,49 @@ public class MiscSimulator extends StandardSimulator implements GUIComponent {
     }
   }
 
+  /**
+   * Write the progressed damage of a human to the world model and reduce its HP.
+   */
+  private void applyDamage(HumanAttributes ha, ChangeSet changes) {
+    Human h = ha.getHuman();
+    int hp = h.isHPDefined() ? h.getHP() : 0;
+    int damage = ha.getTotalDamage();
+
+    setDamage(h, damage, changes);
+
+    // Update HP
+    boolean isAlive = hp > 0;
+    boolean hasDamage = damage > 0;
+
+    if (isAlive && hasDamage) {
+      setHP(h, Math.max(0, hp - damage), changes);
+    }
+  }
+
+  /**
+   * Set the damage of a human, adding it to the change set only if it differs
+   * from the current value.
+   */
+  private static void setDamage(Human h, int damage, ChangeSet changes) {
+    if (h.isDamageDefined() && h.getDamage() == damage) {
+      return;
+    }
+    h.setDamage(damage);
+    changes.addChange(h, h.getDamageProperty());
+  }
+
+  /**
+   * Set the HP of a human, adding it to the change set only if it differs from
+   * the current value.
+   */
+  private static void setHP(Human h, int hp, ChangeSet changes) {
+    if (h.isHPDefined() && h.getHP() == hp) {
+      return;
+    }
+    h.setHP(hp);
+    changes.addChange(h, h.getHPProperty());
+  }
+
   private void updateDamage(HumanAttributes ha) {
     Human h = ha.getHuman();
     if (h.getHP() <= 0) {
@@ -657,10 +699,19 @@ public class MiscSimulator extends StandardSimulator implements GUIComponent {
   private void updateChangeSet(ChangeSet changes) {
     for (StandardEntity e : model.getEntitiesOfType(StandardEntityURN.REFUGE))
       if (e instanceof Refuge) {
-        int size = waitingList.get(e.getID()).size();
-        ((Refuge) e).setWaitingListSize(size);
-        changes.addChange((Refuge) e, ((Refuge) e).getOccupiedBedsProperty());
-        changes.addChange((Refuge) e, ((Refuge) e).getWaitingListSizeProperty());
+        Refuge refuge = (Refuge) e;
+        // Occupied beds are changed in place, so compare with what was last sent
+        Integer occupied = refuge.getOccupiedBedsProperty().getValue();
+        if (!sentOccupiedBeds.containsKey(refuge.getID())
+            || !Objects.equals(sentOccupiedBeds.get(refuge.getID()), occupied)) {
+          sentOccupiedBeds.put(refuge.getID(), occupied);
+          changes.addChange(refuge, refuge.getOccupiedBedsProperty());
+        }
+        int size = waitingList.get(refuge.getID()).size();
+        if (!refuge.isWaitingListSizeDefined() || refuge.getWaitingListSize() != size) {
+          refuge.setWaitingListSize(size);
+          changes.addChange(refuge, refuge.getWaitingListSizeProperty());
+        }
       }
   }
 }
\ No newline at end of file
@@ -1,85 +1,106 @@
 package firesimulator.simulator;
 
-import java.util.Map;
-import java.util.HashMap;
+import java.util.Arrays;
 
-import firesimulator.world.World;
 import firesimulator.world.Building;
 import org.apache.log4j.Logger;
 
+/**
+   A per-building breakdown of where energy went during one timestep, written to the debug log. Buildings are looked up by their simulation index, so the buildings passed to the constructor must be indexed by {@link Building#getSimulationIndex()}. Values that were never registered are kept as NaN.
+ */
 public class EnergyHistory {
     private static final Logger LOG = Logger.getLogger(EnergyHistory.class);
 
     private int time;
-    private Map<Building, Double> initialEnergy;
-    private Map<Building, Double> initialTemperature;
-    private Map<Building, Double> burnEnergy;
-    private Map<Building, Double> coolEnergy;
-    private Map<Building, Double> exchangedWithAir;
-    private Map<Building, Double> lostToRadiation;
-    private Map<Building, Double> gainedByRadiation;
-    private Map<Building, Double> finalEnergy;
-    private Map<Building, Double> finalTemperature;
+    private Building[] buildings;
+    private double[] initialEnergy;
+    private double[] initialTemperature;
+    private double[] burnEnergy;
+    private double[] coolEnergy;
+    private double[] exchangedWithAir;
+    private double[] lostToRadiation;
+    private double[] gainedByRadiation;
+    private double[] finalEnergy;
+    private double[] finalTemperature;
 
-    public EnergyHistory(World world, int time) {
-        initialEnergy = new HashMap<Building, Double>();
-        initialTemperature = new HashMap<Building, Double>();
-        burnEnergy = new HashMap<Building, Double>();
-        coolEnergy = new HashMap<Building, Double>();
-        exchangedWithAir = new HashMap<Building, Double>();
-        lostToRadiation = new HashMap<Building, Double>();
-        gainedByRadiation = new HashMap<Building, Double>();
-        finalEnergy = new HashMap<Building, Double>();
-        finalTemperature = new HashMap<Building, Double>();
+    public EnergyHistory(Building[] buildings, int time) {
+        this.buildings = buildings;
         this.time = time;
-        for (Building next : world.getBuildings()) {
-            initialEnergy.put(next, next.getEnergy());
-            initialTemperature.put(next, next.getTemperature());
+        initialEnergy = new double[buildings.length];
+        initialTemperature = new double[buildings.length];
+        burnEnergy = unset(buildings.length);
+        coolEnergy = unset(buildings.length);
+        exchangedWithAir = unset(buildings.length);
+        lostToRadiation = unset(buildings.length);
+        gainedByRadiation = unset(buildings.length);
+        finalEnergy = new double[buildings.length];
+        finalTemperature = new double[buildings.length];
+        for (int i = 0; i < buildings.length; ++i) {
+            initialEnergy[i] = buildings[i].getEnergy();
+            initialTemperature[i] = buildings[i].getTemperature();
         }
     }
 
+    /**
+       Find out whether energy histories are logged at all. If not there is no point creating them.
+       @return True if the summary would be logged.
+     */
+    public static boolean isEnabled() {
+        return LOG.isDebugEnabled();
+    }
+
     public void registerBurn(Building b, double energy) {
-        burnEnergy.put(b, energy);
+        burnEnergy[b.getSimulationIndex()] = energy;
     }
 
     public void registerCool(Building b, double energy) {
-        coolEnergy.put(b, energy);
+        coolEnergy[b.getSimulationIndex()] = energy;
     }
 
     public void registerAir(Building b, double energy) {
-        exchangedWithAir.put(b, energy);
+        exchangedWithAir[b.getSimulationIndex()] = energy;
     }
 
     public void registerRadiationLoss(Building b, double energy) {
-        lostToRadiation.put(b, energy);
+        lostToRadiation[b.getSimulationIndex()] = energy;
     }
 
     public void registerRadiationGain(Building b, double energy) {
-        double old = gainedByRadiation.containsKey(b) ? gainedByRadiation.get(b) : 0;
-        gainedByRadiation.put(b, old + energy);
+        int i = b.getSimulationIndex();
+        gainedByRadiation[i] = Double.isNaN(gainedByRadiation[i]) ? energy : gainedByRadiation[i] + energy;
     }
 
-    public void registerFinalEnergy(World world) {
-        for (Building next : world.getBuildings()) {
-            finalEnergy.put(next, next.getEnergy());
-            finalTemperature.put(next, next.getTemperature());
+    public void registerFinalEnergy() {
+        for (int i = 0; i < buildings.length; ++i) {
+            finalEnergy[i] = buildings[i].getEnergy();
+            finalTemperature[i] = buildings[i].getTemperature();
         }
     }
 
     public void logSummary() {
         LOG.debug("Energy summary at time " + time);
-        for (Building next : initialEnergy.keySet()) {
-            boolean changed = burnEnergy.containsKey(next) || coolEnergy.containsKey(next) || exchangedWithAir.containsKey(next) || lostToRadiation.containsKey(next) || gainedByRadiation.containsKey(next);
-            if (changed && !initialEnergy.get(next).equals(finalEnergy.get(next))) {
-                LOG.debug("Building " + next.getID());
-                LOG.debug("  Initial energy / temperature: " + initialEnergy.get(next) + " / " + initialTemperature.get(next));
-                LOG.debug("  Burn energy                 : " + burnEnergy.get(next));
-                LOG.debug("  Cool energy                 : " + coolEnergy.get(next));
-                LOG.debug("  Exchanged with air          : " + exchangedWithAir.get(next));
-                LOG.debug("  Lost to radiation           : " + lostToRadiation.get(next));
-                LOG.debug("  Gained by radiation         : " + gainedByRadiation.get(next));
-                LOG.debug("  Final energy / temperature  : " + finalEnergy.get(next) + " / " + finalTemperature.get(next));
+        for (int i = 0; i < buildings.length; ++i) {
+            boolean changed = !Double.isNaN(burnEnergy[i]) || !Double.isNaN(coolEnergy[i]) || !Double.isNaN(exchangedWithAir[i]) || !Double.isNaN(lostToRadiation[i]) || !Double.isNaN(gainedByRadiation[i]);
+            if (changed && Double.compare(initialEnergy[i], finalEnergy[i]) != 0) {
+                LOG.debug("Building " + buildings[i].getID());
+                LOG.debug("  Initial energy / temperature: " + initialEnergy[i] + " / " + initialTemperature[i]);
+                LOG.debug("  Burn energy                 : " + format(burnEnergy[i]));
+                LOG.debug("  Cool energy                 : " + format(coolEnergy[i]));
+                LOG.debug("  Exchanged with air          : " + format(exchangedWithAir[i]));
+                LOG.debug("  Lost to radiation           : " + format(lostToRadiation[i]));
+                LOG.debug("  Gained by radiation         : " + format(gainedByRadiation[i]));
+                LOG.debug("  Final energy / temperature  : " + finalEnergy[i] + " / " + finalTemperature[i]);
             }
         }
     }
-}
\ No newline at end of file
+
+    private static double[] unset(int size) {
+        double[] result = new double[size];
+        Arrays.fill(result, Double.NaN);
+        return result;
+    }
+
+    private static String format(double value) {
+        return Double.isNaN(value) ? "null" : String.valueOf(value);
+    }
+}
@@ -1,10 +1,12 @@
 package firesimulator.simulator;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Set;
-import java.util.Map;
-import java.util.HashMap;
 import firesimulator.util.Configuration;
 import firesimulator.util.Rnd;
 import firesimulator.world.Building;
@@ -44,6 +46,19 @@ public class Simulator {
 
   public static float      AIR_CELL_HEAT_CAPACITY      = 1f;
 
+  /**
+   * If set, only buildings and air cells that are warmer than
+   * ACTIVE_SET_EPSILON, hold water or burned in the last timestep are
+   * simulated. Everything else is treated as being at zero degrees, so the
+   * temperature of any building or air cell differs from the full simulation
+   * by at most ACTIVE_SET_EPSILON at the time it is left out.
+   */
+  public static boolean    ACTIVE_SET                  = false;
+
+  public static float      ACTIVE_SET_EPSILON          = 0.01f;
+
+  private static final int AIR_TILE_SIZE               = 8;
+
   private Set              monitors;
 
   private static boolean   verbose;
@@ -52,6 +67,13 @@ public class Simulator {
 
   private EnergyHistory    energyHistory;
 
+  private Building[]       buildings;
+
+  private BitSet           active;
+
+  // Air tiles holding a cell warmer than ACTIVE_SET_EPSILON
+  private boolean[][]      warmAir;
+
 
   public Simulator( World world ) {
     me = this;
@@ -99,23 +121,96 @@ public class Simulator {
 
 
   public void step( int timestep ) {
-    energyHistory = new EnergyHistory( world, timestep );
+    if ( buildings == null
+        || buildings.length != world.getBuildings().size() ) {
+      indexBuildings();
+    }
+    energyHistory = EnergyHistory.isEnabled()
+        ? new EnergyHistory( buildings, timestep )
+        : null;
     refill();
     executeExtinguishRequests();
-    burn();
-    cool();
+    Collection<Building> simulated = ACTIVE_SET
+        ? findActiveBuildings()
+        : world.getBuildings();
+    burn( simulated );
+    cool( simulated );
     updateGrid();
-    exchangeBuilding();
+    if ( ACTIVE_SET ) {
+      simulated = addBuildingsUnderWarmAir();
+    }
+    exchangeBuilding( simulated );
     // FIXED
-    cool();
-    energyHistory.registerFinalEnergy( world );
-    energyHistory.logSummary();
+    cool( simulated );
+    if ( energyHistory != null ) {
+      energyHistory.registerFinalEnergy();
+      energyHistory.logSummary();
+    }
+  }
+
+
+  private void indexBuildings() {
+    buildings = world.getBuildings().toArray( new Building[0] );
+    for ( int i = 0; i < buildings.length; i++ ) {
+      buildings[i].setSimulationIndex( i );
+    }
+    active = new BitSet( buildings.length );
+  }
+
+
+  /**
+   * Mark the buildings that may burn, cool or radiate a noticeable amount of
+   * energy this timestep. Buildings below the epsilon that are heated by their
+   * neighbours are picked up the next timestep.
+   */
+  private List<Building> findActiveBuildings() {
+    active.clear();
+    for ( int i = 0; i < buildings.length; i++ ) {
+      Building b = buildings[i];
+      if ( b.getWaterQuantity() > 0 || b.getPrevBurned() != 0
+          || Math.abs( b.getEnergy() ) > ACTIVE_SET_EPSILON * b.getCapacity() ) {
+        active.set( i );
+      }
+    }
+    return getActiveBuildings();
+  }
+
+
+  private List<Building> addBuildingsUnderWarmAir() {
+    double[][] airtemp = world.getAirTemp();
+    for ( int i = active.nextClearBit( 0 ); i < buildings.length; i = active
+        .nextClearBit( i + 1 ) ) {
+      for ( int[] cell : buildings[i].cells ) {
+        if ( airtemp[cell[0]][cell[1]] > ACTIVE_SET_EPSILON ) {
+          active.set( i );
+          break;
+        }
+      }
+    }
+    return getActiveBuildings();
+  }
+
+
+  private List<Building> getActiveBuildings() {
+    List<Building> result = new ArrayList<Building>( active.cardinality() );
+    for ( int i = active.nextSetBit( 0 ); i >= 0; i = active
+        .nextSetBit( i + 1 ) ) {
+      result.add( buildings[i] );
+    }
+    return result;
   }
 
 
-  private void cool() {
-    for ( Iterator i = world.getBuildings().iterator(); i.hasNext(); ) {
-      Building b = (Building) i.next();
+  private void clearWarmAir() {
+    double[][] airtemp = world.getAirTemp();
+    warmAir = new boolean[(airtemp.length + AIR_TILE_SIZE - 1)
+        / AIR_TILE_SIZE][(airtemp[0].length + AIR_TILE_SIZE - 1)
+            / AIR_TILE_SIZE];
+  }
+
+
+  private void cool( Collection<Building> simulated ) {
+    for ( Building b : simulated ) {
       waterCooling( b );
     }
   }
@@ -140,8 +235,8 @@ public class Simulator {
   }
 
 
-  private void burn() {
-    for ( Building b : world.getBuildings() ) {
+  private void burn( Collection<Building> simulated ) {
+    for ( Building b : simulated ) {
       if ( b.getTemperature() >= b.getIgnitionPoint() && b.fuel > 0
           && b.isInflameable() ) {
         float consumed = b.getConsum();
@@ -152,7 +247,9 @@ public class Simulator {
         double oldEnergy = b.getEnergy();
         double oldTemp = b.getTemperature();
         b.setEnergy( b.getEnergy() + consumed );
-        energyHistory.registerBurn( b, consumed );
+        if ( energyHistory != null ) {
+          energyHistory.registerBurn( b, consumed );
+        }
         b.fuel -= consumed;
         b.setPrevBurned( consumed );
       } else {
@@ -185,7 +282,9 @@ public class Simulator {
       }
       b.setWaterQuantity( b.getWaterQuantity() - consumed );
       b.setEnergy( b.getEnergy() - effect );
-      energyHistory.registerCool( b, effect );
+      if ( energyHistory != null ) {
+        energyHistory.registerCool( b, effect );
+      }
       LOG.debug( "Building " + b.getID() + " water cooling" );
       LOG.debug( "Old energy: " + oldEnergy + ", old temperature: " + oldTemp
           + ", old water: " + oldWater );
@@ -196,21 +295,18 @@ public class Simulator {
   }
 
 
-  private void exchangeBuilding() {
-    for ( Iterator i = world.getBuildings().iterator(); i.hasNext(); ) {
-      Building b = (Building) i.next();
+  private void exchangeBuilding( Collection<Building> simulated ) {
+    for ( Building b : simulated ) {
       exchangeWithAir( b );
     }
-    double sumdt = 0;
-    Map<Building, Double> radiation = new HashMap<Building, Double>();
-    for ( Iterator i = world.getBuildings().iterator(); i.hasNext(); ) {
-      Building b = (Building) i.next();
-      double radEn = b.getRadiationEnergy();
-      radiation.put( b, radEn );
+    double[] radiation = new double[buildings.length];
+    for ( Building b : simulated ) {
+      radiation[b.getSimulationIndex()] = b.getRadiationEnergy();
     }
-    for ( Iterator i = world.getBuildings().iterator(); i.hasNext(); ) {
-      Building b = (Building) i.next();
-      double radEn = radiation.get( b );
+    // Radiation reaches buildings outside the active set too, which makes them
+    // active next timestep if they get warm enough
+    for ( Building b : simulated ) {
+      double radEn = radiation[b.getSimulationIndex()];
       Building[] bs = b.connectedBuilding;
       float[] vs = b.connectedValues;
 
@@ -220,10 +316,14 @@ public class Simulator {
         double a = radEn * connectionValue;
         double sum = oldEnergy + a;
         bs[c].setEnergy( sum );
-        energyHistory.registerRadiationGain( bs[c], a );
+        if ( energyHistory != null ) {
+          energyHistory.registerRadiationGain( bs[c], a );
+        }
       }
       b.setEnergy( b.getEnergy() - radEn );
-      energyHistory.registerRadiationLoss( b, -radEn );
+      if ( energyHistory != null ) {
+        energyHistory.registerRadiationLoss( b, -radEn );
+      }
     }
   }
 
@@ -246,9 +346,14 @@ public class Simulator {
       double newCellTemp = cellTemp - energyTransferToBuilding
           / (AIR_CELL_HEAT_CAPACITY * world.SAMPLE_SIZE);
       world.setAirCellTemp( cellX, cellY, newCellTemp );
+      if ( ACTIVE_SET && newCellTemp > ACTIVE_SET_EPSILON ) {
+        warmAir[cellX / AIR_TILE_SIZE][cellY / AIR_TILE_SIZE] = true;
+      }
     }
     b.setEnergy( oldEnergy + energyDelta );
-    energyHistory.registerAir( b, energyDelta );
+    if ( energyHistory != null ) {
+      energyHistory.registerAir( b, energyDelta );
+    }
   }
 
 
@@ -256,19 +361,12 @@ public class Simulator {
     LOG.debug( "Updating air grid" );
     double[][] airtemp = world.getAirTemp();
     double[][] newairtemp = new double[airtemp.length][airtemp[0].length];
-    for ( int x = 0; x < airtemp.length; x++ ) {
-      for ( int y = 0; y < airtemp[0].length; y++ ) {
-        double dt = (averageTemp( x, y ) - airtemp[x][y]);
-        double change = (dt * AIR_TO_AIR_COEFFICIENT * TIME_STEP_LENGTH);
-        newairtemp[x][y] = relTemp( airtemp[x][y] + change );
-        if ( !(newairtemp[x][y] > -Double.MAX_VALUE
-            && newairtemp[x][y] < Double.MAX_VALUE) ) {
-          LOG.warn( "Value is not sensible: " + newairtemp[x][y] );
-          newairtemp[x][y] = Double.MAX_VALUE * 0.75;
-        }
-        if ( newairtemp[x][y] == Double.NEGATIVE_INFINITY
-            || newairtemp[x][y] == Double.POSITIVE_INFINITY ) {
-          LOG.warn( "aha" );
+    if ( ACTIVE_SET ) {
+      updateWarmAir( airtemp, newairtemp );
+    } else {
+      for ( int x = 0; x < airtemp.length; x++ ) {
+        for ( int y = 0; y < airtemp[0].length; y++ ) {
+          updateCell( airtemp, newairtemp, x, y );
         }
       }
     }
@@ -279,6 +377,68 @@ public class Simulator {
   }
 
 
+  /**
+   * Update the tiles that hold warm air and their neighbours. Heat only
+   * spreads one cell per timestep, so every other cell stays at zero.
+   */
+  private void updateWarmAir( double[][] airtemp, double[][] newairtemp ) {
+    int tilesX = warmAir.length;
+    int tilesY = warmAir[0].length;
+    boolean[][] nextWarmAir = new boolean[tilesX][tilesY];
+    for ( int tx = 0; tx < tilesX; tx++ ) {
+      for ( int ty = 0; ty < tilesY; ty++ ) {
+        if ( !isNearWarmAir( tx, ty ) ) {
+          continue;
+        }
+        int toX = Math.min( airtemp.length, (tx + 1) * AIR_TILE_SIZE );
+        int toY = Math.min( airtemp[0].length, (ty + 1) * AIR_TILE_SIZE );
+        for ( int x = tx * AIR_TILE_SIZE; x < toX; x++ ) {
+          for ( int y = ty * AIR_TILE_SIZE; y < toY; y++ ) {
+            updateCell( airtemp, newairtemp, x, y );
+            if ( newairtemp[x][y] > ACTIVE_SET_EPSILON ) {
+              nextWarmAir[tx][ty] = true;
+            } else {
+              newairtemp[x][y] = 0;
+            }
+          }
+        }
+      }
+    }
+    warmAir = nextWarmAir;
+  }
+
+
+  private boolean isNearWarmAir( int tx, int ty ) {
+    for ( int x = Math.max( 0, tx - 1 ); x <= tx + 1
+        && x < warmAir.length; x++ ) {
+      for ( int y = Math.max( 0, ty - 1 ); y <= ty + 1
+          && y < warmAir[0].length; y++ ) {
+        if ( warmAir[x][y] ) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+
+  private void updateCell( double[][] airtemp, double[][] newairtemp, int x,
+      int y ) {
+    double dt = (averageTemp( x, y ) - airtemp[x][y]);
+    double change = (dt * AIR_TO_AIR_COEFFICIENT * TIME_STEP_LENGTH);
+    newairtemp[x][y] = relTemp( airtemp[x][y] + change );
+    if ( !(newairtemp[x][y] > -Double.MAX_VALUE
+        && newairtemp[x][y] < Double.MAX_VALUE) ) {
+      LOG.warn( "Value is not sensible: " + newairtemp[x][y] );
+      newairtemp[x][y] = Double.MAX_VALUE * 0.75;
+    }
+    if ( newairtemp[x][y] == Double.NEGATIVE_INFINITY
+        || newairtemp[x][y] == Double.POSITIVE_INFINITY ) {
+      LOG.warn( "aha" );
+    }
+  }
+
+
   private double relTemp( double deltaT ) {
     return Math.max( 0, deltaT * ENERGY_LOSS * TIME_STEP_LENGTH );
   }
@@ -362,6 +522,10 @@ public class Simulator {
     ExtinguishRequest.MAX_DISTANCE = Integer
         .parseInt( Configuration.getValue( "resq-fire.water_distance" ) );
     GAMMA = Float.parseFloat( Configuration.getValue( "resq-fire.gamma" ) );
+    ACTIVE_SET = Boolean
+        .parseBoolean( Configuration.getValue( "resq-fire.active-set" ) );
+    ACTIVE_SET_EPSILON = Float.parseFloat(
+        Configuration.getValue( "resq-fire.active-set-epsilon" ) );
     Rnd.setSeed( Long.parseLong( Configuration.getValue( "random.seed" ) ) );
 
   }
@@ -376,12 +540,16 @@ public class Simulator {
     }
 
     world.initialize();
+    indexBuildings();
+    clearWarmAir();
   }
 
 
   public void reset() {
     loadVars();
     world.reset();
+    indexBuildings();
+    clearWarmAir();
     informReset();
   }
 }
\ No newline at end of file
@@ -127,6 +127,8 @@ public class Configuration {
 		Props.add(new Prop(PREFIX + "rays.dir","rays",null,null,true,"rays"));
 		Props.add(new Prop(PREFIX + "burn-rate-average","burn-rate-average",null,null,true,"0.2"));
 		Props.add(new Prop(PREFIX + "burn-rate-variance","burn-rate-variance",null,null,true,"0"));
+		Props.add(new Prop(PREFIX + "active-set","active-set",null,null,true,"false"));
+		Props.add(new Prop(PREFIX + "active-set-epsilon","active-set-epsilon",null,null,true,"0.01"));
 	}
 
 	public void parse(String cmdLine){
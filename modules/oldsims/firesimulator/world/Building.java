@@ -65,6 +65,7 @@ public class Building extends StationaryObject {
   private int lwTime = -1;
   private boolean wasEverWatered = false;
   public boolean inflameable = true;
+  private int simulationIndex = -1;
 
   public static float woodCapacity = 4;
   public static float steelCapacity = 4;
@@ -537,4 +538,17 @@ public class Building extends StationaryObject {
   public boolean isInflameable() {
     return inflameable;
   }
+
+  /**
+   * Get the position of this building in the simulator's building table.
+   *
+   * @return The index, or -1 if the simulator has not indexed this building.
+   */
+  public int getSimulationIndex() {
+    return simulationIndex;
+  }
+
+  public void setSimulationIndex(int simulationIndex) {
+    this.simulationIndex = simulationIndex;
+  }
 }
\ No newline at end of file
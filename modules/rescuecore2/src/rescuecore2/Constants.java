@@ -28,6 +28,13 @@ public final class Constants {
   public static final String IGNORE_JARS_KEY = "loadabletypes.ignore";
   /** Default list of jar names to ignore when finding loadable types. */
   public static final String DEFAULT_IGNORE_JARS = "rescuecore2.jar";
+  /**
+   * Config key for specifying whether to remember the loadable types found in
+   * each jar between runs.
+   */
+  public static final String LOADABLE_TYPE_CACHE_KEY = "loadabletypes.cache";
+  /** Default loadable type caching. */
+  public static final boolean DEFAULT_LOADABLE_TYPE_CACHE = true;
 
   /** Config key for the kernel host name. */
   public static final String KERNEL_HOST_NAME_KEY = "kernel.host";
@@ -201,9 +201,9 @@ public abstract class AbstractComponent<T extends WorldModel<? extends Entity>>
         Logger.pushNDC(ndc);
       }
       try {
-        Logger.trace("MessageProcessor working: " + queue.size() + " messages in the queue");
+        Logger.trace("MessageProcessor working: {} messages in the queue", queue.size());
         Message msg = queue.take();
-        Logger.trace("Next message: " + msg);
+        Logger.trace("Next message: {}", msg);
         AbstractComponent.this.processMessage(msg);
         return true;
       } finally {
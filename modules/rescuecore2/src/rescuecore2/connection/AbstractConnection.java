@@ -16,6 +16,7 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
 
 import java.io.ByteArrayOutputStream;
 import java.io.ByteArrayInputStream;
@@ -35,6 +36,8 @@ public abstract class AbstractConnection implements Connection {
 
     private boolean logBytes;
     private String name;
+    private final AtomicLong bytesSent;
+    private final AtomicLong bytesReceived;
 
     private volatile State state;
 
@@ -50,6 +53,8 @@ public abstract class AbstractConnection implements Connection {
         state = State.NOT_STARTED;
         registry = Registry.SYSTEM_REGISTRY;
         name = toString();
+        bytesSent = new AtomicLong();
+        bytesReceived = new AtomicLong();
     }
 
     @Override
@@ -161,6 +166,23 @@ public abstract class AbstractConnection implements Connection {
         }
     }
 
+    @Override
+    public long getBytesSent() {
+        return bytesSent.get();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.get();
+    }
+
+    @Override
+    public int getQueueSize() {
+        synchronized (toSend) {
+            return toSend.size();
+        }
+    }
+
     @Override
     public void setRegistry(Registry r) {
         this.registry = r;
@@ -197,6 +219,22 @@ public abstract class AbstractConnection implements Connection {
 //    protected abstract void sendBytes(byte[] b) throws IOException;
     protected abstract void sendMessageProto(MessageProto  messageProto) throws IOException;
 
+    /**
+       Record that some bytes have been written to the other end of the connection.
+       @param count The number of bytes.
+    */
+    protected void recordBytesSent(long count) {
+        bytesSent.addAndGet(count);
+    }
+
+    /**
+       Record that some bytes have been read from the other end of the connection.
+       @param count The number of bytes.
+    */
+    protected void recordBytesReceived(long count) {
+        bytesReceived.addAndGet(count);
+    }
+
     /**
        Perform startup actions. This will only ever be called once.
     */
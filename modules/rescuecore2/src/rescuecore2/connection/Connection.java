@@ -51,6 +51,24 @@ public interface Connection {
      */
     void shutdown();
 
+    /**
+       Get the number of bytes written to the other end of this connection so far.
+       @return The number of bytes sent.
+    */
+    long getBytesSent();
+
+    /**
+       Get the number of bytes read from the other end of this connection so far.
+       @return The number of bytes received.
+    */
+    long getBytesReceived();
+
+    /**
+       Get the number of messages waiting in this connection's queues: those received but not yet passed to listeners, and those waiting to be written.
+       @return The number of queued messages.
+    */
+    int getQueueSize();
+
     /**
        Turn byte-level logging on or off.
        @param enabled Whether to enable byte-level logging.
@@ -1,34 +1,199 @@
 package rescuecore2.connection;
 
+import java.io.BufferedWriter;
+import java.io.CharArrayReader;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.PushbackInputStream;
+import java.io.Reader;
+import java.io.Writer;
 import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 import com.google.protobuf.util.JsonFormat;
 
+import rescuecore2.log.Logger;
 import rescuecore2.messages.protobuf.RCRSProto.MessageProto;
 
-public class JsonTCPConnection extends TCPConnection{
+/**
+   TCP connection that speaks JSON encoded MessageProtos by default.
+   <p>
+   A client may upgrade the connection to the binary framing used by
+   {@link TCPConnection} (a 32-bit big-endian length followed by the
+   serialized MessageProto) by sending {@link #BINARY_UPGRADE} as the very
+   first bytes on the socket. The server echoes the same token in front of
+   its first reply so the client can tell that the upgrade was accepted.
+ */
+public class JsonTCPConnection extends TCPConnection {
+	/** The token a client sends before its first message to switch to binary framing. */
+	public static final byte[] BINARY_UPGRADE = "RCRSPB1\n".getBytes(StandardCharsets.US_ASCII);
 
-	private OutputStreamWriter writer;
-	private InputStreamReader reader;
+	private static final JsonFormat.Printer PRINTER = JsonFormat.printer().omittingInsignificantWhitespace();
+	private static final JsonFormat.Parser PARSER = JsonFormat.parser().ignoringUnknownFields();
+
+	private enum Framing {
+		UNKNOWN, JSON, BINARY
+	}
+
+	private static final int READ_BUFFER_SIZE = 8192;
+	private static final int INITIAL_MESSAGE_SIZE = 1024;
+
+	private final PushbackInputStream pushback;
+	private final Writer writer;
+	private Reader reader;
+
+	// The message being read. Kept across read timeouts like the handshake.
+	private final char[] readBuffer;
+	private int readPosition;
+	private int readLimit;
+	private char[] message;
+	private int messageLength;
+	private int depth;
+	private boolean inString;
+	private boolean escaped;
+
+	private volatile Framing framing;
+	private boolean upgradeAcknowledged;
+	private final byte[] handshake;
+	private int handshakeLength;
+
+	/**
+	   Create a JsonTCPConnection from an existing socket.
+	   @param s The socket to attach to.
+	   @throws IOException If there is a problem opening the streams.
+	 */
 	public JsonTCPConnection(Socket s) throws IOException {
 		super(s);
-		writer=new OutputStreamWriter(out);
-		reader = new InputStreamReader(in);
+		pushback = new PushbackInputStream(in, BINARY_UPGRADE.length);
+		in = pushback;
+		writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		framing = Framing.UNKNOWN;
+		upgradeAcknowledged = false;
+		handshake = new byte[BINARY_UPGRADE.length];
+		handshakeLength = 0;
+		readBuffer = new char[READ_BUFFER_SIZE];
+		message = new char[INITIAL_MESSAGE_SIZE];
+	}
+
+	/**
+	   Find out whether the client negotiated binary framing.
+	   @return True if this connection is using binary framing.
+	 */
+	public boolean isBinary() {
+		return framing == Framing.BINARY;
 	}
 
 	@Override
 	protected void serializeMessageProto(MessageProto messageProto) throws IOException {
-		writer.append(JsonFormat.printer().print(messageProto));
-    }
+		if (framing == Framing.BINARY) {
+			if (!upgradeAcknowledged) {
+				out.write(BINARY_UPGRADE);
+				upgradeAcknowledged = true;
+			}
+			super.serializeMessageProto(messageProto);
+			return;
+		}
+		PRINTER.appendTo(messageProto, writer);
+		writer.flush();
+	}
+
 	@Override
-    protected MessageProto deserializeMessageProto() throws IOException {
-    	MessageProto.Builder builder=MessageProto.newBuilder();
-    	JsonFormat.parser().merge(reader, builder);
-    	return builder.build();
-    }
+	protected MessageProto deserializeMessageProto() throws IOException {
+		if (framing == Framing.UNKNOWN) {
+			negotiate();
+		}
+		if (framing == Framing.BINARY) {
+			return super.deserializeMessageProto();
+		}
+		if (reader == null) {
+			reader = new InputStreamReader(pushback, StandardCharsets.UTF_8);
+		}
+		readMessage();
+		MessageProto.Builder builder = MessageProto.newBuilder();
+		try {
+			PARSER.merge(new CharArrayReader(message, 0, messageLength), builder);
+		}
+		finally {
+			messageLength = 0;
+		}
+		return builder.build();
+	}
+
+	/**
+	   Read the characters of the next top-level JSON object into the message buffer. Only brackets and strings are tracked, which is enough to find where the object ends; the parser checks the rest.
+	 */
+	private void readMessage() throws IOException {
+		while (true) {
+			if (readPosition == readLimit) {
+				int count = reader.read(readBuffer);
+				if (count < 0) {
+					throw new EOFException(messageLength == 0 ? null : "Stream ended inside a JSON message");
+				}
+				readPosition = 0;
+				readLimit = count;
+			}
+			char c = readBuffer[readPosition++];
+			if (messageLength == 0) {
+				if (Character.isWhitespace(c)) {
+					continue;
+				}
+				if (c != '{') {
+					throw new IOException("Expected a JSON object but found '" + c + "'");
+				}
+				depth = 0;
+				inString = false;
+				escaped = false;
+			}
+			if (messageLength == message.length) {
+				message = Arrays.copyOf(message, message.length * 2);
+			}
+			message[messageLength++] = c;
+			if (inString) {
+				if (escaped) {
+					escaped = false;
+				}
+				else if (c == '\\') {
+					escaped = true;
+				}
+				else if (c == '"') {
+					inString = false;
+				}
+			}
+			else if (c == '"') {
+				inString = true;
+			}
+			else if (c == '{' || c == '[') {
+				++depth;
+			}
+			else if ((c == '}' || c == ']') && --depth == 0) {
+				return;
+			}
+		}
+	}
+
+	/**
+	   Decide which framing the client is using by looking at the first bytes on the stream. Bytes are accumulated across read timeouts so a slow client cannot cause a misdetection.
+	 */
+	private void negotiate() throws IOException {
+		while (handshakeLength < handshake.length) {
+			int b = pushback.read();
+			if (b < 0) {
+				throw new EOFException();
+			}
+			handshake[handshakeLength++] = (byte)b;
+			if (handshake[handshakeLength - 1] != BINARY_UPGRADE[handshakeLength - 1]) {
+				pushback.unread(handshake, 0, handshakeLength);
+				framing = Framing.JSON;
+				Logger.debug(this + " using JSON framing");
+				return;
+			}
+		}
+		if (Arrays.equals(handshake, BINARY_UPGRADE)) {
+			framing = Framing.BINARY;
+			Logger.info(this + " upgraded to binary framing");
+		}
+	}
 }
@@ -4,6 +4,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.IOException;
 import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.InterruptedIOException;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
@@ -47,6 +49,9 @@ public class StreamConnection extends AbstractConnection {
 	public StreamConnection(InputStream in, OutputStream out)
 			throws IOException {
 		super();
+		// Count bytes on the wire, before any compression or framing
+		in = new MeteredInputStream(in);
+		out = new MeteredOutputStream(out);
 		if (GZIP_ENABLE) {
 			LZMA2Options options = new LZMA2Options();
 			options.setPreset(7); // play with this number: 6 is default but 7 works better for mid sized archives ( > 8mb)
@@ -76,6 +81,13 @@ public class StreamConnection extends AbstractConnection {
 				&& writeThread.isRunning();
 	}
 
+	@Override
+	public int getQueueSize() {
+		synchronized (toWrite) {
+			return super.getQueueSize() + toWrite.size();
+		}
+	}
+
 	@Override
 	protected void shutdownImpl() {
 		Logger.info("Shutting down " + this);
@@ -204,6 +216,62 @@ public class StreamConnection extends AbstractConnection {
 		}
 	}
 
+	/**
+	 * InputStream that records the bytes it reads.
+	 */
+	private class MeteredInputStream extends FilterInputStream {
+		MeteredInputStream(InputStream in) {
+			super(in);
+		}
+
+		@Override
+		public int read() throws IOException {
+			int result = super.read();
+			if (result >= 0) {
+				recordBytesReceived(1);
+			}
+			return result;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int result = super.read(b, off, len);
+			if (result > 0) {
+				recordBytesReceived(result);
+			}
+			return result;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long result = super.skip(n);
+			recordBytesReceived(result);
+			return result;
+		}
+	}
+
+	/**
+	 * OutputStream that records the bytes it writes.
+	 */
+	private class MeteredOutputStream extends FilterOutputStream {
+		MeteredOutputStream(OutputStream out) {
+			super(out);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			recordBytesSent(1);
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			// FilterOutputStream would write the array one byte at a time
+			out.write(b, off, len);
+			recordBytesSent(len);
+		}
+	}
+
 	/**
 	 * Create and start a pair of connections that pipe input to each other.
 	 * 
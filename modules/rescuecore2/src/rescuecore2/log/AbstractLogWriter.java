@@ -27,9 +27,18 @@ public abstract class AbstractLogWriter implements LogWriter {
 
 	private final void writeRecordProtoBuf(LogRecord entry)
 			throws LogException {
+		writeLogProto(entry.toLogProto());
+	}
+
+	/**
+	 * Write an encoded record to the log.
+	 *
+	 * @param proto The record to write.
+	 * @throws LogException If there is a problem writing the record.
+	 */
+	protected void writeLogProto(LogProto proto) throws LogException {
 		ByteArrayOutputStream out = new ByteArrayOutputStream();
 		try {
-			LogProto proto = entry.toLogProto();
 //            byte[] data = JsonFormat.printer().print(proto).getBytes(); FOR JSON PRINT
 			byte[] data = proto.toByteString().toByteArray();
 			writeInt32(data.length, out);
@@ -1,35 +1,43 @@
 package rescuecore2.log;
 
-import static rescuecore2.misc.EncodingTools.readBytes;
 import static rescuecore2.misc.EncodingTools.readInt32;
-import static rescuecore2.misc.EncodingTools.reallySkip;
 
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.EOFException;
-import java.io.RandomAccessFile;
-import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 
-import java.util.Map;
-import java.util.HashMap;
 import java.util.Set;
-import java.util.HashSet;
-import java.util.NavigableMap;
-import java.util.TreeMap;
+
+import org.tukaani.xz.BasicArrayCache;
+import org.tukaani.xz.SeekableInputStream;
+import org.tukaani.xz.SeekableXZInputStream;
 
 import rescuecore2.worldmodel.Entity;
 import rescuecore2.worldmodel.EntityID;
 import rescuecore2.worldmodel.WorldModel;
 import rescuecore2.worldmodel.DefaultWorldModel;
-import rescuecore2.worldmodel.ChangeSet;
 import rescuecore2.config.Config;
+import rescuecore2.messages.protobuf.RCRSLogProto.LogProto;
+import rescuecore2.messages.protobuf.RCRSLogProto.LogProto.LogCase;
 import rescuecore2.registry.Registry;
 
 /**
-   A log reader that reads from a file.
+   A log reader that reads from a file. Records are decoded on demand using the index written by {@link IndexedLogWriter}. Logs without an index are converted once into an indexed copy stored next to the log.
  */
-public class FileLogReader extends StreamLogReader {
+public class FileLogReader extends AbstractLogReader {
+    private static final int KEY_FRAME_BUFFER_MAX_SIZE = 10;
+    private static final String INDEX_SUFFIX = ".index.xz";
+
+    private SeekableXZInputStream in;
+    private LogIndex index;
+    private Config config;
+    private KeyFrameBuffer keyFrames;
+
     public FileLogReader(String name, Registry registry) throws IOException, LogException {
         this(new File(name), registry);
     }
@@ -42,7 +50,181 @@ public class FileLogReader extends StreamLogReader {
        @throws LogException If there is a problem reading the log.
     */
     public FileLogReader(File file, Registry registry) throws IOException, LogException {
-        super(new FileInputStream(file),registry);
+        super(registry);
         Logger.info("Reading file log: " + file.getAbsolutePath());
+        if (!open(file)) {
+            File indexed = new File(file.getPath() + INDEX_SUFFIX);
+            if (!indexed.exists() || indexed.lastModified() < file.lastModified() || !open(indexed)) {
+                indexed = buildIndex(file, indexed);
+                if (!open(indexed)) {
+                    throw new LogException("Couldn't read log index: " + indexed.getAbsolutePath());
+                }
+            }
+        }
+        long configOffset = index.getConfigOffset();
+        if (configOffset >= 0) {
+            config = new ConfigRecord(readLogProto(configOffset)).getConfig();
+        }
+        WorldModel<? extends Entity> initialConditions = DefaultWorldModel.create();
+        long initialOffset = index.getInitialConditionsOffset();
+        if (initialOffset >= 0) {
+            initialConditions = new InitialConditionsRecord(readLogProto(initialOffset)).getWorldModel();
+        }
+        keyFrames = new KeyFrameBuffer(initialConditions, KEY_FRAME_BUFFER_MAX_SIZE);
+    }
+
+    @Override
+    public Config getConfig() throws LogException {
+        if (config == null) {
+            throw new LogException("No config record found");
+        }
+        return config;
+    }
+
+    @Override
+    public int getMaxTimestep() throws LogException {
+        return index.getMaxTimestep();
+    }
+
+    @Override
+    public synchronized WorldModel<? extends Entity> getWorldModel(int time) throws LogException {
+        checkTime(time);
+        return keyFrames.getWorldModel(time, index.getMaxTimestep(), this::getUpdates);
+    }
+
+    @Override
+    public Set<EntityID> getEntitiesWithUpdates(int time) throws LogException {
+        checkTime(time);
+        return index.getEntitiesWithUpdates(time);
+    }
+
+    @Override
+    public synchronized PerceptionRecord getPerception(int time, EntityID entity) throws LogException {
+        checkTime(time);
+        long offset = index.getPerceptionOffset(time, entity);
+        if (offset < 0) {
+            return null;
+        }
+        return new PerceptionRecord(readLogProto(offset));
+    }
+
+    @Override
+    public synchronized CommandsRecord getCommands(int time) throws LogException {
+        checkTime(time);
+        long offset = index.getCommandsOffset(time);
+        if (offset < 0) {
+            return null;
+        }
+        return new CommandsRecord(readLogProto(offset));
+    }
+
+    @Override
+    public synchronized UpdatesRecord getUpdates(int time) throws LogException {
+        checkTime(time);
+        long offset = index.getUpdatesOffset(time);
+        if (offset < 0) {
+            return null;
+        }
+        return new UpdatesRecord(readLogProto(offset));
+    }
+
+    private void checkTime(int time) {
+        if (time < 0 || time > index.getMaxTimestep()) {
+            throw new IllegalArgumentException("Time is out of range: " + time + " should be between 0 and " + index.getMaxTimestep());
+        }
+    }
+
+    private LogProto readLogProto(long offset) throws LogException {
+        Registry.setCurrentRegistry(registry);
+        try {
+            in.seek(offset);
+            int size = readInt32(in);
+            return LogProto.parseFrom(in.readNBytes(size));
+        }
+        catch (IOException e) {
+            throw new LogException(e);
+        }
+    }
+
+    /**
+       Try to open a file as an indexed log.
+       @return False if the file is not a complete XZ file with an index trailer.
+    */
+    private boolean open(File file) throws IOException {
+        SeekableInputStream raw = MappedSeekableInputStream.open(file);
+        try {
+            SeekableXZInputStream xz = new SeekableXZInputStream(raw, -1, BasicArrayCache.getInstance());
+            long length = xz.length();
+            if (length < LogIndex.TRAILER_SIZE) {
+                xz.close();
+                return false;
+            }
+            xz.seek(length - LogIndex.TRAILER_SIZE);
+            DataInputStream data = new DataInputStream(xz);
+            long indexOffset = data.readLong();
+            if (data.readInt() != LogIndex.MAGIC || indexOffset < 0 || indexOffset > length - LogIndex.TRAILER_SIZE) {
+                xz.close();
+                return false;
+            }
+            xz.seek(indexOffset);
+            index = LogIndex.read(new DataInputStream(new BufferedInputStream(xz)));
+            in = xz;
+            Logger.debug("Opened indexed log " + file.getAbsolutePath());
+            return true;
+        }
+        catch (IOException | LogException e) {
+            // Not an XZ file (e.g. a raw LZMA log), truncated, or an unknown index version
+            Logger.debug("No usable index in " + file.getAbsolutePath() + ": " + e);
+            raw.close();
+            return false;
+        }
+    }
+
+    /**
+       Read a log without an index once and write an indexed copy of it.
+       @return The indexed copy.
+    */
+    private File buildIndex(File file, File indexed) throws IOException, LogException {
+        Logger.info("Building index for " + file.getAbsolutePath());
+        File temp;
+        File dir = file.getAbsoluteFile().getParentFile();
+        boolean keep = dir != null && dir.canWrite();
+        if (keep) {
+            temp = File.createTempFile(file.getName(), ".tmp", dir);
+        }
+        else {
+            temp = File.createTempFile(file.getName(), INDEX_SUFFIX);
+            temp.deleteOnExit();
+        }
+        IndexedLogWriter writer = new IndexedLogWriter(temp);
+        try (InputStream raw = new BufferedInputStream(new FileInputStream(file))) {
+            InputStream log = StreamLogReader.openLogStream(raw);
+            LogCase type;
+            boolean startFound = false;
+            do {
+                int size = readInt32(log);
+                LogProto proto = LogProto.parseFrom(log.readNBytes(size));
+                type = proto.getLogCase();
+                if (!startFound) {
+                    if (type != LogCase.START) {
+                        throw new LogException("Log does not start with correct magic number");
+                    }
+                    startFound = true;
+                }
+                writer.writeLogProto(proto);
+            }
+            while (type != LogCase.END);
+        }
+        catch (IOException | LogException e) {
+            writer.close();
+            temp.delete();
+            throw e;
+        }
+        writer.close();
+        if (!keep) {
+            return temp;
+        }
+        Files.move(temp.toPath(), indexed.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return indexed;
     }
 }
@@ -0,0 +1,102 @@
+package rescuecore2.log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.tukaani.xz.BasicArrayCache;
+import org.tukaani.xz.LZMA2Options;
+import org.tukaani.xz.XZOutputStream;
+
+import rescuecore2.messages.protobuf.RCRSLogProto.LogProto;
+
+/**
+ * A class for writing the kernel log as a seekable XZ file. Each timestep is
+ * compressed in its own XZ block and a {@link LogIndex} is appended when the
+ * log is closed, so that {@link FileLogReader} can decode single records
+ * without reading the whole log. Encoder buffers are shared between blocks
+ * through an array cache so that starting a block stays cheap.
+ */
+public class IndexedLogWriter extends AbstractLogWriter {
+	private static final int BLOCK_DICT_SIZE = 1 << 22;
+
+	private final XZOutputStream out;
+	private final LogIndex index;
+	private long position;
+	private int blockTime;
+	private boolean closed;
+
+	/**
+	 * Create an indexed log writer and open it for writing.
+	 *
+	 * @param file The file to write to.
+	 * @throws IOException If the log file cannot be opened.
+	 */
+	public IndexedLogWriter(File file) throws IOException {
+		super(true);
+		out = new XZOutputStream(
+				new BufferedOutputStream(new FileOutputStream(file)),
+				blockOptions(), BasicArrayCache.getInstance());
+		index = new LogIndex();
+		position = 0;
+		blockTime = -1;
+		closed = false;
+	}
+
+	private static LZMA2Options blockOptions() throws IOException {
+		LZMA2Options options = new LZMA2Options(7);
+		// A block never spans more than one timestep so a large dictionary is wasted
+		options.setDictSize(BLOCK_DICT_SIZE);
+		return options;
+	}
+
+	@Override
+	protected void writeLogProto(LogProto proto) throws LogException {
+		int time = LogIndex.getTime(proto);
+		if (time != blockTime) {
+			try {
+				out.endBlock();
+			} catch (IOException e) {
+				throw new LogException(e);
+			}
+			blockTime = time;
+		}
+		index.add(proto, position);
+		super.writeLogProto(proto);
+	}
+
+	@Override
+	protected void write(byte[] bytes) throws LogException {
+		try {
+			out.write(bytes);
+			position += bytes.length;
+		} catch (IOException e) {
+			throw new LogException(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			out.endBlock();
+			DataOutputStream data = new DataOutputStream(out);
+			index.write(data);
+			data.writeLong(position);
+			data.writeInt(LogIndex.MAGIC);
+			data.flush();
+		} catch (IOException e) {
+			Logger.error("Error writing log index", e);
+		}
+		try {
+			out.close();
+		} catch (IOException e) {
+			Logger.error("Error closing log stream", e);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package rescuecore2.log;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+import rescuecore2.worldmodel.Entity;
+import rescuecore2.worldmodel.WorldModel;
+import rescuecore2.worldmodel.DefaultWorldModel;
+import rescuecore2.worldmodel.ChangeSet;
+
+/**
+   A bounded set of reconstructed world models. The world at any timestep is rebuilt from the nearest earlier key frame and the updates in between, so a reader only has to keep the initial conditions and a handful of recent states in memory.
+ */
+final class KeyFrameBuffer {
+    /**
+       Source of the updates records to apply between key frames.
+     */
+    interface UpdatesSource {
+        /**
+           Get the updates record for a timestep.
+           @param time The timestep.
+           @return The updates record, or null if there is none.
+           @throws LogException If there is a problem reading the log.
+         */
+        UpdatesRecord getUpdates(int time) throws LogException;
+    }
+
+    private final int maxSize;
+    private final NavigableMap<Integer, WorldModel<? extends Entity>> keyFrames;
+
+    /**
+       Create a KeyFrameBuffer.
+       @param initialConditions The world at timestep zero. This key frame is never discarded.
+       @param maxSize The number of key frames to aim for.
+     */
+    KeyFrameBuffer(WorldModel<? extends Entity> initialConditions, int maxSize) {
+        this.maxSize = maxSize;
+        keyFrames = new TreeMap<Integer, WorldModel<? extends Entity>>();
+        keyFrames.put(0, initialConditions);
+    }
+
+    /**
+       Get the world model at a timestep.
+       @param time The timestep.
+       @param maxTime The last timestep in the log.
+       @param source Where to read updates from.
+       @return The world model.
+       @throws LogException If there is a problem reading the log.
+     */
+    WorldModel<? extends Entity> getWorldModel(int time, int maxTime, UpdatesSource source) throws LogException {
+        Map.Entry<Integer, WorldModel<? extends Entity>> entry = keyFrames.floorEntry(time);
+        int startTime = entry.getKey();
+        if (startTime == time) {
+            return entry.getValue();
+        }
+        Logger.trace("Rebuilding world model at time " + time + " from key frame " + startTime);
+        WorldModel<? extends Entity> result = new DefaultWorldModel<Entity>(Entity.class);
+        for (Entity next : entry.getValue()) {
+            result.addEntity(next.copy());
+        }
+        for (int i = startTime + 1; i <= time; ++i) {
+            UpdatesRecord updates = source.getUpdates(i);
+            if (updates != null) {
+                ChangeSet changes = updates.getChangeSet();
+                result.merge(changes);
+            }
+        }
+        removeStaleKeyFrames(maxTime);
+        keyFrames.put(time, result);
+        return result;
+    }
+
+    private void removeStaleKeyFrames(int maxTime) {
+        if (keyFrames.size() < maxSize) {
+            return;
+        }
+        // Keep the last key frame in each window so they stay spread across the log
+        int window = Math.max(1, maxTime / maxSize);
+        for (int i = 0; i < maxTime; i += window) {
+            NavigableMap<Integer, WorldModel<? extends Entity>> next = keyFrames.subMap(i, false, i + window, true);
+            if (next.size() > 1) {
+                Map.Entry<Integer, WorldModel<? extends Entity>> last = next.lastEntry();
+                next.clear();
+                next.put(last.getKey(), last.getValue());
+            }
+        }
+    }
+}
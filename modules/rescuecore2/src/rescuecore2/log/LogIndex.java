@@ -0,0 +1,242 @@
+package rescuecore2.log;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.HashSet;
+
+import rescuecore2.worldmodel.EntityID;
+import rescuecore2.messages.protobuf.RCRSLogProto.LogProto;
+
+/**
+   Index of a seekable log. Records the uncompressed offset of each record by type and timestep. The index is written after the end of log record, followed by a trailer holding the offset of the index and {@link #MAGIC}.
+ */
+final class LogIndex {
+    /** Marker at the very end of an indexed log. */
+    static final int MAGIC = 0x52434958;
+    /** Size of the trailer that follows the index. */
+    static final int TRAILER_SIZE = 12;
+
+    private static final int VERSION = 1;
+    private static final long NONE = -1;
+
+    private long configOffset;
+    private long initialConditionsOffset;
+    private int maxTime;
+    private Map<Integer, Long> commands;
+    private Map<Integer, Long> updates;
+    private Map<Integer, Map<EntityID, Long>> perception;
+
+    /**
+       Create an empty index.
+     */
+    LogIndex() {
+        configOffset = NONE;
+        initialConditionsOffset = NONE;
+        commands = new HashMap<Integer, Long>();
+        updates = new HashMap<Integer, Long>();
+        perception = new HashMap<Integer, Map<EntityID, Long>>();
+    }
+
+    /**
+       Get the timestep a record belongs to.
+       @param log The record.
+       @return The timestep of the record, or -1 for records that do not belong to a timestep.
+     */
+    static int getTime(LogProto log) {
+        switch (log.getLogCase()) {
+        case COMMAND:
+            return log.getCommand().getTime();
+        case PERCEPTION:
+            return log.getPerception().getTime();
+        case UPDATE:
+            return log.getUpdate().getTime();
+        default:
+            return -1;
+        }
+    }
+
+    /**
+       Add a record to the index.
+       @param log The record.
+       @param offset The offset of the record's length prefix.
+     */
+    void add(LogProto log, long offset) {
+        switch (log.getLogCase()) {
+        case CONFIG:
+            configOffset = offset;
+            break;
+        case INITIALCONDITION:
+            initialConditionsOffset = offset;
+            break;
+        case COMMAND:
+            commands.put(log.getCommand().getTime(), offset);
+            maxTime = Math.max(log.getCommand().getTime(), maxTime);
+            break;
+        case UPDATE:
+            updates.put(log.getUpdate().getTime(), offset);
+            maxTime = Math.max(log.getUpdate().getTime(), maxTime);
+            break;
+        case PERCEPTION:
+            int time = log.getPerception().getTime();
+            Map<EntityID, Long> agentData = perception.get(time);
+            if (agentData == null) {
+                agentData = new HashMap<EntityID, Long>();
+                perception.put(time, agentData);
+            }
+            agentData.put(EntityID.valueOf(log.getPerception().getEntityID()), offset);
+            maxTime = Math.max(time, maxTime);
+            break;
+        default:
+            break;
+        }
+    }
+
+    /**
+       Get the last timestep in the index.
+       @return The last timestep.
+     */
+    int getMaxTimestep() {
+        return maxTime;
+    }
+
+    /**
+       Get the offset of the config record.
+       @return The offset, or -1 if there is no config record.
+     */
+    long getConfigOffset() {
+        return configOffset;
+    }
+
+    /**
+       Get the offset of the initial conditions record.
+       @return The offset, or -1 if there is no initial conditions record.
+     */
+    long getInitialConditionsOffset() {
+        return initialConditionsOffset;
+    }
+
+    /**
+       Get the offset of the commands record for a timestep.
+       @param time The timestep.
+       @return The offset, or -1 if there is no such record.
+     */
+    long getCommandsOffset(int time) {
+        Long result = commands.get(time);
+        return result == null ? NONE : result;
+    }
+
+    /**
+       Get the offset of the updates record for a timestep.
+       @param time The timestep.
+       @return The offset, or -1 if there is no such record.
+     */
+    long getUpdatesOffset(int time) {
+        Long result = updates.get(time);
+        return result == null ? NONE : result;
+    }
+
+    /**
+       Get the offset of a perception record.
+       @param time The timestep.
+       @param entity The agent.
+       @return The offset, or -1 if there is no such record.
+     */
+    long getPerceptionOffset(int time, EntityID entity) {
+        Map<EntityID, Long> agentData = perception.get(time);
+        if (agentData == null) {
+            return NONE;
+        }
+        Long result = agentData.get(entity);
+        return result == null ? NONE : result;
+    }
+
+    /**
+       Get the agents that have perception records in a timestep.
+       @param time The timestep.
+       @return A new set of agent IDs.
+     */
+    Set<EntityID> getEntitiesWithUpdates(int time) {
+        Set<EntityID> result = new HashSet<EntityID>();
+        Map<EntityID, Long> agentData = perception.get(time);
+        if (agentData != null) {
+            result.addAll(agentData.keySet());
+        }
+        return result;
+    }
+
+    /**
+       Write the index.
+       @param out The stream to write to.
+       @throws IOException If there is a problem writing the index.
+     */
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(VERSION);
+        out.writeLong(configOffset);
+        out.writeLong(initialConditionsOffset);
+        out.writeInt(maxTime);
+        writeOffsets(commands, out);
+        writeOffsets(updates, out);
+        out.writeInt(perception.size());
+        for (Map.Entry<Integer, Map<EntityID, Long>> next : perception.entrySet()) {
+            out.writeInt(next.getKey());
+            out.writeInt(next.getValue().size());
+            for (Map.Entry<EntityID, Long> agent : next.getValue().entrySet()) {
+                out.writeInt(agent.getKey().getValue());
+                out.writeLong(agent.getValue());
+            }
+        }
+    }
+
+    /**
+       Read an index.
+       @param in The stream to read from.
+       @return The index.
+       @throws IOException If there is a problem reading the stream.
+       @throws LogException If the index is of an unknown version.
+     */
+    static LogIndex read(DataInputStream in) throws IOException, LogException {
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new LogException("Unsupported log index version: " + version);
+        }
+        LogIndex result = new LogIndex();
+        result.configOffset = in.readLong();
+        result.initialConditionsOffset = in.readLong();
+        result.maxTime = in.readInt();
+        readOffsets(result.commands, in);
+        readOffsets(result.updates, in);
+        int times = in.readInt();
+        for (int i = 0; i < times; ++i) {
+            int time = in.readInt();
+            int count = in.readInt();
+            Map<EntityID, Long> agentData = new HashMap<EntityID, Long>();
+            for (int j = 0; j < count; ++j) {
+                EntityID id = EntityID.valueOf(in.readInt());
+                agentData.put(id, in.readLong());
+            }
+            result.perception.put(time, agentData);
+        }
+        return result;
+    }
+
+    private static void writeOffsets(Map<Integer, Long> offsets, DataOutputStream out) throws IOException {
+        out.writeInt(offsets.size());
+        for (Map.Entry<Integer, Long> next : offsets.entrySet()) {
+            out.writeInt(next.getKey());
+            out.writeLong(next.getValue());
+        }
+    }
+
+    private static void readOffsets(Map<Integer, Long> offsets, DataInputStream in) throws IOException {
+        int count = in.readInt();
+        for (int i = 0; i < count; ++i) {
+            int time = in.readInt();
+            offsets.put(time, in.readLong());
+        }
+    }
+}
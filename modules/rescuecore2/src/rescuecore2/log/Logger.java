@@ -5,20 +5,31 @@ import org.apache.log4j.NDC;
 
 import java.util.Deque;
 import java.util.ArrayDeque;
+import java.util.Stack;
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
 /**
    System-wide logging facilities.
+   <p>
+   Messages that are expensive to build should be passed as a format and arguments, or as a supplier, so that nothing is formatted unless the level is enabled. Each <code>{}</code> in a format is replaced by the next argument:
+   <pre>
+   Logger.debug("Commands at time {}: {}", time, commands);
+   Logger.debug(() -&gt; agent + " can see " + describe(visible));
+   </pre>
 */
 public final class Logger {
-    private static final InheritableThreadLocal<Deque<org.apache.log4j.Logger>> LOG = new InheritableThreadLocal<Deque<org.apache.log4j.Logger>>() {
+    private static final String PLACEHOLDER = "{}";
+
+    private static final InheritableThreadLocal<Context> LOG = new InheritableThreadLocal<Context>() {
         @Override
-        protected Deque<org.apache.log4j.Logger> initialValue() {
-            return new ArrayDeque<org.apache.log4j.Logger>();
+        protected Context initialValue() {
+            return new Context(new ArrayDeque<org.apache.log4j.Logger>());
         }
 
         @Override
-        protected Deque<org.apache.log4j.Logger> childValue(Deque<org.apache.log4j.Logger> parent) {
-            return new ArrayDeque<org.apache.log4j.Logger>(parent);
+        protected Context childValue(Context parent) {
+            return new Context(new ArrayDeque<org.apache.log4j.Logger>(parent.stack));
         }
     };
 
@@ -30,9 +41,10 @@ public final class Logger {
        @param context The new log context.
     */
     public static void setLogContext(String context) {
-        Deque<org.apache.log4j.Logger> queue = LOG.get();
-        queue.clear();
-        queue.addLast(LogManager.getLogger(context));
+        Context c = LOG.get();
+        c.stack.clear();
+        c.stack.addLast(LogManager.getLogger(context));
+        c.update();
     }
 
     /**
@@ -40,24 +52,22 @@ public final class Logger {
        @param context The new log context.
     */
     public static void pushLogContext(String context) {
-        Deque<org.apache.log4j.Logger> queue = LOG.get();
-        queue.addLast(LogManager.getLogger(context));
+        Context c = LOG.get();
+        c.stack.addLast(LogManager.getLogger(context));
+        c.update();
     }
 
     /**
        Pop a log context from the stack.
     */
     public static void popLogContext() {
-        Deque<org.apache.log4j.Logger> queue = LOG.get();
-        queue.removeLast();
+        Context c = LOG.get();
+        c.stack.removeLast();
+        c.update();
     }
 
     private static org.apache.log4j.Logger get() {
-        Deque<org.apache.log4j.Logger> queue = LOG.get();
-        if (queue.isEmpty()) {
-            return LogManager.getRootLogger();
-        }
-        return queue.getLast();
+        return LOG.get().current;
     }
 
     /**
@@ -75,6 +85,67 @@ public final class Logger {
         NDC.pop();
     }
 
+    /**
+       Wrap a task so that it runs with the log contexts and nested diagnostic context of the calling thread. Threads in a shared pool otherwise keep the contexts of whichever thread created them.
+       @param task The task to wrap.
+       @param <T> The result type of the task.
+       @return A task that calls the original task with the caller's contexts and then restores those of the thread it ran on.
+    */
+    public static <T> Callable<T> withCurrentContext(final Callable<T> task) {
+        final Deque<org.apache.log4j.Logger> context = new ArrayDeque<org.apache.log4j.Logger>(LOG.get().stack);
+        final Stack<?> ndc = NDC.cloneStack();
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                Context oldContext = LOG.get();
+                Stack<?> oldNDC = NDC.cloneStack();
+                LOG.set(new Context(new ArrayDeque<org.apache.log4j.Logger>(context)));
+                setNDC(ndc == null ? null : (Stack<?>)ndc.clone());
+                try {
+                    return task.call();
+                }
+                finally {
+                    LOG.set(oldContext);
+                    setNDC(oldNDC);
+                }
+            }
+        };
+    }
+
+    private static void setNDC(Stack<?> stack) {
+        // NDC.cloneStack gives null for a thread with no context
+        if (stack == null) {
+            NDC.remove();
+        }
+        else {
+            NDC.inherit(stack);
+        }
+    }
+
+    /**
+       Find out if trace level messages will be logged.
+       @return True if trace messages are logged in the current context.
+    */
+    public static boolean isTraceEnabled() {
+        return get().isTraceEnabled();
+    }
+
+    /**
+       Find out if debug level messages will be logged.
+       @return True if debug messages are logged in the current context.
+    */
+    public static boolean isDebugEnabled() {
+        return get().isDebugEnabled();
+    }
+
+    /**
+       Find out if info level messages will be logged.
+       @return True if info messages are logged in the current context.
+    */
+    public static boolean isInfoEnabled() {
+        return get().isInfoEnabled();
+    }
+
     /**
        Log a trace level message.
        @param msg The message to log.
@@ -83,6 +154,54 @@ public final class Logger {
         get().trace(msg);
     }
 
+    /**
+       Log a trace level message built from a format and one argument.
+       @param format The message format.
+       @param arg The argument.
+    */
+    public static void trace(String format, Object arg) {
+        org.apache.log4j.Logger log = get();
+        if (log.isTraceEnabled()) {
+            log.trace(format(format, arg));
+        }
+    }
+
+    /**
+       Log a trace level message built from a format and two arguments.
+       @param format The message format.
+       @param arg1 The first argument.
+       @param arg2 The second argument.
+    */
+    public static void trace(String format, Object arg1, Object arg2) {
+        org.apache.log4j.Logger log = get();
+        if (log.isTraceEnabled()) {
+            log.trace(format(format, arg1, arg2));
+        }
+    }
+
+    /**
+       Log a trace level message built from a format and some arguments.
+       @param format The message format.
+       @param args The arguments.
+    */
+    public static void trace(String format, Object... args) {
+        org.apache.log4j.Logger log = get();
+        if (log.isTraceEnabled()) {
+            log.trace(format(format, args));
+        }
+    }
+
+    /**
+       Log a trace level message that is only built if it will be logged.
+       @param msg A supplier of the message.
+    */
+    public static void trace(Supplier<String> msg) {
+        org.apache.log4j.Logger log = get();
+        if (log.isTraceEnabled()) {
+            log.trace(msg.get());
+        }
+    }
+
     /**
        Log a trace level message along with a throwable.
        @param msg The message to log.
@@ -109,6 +228,54 @@ public final class Logger {
         get().debug(msg, t);
     }
 
+    /**
+       Log a debug level message built from a format and one argument.
+       @param format The message format.
+       @param arg The argument.
+    */
+    public static void debug(String format, Object arg) {
+        org.apache.log4j.Logger log = get();
+        if (log.isDebugEnabled()) {
+            log.debug(format(format, arg));
+        }
+    }
+
+    /**
+       Log a debug level message built from a format and two arguments.
+       @param format The message format.
+       @param arg1 The first argument.
+       @param arg2 The second argument.
+    */
+    public static void debug(String format, Object arg1, Object arg2) {
+        org.apache.log4j.Logger log = get();
+        if (log.isDebugEnabled()) {
+            log.debug(format(format, arg1, arg2));
+        }
+    }
+
+    /**
+       Log a debug level message built from a format and some arguments.
+       @param format The message format.
+       @param args The arguments.
+    */
+    public static void debug(String format, Object... args) {
+        org.apache.log4j.Logger log = get();
+        if (log.isDebugEnabled()) {
+            log.debug(format(format, args));
+        }
+    }
+
+    /**
+       Log a debug level message that is only built if it will be logged.
+       @param msg A supplier of the message.
+    */
+    public static void debug(Supplier<String> msg) {
+        org.apache.log4j.Logger log = get();
+        if (log.isDebugEnabled()) {
+            log.debug(msg.get());
+        }
+    }
+
     /**
        Log an info level message.
        @param msg The message to log.
@@ -126,6 +293,54 @@ public final class Logger {
         get().info(msg, t);
     }
 
+    /**
+       Log a info level message built from a format and one argument.
+       @param format The message format.
+       @param arg The argument.
+    */
+    public static void info(String format, Object arg) {
+        org.apache.log4j.Logger log = get();
+        if (log.isInfoEnabled()) {
+            log.info(format(format, arg));
+        }
+    }
+
+    /**
+       Log a info level message built from a format and two arguments.
+       @param format The message format.
+       @param arg1 The first argument.
+       @param arg2 The second argument.
+    */
+    public static void info(String format, Object arg1, Object arg2) {
+        org.apache.log4j.Logger log = get();
+        if (log.isInfoEnabled()) {
+            log.info(format(format, arg1, arg2));
+        }
+    }
+
+    /**
+       Log a info level message built from a format and some arguments.
+       @param format The message format.
+       @param args The arguments.
+    */
+    public static void info(String format, Object... args) {
+        org.apache.log4j.Logger log = get();
+        if (log.isInfoEnabled()) {
+            log.info(format(format, args));
+        }
+    }
+
+    /**
+       Log a info level message that is only built if it will be logged.
+       @param msg A supplier of the message.
+    */
+    public static void info(Supplier<String> msg) {
+        org.apache.log4j.Logger log = get();
+        if (log.isInfoEnabled()) {
+            log.info(msg.get());
+        }
+    }
+
     /**
        Log a warn level message.
        @param msg The message to log.
@@ -176,4 +391,46 @@ public final class Logger {
     public static void fatal(String msg, Throwable t) {
         get().fatal(msg, t);
     }
+
+    /**
+       Replace each placeholder in a format with the next argument. Placeholders with no matching argument are left alone.
+       @param format The format.
+       @param args The arguments.
+       @return The formatted message.
+    */
+    static String format(String format, Object... args) {
+        if (format == null) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder(format.length() + args.length * 16);
+        int start = 0;
+        for (Object next : args) {
+            int index = format.indexOf(PLACEHOLDER, start);
+            if (index < 0) {
+                break;
+            }
+            result.append(format, start, index);
+            result.append(String.valueOf(next));
+            start = index + PLACEHOLDER.length();
+        }
+        result.append(format, start, format.length());
+        return result.toString();
+    }
+
+    /**
+       The log context stack of a thread. The logger on top of the stack is kept to hand so that each call only needs one thread local lookup.
+    */
+    private static final class Context {
+        private final Deque<org.apache.log4j.Logger> stack;
+        private org.apache.log4j.Logger current;
+
+        Context(Deque<org.apache.log4j.Logger> stack) {
+            this.stack = stack;
+            update();
+        }
+
+        void update() {
+            current = stack.isEmpty() ? LogManager.getRootLogger() : stack.getLast();
+        }
+    }
 }
@@ -0,0 +1,77 @@
+package rescuecore2.log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.tukaani.xz.SeekableFileInputStream;
+import org.tukaani.xz.SeekableInputStream;
+
+/**
+   A SeekableInputStream over a memory-mapped file.
+ */
+final class MappedSeekableInputStream extends SeekableInputStream {
+    private final MappedByteBuffer buffer;
+
+    private MappedSeekableInputStream(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+       Open a file for seekable reading. Files that are too large to map in one piece are read through a RandomAccessFile instead.
+       @param file The file to open.
+       @return A new SeekableInputStream.
+       @throws IOException If the file cannot be opened.
+     */
+    static SeekableInputStream open(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            if (channel.size() <= Integer.MAX_VALUE) {
+                // The mapping stays valid after the channel is closed
+                return new MappedSeekableInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            }
+        }
+        return new SeekableFileInputStream(file);
+    }
+
+    @Override
+    public int read() {
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int count = Math.min(len, buffer.remaining());
+        buffer.get(b, off, count);
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public long position() {
+        return buffer.position();
+    }
+
+    @Override
+    public void seek(long pos) throws IOException {
+        if (pos < 0) {
+            throw new IOException("Negative seek position: " + pos);
+        }
+        buffer.position((int)Math.min(pos, buffer.capacity()));
+    }
+}
@@ -79,7 +79,7 @@ public class PerceptionRecord implements LogRecord {
 
 	@Override
 	public void read(InputStream in) throws IOException, LogException {
-		entityID = new EntityID(readInt32(in));
+		entityID = EntityID.valueOf(readInt32(in));
 		time = readInt32(in);
 		visible = new ChangeSet();
 		visible.read(in);
@@ -134,7 +134,7 @@ public class PerceptionRecord implements LogRecord {
 	public void fromLogProto(LogProto log) {
 		PerceptionLogProto perception = log.getPerception();
 		time=perception.getTime();
-		entityID=new EntityID(perception.getEntityID());
+		entityID=EntityID.valueOf(perception.getEntityID());
 		visible=new ChangeSet();
 		visible.fromChangeSetProto(perception.getVisible());
 		ArrayList<Command> comms = new ArrayList<>();
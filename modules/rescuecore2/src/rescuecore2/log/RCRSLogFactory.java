@@ -24,7 +24,7 @@ public class RCRSLogFactory {
 		if (filename.endsWith(".7z"))
 			return new ZipLogWriter(file);
 		if (filename.endsWith(".xz"))
-			return new FileLogWriter(file, true);
+			return new IndexedLogWriter(file);
 		if (filename.endsWith(".log"))
 			return new FileLogWriter(file, false);
 		throw new LogException("Undefined Format");
@@ -12,6 +12,7 @@ import rescuecore2.messages.protobuf.RCRSLogProto.LogProto;
 import rescuecore2.messages.protobuf.RCRSLogProto.LogProto.LogCase;
 import rescuecore2.registry.Registry;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.Set;
@@ -20,9 +21,11 @@ import java.util.zip.GZIPOutputStream;
 
 import org.tukaani.xz.LZMAInputStream;
 import org.tukaani.xz.XZInputStream;
+import org.tukaani.xz.BasicArrayCache;
 
 import java.util.HashSet;
 
+import java.io.BufferedInputStream;
 import java.io.InputStream;
 import java.io.IOException;
 import java.io.ByteArrayInputStream;
@@ -31,10 +34,14 @@ import java.io.ByteArrayInputStream;
    An class for reading kernel logs from a stream.
  */
 public class StreamLogReader extends AbstractLogReader {
+    private static final int KEY_FRAME_BUFFER_MAX_SIZE = 10;
+    private static final byte[] XZ_HEADER_MAGIC = {(byte)0xFD, '7', 'z', 'X', 'Z', 0};
+
     private int maxTime;
     private Map<Integer, CommandsRecord> commands;
     private Map<Integer, UpdatesRecord> updates;
-    private Map<Integer, WorldModel<? extends Entity>> worldModels;
+    private WorldModel<? extends Entity> initialConditions;
+    private KeyFrameBuffer keyFrames;
     private Map<Integer, Map<EntityID, PerceptionRecord>> perception;
     private Config config;
 
@@ -48,7 +55,7 @@ public class StreamLogReader extends AbstractLogReader {
         super(registry);
         commands = new HashMap<Integer, CommandsRecord>();
         updates = new HashMap<Integer, UpdatesRecord>();
-        worldModels = new HashMap<Integer, WorldModel<? extends Entity>>();
+        initialConditions = DefaultWorldModel.create();
         perception = new HashMap<Integer, Map<EntityID, PerceptionRecord>>();
         try {
             readLog(in);
@@ -74,11 +81,10 @@ public class StreamLogReader extends AbstractLogReader {
     @Override
     public WorldModel<? extends Entity> getWorldModel(int time) throws LogException {
         checkTime(time);
-        WorldModel<? extends Entity> result = worldModels.get(time);
-        if (result == null) {
-            result = DefaultWorldModel.create();
+        if (keyFrames == null) {
+            keyFrames = new KeyFrameBuffer(initialConditions, KEY_FRAME_BUFFER_MAX_SIZE);
         }
-        return result;
+        return keyFrames.getWorldModel(time, maxTime, this::getUpdates);
     }
 
     @Override
@@ -123,10 +129,27 @@ public class StreamLogReader extends AbstractLogReader {
 
     private void readLog(InputStream in) throws IOException, LogException {
         Registry.setCurrentRegistry(registry);
-		InputStream gin = new LZMAInputStream(in);
+        InputStream gin = openLogStream(in);
         readLogProto(gin);
 //        readLogV1(in);
     }
+
+    /**
+       Wrap a compressed log stream in the matching decompressor. Logs written by {@link IndexedLogWriter} are XZ files, older logs are raw LZMA streams.
+       @param in The compressed stream.
+       @return A stream of uncompressed log records.
+       @throws IOException If there is a problem reading the stream.
+     */
+    static InputStream openLogStream(InputStream in) throws IOException {
+        InputStream buffered = in.markSupported() ? in : new BufferedInputStream(in);
+        buffered.mark(XZ_HEADER_MAGIC.length);
+        byte[] header = buffered.readNBytes(XZ_HEADER_MAGIC.length);
+        buffered.reset();
+        if (Arrays.equals(header, XZ_HEADER_MAGIC)) {
+            return new XZInputStream(buffered, -1, BasicArrayCache.getInstance());
+        }
+        return new LZMAInputStream(buffered);
+    }
     
     private void readLogProto(InputStream in) throws IOException, LogException {
         LogCase type;
@@ -225,11 +248,11 @@ public class StreamLogReader extends AbstractLogReader {
 
     private void readInitialConditions(InputStream in) throws IOException, LogException {
         InitialConditionsRecord record = new InitialConditionsRecord(in);
-        worldModels.put(0, record.getWorldModel());
+        initialConditions = record.getWorldModel();
     }
 	private void readInitialConditions(LogProto log) throws LogException {
 		InitialConditionsRecord record =new InitialConditionsRecord(log);
-		worldModels.put(0, record.getWorldModel());
+		initialConditions = record.getWorldModel();
 	}
 
     private void readPerception(InputStream in) throws IOException, LogException {
@@ -270,36 +293,12 @@ public class StreamLogReader extends AbstractLogReader {
         UpdatesRecord record = new UpdatesRecord(in);
         int time = record.getTime();
         updates.put(time, record);
-        // Make the world model for this timestep
-        WorldModel<? extends Entity> newWorld = new DefaultWorldModel<Entity>(Entity.class);
-        WorldModel<? extends Entity> oldWorld = getWorldModel(time - 1);
-        if (oldWorld != null) {
-            Set<Entity> copy = new HashSet<Entity>();
-            for (Entity next : oldWorld) {
-                copy.add(next.copy());
-            }
-            newWorld.merge(copy);
-        }
-        newWorld.merge(record.getChangeSet());
-        worldModels.put(time, newWorld);
         maxTime = Math.max(time, maxTime);
     }
     private void readUpdates(LogProto log) throws LogException {
         UpdatesRecord record = new UpdatesRecord(log);
         int time = record.getTime();
         updates.put(time, record);
-        // Make the world model for this timestep
-        WorldModel<? extends Entity> newWorld = new DefaultWorldModel<Entity>(Entity.class);
-        WorldModel<? extends Entity> oldWorld = getWorldModel(time - 1);
-        if (oldWorld != null) {
-            Set<Entity> copy = new HashSet<Entity>();
-            for (Entity next : oldWorld) {
-                copy.add(next.copy());
-            }
-            newWorld.merge(copy);
-        }
-        newWorld.merge(record.getChangeSet());
-        worldModels.put(time, newWorld);
         maxTime = Math.max(time, maxTime);
     }
 
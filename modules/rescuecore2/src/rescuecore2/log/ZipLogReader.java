@@ -52,7 +52,7 @@ public class ZipLogReader extends AbstractLogReader {
 					if (!entitiesWithUpdates.containsKey(time))
 						entitiesWithUpdates.put(time, new HashSet<>());
 					int id = Integer.parseInt(splt[splt.length - 1]);
-					entitiesWithUpdates.get(time).add(new EntityID(id));
+					entitiesWithUpdates.get(time).add(EntityID.valueOf(id));
 				}
 
 			}
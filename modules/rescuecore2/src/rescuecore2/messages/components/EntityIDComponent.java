@@ -64,7 +64,7 @@ public class EntityIDComponent extends AbstractMessageComponent {
 
   @Override
   public void read(InputStream in) throws IOException {
-    value = new EntityID(readInt32(in));
+    value = EntityID.valueOf(readInt32(in));
   }
 
   @Override
@@ -74,7 +74,7 @@ public class EntityIDComponent extends AbstractMessageComponent {
 
   @Override
   public void fromMessageComponentProto(MessageComponentProto proto) {
-    value = new EntityID(proto.getEntityID());
+    value = EntityID.valueOf(proto.getEntityID());
   }
 
   @Override
@@ -69,7 +69,7 @@ public class EntityIDListComponent extends AbstractMessageComponent {
         ids.clear();
         int count = readInt32(in);
         for (int i = 0; i < count; ++i) {
-            ids.add(new EntityID(readInt32(in)));
+            ids.add(EntityID.valueOf(readInt32(in)));
         }
     }
 
@@ -81,7 +81,7 @@ public class EntityIDListComponent extends AbstractMessageComponent {
 	public void fromMessageComponentProto(MessageComponentProto proto) {
 		ids.clear();
 		for (Integer val : proto.getEntityIDList().getValuesList()) {
-			ids.add(new EntityID(val));			
+			ids.add(EntityID.valueOf(val));			
         }
 	}
 
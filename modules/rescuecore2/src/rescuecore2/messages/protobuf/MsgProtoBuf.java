@@ -21,7 +21,7 @@ public class MsgProtoBuf {
 
   public static Entity entityProto2Entity(EntityProto entityProto) {
     int urn = entityProto.getUrn();
-    Entity entity = Registry.getCurrentRegistry().createEntity(urn, new EntityID(entityProto.getEntityID()));
+    Entity entity = Registry.getCurrentRegistry().createEntity(urn, EntityID.valueOf(entityProto.getEntityID()));
     if (entity != null)
       entity.fromEntityProto(entityProto);
     return entity;
@@ -0,0 +1,44 @@
+package rescuecore2.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+   A metric that counts things that happen, for example bytes sent on a connection. Counters are safe to update from any thread.
+ */
+public class Counter extends Metric {
+    private final AtomicLong count;
+
+    /**
+       Construct a counter with a value of zero.
+       @param name The name of the counter.
+     */
+    public Counter(String name) {
+        super(name);
+        count = new AtomicLong();
+    }
+
+    /**
+       Add one to this counter.
+     */
+    public void increment() {
+        count.incrementAndGet();
+    }
+
+    /**
+       Add to this counter.
+       @param amount The amount to add.
+     */
+    public void add(long amount) {
+        count.addAndGet(amount);
+    }
+
+    @Override
+    public String getType() {
+        return "counter";
+    }
+
+    @Override
+    public long getValue() {
+        return count.get();
+    }
+}
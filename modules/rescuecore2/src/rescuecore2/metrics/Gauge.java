@@ -0,0 +1,35 @@
+package rescuecore2.metrics;
+
+/**
+   A metric that records the latest value of some quantity, for example the length of a queue.
+ */
+public class Gauge extends Metric {
+    private volatile long value;
+
+    /**
+       Construct a gauge with a value of zero.
+       @param name The name of the gauge.
+     */
+    public Gauge(String name) {
+        super(name);
+        value = 0;
+    }
+
+    /**
+       Set the value of this gauge.
+       @param newValue The new value.
+     */
+    public void set(long newValue) {
+        value = newValue;
+    }
+
+    @Override
+    public String getType() {
+        return "gauge";
+    }
+
+    @Override
+    public long getValue() {
+        return value;
+    }
+}
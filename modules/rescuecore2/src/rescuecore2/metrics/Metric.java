@@ -0,0 +1,41 @@
+package rescuecore2.metrics;
+
+/**
+   Abstract base class for values kept in a {@link MetricsRegistry}.
+ */
+public abstract class Metric {
+    private final String name;
+
+    /**
+       Construct a metric.
+       @param name The name of the metric.
+     */
+    protected Metric(String name) {
+        this.name = name;
+    }
+
+    /**
+       Get the name of this metric.
+       @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+       Get a short description of the type of this metric, for example "timer" or "gauge".
+       @return The type of this metric.
+     */
+    public abstract String getType();
+
+    /**
+       Get the current value of this metric. For timers this is the most recent measurement in nanoseconds.
+       @return The current value.
+     */
+    public abstract long getValue();
+
+    @Override
+    public String toString() {
+        return name + " (" + getType() + "): " + getValue();
+    }
+}
@@ -0,0 +1,33 @@
+package rescuecore2.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+   Flight recorder event for the value of a counter or gauge at the end of a timestep.
+ */
+@Name("rescuecore2.Metric")
+@Label("Simulation Metric")
+@Category("RoboCup Rescue")
+@Description("Value of a counter or gauge at the end of a timestep")
+@StackTrace(false)
+class MetricEvent extends Event {
+    @Label("Registry")
+    String registry;
+
+    @Label("Name")
+    String name;
+
+    @Label("Type")
+    String type;
+
+    @Label("Timestep")
+    int timestep;
+
+    @Label("Value")
+    long value;
+}
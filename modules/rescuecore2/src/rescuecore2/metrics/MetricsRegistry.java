@@ -0,0 +1,251 @@
+package rescuecore2.metrics;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+   A named set of timers, counters and gauges. Like {@link rescuecore2.registry.Registry} each thread has a current MetricsRegistry, inherited by threads it creates, so that several kernels running in one JVM keep their metrics apart.
+   <p>
+   Metrics are created on first use and live until they are removed. At the end of each timestep the owner of the registry calls {@link #timestepCompleted(int)}, which samples garbage collector activity and reports counters and gauges to Java Flight Recorder.
+ */
+public final class MetricsRegistry {
+    /** The registry used by threads that have not been given one. */
+    public static final MetricsRegistry SYSTEM_REGISTRY = new MetricsRegistry("System");
+
+    /** Name of the gauge that records time spent in garbage collection during the last timestep. */
+    public static final String GC_TIME = "jvm.gc.time-ms";
+    /** Name of the gauge that records the number of garbage collections during the last timestep. */
+    public static final String GC_COUNT = "jvm.gc.count";
+    /** Name of the gauge that records the heap in use at the end of the last timestep. */
+    public static final String HEAP_USED = "jvm.heap.used-bytes";
+
+    private static final ThreadLocal<MetricsRegistry> CURRENT_REGISTRY = new InheritableThreadLocal<MetricsRegistry>() {
+        @Override
+        public MetricsRegistry initialValue() {
+            return SYSTEM_REGISTRY;
+        }
+    };
+
+    private static final Comparator<Metric> BY_NAME = new Comparator<Metric>() {
+        @Override
+        public int compare(Metric m1, Metric m2) {
+            return m1.getName().compareTo(m2.getName());
+        }
+    };
+
+    private final String name;
+    private final ConcurrentMap<String, Metric> metrics;
+    private volatile int time;
+    private long lastGCTime;
+    private long lastGCCount;
+
+    /**
+       Create an empty MetricsRegistry.
+       @param name The name of the registry.
+     */
+    public MetricsRegistry(String name) {
+        this.name = name;
+        metrics = new ConcurrentHashMap<String, Metric>();
+        time = 0;
+        lastGCTime = gcTime();
+        lastGCCount = gcCount();
+    }
+
+    /**
+       Get the current MetricsRegistry for this thread.
+       @return The current MetricsRegistry.
+     */
+    public static MetricsRegistry getCurrentRegistry() {
+        return CURRENT_REGISTRY.get();
+    }
+
+    /**
+       Set the current MetricsRegistry for this thread.
+       @param r The new current MetricsRegistry.
+     */
+    public static void setCurrentRegistry(MetricsRegistry r) {
+        CURRENT_REGISTRY.set(r);
+    }
+
+    /**
+       Wrap a task so that it runs with the current MetricsRegistry of the calling thread.
+       @param task The task to wrap.
+       @param <T> The result type of the task.
+       @return A task that calls the original task with the caller's MetricsRegistry and then restores the MetricsRegistry of the thread it ran on.
+     */
+    public static <T> Callable<T> withCurrentRegistry(final Callable<T> task) {
+        final MetricsRegistry registry = getCurrentRegistry();
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                MetricsRegistry old = getCurrentRegistry();
+                setCurrentRegistry(registry);
+                try {
+                    return task.call();
+                }
+                finally {
+                    setCurrentRegistry(old);
+                }
+            }
+        };
+    }
+
+    /**
+       Get the name of this registry.
+       @return The name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+       Get a timer, creating it if necessary.
+       @param timerName The name of the timer.
+       @return The timer.
+       @throws IllegalArgumentException If there is already a metric with this name that is not a timer.
+     */
+    public PhaseTimer getTimer(String timerName) {
+        Metric m = metrics.get(timerName);
+        if (m == null) {
+            m = metrics.computeIfAbsent(timerName, n -> new PhaseTimer(n, this));
+        }
+        return cast(m, PhaseTimer.class);
+    }
+
+    /**
+       Get a counter, creating it if necessary.
+       @param counterName The name of the counter.
+       @return The counter.
+       @throws IllegalArgumentException If there is already a metric with this name that is not a counter.
+     */
+    public Counter getCounter(String counterName) {
+        Metric m = metrics.get(counterName);
+        if (m == null) {
+            m = metrics.computeIfAbsent(counterName, Counter::new);
+        }
+        return cast(m, Counter.class);
+    }
+
+    /**
+       Get a gauge, creating it if necessary.
+       @param gaugeName The name of the gauge.
+       @return The gauge.
+       @throws IllegalArgumentException If there is already a metric with this name that is not a gauge.
+     */
+    public Gauge getGauge(String gaugeName) {
+        Metric m = metrics.get(gaugeName);
+        if (m == null) {
+            m = metrics.computeIfAbsent(gaugeName, Gauge::new);
+        }
+        return cast(m, Gauge.class);
+    }
+
+    /**
+       Remove a metric.
+       @param metricName The name of the metric to remove.
+     */
+    public void remove(String metricName) {
+        metrics.remove(metricName);
+    }
+
+    /**
+       Remove all metrics whose names start with a prefix.
+       @param prefix The prefix.
+     */
+    public void removeAll(String prefix) {
+        metrics.keySet().removeIf(n -> n.startsWith(prefix));
+    }
+
+    /**
+       Get all metrics sorted by name.
+       @return A new list of all metrics.
+     */
+    public List<Metric> getMetrics() {
+        List<Metric> result = new ArrayList<Metric>(metrics.values());
+        Collections.sort(result, BY_NAME);
+        return result;
+    }
+
+    /**
+       Get the timestep that is currently running.
+       @return The current timestep.
+     */
+    public int getTime() {
+        return time;
+    }
+
+    /**
+       Set the timestep that is currently running. Timer measurements reported to Java Flight Recorder are tagged with this timestep.
+       @param newTime The current timestep.
+     */
+    public void setTime(int newTime) {
+        time = newTime;
+    }
+
+    /**
+       Notify this registry that a timestep has finished. This updates the garbage collection and heap gauges and reports all counters and gauges to Java Flight Recorder.
+       @param completed The timestep that has finished.
+     */
+    public void timestepCompleted(int completed) {
+        long gcTime = gcTime();
+        long gcCount = gcCount();
+        synchronized (this) {
+            getGauge(GC_TIME).set(gcTime - lastGCTime);
+            getGauge(GC_COUNT).set(gcCount - lastGCCount);
+            lastGCTime = gcTime;
+            lastGCCount = gcCount;
+        }
+        Runtime runtime = Runtime.getRuntime();
+        getGauge(HEAP_USED).set(runtime.totalMemory() - runtime.freeMemory());
+        if (!new MetricEvent().isEnabled()) {
+            return;
+        }
+        for (Metric next : metrics.values()) {
+            if (next instanceof PhaseTimer) {
+                continue;
+            }
+            MetricEvent event = new MetricEvent();
+            event.registry = name;
+            event.name = next.getName();
+            event.type = next.getType();
+            event.timestep = completed;
+            event.value = next.getValue();
+            event.commit();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static <T extends Metric> T cast(Metric m, Class<T> clazz) {
+        if (!clazz.isInstance(m)) {
+            throw new IllegalArgumentException("Metric " + m.getName() + " is a " + m.getType());
+        }
+        return clazz.cast(m);
+    }
+
+    private static long gcTime() {
+        long result = 0;
+        for (GarbageCollectorMXBean next : ManagementFactory.getGarbageCollectorMXBeans()) {
+            result += Math.max(0, next.getCollectionTime());
+        }
+        return result;
+    }
+
+    private static long gcCount() {
+        long result = 0;
+        for (GarbageCollectorMXBean next : ManagementFactory.getGarbageCollectorMXBeans()) {
+            result += Math.max(0, next.getCollectionCount());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,116 @@
+package rescuecore2.metrics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.google.gson.stream.JsonWriter;
+
+/**
+   Writes the metrics in a {@link MetricsRegistry} to a file. Files whose name ends in ".json" get one JSON object per dump, one dump per line. Anything else gets CSV with one row per metric per dump.
+ */
+public class MetricsWriter {
+    private static final String CSV_HEADER = "time,name,type,value,count,total,max";
+
+    private final Writer out;
+    private final boolean json;
+
+    /**
+       Create a MetricsWriter. The file is created or overwritten.
+       @param file The file to write to.
+       @throws IOException If the file cannot be opened.
+     */
+    public MetricsWriter(File file) throws IOException {
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+        json = file.getName().toLowerCase().endsWith(".json");
+        if (!json) {
+            out.write(CSV_HEADER);
+            out.write('\n');
+        }
+    }
+
+    /**
+       Write the current value of every metric in a registry.
+       @param registry The registry to write.
+       @param time The timestep the values belong to.
+       @throws IOException If the values cannot be written.
+     */
+    public void write(MetricsRegistry registry, int time) throws IOException {
+        if (json) {
+            writeJSON(registry, time);
+        }
+        else {
+            writeCSV(registry, time);
+        }
+        out.flush();
+    }
+
+    /**
+       Close the file.
+       @throws IOException If the file cannot be closed.
+     */
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeCSV(MetricsRegistry registry, int time) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (Metric next : registry.getMetrics()) {
+            line.setLength(0);
+            line.append(time).append(',');
+            line.append(quote(next.getName())).append(',');
+            line.append(next.getType()).append(',');
+            line.append(next.getValue()).append(',');
+            if (next instanceof PhaseTimer) {
+                PhaseTimer t = (PhaseTimer)next;
+                line.append(t.getCount()).append(',');
+                line.append(t.getTotalNanos()).append(',');
+                line.append(t.getMaxNanos());
+            }
+            else {
+                line.append(",,");
+            }
+            line.append('\n');
+            out.write(line.toString());
+        }
+    }
+
+    private void writeJSON(MetricsRegistry registry, int time) throws IOException {
+        JsonWriter writer = new JsonWriter(out);
+        writer.beginObject();
+        writer.name("time").value(time);
+        writer.name("metrics").beginObject();
+        for (Metric next : registry.getMetrics()) {
+            writer.name(next.getName()).beginObject();
+            writer.name("type").value(next.getType());
+            writer.name("value").value(next.getValue());
+            if (next instanceof PhaseTimer) {
+                PhaseTimer t = (PhaseTimer)next;
+                writer.name("count").value(t.getCount());
+                writer.name("total").value(t.getTotalNanos());
+                writer.name("max").value(t.getMaxNanos());
+            }
+            writer.endObject();
+        }
+        writer.endObject();
+        writer.endObject();
+        // The JsonWriter must not be closed because that would close the file
+        writer.flush();
+        out.write('\n');
+    }
+
+    private static String quote(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0) {
+            return s;
+        }
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,32 @@
+package rescuecore2.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+   Flight recorder event for one measurement by a {@link PhaseTimer}.
+ */
+@Name("rescuecore2.Phase")
+@Label("Simulation Phase")
+@Category("RoboCup Rescue")
+@Description("Time taken by one phase of a timestep")
+@StackTrace(false)
+class PhaseEvent extends Event {
+    @Label("Registry")
+    String registry;
+
+    @Label("Phase")
+    String phase;
+
+    @Label("Timestep")
+    int timestep;
+
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long time;
+}
@@ -0,0 +1,102 @@
+package rescuecore2.metrics;
+
+/**
+   A metric that measures how long some phase of the simulation takes. Times are in nanoseconds. A typical use is:
+   <pre>
+   long start = System.nanoTime();
+   doSomething();
+   timer.stop(start);
+   </pre>
+   Each measurement is also reported to Java Flight Recorder as a {@link PhaseEvent} if a recording is running.
+ */
+public class PhaseTimer extends Metric {
+    private final MetricsRegistry registry;
+    private long count;
+    private long total;
+    private long max;
+    private long last;
+
+    /**
+       Construct a timer.
+       @param name The name of the timer.
+       @param registry The registry that owns this timer.
+     */
+    PhaseTimer(String name, MetricsRegistry registry) {
+        super(name);
+        this.registry = registry;
+    }
+
+    /**
+       Record the time since a start time.
+       @param start The start time as returned by {@link System#nanoTime()}.
+       @return The elapsed time in nanoseconds.
+     */
+    public long stop(long start) {
+        long elapsed = System.nanoTime() - start;
+        record(elapsed);
+        return elapsed;
+    }
+
+    /**
+       Record a measurement.
+       @param nanos The time taken in nanoseconds.
+     */
+    public void record(long nanos) {
+        synchronized (this) {
+            ++count;
+            total += nanos;
+            max = Math.max(max, nanos);
+            last = nanos;
+        }
+        PhaseEvent event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.registry = registry.getName();
+            event.phase = getName();
+            event.timestep = registry.getTime();
+            event.time = nanos;
+            event.commit();
+        }
+    }
+
+    /**
+       Get the number of measurements.
+       @return The number of measurements.
+     */
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /**
+       Get the total of all measurements.
+       @return The total time in nanoseconds.
+     */
+    public synchronized long getTotalNanos() {
+        return total;
+    }
+
+    /**
+       Get the longest measurement.
+       @return The longest time in nanoseconds.
+     */
+    public synchronized long getMaxNanos() {
+        return max;
+    }
+
+    /**
+       Get the mean of all measurements.
+       @return The mean time in nanoseconds, or zero if there have been no measurements.
+     */
+    public synchronized long getMeanNanos() {
+        return count == 0 ? 0 : total / count;
+    }
+
+    @Override
+    public String getType() {
+        return "timer";
+    }
+
+    @Override
+    public synchronized long getValue() {
+        return last;
+    }
+}
@@ -600,7 +600,7 @@ public final class EncodingTools {
     int size = readInt32(in);
     byte[] content = readBytes(size, in);
     Entity result = Registry.getCurrentRegistry().createEntity(Registry.getCurrentRegistry().toURN_Id(urn),
-        new EntityID(entityID));
+        EntityID.valueOf(entityID));
     if (result != null) {
       result.read(new ByteArrayInputStream(content));
     }
@@ -623,7 +623,7 @@ public final class EncodingTools {
     int size = readInt32(in);
     byte[] content = readBytes(size, in);
     Entity result = Registry.getCurrentRegistry().createEntity(Registry.getCurrentRegistry().toURN_Id(urn),
-        new EntityID(entityID));
+        EntityID.valueOf(entityID));
     if (result != null) {
       result.read(new ByteArrayInputStream(content));
     }
@@ -0,0 +1,91 @@
+package rescuecore2.misc.collections;
+
+/**
+   A fixed-size buffer of values keyed by timestep. Only a window of recent timesteps is kept: a value is dropped when it is released or when a timestep that falls in the same slot is stored, so memory use does not grow with the length of the simulation. Like {@link LazyMap}, values are created on demand by {@link #createValue()}.
+   <p>
+   This class is not thread safe.
+   @param <V> The value type.
+ */
+public abstract class TimestepRing<V> {
+    private final int[] times;
+    private final Object[] values;
+    private int released;
+
+    /**
+       Construct a TimestepRing.
+       @param capacity The number of timesteps to keep.
+     */
+    public TimestepRing(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        times = new int[capacity];
+        values = new Object[capacity];
+        released = Integer.MIN_VALUE;
+    }
+
+    /**
+       Construct a new value object for a timestep that does not yet have a value.
+       @return A new value object.
+    */
+    public abstract V createValue();
+
+    /**
+       Get the value for a timestep, creating it if necessary. Any older value held in the same slot is dropped.
+       @param time The timestep.
+       @return The value, or null if the timestep has already been released or is too old to be kept.
+     */
+    public V get(int time) {
+        if (time <= released) {
+            return null;
+        }
+        int slot = slot(time);
+        if (values[slot] != null) {
+            if (times[slot] == time) {
+                return value(slot);
+            }
+            if (times[slot] > time) {
+                return null;
+            }
+        }
+        V result = createValue();
+        times[slot] = time;
+        values[slot] = result;
+        return result;
+    }
+
+    /**
+       Get the value for a timestep without creating it.
+       @param time The timestep.
+       @return The value, or null if there is no value for the timestep.
+     */
+    public V peek(int time) {
+        int slot = slot(time);
+        if (values[slot] != null && times[slot] == time && time > released) {
+            return value(slot);
+        }
+        return null;
+    }
+
+    /**
+       Drop the values for a timestep and all earlier timesteps. Values for these timesteps will not be created again.
+       @param time The last timestep to release.
+     */
+    public void release(int time) {
+        released = Math.max(released, time);
+        for (int i = 0; i < values.length; ++i) {
+            if (values[i] != null && times[i] <= released) {
+                values[i] = null;
+            }
+        }
+    }
+
+    private int slot(int time) {
+        return Math.floorMod(time, values.length);
+    }
+
+    @SuppressWarnings("unchecked")
+    private V value(int slot) {
+        return (V)values[slot];
+    }
+}
@@ -56,6 +56,16 @@ public class LoadableType {
     this.clazz = clazz;
   }
 
+  /**
+   * Get a key that identifies this type in the loadable type cache. Two types
+   * with the same key find the same classes.
+   *
+   * @return The cache key.
+   */
+  String getCacheKey() {
+    return manifestKey + "|" + (regex == null ? "" : regex.pattern()) + "|" + clazz.getName();
+  }
+
   /**
    * Inspect a jar manifest and extract the entries in the manifestKey attribute
    * if it exists. This method will check that entries also specify valid class
@@ -0,0 +1,212 @@
+package rescuecore2.misc.java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import rescuecore2.log.Logger;
+
+/**
+ * A record of the loadable types found in each jar file, kept between runs so
+ * that jars that have not changed do not need to be opened and inspected
+ * again. A jar is identified by its absolute path, size and modification time.
+ */
+final class LoadableTypeCache {
+  private static final int VERSION = 1;
+
+  private final File file;
+  private final Map<String, Entry> entries;
+  private boolean dirty;
+
+  private LoadableTypeCache(File file) {
+    this.file = file;
+    this.entries = new HashMap<String, Entry>();
+    this.dirty = false;
+  }
+
+  /**
+   * Read a cache file. A missing or unreadable file gives an empty cache.
+   *
+   * @param file The cache file.
+   * @return The cache.
+   */
+  static LoadableTypeCache load(File file) {
+    LoadableTypeCache result = new LoadableTypeCache(file);
+    if (!file.exists()) {
+      return result;
+    }
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (in.readInt() != VERSION) {
+        return result;
+      }
+      int count = in.readInt();
+      for (int i = 0; i < count; ++i) {
+        String path = in.readUTF();
+        result.entries.put(path, Entry.read(in));
+      }
+    } catch (IOException e) {
+      Logger.debug("Ignoring unreadable loadable type cache " + file.getAbsolutePath() + ": " + e);
+      result.entries.clear();
+    }
+    return result;
+  }
+
+  /**
+   * Look up the classes found in a jar by an earlier scan.
+   *
+   * @param jar   The jar file.
+   * @param types The types that are being looked for.
+   * @param deep  Whether a deep inspection is wanted.
+   * @return The matching classes in the order they were found, or null if the
+   *         jar has changed or was not scanned for all of the types.
+   */
+  List<Match> get(File jar, Collection<LoadableType> types, boolean deep) {
+    Entry entry = entries.get(jar.getAbsolutePath());
+    if (entry == null || entry.size != jar.length() || entry.modified != jar.lastModified() || (deep && !entry.deep)) {
+      return null;
+    }
+    for (LoadableType next : types) {
+      if (!entry.typeKeys.contains(next.getCacheKey())) {
+        return null;
+      }
+    }
+    List<Match> result = new ArrayList<Match>();
+    for (Match next : entry.matches) {
+      if (deep || next.fromManifest) {
+        result.add(next);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Record the result of scanning a jar.
+   *
+   * @param jar     The jar file.
+   * @param types   The types that were looked for.
+   * @param deep    Whether a deep inspection was done.
+   * @param matches The classes that were found.
+   */
+  void put(File jar, Collection<LoadableType> types, boolean deep, List<Match> matches) {
+    Set<String> keys = new HashSet<String>();
+    for (LoadableType next : types) {
+      keys.add(next.getCacheKey());
+    }
+    entries.put(jar.getAbsolutePath(), new Entry(jar.length(), jar.lastModified(), deep, keys, matches));
+    dirty = true;
+  }
+
+  /**
+   * Write the cache back to its file if anything changed. Failures are logged
+   * and otherwise ignored.
+   */
+  void save() {
+    if (!dirty) {
+      return;
+    }
+    File temp = null;
+    try {
+      // Several components may start at once, so write a copy and move it into place
+      temp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+        out.writeInt(VERSION);
+        out.writeInt(entries.size());
+        for (Map.Entry<String, Entry> next : entries.entrySet()) {
+          out.writeUTF(next.getKey());
+          next.getValue().write(out);
+        }
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      dirty = false;
+    } catch (IOException e) {
+      Logger.debug("Could not write loadable type cache " + file.getAbsolutePath() + ": " + e);
+      if (temp != null) {
+        temp.delete();
+      }
+    }
+  }
+
+  /**
+   * A class found in a jar.
+   */
+  static final class Match {
+    final String typeKey;
+    final String className;
+    final boolean fromManifest;
+
+    Match(LoadableType type, String className, boolean fromManifest) {
+      this(type.getCacheKey(), className, fromManifest);
+    }
+
+    private Match(String typeKey, String className, boolean fromManifest) {
+      this.typeKey = typeKey;
+      this.className = className;
+      this.fromManifest = fromManifest;
+    }
+  }
+
+  private static final class Entry {
+    private final long size;
+    private final long modified;
+    private final boolean deep;
+    private final Set<String> typeKeys;
+    private final List<Match> matches;
+
+    Entry(long size, long modified, boolean deep, Set<String> typeKeys, List<Match> matches) {
+      this.size = size;
+      this.modified = modified;
+      this.deep = deep;
+      this.typeKeys = typeKeys;
+      this.matches = matches;
+    }
+
+    static Entry read(DataInputStream in) throws IOException {
+      long size = in.readLong();
+      long modified = in.readLong();
+      boolean deep = in.readBoolean();
+      int keyCount = in.readInt();
+      Set<String> keys = new HashSet<String>();
+      for (int i = 0; i < keyCount; ++i) {
+        keys.add(in.readUTF());
+      }
+      int matchCount = in.readInt();
+      List<Match> matches = new ArrayList<Match>(matchCount);
+      for (int i = 0; i < matchCount; ++i) {
+        String typeKey = in.readUTF();
+        String className = in.readUTF();
+        matches.add(new Match(typeKey, className, in.readBoolean()));
+      }
+      return new Entry(size, modified, deep, keys, matches);
+    }
+
+    void write(DataOutputStream out) throws IOException {
+      out.writeLong(size);
+      out.writeLong(modified);
+      out.writeBoolean(deep);
+      out.writeInt(typeKeys.size());
+      for (String next : typeKeys) {
+        out.writeUTF(next);
+      }
+      out.writeInt(matches.size());
+      for (Match next : matches) {
+        out.writeUTF(next.typeKey);
+        out.writeUTF(next.className);
+        out.writeBoolean(next.fromManifest);
+      }
+    }
+  }
+}
@@ -5,12 +5,15 @@ import static rescuecore2.misc.java.JavaTools.instantiateFactory;
 import java.io.File;
 import java.io.FilenameFilter;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -26,11 +29,15 @@ import rescuecore2.registry.Registry;
  * A utility class for processing loadable types from jar files.
  */
 public class LoadableTypeProcessor {
+  /** Name of the file in the jar directory that remembers earlier scans. */
+  private static final String CACHE_FILE_NAME = ".loadabletypes.cache";
+
   private List<LoadableTypeCallback> callbacks;
   private Set<LoadableType> types;
   private boolean deep;
   private String dir;
   private Set<String> ignore;
+  private boolean useCache;
 
   /**
    * Construct a LoadableTypeProcessor that will perform a deep inspection.
@@ -44,6 +51,7 @@ public class LoadableTypeProcessor {
     dir = config.getValue(Constants.JAR_DIR_KEY, Constants.DEFAULT_JAR_DIR);
     ignore = new HashSet<String>();
     ignore.addAll(config.getArrayValue(Constants.IGNORE_JARS_KEY, Constants.DEFAULT_IGNORE_JARS));
+    useCache = config.getBooleanValue(Constants.LOADABLE_TYPE_CACHE_KEY, Constants.DEFAULT_LOADABLE_TYPE_CACHE);
   }
 
   /**
@@ -101,7 +109,19 @@ public class LoadableTypeProcessor {
   }
 
   /**
-   * Process all jars in a directory.
+   * Set whether to remember the types found in each jar between runs.
+   *
+   * @param newUseCache Whether to use the cache or not.
+   */
+  public void setUseCache(boolean newUseCache) {
+    this.useCache = newUseCache;
+  }
+
+  /**
+   * Process all jars in a directory. Jars that have not changed since they were
+   * last scanned are answered from a cache file in the directory; the rest are
+   * scanned in parallel. Callbacks are always fired on the calling thread in
+   * jar order.
    *
    * @throws IOException If there is a problem reading the jar files.
    */
@@ -117,9 +137,42 @@ public class LoadableTypeProcessor {
     if (jarFiles == null) {
       return;
     }
-    for (File next : jarFiles) {
-      JarFile jar = new JarFile(next);
-      processJarFile(jar);
+    LoadableTypeCache cache = useCache ? LoadableTypeCache.load(new File(baseDir, CACHE_FILE_NAME)) : null;
+    List<List<LoadableTypeCache.Match>> found = new ArrayList<List<LoadableTypeCache.Match>>();
+    List<Integer> stale = new ArrayList<Integer>();
+    for (int i = 0; i < jarFiles.length; ++i) {
+      List<LoadableTypeCache.Match> cached = null;
+      if (cache != null && !isIgnored(jarFiles[i].getName())) {
+        cached = cache.get(jarFiles[i], types, deep);
+      }
+      if (cached == null) {
+        stale.add(i);
+      } else {
+        Logger.debug("Using cached loadable types for " + jarFiles[i].getPath());
+      }
+      found.add(cached);
+    }
+    try {
+      stale.parallelStream().forEach(i -> {
+        try (JarFile jar = new JarFile(jarFiles[i])) {
+          found.set(i, scanJarFile(jar));
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    for (List<LoadableTypeCache.Match> next : found) {
+      fireCallbacks(next);
+    }
+    if (cache != null) {
+      for (int i : stale) {
+        if (!isIgnored(jarFiles[i].getName())) {
+          cache.put(jarFiles[i], types, deep, found.get(i));
+        }
+      }
+      cache.save();
     }
   }
 
@@ -130,18 +183,32 @@ public class LoadableTypeProcessor {
    * @throws IOException If there is a problem reading the jar file.
    */
   public void processJarFile(JarFile jar) throws IOException {
-    String name = jar.getName();
-    String tail = name.substring(name.lastIndexOf("/") + 1);
-    if (ignore.contains(tail)) {
-      return;
+    fireCallbacks(scanJarFile(jar));
+  }
+
+  /**
+   * Find the loadable types in a jar file without firing any callbacks.
+   */
+  private List<LoadableTypeCache.Match> scanJarFile(JarFile jar) throws IOException {
+    List<LoadableTypeCache.Match> result = new ArrayList<LoadableTypeCache.Match>();
+    if (isIgnored(jar.getName())) {
+      return result;
     }
     Logger.info("Processing " + jar.getName());
     Manifest mf = jar.getManifest();
+    // Types that find the same classes only need to be checked once
+    List<LoadableType> distinct = new ArrayList<LoadableType>();
+    Set<String> keys = new HashSet<String>();
+    for (LoadableType type : types) {
+      if (keys.add(type.getCacheKey())) {
+        distinct.add(type);
+      }
+    }
     if (mf != null) {
       Logger.debug("Inspecting manifest...");
-      for (LoadableType type : types) {
+      for (LoadableType type : distinct) {
         for (String next : type.processManifest(mf)) {
-          fireCallback(type, next);
+          result.add(new LoadableTypeCache.Match(type, next, true));
         }
       }
     }
@@ -150,14 +217,32 @@ public class LoadableTypeProcessor {
       Logger.debug("Looking for likely class names...");
       for (Enumeration<JarEntry> e = jar.entries(); e.hasMoreElements();) {
         JarEntry next = e.nextElement();
-        for (LoadableType type : types) {
+        for (LoadableType type : distinct) {
           String s = type.processJarEntry(next);
           if (s != null) {
-            fireCallback(type, s);
+            result.add(new LoadableTypeCache.Match(type, s, false));
           }
         }
       }
     }
+    return result;
+  }
+
+  private boolean isIgnored(String name) {
+    String tail = name.substring(name.lastIndexOf("/") + 1);
+    return ignore.contains(tail);
+  }
+
+  private void fireCallbacks(List<LoadableTypeCache.Match> matches) {
+    Map<String, List<LoadableType>> byKey = new HashMap<String, List<LoadableType>>();
+    for (LoadableType next : types) {
+      byKey.computeIfAbsent(next.getCacheKey(), k -> new ArrayList<LoadableType>()).add(next);
+    }
+    for (LoadableTypeCache.Match next : matches) {
+      for (LoadableType type : byKey.getOrDefault(next.typeKey, Collections.<LoadableType>emptyList())) {
+        fireCallback(type, next.className);
+      }
+    }
   }
 
   private void fireCallback(LoadableType type, String classname) {
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 import rescuecore2.log.Logger;
 import rescuecore2.messages.Message;
@@ -108,6 +109,32 @@ public final class Registry {
     CURRENT_REGISTRY.set(r);
   }
 
+  /**
+   * Wrap a task so that it runs with the current Registry of the calling
+   * thread. Threads in a shared pool otherwise keep the Registry of whichever
+   * thread created them.
+   *
+   * @param task The task to wrap.
+   * @param <T>  The result type of the task.
+   * @return A task that calls the original task with the caller's Registry and
+   *         then restores the Registry of the thread it ran on.
+   */
+  public static <T> Callable<T> withCurrentRegistry(final Callable<T> task) {
+    final Registry registry = getCurrentRegistry();
+    return new Callable<T>() {
+      @Override
+      public T call() throws Exception {
+        Registry old = getCurrentRegistry();
+        setCurrentRegistry(registry);
+        try {
+          return task.call();
+        } finally {
+          setCurrentRegistry(old);
+        }
+      }
+    };
+  }
+
   @Override
   public String toString() {
     return getName();
@@ -0,0 +1,106 @@
+package rescuecore2.score;
+
+import rescuecore2.config.Config;
+import rescuecore2.worldmodel.WorldModel;
+import rescuecore2.worldmodel.Entity;
+import rescuecore2.worldmodel.EntityID;
+import rescuecore2.worldmodel.ChangeSet;
+import rescuecore2.Timestep;
+
+import java.util.Map;
+import java.util.HashMap;
+
+/**
+   Abstract base class for score functions that are a function of sums over individual entities. The contribution of each entity is remembered so that each timestep only the entities in the timestep's change set need to be looked at.
+   <p>
+   The whole world is scanned on the first call, whenever the world model or the sequence of timesteps is not the one seen before, and whenever the timestep has no change set. Calling {@link #score} with a new {@link Timestep} that has no change set therefore always gives the result of a full scan.
+ */
+public abstract class IncrementalScoreFunction extends AbstractScoreFunction {
+    private final int components;
+    private Map<EntityID, double[]> contributions;
+    private double[] totals;
+    private WorldModel<? extends Entity> lastWorld;
+    private int lastTime;
+    private double lastScore;
+
+    /**
+       Construct an IncrementalScoreFunction.
+       @param name The name of this function.
+       @param components The number of sums the score is made from.
+    */
+    protected IncrementalScoreFunction(String name, int components) {
+        super(name);
+        this.components = components;
+        contributions = new HashMap<EntityID, double[]>();
+        totals = new double[components];
+        lastWorld = null;
+    }
+
+    @Override
+    public void initialise(WorldModel<? extends Entity> world, Config config) {
+        lastWorld = null;
+    }
+
+    @Override
+    public double score(WorldModel<? extends Entity> world, Timestep timestep) {
+        int time = timestep.getTime();
+        ChangeSet changes = timestep.getChangeSet();
+        if (world == lastWorld && time == lastTime) {
+            // Composite and GUI functions may ask more than once per timestep
+            return lastScore;
+        }
+        if (world == lastWorld && changes != null && time == lastTime + 1) {
+            for (EntityID next : changes.getChangedEntities()) {
+                update(next, world.getEntity(next));
+            }
+            for (EntityID next : changes.getDeletedEntities()) {
+                update(next, null);
+            }
+        }
+        else {
+            contributions.clear();
+            totals = new double[components];
+            for (Entity next : world) {
+                update(next.getID(), next);
+            }
+        }
+        lastWorld = world;
+        lastTime = time;
+        lastScore = combine(totals.clone());
+        return lastScore;
+    }
+
+    /**
+       Work out how much an entity contributes to each of the sums.
+       @param entity The entity.
+       @param result An array to write the contribution to. It will be filled with zeros.
+       @return True if the entity contributes to the score, false if it should be ignored.
+    */
+    protected abstract boolean getContribution(Entity entity, double[] result);
+
+    /**
+       Compute the score from the sums.
+       @param sums The sum of the contributions of all entities.
+       @return The score.
+    */
+    protected abstract double combine(double[] sums);
+
+    private void update(EntityID id, Entity entity) {
+        double[] old = contributions.remove(id);
+        if (old != null) {
+            for (int i = 0; i < components; ++i) {
+                totals[i] -= old[i];
+            }
+        }
+        if (entity == null) {
+            return;
+        }
+        double[] contribution = new double[components];
+        if (getContribution(entity, contribution)) {
+            contributions.put(id, contribution);
+            for (int i = 0; i < components; ++i) {
+                totals[i] += contribution[i];
+            }
+        }
+    }
+}
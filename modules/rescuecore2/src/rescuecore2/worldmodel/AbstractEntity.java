@@ -8,10 +8,9 @@ import static rescuecore2.misc.EncodingTools.writeProperty;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 import rescuecore2.messages.protobuf.MsgProtoBuf;
 import rescuecore2.messages.protobuf.RCRSProto.EntityProto;
@@ -23,8 +22,9 @@ import rescuecore2.messages.protobuf.RCRSProto.PropertyProto;
 public abstract class AbstractEntity implements Entity {
 
   private final EntityID id;
-  private final Set<EntityListener> listeners;
-  private final Set<Property> properties;
+  // Created on first use since most entities never get a listener
+  private volatile Set<EntityListener> listeners;
+  private final PropertySet properties;
 
   /**
    * Construct an AbstractEntity with a set of properties.
@@ -33,8 +33,7 @@ public abstract class AbstractEntity implements Entity {
    */
   protected AbstractEntity(EntityID id) {
     this.id = id;
-    listeners = new HashSet<EntityListener>();
-    properties = new HashSet<Property>();
+    properties = new PropertySet();
   }
 
   /**
@@ -48,15 +47,23 @@ public abstract class AbstractEntity implements Entity {
 
   @Override
   public void addEntityListener(EntityListener l) {
-    synchronized (listeners) {
-      listeners.add(l);
+    Set<EntityListener> current = listeners;
+    if (current == null) {
+      synchronized (properties) {
+        if (listeners == null) {
+          listeners = new CopyOnWriteArraySet<EntityListener>();
+        }
+        current = listeners;
+      }
     }
+    current.add(l);
   }
 
   @Override
   public void removeEntityListener(EntityListener l) {
-    synchronized (listeners) {
-      listeners.remove(l);
+    Set<EntityListener> current = listeners;
+    if (current != null) {
+      current.remove(l);
     }
   }
 
@@ -186,8 +193,8 @@ public abstract class AbstractEntity implements Entity {
    * @param props The properties to register.
    */
   protected void registerProperties(Property... props) {
+    properties.addAll(props);
     for (Property p : props) {
-      properties.add(p);
       if (p instanceof AbstractProperty) {
         ((AbstractProperty) p).setEntity(this);
       }
@@ -202,11 +209,12 @@ public abstract class AbstractEntity implements Entity {
    * @param newValue The new value.
    */
   protected void firePropertyChanged(Property p, Object oldValue, Object newValue) {
-    Collection<EntityListener> copy;
-    synchronized (listeners) {
-      copy = new HashSet<EntityListener>(listeners);
+    Set<EntityListener> current = listeners;
+    if (current == null) {
+      return;
     }
-    for (EntityListener next : copy) {
+    // Iterating a copy-on-write set sees a snapshot, so listeners may add or remove listeners safely
+    for (EntityListener next : current) {
       next.propertyChanged(this, p, oldValue, newValue);
     }
   }
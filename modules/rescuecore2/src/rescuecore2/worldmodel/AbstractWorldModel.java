@@ -86,7 +86,8 @@ public abstract class AbstractWorldModel<T extends Entity> implements WorldModel
 
     @Override
     public void merge(ChangeSet changeSet) {
-        for (EntityID e : changeSet.getChangedEntities()) {
+        for (int id : changeSet.getChangedEntityIDs()) {
+            EntityID e = EntityID.valueOf(id);
             Entity existingEntity = getEntity(e);
             boolean add = false;
             if (existingEntity == null) {
@@ -98,7 +99,7 @@ public abstract class AbstractWorldModel<T extends Entity> implements WorldModel
                 }
                 add = true;
             }
-            for (Property p : changeSet.getChangedProperties(e)) {
+            for (Property p : changeSet.getChangedPropertyArray(id)) {
                 Property existingProperty = existingEntity.getProperty(p.getURN());
                 existingProperty.takeValue(p);
             }
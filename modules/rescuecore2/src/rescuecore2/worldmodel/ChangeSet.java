@@ -10,21 +10,23 @@ import static rescuecore2.misc.EncodingTools.writeString;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 
+import gnu.trove.TIntHashSet;
+import gnu.trove.TIntIntHashMap;
+import gnu.trove.TIntIterator;
+import gnu.trove.TIntObjectHashMap;
+import gnu.trove.TIntObjectIterator;
+
 import rescuecore2.log.Logger;
 import rescuecore2.messages.protobuf.MsgProtoBuf;
 import rescuecore2.messages.protobuf.RCRSProto.ChangeSetProto;
 import rescuecore2.messages.protobuf.RCRSProto.ChangeSetProto.EntityChangeProto;
 import rescuecore2.messages.protobuf.RCRSProto.PropertyProto;
-import rescuecore2.misc.collections.LazyMap;
 import rescuecore2.registry.Registry;
 //import rescuecore2.standard.entities.StandardPropertyURN;
 import rescuecore2.worldmodel.properties.EntityRefListProperty;
@@ -34,23 +36,21 @@ import rescuecore2.worldmodel.properties.EntityRefListProperty;
  */
 public class ChangeSet {
 
-  private Map<EntityID, Map<Integer, Property>> changes;
-  private Set<EntityID> deleted;
-  private Map<EntityID, Integer> entityURNs;
+  private static final Property[] NO_PROPERTIES = new Property[0];
+
+  // Keyed by raw entity ID. Entities change only a few properties per update,
+  // so each entity's changes are a small array searched by URN.
+  private TIntObjectHashMap<Property[]> changes;
+  private TIntHashSet deleted;
+  private TIntIntHashMap entityURNs;
 
   /**
    * Create an empty ChangeSet.
    */
   public ChangeSet() {
-    changes = new LazyMap<EntityID, Map<Integer, Property>>() {
-
-      @Override
-      public Map<Integer, Property> createValue() {
-        return new HashMap<Integer, Property>();
-      }
-    };
-    entityURNs = new HashMap<EntityID, Integer>();
-    deleted = new HashSet<EntityID>();
+    changes = new TIntObjectHashMap<Property[]>();
+    entityURNs = new TIntIntHashMap();
+    deleted = new TIntHashSet();
   }
 
   /**
@@ -81,11 +81,37 @@ public class ChangeSet {
    * @param p   The property that has changed.
    */
   public void addChange(EntityID e, int urn, Property p) {
+    addChange(e.getValue(), urn, p);
+  }
+
+  private void addChange(int e, int urn, Property p) {
     if (deleted.contains(e)) {
       return;
     }
-    Property prop = p.copy();
-    changes.get(e).put(prop.getURN(), prop);
+    putChange(e, urn, p.copy());
+  }
+
+  /**
+   * Store a property that nobody else holds a reference to, so it does not
+   * need to be copied.
+   */
+  private void putChange(int e, int urn, Property prop) {
+    if (deleted.contains(e)) {
+      return;
+    }
+    Property[] props = changes.get(e);
+    if (props == null) {
+      changes.put(e, new Property[] {prop});
+    } else {
+      int index = indexOf(props, prop.getURN());
+      if (index >= 0) {
+        props[index] = prop;
+      } else {
+        props = Arrays.copyOf(props, props.length + 1);
+        props[props.length - 1] = prop;
+        changes.put(e, props);
+      }
+    }
     entityURNs.put(e, urn);
   }
 
@@ -95,6 +121,10 @@ public class ChangeSet {
    * @param e The ID of the entity that has been deleted.
    */
   public void entityDeleted(EntityID e) {
+    entityDeleted(e.getValue());
+  }
+
+  private void entityDeleted(int e) {
     deleted.add(e);
     changes.remove(e);
   }
@@ -107,7 +137,12 @@ public class ChangeSet {
    *         null.
    */
   public Set<Property> getChangedProperties(EntityID e) {
-    return new HashSet<Property>(changes.get(e).values());
+    Set<Property> result = new HashSet<Property>();
+    Property[] props = changes.get(e.getValue());
+    if (props != null) {
+      result.addAll(Arrays.asList(props));
+    }
+    return result;
   }
 
   /**
@@ -119,9 +154,10 @@ public class ChangeSet {
    *         not found or has not changed.
    */
   public Property getChangedProperty(EntityID e, int urn) {
-    Map<Integer, Property> props = changes.get(e);
+    Property[] props = changes.get(e.getValue());
     if (props != null) {
-      return props.get(urn);
+      int index = indexOf(props, urn);
+      return index < 0 ? null : props[index];
     }
     return null;
   }
@@ -132,7 +168,29 @@ public class ChangeSet {
    * @return A set of IDs of changed entities.
    */
   public Set<EntityID> getChangedEntities() {
-    return new HashSet<EntityID>(changes.keySet());
+    return toIDSet(changes.keys());
+  }
+
+  /**
+   * Get the raw IDs of all changed entities.
+   *
+   * @return A new array of entity IDs.
+   */
+  int[] getChangedEntityIDs() {
+    return changes.keys();
+  }
+
+  /**
+   * Get the properties that have changed for an entity without building a
+   * set.
+   *
+   * @param e The raw entity ID to look up.
+   * @return The changed properties. This may be empty but will never be
+   *         null. The array must not be modified.
+   */
+  Property[] getChangedPropertyArray(int e) {
+    Property[] props = changes.get(e);
+    return props == null ? NO_PROPERTIES : props;
   }
 
   /**
@@ -141,7 +199,7 @@ public class ChangeSet {
    * @return A set of IDs of deleted entities.
    */
   public Set<EntityID> getDeletedEntities() {
-    return new HashSet<EntityID>(deleted);
+    return toIDSet(deleted.toArray());
   }
 
   /**
@@ -151,7 +209,7 @@ public class ChangeSet {
    * @return The URN of the changed entity.
    */
   public int getEntityURN(EntityID id) {
-    return entityURNs.get(id);
+    return entityURNs.get(id.getValue());
   }
 
   /**
@@ -163,34 +221,37 @@ public class ChangeSet {
   // .toString();
 
   public void merge(ChangeSet other) {
-    for (Map.Entry<EntityID, Map<Integer, Property>> next : other.changes.entrySet()) {
-      EntityID e = next.getKey();
-      int urn = other.getEntityURN(e);
-      for (Property p : next.getValue().values()) {
+    for (TIntObjectIterator<Property[]> next = other.changes.iterator(); next.hasNext();) {
+      next.advance();
+      int e = next.key();
+      int urn = other.entityURNs.get(e);
+      for (Property p : next.value()) {
 
         // if ( p.getURN().equals( BLOCKADES_URN )
         // && changes.get( e ).containsKey( BLOCKADES_URN ) ) {
 
+        Property[] existing = changes.get(e);
+        int existingIndex = existing == null ? -1 : indexOf(existing, urn);
         if ((p instanceof EntityRefListProperty)
-            && (changes.get(e).containsKey(urn) && (changes.get(e).get(urn) instanceof EntityRefListProperty))) {
+            && (existingIndex >= 0 && (existing[existingIndex] instanceof EntityRefListProperty))) {
 
           EntityRefListProperty bp1 = (EntityRefListProperty) p.copy();
           // EntityRefListProperty bp2 = (EntityRefListProperty)
           // changes.get( e )
           // .get( BLOCKADES_URN );
-          EntityRefListProperty bp2 = (EntityRefListProperty) changes.get(e).get(urn);
+          EntityRefListProperty bp2 = (EntityRefListProperty) existing[existingIndex];
 
           if (bp2.isDefined()) {
             for (EntityID id : bp2.getValue())
               bp1.addValue(id);
           }
 
-          for (EntityID id : deleted) {
-            bp1.removeValue(id);
+          for (TIntIterator it = deleted.iterator(); it.hasNext();) {
+            bp1.removeValue(EntityID.valueOf(it.next()));
           }
 
-          for (EntityID id : other.deleted) {
-            bp1.removeValue(id);
+          for (TIntIterator it = other.deleted.iterator(); it.hasNext();) {
+            bp1.removeValue(EntityID.valueOf(it.next()));
           }
 
           p = bp1;
@@ -199,7 +260,7 @@ public class ChangeSet {
         addChange(e, urn, p);
       }
     }
-    deleted.addAll(other.deleted);
+    deleted.addAll(other.deleted.toArray());
   }
 
   /**
@@ -226,20 +287,21 @@ public class ChangeSet {
   public void write(OutputStream out) throws IOException {
     // Number of entity IDs
     writeInt32(changes.size(), out);
-    for (Map.Entry<EntityID, Map<Integer, Property>> next : changes.entrySet()) {
-      EntityID id = next.getKey();
-      Collection<Property> props = next.getValue().values();
+    for (TIntObjectIterator<Property[]> next = changes.iterator(); next.hasNext();) {
+      next.advance();
+      int id = next.key();
+      Property[] props = next.value();
       // EntityID, URN, number of properties
-      writeInt32(id.getValue(), out);
-      writeString(Registry.getCurrentRegistry().toURN_Str(getEntityURN(id)), out);
-      writeInt32(props.size(), out);
+      writeInt32(id, out);
+      writeString(Registry.getCurrentRegistry().toURN_Str(entityURNs.get(id)), out);
+      writeInt32(props.length, out);
       for (Property prop : props) {
         writeProperty(prop, out);
       }
     }
     writeInt32(deleted.size(), out);
-    for (EntityID next : deleted) {
-      writeInt32(next.getValue(), out);
+    for (TIntIterator it = deleted.iterator(); it.hasNext();) {
+      writeInt32(it.next(), out);
     }
   }
 
@@ -252,22 +314,22 @@ public class ChangeSet {
   public void read(InputStream in) throws IOException {
     changes.clear();
     deleted.clear();
+    entityURNs.clear();
     int entityCount = readInt32(in);
     for (int i = 0; i < entityCount; ++i) {
-      EntityID id = new EntityID(readInt32(in));
+      int id = readInt32(in);
       int urn = Registry.getCurrentRegistry().toURN_Id(readString(in));
       int propCount = readInt32(in);
       for (int j = 0; j < propCount; ++j) {
         Property p = readProperty(in);
         if (p != null) {
-          addChange(id, urn, p);
+          putChange(id, urn, p);
         }
       }
     }
     int deletedCount = readInt32(in);
     for (int i = 0; i < deletedCount; ++i) {
-      EntityID id = new EntityID(readInt32(in));
-      deleted.add(id);
+      deleted.add(readInt32(in));
     }
   }
 
@@ -275,22 +337,24 @@ public class ChangeSet {
   public String toString() {
     StringBuilder result = new StringBuilder();
     result.append("ChangeSet:");
-    for (Entry<EntityID, Map<Integer, Property>> next : changes.entrySet()) {
+    for (TIntObjectIterator<Property[]> next = changes.iterator(); next.hasNext();) {
+      next.advance();
       result.append(" Entity ");
-      result.append(next.getKey());
+      result.append(next.key());
       result.append(" (");
-      result.append(getEntityURN(next.getKey()));
+      result.append(entityURNs.get(next.key()));
       result.append(") [");
-      for (Iterator<Property> it = next.getValue().values().iterator(); it.hasNext();) {
-        result.append(it.next());
-        if (it.hasNext()) {
+      Property[] props = next.value();
+      for (int i = 0; i < props.length; ++i) {
+        result.append(props[i]);
+        if (i < props.length - 1) {
           result.append(", ");
         }
       }
       result.append("]");
     }
     result.append(" {Deleted ");
-    for (Iterator<EntityID> it = deleted.iterator(); it.hasNext();) {
+    for (TIntIterator it = deleted.iterator(); it.hasNext();) {
       result.append(it.next());
       if (it.hasNext()) {
         result.append(", ");
@@ -305,13 +369,14 @@ public class ChangeSet {
    */
   public void debug() {
     Logger.debug("ChangeSet");
-    for (Map.Entry<EntityID, Map<Integer, Property>> next : changes.entrySet()) {
-      Logger.debug("  Entity " + next.getKey() + "(" + getEntityURN(next.getKey()) + ")");
-      for (Iterator<Property> it = next.getValue().values().iterator(); it.hasNext();) {
-        Logger.debug("    " + it.next());
+    for (TIntObjectIterator<Property[]> next = changes.iterator(); next.hasNext();) {
+      next.advance();
+      Logger.debug("  Entity " + next.key() + "(" + entityURNs.get(next.key()) + ")");
+      for (Property prop : next.value()) {
+        Logger.debug("    " + prop);
       }
     }
-    for (Iterator<EntityID> it = deleted.iterator(); it.hasNext();) {
+    for (TIntIterator it = deleted.iterator(); it.hasNext();) {
       Logger.debug("  Deleted: " + it.next());
     }
   }
@@ -319,42 +384,60 @@ public class ChangeSet {
   public void fromChangeSetProto(ChangeSetProto changeSetProto) {
     changes.clear();
     deleted.clear();
+    entityURNs.clear();
     List<EntityChangeProto> changesList = changeSetProto.getChangesList();
     for (EntityChangeProto entityChange : changesList) {
-      EntityID entityID = new EntityID(entityChange.getEntityID());
+      int entityID = entityChange.getEntityID();
       int urn = entityChange.getUrn();
 
       List<PropertyProto> propertyProtoList = entityChange.getPropertiesList();
       for (PropertyProto propertyProto : propertyProtoList) {
         Property prop = MsgProtoBuf.propertyProto2Property(propertyProto);
         if (prop != null) {
-          this.addChange(entityID, urn, prop);
+          putChange(entityID, urn, prop);
         }
       }
     }
     // Add deleted entities
     for (Integer entityID : changeSetProto.getDeletesList()) {
-      this.entityDeleted(new EntityID(entityID));
+      this.entityDeleted(entityID.intValue());
     }
 
   }
 
   public ChangeSetProto toChangeSetProto() {
     ChangeSetProto.Builder builder = ChangeSetProto.newBuilder();
-    for (Entry<EntityID, Map<Integer, Property>> next : changes.entrySet()) {
-      EntityID id = next.getKey();
-      Collection<Property> props = next.getValue().values();
+    for (TIntObjectIterator<Property[]> next = changes.iterator(); next.hasNext();) {
+      next.advance();
+      int id = next.key();
       // EntityID, URN, number of properties
-      EntityChangeProto.Builder entityChangeBuilder = EntityChangeProto.newBuilder().setEntityID(id.getValue())
-          .setUrn(getEntityURN(id));
-      for (Property prop : props) {
+      EntityChangeProto.Builder entityChangeBuilder = EntityChangeProto.newBuilder().setEntityID(id)
+          .setUrn(entityURNs.get(id));
+      for (Property prop : next.value()) {
         entityChangeBuilder.addProperties(prop.toPropertyProto());
       }
       builder.addChanges(entityChangeBuilder);
     }
-    for (EntityID next : deleted) {
-      builder.addDeletes(next.getValue());
+    for (TIntIterator it = deleted.iterator(); it.hasNext();) {
+      builder.addDeletes(it.next());
     }
     return builder.build();
   }
-}
\ No newline at end of file
+
+  private static int indexOf(Property[] props, int urn) {
+    for (int i = 0; i < props.length; ++i) {
+      if (props[i].getURN() == urn) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static Set<EntityID> toIDSet(int[] ids) {
+    Set<EntityID> result = new HashSet<EntityID>(ids.length * 2);
+    for (int next : ids) {
+      result.add(EntityID.valueOf(next));
+    }
+    return result;
+  }
+}
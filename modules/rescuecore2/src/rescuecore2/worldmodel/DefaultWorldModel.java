@@ -1,26 +1,43 @@
 package rescuecore2.worldmodel;
 
+import java.util.AbstractCollection;
 import java.util.Set;
 import java.util.HashSet;
-import java.util.Map;
-import java.util.HashMap;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import gnu.trove.TIntObjectHashMap;
+import gnu.trove.TIntObjectIterator;
 
 /**
    Default implementation of a WorldModel.
    @param <T> The subclass of Entity that this world model holds.
 */
 public class DefaultWorldModel<T extends Entity> extends AbstractWorldModel<T> {
-    private Map<EntityID, T> entities;
+    // Keyed by the raw ID so lookups never need an EntityID
+    private TIntObjectHashMap<T> entities;
+    private Collection<T> view;
 
     /**
        Construct an empty world model.
        @param clazz The class of objects that are allowed in this world model. This approach is a workaround for the limitations of Java generics.
     */
     public DefaultWorldModel(Class<? extends T> clazz) {
-        entities = new HashMap<EntityID, T>();
+        entities = new TIntObjectHashMap<T>();
+        // Read only so that entities cannot be removed without firing events
+        view = Collections.unmodifiableCollection(new AbstractCollection<T>() {
+            @Override
+            public Iterator<T> iterator() {
+                return DefaultWorldModel.this.iterator();
+            }
+
+            @Override
+            public int size() {
+                return entities.size();
+            }
+        });
         registerAllowedClass(clazz);
     }
 
@@ -34,18 +51,21 @@ public class DefaultWorldModel<T extends Entity> extends AbstractWorldModel<T> {
 
     @Override
     public final Collection<T> getAllEntities() {
-        return Collections.unmodifiableCollection(entities.values());
+        return view;
     }
 
     @Override
     public final void addEntityImpl(T e) {
-        entities.put(e.getID(), e);
+        entities.put(e.getID().getValue(), e);
         fireEntityAdded(e);
     }
 
     @Override
     public final void removeEntity(EntityID id) {
-        T removed = entities.remove(id);
+        if (id == null) {
+            return;
+        }
+        T removed = entities.remove(id.getValue());
         if (removed != null) {
             fireEntityRemoved(removed);
         }
@@ -53,7 +73,7 @@ public class DefaultWorldModel<T extends Entity> extends AbstractWorldModel<T> {
 
     @Override
     public final void removeAllEntities() {
-        Set<T> all = new HashSet<T>(entities.values());
+        Set<T> all = new HashSet<T>(view);
         entities.clear();
         for (T next : all) {
             fireEntityRemoved(next);
@@ -62,11 +82,43 @@ public class DefaultWorldModel<T extends Entity> extends AbstractWorldModel<T> {
 
     @Override
     public final T getEntity(EntityID id) {
+        if (id == null) {
+            return null;
+        }
+        return entities.get(id.getValue());
+    }
+
+    /**
+       Look up an entity by its raw ID.
+       @param id The numeric ID of the entity.
+       @return The entity with that ID, or null if there is no such entity.
+    */
+    public final T getEntity(int id) {
         return entities.get(id);
     }
 
     @Override
     public final Iterator<T> iterator() {
-        return entities.values().iterator();
+        final TIntObjectIterator<T> it = entities.iterator();
+        return new Iterator<T>() {
+            @Override
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!it.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                it.advance();
+                return it.value();
+            }
+
+            @Override
+            public void remove() {
+                it.remove();
+            }
+        };
     }
 }
@@ -4,6 +4,11 @@ package rescuecore2.worldmodel;
    A type-safe ID class for entities. IDs are really just integers.
  */
 public final class EntityID {
+    private static final int CACHE_BITS = 16;
+    private static final int CACHE_MASK = (1 << CACHE_BITS) - 1;
+    // Lossy cache of recently used IDs. Entries are immutable so racing writers are harmless.
+    private static final EntityID[] CACHE = new EntityID[1 << CACHE_BITS];
+
     private final int id;
 
     /**
@@ -14,6 +19,21 @@ public final class EntityID {
         this.id = id;
     }
 
+    /**
+       Get an EntityID for a numeric ID. Unlike the constructor this usually returns a shared instance, so decoding and lookups by raw ID do not allocate.
+       @param id The numeric ID to use.
+       @return An EntityID with the given value.
+     */
+    public static EntityID valueOf(int id) {
+        int slot = (id ^ (id >>> CACHE_BITS)) & CACHE_MASK;
+        EntityID result = CACHE[slot];
+        if (result == null || result.id != id) {
+            result = new EntityID(id);
+            CACHE[slot] = result;
+        }
+        return result;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o instanceof EntityID) {
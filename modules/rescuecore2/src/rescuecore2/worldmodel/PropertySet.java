@@ -0,0 +1,87 @@
+package rescuecore2.worldmodel;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact array-backed set of the properties of one entity. Entities only
+ * have a handful of properties and every world model holds one set per entity,
+ * so a plain array is much smaller than a HashSet and faster to iterate.
+ */
+final class PropertySet extends AbstractSet<Property> {
+  private static final Property[] EMPTY = new Property[0];
+
+  private Property[] elements;
+  private int size;
+
+  /**
+   * Construct an empty PropertySet.
+   */
+  PropertySet() {
+    elements = EMPTY;
+    size = 0;
+  }
+
+  /**
+   * Add several properties, growing the backing array at most once.
+   *
+   * @param props The properties to add.
+   */
+  void addAll(Property[] props) {
+    if (size + props.length > elements.length) {
+      elements = Arrays.copyOf(elements, size + props.length);
+    }
+    for (Property next : props) {
+      add(next);
+    }
+  }
+
+  @Override
+  public boolean add(Property p) {
+    if (contains(p)) {
+      return false;
+    }
+    if (size == elements.length) {
+      elements = Arrays.copyOf(elements, size + 1);
+    }
+    elements[size++] = p;
+    return true;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    for (int i = 0; i < size; ++i) {
+      if (elements[i].equals(o)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public Iterator<Property> iterator() {
+    return new Iterator<Property>() {
+      private int next = 0;
+
+      @Override
+      public boolean hasNext() {
+        return next < size;
+      }
+
+      @Override
+      public Property next() {
+        if (next >= size) {
+          throw new NoSuchElementException();
+        }
+        return elements[next++];
+      }
+    };
+  }
+}
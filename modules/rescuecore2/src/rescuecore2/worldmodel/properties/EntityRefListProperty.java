@@ -161,7 +161,7 @@ public class EntityRefListProperty extends AbstractProperty {
 		int count = readInt32(in);
 		List<EntityID> newIDs = new ArrayList<EntityID>(count);
 		for (int i = 0; i < count; ++i) {
-			newIDs.add(new EntityID(readInt32(in)));
+			newIDs.add(EntityID.valueOf(readInt32(in)));
 		}
 		setValue(newIDs);
 	}
@@ -200,7 +200,7 @@ public class EntityRefListProperty extends AbstractProperty {
 		List<Integer> values = proto.getIntList().getValuesList();
 		List<EntityID> newIDs = new ArrayList<EntityID>(values.size());
 		for (Integer val : values) {
-			newIDs.add(new EntityID(val));
+			newIDs.add(EntityID.valueOf(val));
 		}
 		setValue(newIDs);
 	}
@@ -115,7 +115,7 @@ public class EntityRefProperty extends AbstractProperty {
 
 	@Override
 	public void read(InputStream in) throws IOException {
-		setValue(new EntityID(readInt32(in)));
+		setValue(EntityID.valueOf(readInt32(in)));
 	}
 
 	@Override
@@ -136,6 +136,6 @@ public class EntityRefProperty extends AbstractProperty {
 	public void fromPropertyProto(PropertyProto proto) {
 		if (!proto.getDefined())
 			return;
-		setValue(new EntityID(proto.getIntValue()));
+		setValue(EntityID.valueOf(proto.getIntValue()));
 	}
 }
@@ -8,6 +8,7 @@ import rescuecore2.messages.Command;
 import rescuecore2.messages.control.KSUpdate;
 import rescuecore2.messages.control.KSCommands;
 import rescuecore2.log.Logger;
+import rescuecore2.metrics.MetricsRegistry;
 
 import rescuecore2.standard.messages.AKExtinguish;
 import rescuecore2.standard.components.StandardSimulator;
@@ -42,6 +43,7 @@ import rescuecore2.GUIComponent;
  */
 public class FireSimulatorWrapper extends StandardSimulator implements GUIComponent {
     private static final String MAX_WATER_KEY = "fire.tank.maximum";
+    private static final long NANOS_PER_MILLI = 1000000;
 
     private Simulator sim;
     private World world;
@@ -131,7 +133,7 @@ public class FireSimulatorWrapper extends StandardSimulator implements GUICompon
 
     @Override
     protected void processCommands(KSCommands c, ChangeSet changes) {
-        long start = System.currentTimeMillis();
+        long start = System.nanoTime();
         for (Command next : c.getCommands()) {
             if (next instanceof AKExtinguish) {
                 AKExtinguish ex = (AKExtinguish)next;
@@ -180,8 +182,8 @@ public class FireSimulatorWrapper extends StandardSimulator implements GUICompon
                 changes.addChange(fb, fb.getWaterProperty());
             }
         }
-        long end = System.currentTimeMillis();
-        Logger.info("Time " + c.getTime() + " took " + (end - start) + "ms");
+        long elapsed = MetricsRegistry.getCurrentRegistry().getTimer("fire.timestep").stop(start);
+        Logger.info("Time {} took {}ms", c.getTime(), elapsed / NANOS_PER_MILLI);
 		
 		if(fireSimulatorGUI != null) {
 			fireSimulatorGUI.refresh();
@@ -44,6 +44,8 @@ public enum StandardEntityURN implements URN {
   private String urnStr;
   public static final Map<Integer, StandardEntityURN> MAP = URN.generateMap(StandardEntityURN.class);
   public static final Map<String, StandardEntityURN> MAPSTR = URN.generateMapStr(StandardEntityURN.class);
+  // Dense lookup table for fromInt, avoiding a boxed map lookup
+  private static final StandardEntityURN[] BY_ID = indexById();
 
   private StandardEntityURN(int urnId, String urnStr) {
     this.urnId = urnId;
@@ -60,8 +62,24 @@ public enum StandardEntityURN implements URN {
     return this.urnStr;
   }
 
+  private static StandardEntityURN[] indexById() {
+    int max = 0;
+    for (StandardEntityURN next : values()) {
+      max = Math.max(max, next.urnId - ENTITY_URN_PREFIX);
+    }
+    StandardEntityURN[] result = new StandardEntityURN[max + 1];
+    for (StandardEntityURN next : values()) {
+      result[next.urnId - ENTITY_URN_PREFIX] = next;
+    }
+    return result;
+  }
+
   public static StandardEntityURN fromInt(int urn) {
-    return MAP.get(urn);
+    int index = urn - ENTITY_URN_PREFIX;
+    if (index < 0 || index >= BY_ID.length) {
+      return null;
+    }
+    return BY_ID[index];
   }
 
   public static StandardEntityURN fromString(String urn) {
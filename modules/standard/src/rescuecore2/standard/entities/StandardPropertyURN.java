@@ -86,6 +86,8 @@ public enum StandardPropertyURN implements URN {
   private String urnStr;
   public static final Map<Integer, StandardPropertyURN> MAP = URN.generateMap(StandardPropertyURN.class);
   public static final Map<String, StandardPropertyURN> MAPSTR = URN.generateMapStr(StandardPropertyURN.class);
+  // Dense lookup table for fromInt, which is on the hot path of every property access
+  private static final StandardPropertyURN[] BY_ID = indexById();
 
   private StandardPropertyURN(int urnId, String urnStr) {
     this.urnId = urnId;
@@ -102,6 +104,18 @@ public enum StandardPropertyURN implements URN {
     return this.urnStr;
   }
 
+  private static StandardPropertyURN[] indexById() {
+    int max = 0;
+    for (StandardPropertyURN next : values()) {
+      max = Math.max(max, next.urnId - PROPERTY_URN_PREFIX);
+    }
+    StandardPropertyURN[] result = new StandardPropertyURN[max + 1];
+    for (StandardPropertyURN next : values()) {
+      result[next.urnId - PROPERTY_URN_PREFIX] = next;
+    }
+    return result;
+  }
+
   /**
    * Convert a String to a StandardPropertyURN.
    *
@@ -109,7 +123,11 @@ public enum StandardPropertyURN implements URN {
    * @return A StandardPropertyURN.
    */
   public static StandardPropertyURN fromInt(int s) {
-    return MAP.get(s);
+    int index = s - PROPERTY_URN_PREFIX;
+    if (index < 0 || index >= BY_ID.length) {
+      return null;
+    }
+    return BY_ID[index];
   }
 
   public static StandardPropertyURN fromString(String s) {
@@ -208,7 +208,7 @@ public class StandardWorldModel extends DefaultWorldModel<StandardEntity> {
 
       @Override
       public boolean execute(int id) {
-        StandardEntity e = getEntity(new EntityID(id));
+        StandardEntity e = getEntity(id);
         if (e != null) {
           result.add(e);
         }
@@ -136,7 +136,7 @@ public class LineOfSightPerception implements Perception, GUIComponent {
     @Override
     public ChangeSet getVisibleEntities(AgentProxy agent) {
         StandardEntity agentEntity = (StandardEntity)agent.getControlledEntity();
-        Logger.debug("Finding visible entities for " + agentEntity);
+        Logger.debug("Finding visible entities for {}", agentEntity);
         ChangeSet result = new ChangeSet();
         // Look for objects within range
         Pair<Integer, Integer> location = agentEntity.getLocation(world);
@@ -300,8 +300,8 @@ public class LineOfSightPerception implements Perception, GUIComponent {
     }
 
     private Collection<StandardEntity> findVisible(StandardEntity agentEntity, Point2D location, Collection<StandardEntity> nearby) {
-        Logger.debug("Finding visible entities from " + location);
-        Logger.debug(nearby.size() + " nearby entities");
+        Logger.debug("Finding visible entities from {}", location);
+        Logger.debug("{} nearby entities", nearby.size());
         Collection<LineInfo> lines = getAllLines(nearby);
         // Cast rays
         // CHECKSTYLE:OFF:MagicNumber
@@ -331,7 +331,7 @@ public class LineOfSightPerception implements Perception, GUIComponent {
         }
         // Add self
         result.add(agentEntity);
-        Logger.debug(agentEntity + " can see " + result);
+        Logger.debug("{} can see {}", agentEntity, result);
         return result;
     }
 
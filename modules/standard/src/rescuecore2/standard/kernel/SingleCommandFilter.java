@@ -44,7 +44,7 @@ public class SingleCommandFilter implements CommandFilter {
                 }
                 else {
                     sent.add(sender);
-                    Logger.debug(sender + " sent command " + c);
+                    Logger.debug("{} sent command {}", sender, c);
                 }
             }
         }
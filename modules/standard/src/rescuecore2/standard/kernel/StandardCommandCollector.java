@@ -39,7 +39,7 @@ public class StandardCommandCollector implements CommandCollector {
                 Collection<Command> commands = next.getAgentCommands(timestep);
                 for (Command c : commands) {
                     if (isTriggerCommand(c)) {
-                        Logger.debug(next + " sent a trigger command");
+                        Logger.debug("{} sent a trigger command", next);
                         waiting.remove(next);
                     }
                 }
@@ -51,7 +51,7 @@ public class StandardCommandCollector implements CommandCollector {
         for (AgentProxy next : agents) {
             result.addAll(next.getAgentCommands(timestep));
         }
-        Logger.trace(this + " returning " + result.size() + " commands");
+        Logger.trace("{} returning {} commands", this, result.size());
         return result;
     }
 
@@ -3,13 +3,15 @@ package rescuecore2.standard.kernel;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Comparator;
 import java.util.Dictionary;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Iterator;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
 import javax.swing.BorderFactory;
@@ -81,7 +83,7 @@ public class StandardPerception implements Perception, GUIComponent {
   private StandardWorldModel world;
   private int time;
   private Set<Building> unburntBuildings;
-  private Map<Building, Integer> ignitionTimes;
+  private List<FireGroup> fires;
   private Config config;
 
   // Lock object for updating via the GUI.
@@ -102,19 +104,23 @@ public class StandardPerception implements Perception, GUIComponent {
     useFarFires = config.getBooleanValue(USE_FAR_FIRES_KEY, DEFAULT_USE_FAR_FIRES);
     hpPrecision = config.getIntValue(HP_PRECISION_KEY, DEFAULT_HP_PRECISION);
     damagePrecision = config.getIntValue(DAMAGE_PRECISION_KEY, DEFAULT_DAMAGE_PRECISION);
-    ignitionTimes = new HashMap<Building, Integer>();
+    fires = new ArrayList<FireGroup>();
     unburntBuildings = new HashSet<Building>();
     time = 0;
+    List<Building> burning = new ArrayList<Building>();
     for (StandardEntity next : world) {
       if (next instanceof Building) {
         Building b = (Building) next;
         if (!b.isFierynessDefined() || b.getFieryness() == 0) {
           unburntBuildings.add(b);
         } else {
-          ignitionTimes.put(b, time);
+          burning.add(b);
         }
       }
     }
+    if (!burning.isEmpty()) {
+      fires.add(new FireGroup(time, burning));
+    }
   }
 
   @Override
@@ -135,6 +141,7 @@ public class StandardPerception implements Perception, GUIComponent {
   @Override
   public void setTime(int timestep) {
     // Look for buildings that caught fire last timestep
+    List<Building> ignited = new ArrayList<Building>();
     for (Iterator<Building> it = unburntBuildings.iterator(); it.hasNext();) {
       Building next = it.next();
       if (next.isFierynessDefined()) {
@@ -142,7 +149,7 @@ public class StandardPerception implements Perception, GUIComponent {
           case HEATING:
           case BURNING:
           case INFERNO:
-            ignitionTimes.put(next, time);
+            ignited.add(next);
             it.remove();
             break;
           default:
@@ -150,6 +157,11 @@ public class StandardPerception implements Perception, GUIComponent {
         }
       }
     }
+    if (!ignited.isEmpty()) {
+      synchronized (lock) {
+        fires.add(new FireGroup(time, ignited));
+      }
+    }
     time = timestep;
     // Look for scripting elements in the config file
     checkForScript();
@@ -210,15 +222,9 @@ public class StandardPerception implements Perception, GUIComponent {
         }
         // Now look for far fires
         if (useFarFires) {
-          for (Map.Entry<Building, Integer> next : ignitionTimes.entrySet()) {
-            Building b = next.getKey();
-            int ignitionTime = next.getValue();
-            int timeDelta = time - ignitionTime;
-            int visibleRange = timeDelta * farFireDistance;
-            int range = world.getDistance(agentEntity, b);
-            if (range <= visibleRange) {
-              addFarBuildingProperties(b, result);
-            }
+          for (FireGroup next : fires) {
+            int visibleRange = (time - next.ignitionTime) * farFireDistance;
+            next.addVisible(x, y, visibleRange, result);
           }
         }
 
@@ -359,6 +365,90 @@ public class StandardPerception implements Perception, GUIComponent {
     damagePrecision = config.getIntValue(DAMAGE_PRECISION_KEY + ".script." + time, damagePrecision);
   }
 
+  /**
+   * The buildings that caught fire in one timestep, sorted by x coordinate so
+   * that only those near an agent need to be looked at.
+   */
+  private class FireGroup {
+    private final int ignitionTime;
+    private final Building[] buildings;
+    private final int[] xs;
+    private final int[] ys;
+    private final int minX;
+    private final int maxX;
+    private final int minY;
+    private final int maxY;
+
+    FireGroup(int ignitionTime, List<Building> ignited) {
+      this.ignitionTime = ignitionTime;
+      buildings = ignited.toArray(new Building[ignited.size()]);
+      Arrays.sort(buildings, Comparator.comparingInt(Building::getX));
+      xs = new int[buildings.length];
+      ys = new int[buildings.length];
+      int lowY = Integer.MAX_VALUE;
+      int highY = Integer.MIN_VALUE;
+      for (int i = 0; i < buildings.length; ++i) {
+        xs[i] = buildings[i].getX();
+        ys[i] = buildings[i].getY();
+        lowY = Math.min(lowY, ys[i]);
+        highY = Math.max(highY, ys[i]);
+      }
+      minX = xs[0];
+      maxX = xs[xs.length - 1];
+      minY = lowY;
+      maxY = highY;
+    }
+
+    /**
+     * Add the buildings within a range of a point.
+     */
+    void addVisible(int x, int y, int range, ChangeSet result) {
+      if (range < 0) {
+        return;
+      }
+      // Once the whole group is in range there is no need to look at each building
+      if (distance(x, y, farthest(x, minX, maxX), farthest(y, minY, maxY)) <= range) {
+        for (Building next : buildings) {
+          addFarBuildingProperties(next, result);
+        }
+        return;
+      }
+      // Distances are truncated, so anything in range is less than range + 1 away in x
+      long lowX = (long) x - range - 1;
+      long highX = (long) x + range + 1;
+      for (int i = firstAtLeast(lowX); i < xs.length && xs[i] <= highX; ++i) {
+        if (distance(x, y, xs[i], ys[i]) <= range) {
+          addFarBuildingProperties(buildings[i], result);
+        }
+      }
+    }
+
+    private int farthest(int value, int low, int high) {
+      return value - low > high - value ? low : high;
+    }
+
+    private int firstAtLeast(long value) {
+      int low = 0;
+      int high = xs.length;
+      while (low < high) {
+        int mid = (low + high) >>> 1;
+        if (xs[mid] < value) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+      return low;
+    }
+
+    // Same as StandardWorldModel.getDistance
+    private int distance(int x1, int y1, int x2, int y2) {
+      double dx = x1 - x2;
+      double dy = y1 - y2;
+      return (int) Math.hypot(dx, dy);
+    }
+  }
+
   private class TunePanel extends JPanel {
     private JSlider viewDistanceSlider;
     private JSlider hpPrecisionSlider;
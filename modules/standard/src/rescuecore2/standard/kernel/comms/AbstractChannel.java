@@ -88,10 +88,10 @@ public abstract class AbstractChannel implements Channel {
         if(originalSize == 0){
         	throw new InvalidMessageException("Tried to push empty message to channel " + channelID);
         }
-        Logger.debug("Pushing " + speak + " through channel " + channelID);
+        Logger.debug("Pushing {} through channel {}", speak, channelID);
         
         speak = applyInputNoise(speak);
-        Logger.debug("Input noise result: " + speak);
+        Logger.debug("Input noise result: {}", speak);
 //        if (speak != null) {
             pushImpl(speak,originalSize);
 //        }
@@ -110,9 +110,9 @@ public abstract class AbstractChannel implements Channel {
        @param msg The message.
      */
     protected void addMessageForAgent(Entity a, AKSpeak msg) {
-        Logger.debug("Adding message " + msg + " for agent " + a);
+        Logger.debug("Adding message {} for agent {}", msg, a);
         msg = applyOutputNoise(msg);
-        Logger.debug("Output noise result: " + msg);
+        Logger.debug("Output noise result: {}", msg);
         if (msg != null) {
             Collection<AKSpeak> c = messagesForAgents.get(a);
             c.add(msg);
@@ -101,7 +101,7 @@ public class ChannelCommunicationModel extends AbstractCommunicationModel {
 
     @Override
     public void process(int time, Collection<? extends Command> agentCommands) {
-        Logger.debug("ChannelCommunicationModel processing commands at time " + time + ": " + agentCommands);
+        Logger.debug("ChannelCommunicationModel processing commands at time {}: {}", time, agentCommands);
         super.process(time, agentCommands);
         // Update all channels
         for (Channel next : channels.values()) {
@@ -120,7 +120,7 @@ public class ChannelCommunicationModel extends AbstractCommunicationModel {
                     AKSpeak speak = (AKSpeak)next;
                     int channelNumber = speak.getChannel();
                     Channel channel = channels.get(channelNumber);
-                    Logger.debug("Processing speak: " + speak);
+                    Logger.debug("Processing speak: {}", speak);
                     if (channel == null) {
                         throw new InvalidMessageException("Unrecognised channel: " + channelNumber);
                     }
@@ -185,7 +185,7 @@ public class ChannelCommunicationModel extends AbstractCommunicationModel {
     }
 
     private void processSubscribe(AKSubscribe sub) {
-        Logger.debug("Processing subscribe message : " + sub);
+        Logger.debug("Processing subscribe message : {}", sub);
         List<Integer> requested = sub.getChannels();
         EntityID id = sub.getAgentID();
         Entity entity = world.getEntity(id);
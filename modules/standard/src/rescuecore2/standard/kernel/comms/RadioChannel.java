@@ -40,7 +40,7 @@ public class RadioChannel extends AbstractChannel {
         if (usedBandwidth > bandwidth) {
             throw new InvalidMessageException("Discarding message on channel " + channelID + ": already used " + usedBandwidth + " of " + bandwidth + " bytes, new message is " + data.length + " bytes.");
         }
-        Logger.debug(this + " accepted message from " + speak.getAgentID());
+        Logger.debug("{} accepted message from {}", this, speak.getAgentID());
         addMessageForSubscribers(speak);
 //        usedBandwidth += data.length;
     }
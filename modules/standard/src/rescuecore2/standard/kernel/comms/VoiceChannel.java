@@ -78,7 +78,7 @@ public class VoiceChannel extends AbstractChannel {
         StandardEntity sender = world.getEntity(agentID);
         for (StandardEntity target : world.getEntitiesOfType(StandardEntityURN.FIRE_BRIGADE, StandardEntityURN.AMBULANCE_TEAM, StandardEntityURN.POLICE_FORCE, StandardEntityURN.CIVILIAN)) {
             if (world.getDistance(sender, target) <= range) {
-                Logger.debug(target + " can hear voice message from " + sender);
+                Logger.debug("{} can hear voice message from {}", target, sender);
                 addMessageForAgent(target, speak);
             }
         }
@@ -0,0 +1,349 @@
+package rescuecore2.standard.misc;
+
+import com.vividsolutions.jts.algorithm.CGAlgorithms;
+import com.vividsolutions.jts.algorithm.RayCrossingCounter;
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateArrays;
+import com.vividsolutions.jts.geom.CoordinateList;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Location;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.geom.PrecisionModel;
+import com.vividsolutions.jts.geom.util.PolygonExtracter;
+import com.vividsolutions.jts.operation.buffer.BufferParameters;
+import com.vividsolutions.jts.operation.polygonize.Polygonizer;
+import com.vividsolutions.jts.operation.union.UnaryUnionOp;
+import com.vividsolutions.jts.precision.GeometryPrecisionReducer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Polygon operations shared by the simulators that create and clear
+ * blockades. Shapes are JTS geometries in world coordinates; results are
+ * snapped to integer coordinates before they are turned back into apex lists.
+ */
+public final class BlockadeGeometry {
+
+  private static final GeometryFactory FACTORY = new GeometryFactory();
+  private static final PrecisionModel INTEGER_PRECISION = new PrecisionModel(
+      1.0);
+
+  // Segments per quarter circle at the ends of projected walls
+  private static final int QUADRANT_SEGMENTS = 8;
+
+  private BlockadeGeometry() {
+  }
+
+
+  /**
+   * Get the geometry factory used for all geometries built by this class.
+   *
+   * @return The geometry factory.
+   */
+  public static GeometryFactory getFactory() {
+    return FACTORY;
+  }
+
+
+  /**
+   * Create a polygon from a list of apexes. Self-intersecting outlines are
+   * repaired with the even-odd rule used by java.awt.Polygon, so a bow-tie
+   * becomes two triangles that touch at a point.
+   *
+   * @param apexes
+   *   The apexes as x, y pairs. The outline does not need to be closed.
+   *
+   * @return The polygon. This will be empty if there are less than three
+   *         apexes.
+   */
+  public static Geometry toPolygon(int[] apexes) {
+    CoordinateList coords = new CoordinateList();
+    for (int i = 0; i + 1 < apexes.length; i += 2) {
+      coords.add(new Coordinate(apexes[i], apexes[i + 1]), false);
+    }
+    coords.closeRing();
+    if (coords.size() < 4) {
+      return FACTORY.createPolygon(null, null);
+    }
+    Coordinate[] ring = coords.toCoordinateArray();
+    Polygon result = FACTORY.createPolygon(FACTORY.createLinearRing(ring), null);
+    if (!result.isValid()) {
+      return repair(ring);
+    }
+    return result;
+  }
+
+
+  /**
+   * Create a polygon from the apexes of a convex outline, such as an area to
+   * clear. Convex outlines cannot cross themselves, so this skips the validity
+   * check done by {@link #toPolygon(int[])}.
+   *
+   * @param apexes
+   *   The apexes as x, y pairs. The outline does not need to be closed.
+   *
+   * @return The polygon. This will be empty if the outline has no area.
+   */
+  public static Geometry toConvexPolygon(int[] apexes) {
+    CoordinateList coords = new CoordinateList();
+    for (int i = 0; i + 1 < apexes.length; i += 2) {
+      coords.add(new Coordinate(apexes[i], apexes[i + 1]), false);
+    }
+    coords.closeRing();
+    Coordinate[] ring = coords.toCoordinateArray();
+    if (ring.length < 4 || CGAlgorithms.signedArea(ring) == 0) {
+      return FACTORY.createPolygon(null, null);
+    }
+    return FACTORY.createPolygon(FACTORY.createLinearRing(ring), null);
+  }
+
+
+  /**
+   * Create the region covered by a collapsing wall. This is every point within
+   * a distance of the outline, i.e. a band either side of each wall with
+   * rounded corners.
+   *
+   * @param apexes
+   *   The apexes of the outline as x, y pairs.
+   * @param distance
+   *   The distance the walls spread.
+   *
+   * @return The covered region.
+   */
+  public static Geometry projectWalls(int[] apexes, double distance) {
+    CoordinateList coords = new CoordinateList();
+    for (int i = 0; i + 1 < apexes.length; i += 2) {
+      coords.add(new Coordinate(apexes[i], apexes[i + 1]), false);
+    }
+    coords.closeRing();
+    if (coords.size() < 2 || distance <= 0) {
+      return FACTORY.createPolygon(null, null);
+    }
+    return FACTORY.createLineString(coords.toCoordinateArray())
+        .buffer(distance, QUADRANT_SEGMENTS, BufferParameters.CAP_ROUND);
+  }
+
+
+  /**
+   * Union a collection of geometries. Blockades rarely overlap, so if no two
+   * bounding boxes meet the geometries are just collected together instead of
+   * running a full overlay.
+   *
+   * @param geometries
+   *   The polygonal geometries to union.
+   *
+   * @return The union, which is a Polygon or MultiPolygon. This will be empty
+   *         if the collection is empty.
+   */
+  public static Geometry union(Collection<Geometry> geometries) {
+    if (geometries.isEmpty()) {
+      return FACTORY.createPolygon(null, null);
+    }
+    if (isSeparate(geometries)) {
+      // Inputs may be MultiPolygons, which would nest inside a collection
+      List<Polygon> polygons = new ArrayList<Polygon>();
+      for (Geometry next : geometries) {
+        PolygonExtracter.getPolygons(next, polygons);
+      }
+      return FACTORY
+          .createMultiPolygon(GeometryFactory.toPolygonArray(polygons));
+    }
+    return UnaryUnionOp.union(geometries, FACTORY);
+  }
+
+
+  /**
+   * Compute the area of the part of a geometry that lies inside a convex
+   * polygon. The geometry is clipped against each side of the polygon in turn,
+   * which is much cheaper than a general intersection and creates no
+   * geometries.
+   *
+   * @param geometry
+   *   A polygonal geometry.
+   * @param convex
+   *   A convex polygon.
+   *
+   * @return The area of the intersection.
+   */
+  public static double getIntersectionArea(Geometry geometry, Geometry convex) {
+    if (geometry.isEmpty() || convex.isEmpty() || !geometry
+        .getEnvelopeInternal().intersects(convex.getEnvelopeInternal())) {
+      return 0;
+    }
+    Coordinate[] clip = ((Polygon) convex).getExteriorRing().getCoordinates();
+    if (!CGAlgorithms.isCCW(clip)) {
+      clip = clip.clone();
+      CoordinateArrays.reverse(clip);
+    }
+    double result = 0;
+    List<Polygon> polygons = new ArrayList<Polygon>();
+    PolygonExtracter.getPolygons(geometry, polygons);
+    for (Polygon polygon : polygons) {
+      result += clippedArea(polygon.getExteriorRing().getCoordinates(), clip);
+      for (int j = 0; j < polygon.getNumInteriorRing(); ++j) {
+        result -= clippedArea(polygon.getInteriorRingN(j).getCoordinates(),
+            clip);
+      }
+    }
+    return result;
+  }
+
+
+  /**
+   * Split a geometry into apex lists of simple polygons. The geometry is snapped
+   * to integer coordinates first. Blockades cannot have holes, so any polygon
+   * with holes is cut through each hole until none are left. Pieces that
+   * collapse to nothing when snapped are dropped.
+   *
+   * @param geometry
+   *   The geometry to convert.
+   *
+   * @return A list of apex arrays, one for each polygon.
+   */
+  public static List<int[]> toApexes(Geometry geometry) {
+    List<int[]> result = new ArrayList<int[]>();
+    if (geometry.isEmpty()) {
+      return result;
+    }
+    addApexes(GeometryPrecisionReducer.reduce(geometry, INTEGER_PRECISION),
+        result);
+    return result;
+  }
+
+
+  /**
+   * Split a self-intersecting ring where it crosses itself and keep the faces
+   * that lie inside the ring by the even-odd rule.
+   */
+  private static Geometry repair(Coordinate[] ring) {
+    Polygonizer polygonizer = new Polygonizer();
+    polygonizer.add(FACTORY.createLineString(ring).union());
+    List<Geometry> faces = new ArrayList<Geometry>();
+    for (Object next : polygonizer.getPolygons()) {
+      Polygon face = (Polygon) next;
+      Coordinate inside = face.getInteriorPoint().getCoordinate();
+      if (RayCrossingCounter.locatePointInRing(inside,
+          ring) == Location.INTERIOR) {
+        faces.add(face);
+      }
+    }
+    return union(faces);
+  }
+
+
+  private static boolean isSeparate(Collection<Geometry> geometries) {
+    Envelope[] bounds = new Envelope[geometries.size()];
+    int count = 0;
+    for (Geometry next : geometries) {
+      Envelope e = next.getEnvelopeInternal();
+      for (int i = 0; i < count; ++i) {
+        if (bounds[i].intersects(e)) {
+          return false;
+        }
+      }
+      bounds[count++] = e;
+    }
+    return true;
+  }
+
+
+  /**
+   * Clip a ring against a counter-clockwise convex ring (Sutherland-Hodgman)
+   * and return the area of what is left.
+   */
+  private static double clippedArea(Coordinate[] ring, Coordinate[] clip) {
+    // Rings are closed, so the last coordinate is dropped
+    int n = ring.length - 1;
+    double[] xs = new double[n];
+    double[] ys = new double[n];
+    for (int i = 0; i < n; ++i) {
+      xs[i] = ring[i].x;
+      ys[i] = ring[i].y;
+    }
+    for (int c = 0; c < clip.length - 1 && n > 0; ++c) {
+      double ax = clip[c].x;
+      double ay = clip[c].y;
+      double ex = clip[c + 1].x - ax;
+      double ey = clip[c + 1].y - ay;
+      double[] nextXs = new double[n * 2];
+      double[] nextYs = new double[n * 2];
+      int m = 0;
+      for (int i = 0; i < n; ++i) {
+        int j = (i + 1) % n;
+        double si = ex * (ys[i] - ay) - ey * (xs[i] - ax);
+        double sj = ex * (ys[j] - ay) - ey * (xs[j] - ax);
+        if (si >= 0) {
+          nextXs[m] = xs[i];
+          nextYs[m++] = ys[i];
+        }
+        if ((si >= 0) != (sj >= 0)) {
+          double t = si / (si - sj);
+          nextXs[m] = xs[i] + t * (xs[j] - xs[i]);
+          nextYs[m++] = ys[i] + t * (ys[j] - ys[i]);
+        }
+      }
+      xs = nextXs;
+      ys = nextYs;
+      n = m;
+    }
+    double sum = 0;
+    for (int i = 0; i < n; ++i) {
+      int j = (i + 1) % n;
+      sum += xs[i] * ys[j] - xs[j] * ys[i];
+    }
+    return Math.abs(sum) / 2;
+  }
+
+
+  private static void addApexes(Geometry geometry, List<int[]> result) {
+    List<Polygon> polygons = new ArrayList<Polygon>();
+    PolygonExtracter.getPolygons(geometry, polygons);
+    for (Polygon polygon : polygons) {
+      if (polygon.isEmpty()) {
+        continue;
+      }
+      if (polygon.getNumInteriorRing() > 0) {
+        for (Geometry piece : splitAtHole(polygon)) {
+          addApexes(GeometryPrecisionReducer.reduce(piece, INTEGER_PRECISION),
+              result);
+        }
+        continue;
+      }
+      Coordinate[] ring = polygon.getExteriorRing().getCoordinates();
+      // The last coordinate repeats the first
+      if (ring.length < 4) {
+        continue;
+      }
+      int[] apexes = new int[(ring.length - 1) * 2];
+      for (int j = 0; j < ring.length - 1; ++j) {
+        apexes[j * 2] = (int) ring[j].x;
+        apexes[j * 2 + 1] = (int) ring[j].y;
+      }
+      result.add(apexes);
+    }
+  }
+
+
+  /**
+   * Cut a polygon in two along the vertical line through a point inside its
+   * first hole.
+   */
+  private static Geometry[] splitAtHole(Polygon polygon) {
+    LinearRing hole = (LinearRing) polygon.getInteriorRingN(0);
+    Point inside = FACTORY.createPolygon(hole, null).getInteriorPoint();
+    Envelope bounds = polygon.getEnvelopeInternal();
+    double minY = bounds.getMinY() - 1;
+    double maxY = bounds.getMaxY() + 1;
+    Geometry left = FACTORY.toGeometry(
+        new Envelope(bounds.getMinX() - 1, inside.getX(), minY, maxY));
+    Geometry right = FACTORY.toGeometry(
+        new Envelope(inside.getX(), bounds.getMaxX() + 1, minY, maxY));
+    return new Geometry[] {polygon.intersection(left),
+        polygon.intersection(right)};
+  }
+}
@@ -1,6 +1,6 @@
 package rescuecore2.standard.score;
 
-import rescuecore2.score.AbstractScoreFunction;
+import rescuecore2.score.IncrementalScoreFunction;
 import rescuecore2.worldmodel.WorldModel;
 import rescuecore2.worldmodel.Entity;
 import rescuecore2.Timestep;
@@ -15,31 +15,44 @@ import rescuecore2.standard.misc.AgentPath;
 /**
    A score function that measures the distance travelled by all agents.
 */
-public class DistanceTravelledScoreFunction extends AbstractScoreFunction {
+public class DistanceTravelledScoreFunction extends IncrementalScoreFunction {
+    private WorldModel<? extends Entity> world;
+    private StandardWorldModel model;
+
     /**
        Construct a DistanceTravelledScoreFunction.
     */
     public DistanceTravelledScoreFunction() {
-        super("Distance travelled");
+        super("Distance travelled", 1);
+    }
+
+    @Override
+    public double score(WorldModel<? extends Entity> newWorld, Timestep timestep) {
+        if (newWorld != world) {
+            world = newWorld;
+            model = StandardWorldModel.createStandardWorldModel(newWorld);
+        }
+        return super.score(newWorld, timestep);
     }
 
     @Override
-    public double score(WorldModel<? extends Entity> world, Timestep timestep) {
-        StandardWorldModel model = StandardWorldModel.createStandardWorldModel(world);
+    protected boolean getContribution(Entity entity, double[] result) {
         // Find out how far each agent moved
-        double sum = 0;
-        for (Entity next : model) {
-            if (next instanceof FireBrigade
-                || next instanceof PoliceForce
-                || next instanceof AmbulanceTeam) {
-                Human h = (Human)next;
-                AgentPath path = AgentPath.computePath(h, model);
-                if (path != null) {
-                    sum += path.getLength();
-                }
-            }
+        if (!(entity instanceof FireBrigade
+              || entity instanceof PoliceForce
+              || entity instanceof AmbulanceTeam)) {
+            return false;
         }
-        System.out.println("Total distance travelled: " + sum);
-        return sum;
+        AgentPath path = AgentPath.computePath((Human)entity, model);
+        if (path != null) {
+            result[0] = path.getLength();
+        }
+        return true;
+    }
+
+    @Override
+    protected double combine(double[] sums) {
+        System.out.println("Total distance travelled: " + sums[0]);
+        return sums[0];
     }
 }
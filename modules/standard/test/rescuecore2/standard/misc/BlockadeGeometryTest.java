@@ -0,0 +1,132 @@
+package rescuecore2.standard.misc;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.Polygon;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class BlockadeGeometryTest {
+
+  private static final double DELTA = 1e-6;
+
+  // Two crossing diagonals of a 100 x 100 square
+  private static final int[] BOW_TIE = {0, 0, 100, 100, 100, 0, 0, 100};
+
+  // Two 100 x 100 squares drawn as one outline that touches itself at
+  // (100, 100)
+  private static final int[] FIGURE_EIGHT = {0, 0, 100, 0, 100, 100, 200, 100,
+      200, 200, 100, 200, 100, 100, 0, 100};
+
+  private static final int[] SQUARE = {1000, 1000, 1100, 1000, 1100, 1100,
+      1000, 1100};
+
+
+  @Test
+  public void testBowTieKeepsBothLobes() {
+    Geometry g = BlockadeGeometry.toPolygon(BOW_TIE);
+    assertTrue(g.isValid());
+    assertEquals(2, g.getNumGeometries());
+    assertEquals(5000, g.getArea(), DELTA);
+  }
+
+
+  @Test
+  public void testSelfTouchingOutline() {
+    Geometry g = BlockadeGeometry.toPolygon(FIGURE_EIGHT);
+    assertTrue(g.isValid());
+    assertEquals(2, g.getNumGeometries());
+    assertEquals(20000, g.getArea(), DELTA);
+  }
+
+
+  @Test
+  public void testUnionOfSeparateMultiPolygons() {
+    Geometry union = union(FIGURE_EIGHT, SQUARE);
+    assertPolygonal(union);
+    assertEquals(3, union.getNumGeometries());
+    assertEquals(30000, union.getArea(), DELTA);
+    union = union(BOW_TIE, SQUARE);
+    assertPolygonal(union);
+    assertEquals(15000, union.getArea(), DELTA);
+  }
+
+
+  @Test
+  public void testOverlayOnUnion() {
+    Geometry union = union(FIGURE_EIGHT, SQUARE);
+    Geometry cut = BlockadeGeometry.toPolygon(
+        new int[] {50, -10, 1050, -10, 1050, 2000, 50, 2000});
+    // Overlay operations reject nested collections
+    assertEquals(10000, union.difference(cut).getArea(), DELTA);
+    Geometry other = BlockadeGeometry.toPolygon(
+        new int[] {0, 0, 50, 0, 50, 50, 0, 50});
+    assertEquals(30000, union.union(other).getArea(), DELTA);
+  }
+
+
+  @Test
+  public void testIntersectionAreaOfUnion() {
+    Geometry union = union(FIGURE_EIGHT, SQUARE);
+    Geometry all = BlockadeGeometry.toPolygon(
+        new int[] {-10, -10, 2000, -10, 2000, 2000, -10, 2000});
+    assertEquals(30000, BlockadeGeometry.getIntersectionArea(union, all),
+        DELTA);
+    Geometry bowTie = BlockadeGeometry.toPolygon(BOW_TIE);
+    assertEquals(5000, BlockadeGeometry.getIntersectionArea(bowTie, all),
+        DELTA);
+  }
+
+
+  @Test
+  public void testConvexPolygon() {
+    Geometry g = BlockadeGeometry.toConvexPolygon(SQUARE);
+    assertTrue(g.isValid());
+    assertEquals(10000, g.getArea(), DELTA);
+    // A clear area of zero length
+    assertTrue(BlockadeGeometry
+        .toConvexPolygon(new int[] {0, 0, 0, 0, 100, 100, 100, 100})
+        .isEmpty());
+    assertTrue(BlockadeGeometry
+        .toConvexPolygon(new int[] {0, 0, 50, 50, 100, 100}).isEmpty());
+  }
+
+
+  @Test
+  public void testApexesOfRepairedShapes() {
+    assertArea(15000, BlockadeGeometry.toApexes(union(BOW_TIE, SQUARE)));
+    assertArea(30000,
+        BlockadeGeometry.toApexes(union(FIGURE_EIGHT, SQUARE)));
+  }
+
+
+  private static Geometry union(int[]... outlines) {
+    List<Geometry> geometries = new ArrayList<Geometry>();
+    for (int[] next : outlines) {
+      geometries.add(BlockadeGeometry.toPolygon(next));
+    }
+    return BlockadeGeometry.union(geometries);
+  }
+
+
+  private static void assertPolygonal(Geometry g) {
+    assertTrue(g.isValid());
+    for (int i = 0; i < g.getNumGeometries(); ++i) {
+      assertTrue(g.getGeometryN(i) instanceof Polygon);
+    }
+  }
+
+
+  private static void assertArea(double expected, List<int[]> apexes) {
+    assertFalse(apexes.isEmpty());
+    double total = 0;
+    for (int[] next : apexes) {
+      total += BlockadeGeometry.toPolygon(next).getArea();
+    }
+    assertEquals(expected, total, DELTA);
+  }
+}
@@ -0,0 +1,126 @@
+package rescuecore2.standard.score;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import rescuecore2.Timestep;
+import rescuecore2.config.Config;
+import rescuecore2.score.ScoreFunction;
+import rescuecore2.standard.entities.Building;
+import rescuecore2.standard.entities.Civilian;
+import rescuecore2.standard.entities.StandardEntity;
+import rescuecore2.standard.entities.StandardWorldModel;
+import rescuecore2.worldmodel.ChangeSet;
+import rescuecore2.worldmodel.EntityID;
+
+public class IncrementalScoreFunctionTest {
+    private static final long SEED = 42;
+    private static final int CIVILIANS = 200;
+    private static final int BUILDINGS = 200;
+    private static final int TIMESTEPS = 50;
+    private static final int CHANGES = 40;
+    private static final int MAX_HP = 10000;
+    private static final int FIERYNESS_VALUES = 9;
+    private static final double DELTA = 1e-9;
+
+    @Test
+    public void testHealth() {
+        check(new HealthScoreFunction(), new HealthScoreFunction());
+    }
+
+    @Test
+    public void testCiviliansAlive() {
+        check(new CiviliansAliveScoreFunction(), new CiviliansAliveScoreFunction());
+    }
+
+    @Test
+    public void testBuildingDamage() {
+        check(new BuildingDamageScoreFunction(), new BuildingDamageScoreFunction());
+    }
+
+    /**
+       Apply random change sets to a world and check that the incremental score after each timestep is the same as a full scan by a fresh function.
+    */
+    private void check(ScoreFunction incremental, ScoreFunction full) {
+        Random random = new Random(SEED);
+        StandardWorldModel world = createWorld(random);
+        Config config = createConfig();
+        incremental.initialise(world, config);
+        assertEquals(fullScan(full, world, config, 0), incremental.score(world, new Timestep(0)), DELTA);
+        for (int time = 1; time <= TIMESTEPS; ++time) {
+            ChangeSet changes = createChanges(world, random);
+            world.merge(changes);
+            Timestep timestep = new Timestep(time);
+            timestep.setChangeSet(changes);
+            double score = incremental.score(world, timestep);
+            assertEquals(fullScan(full, world, config, time), score, DELTA, "Timestep " + time);
+            // Asking again in the same timestep must not apply the changes twice
+            assertEquals(score, incremental.score(world, timestep), DELTA);
+        }
+    }
+
+    private double fullScan(ScoreFunction function, StandardWorldModel world, Config config, int time) {
+        // Initialising forgets the previous world so the next call scans everything
+        function.initialise(world, config);
+        return function.score(world, new Timestep(time));
+    }
+
+    private StandardWorldModel createWorld(Random random) {
+        StandardWorldModel world = new StandardWorldModel();
+        int id = 1;
+        for (int i = 0; i < CIVILIANS; ++i) {
+            Civilian c = new Civilian(new EntityID(id++));
+            c.setHP(random.nextInt(MAX_HP));
+            world.addEntity(c);
+        }
+        for (int i = 0; i < BUILDINGS; ++i) {
+            Building b = new Building(new EntityID(id++));
+            b.setTotalArea(1 + random.nextInt(1000));
+            b.setImportance(1 + random.nextInt(3));
+            b.setFieryness(random.nextInt(FIERYNESS_VALUES));
+            world.addEntity(b);
+        }
+        return world;
+    }
+
+    private ChangeSet createChanges(StandardWorldModel world, Random random) {
+        List<StandardEntity> all = new ArrayList<StandardEntity>(world.getAllEntities());
+        ChangeSet result = new ChangeSet();
+        for (int i = 0; i < CHANGES; ++i) {
+            StandardEntity next = all.get(random.nextInt(all.size()));
+            if (random.nextInt(20) == 0) {
+                result.entityDeleted(next.getID());
+            }
+            else if (next instanceof Civilian) {
+                Civilian c = (Civilian)next.copy();
+                // Some civilians die
+                c.setHP(random.nextInt(4) == 0 ? 0 : random.nextInt(MAX_HP));
+                result.addChange(c, c.getHPProperty());
+            }
+            else if (next instanceof Building) {
+                Building b = (Building)next.copy();
+                b.setFieryness(random.nextInt(FIERYNESS_VALUES));
+                result.addChange(b, b.getFierynessProperty());
+            }
+        }
+        return result;
+    }
+
+    private Config createConfig() {
+        Config config = new Config();
+        config.setFloatValue("score.standard.building-fire.heating", 0.9);
+        config.setFloatValue("score.standard.building-fire.burning", 0.6);
+        config.setFloatValue("score.standard.building-fire.inferno", 0.2);
+        config.setFloatValue("score.standard.building-fire.water-damage", 0.95);
+        config.setFloatValue("score.standard.building-fire.minor-damage", 0.85);
+        config.setFloatValue("score.standard.building-fire.moderate-damage", 0.5);
+        config.setFloatValue("score.standard.building-fire.severe-damage", 0.15);
+        config.setFloatValue("score.standard.building-fire.burnt-out", 0);
+        return config;
+    }
+}
@@ -124,6 +124,26 @@ public class TrafficManager {
   }
 
 
+  /**
+   * Get all agents in the same area or a neighbouring area as an agent. This
+   * fills a list supplied by the caller so that the list can be reused from
+   * one microstep to the next.
+   *
+   * @param agent
+   *   The agent to look up.
+   * @param result
+   *   The list to fill. It is cleared first.
+   */
+  public void getNearbyAgents(TrafficAgent agent, List<TrafficAgent> result) {
+    result.clear();
+    // An agent is only ever in one area so there are no duplicates
+    addAgents(agent.getArea(), agent, result);
+    for (TrafficArea next : getNeighbours(agent.getArea())) {
+      addAgents(next, agent, result);
+    }
+  }
+
+
   /**
    * Remove all objects from this manager.
    */
@@ -289,6 +309,15 @@ public class TrafficManager {
   }
 
 
+  private void addAgents(TrafficArea area, TrafficAgent exclude, List<TrafficAgent> result) {
+    for (TrafficAgent next : area.getAgents()) {
+      if (next != exclude) {
+        result.add(next);
+      }
+    }
+  }
+
+
   private void computeNeighbours(Area a, StandardWorldModel world) {
     Collection<TrafficArea> neighbours = areaNeighbours.get(getTrafficArea(a));
     neighbours.clear();
@@ -0,0 +1,392 @@
+package traffic3.objects;
+
+import java.util.List;
+
+import rescuecore2.misc.geometry.GeometryTools2D;
+import rescuecore2.misc.geometry.Line2D;
+
+/**
+ * A compact index of the lines that block movement in an area. The geometry
+ * of each line is copied into primitive arrays and the lines are bucketed in
+ * a uniform grid over their bounding box, so that crossing and distance
+ * queries only look at lines near the query. The results are the same as
+ * testing every line with {@link GeometryTools2D}.
+ * <p>
+ * An index never changes once it has been built. TrafficArea builds a new one
+ * when its blockades change.
+ */
+public class SegmentIndex {
+	// Below this many lines a grid costs more than it saves
+	private static final int MIN_GRID_LINES = 16;
+	private static final int MAX_CELLS_PER_SIDE = 32;
+	// Padding (in mm) around query boxes so that touching lines are not
+	// missed through rounding
+	private static final double PADDING = 1;
+
+	private final List<Line2D> lines;
+	private final int size;
+
+	private final double[] x;
+	private final double[] y;
+	private final double[] endX;
+	private final double[] endY;
+	private final double[] dx;
+	private final double[] dy;
+	private final double[] lengthSquared;
+
+	private final double minX;
+	private final double minY;
+	private final double maxX;
+	private final double maxY;
+	private final int columns;
+	private final int rows;
+	private final double cellWidth;
+	private final double cellHeight;
+	// The lines in cell (column, row) are
+	// cellLines[cellStart[c]] to cellLines[cellStart[c + 1] - 1]
+	// where c = row * columns + column.
+	private final int[] cellStart;
+	private final int[] cellLines;
+
+	/**
+	 * Construct a SegmentIndex.
+	 *
+	 * @param lines
+	 *            The lines to index. The list is not copied and must not
+	 *            change.
+	 */
+	public SegmentIndex(List<Line2D> lines) {
+		this.lines = lines;
+		size = lines.size();
+		x = new double[size];
+		y = new double[size];
+		endX = new double[size];
+		endY = new double[size];
+		dx = new double[size];
+		dy = new double[size];
+		lengthSquared = new double[size];
+		double left = Double.POSITIVE_INFINITY;
+		double bottom = Double.POSITIVE_INFINITY;
+		double right = Double.NEGATIVE_INFINITY;
+		double top = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < size; i++) {
+			Line2D line = lines.get(i);
+			x[i] = line.getOrigin().getX();
+			y[i] = line.getOrigin().getY();
+			endX[i] = line.getEndPoint().getX();
+			endY[i] = line.getEndPoint().getY();
+			dx[i] = line.getDirection().getX();
+			dy[i] = line.getDirection().getY();
+			double length = line.getDirection().getLength();
+			lengthSquared[i] = length * length;
+			left = Math.min(left, Math.min(x[i], endX[i]));
+			bottom = Math.min(bottom, Math.min(y[i], endY[i]));
+			right = Math.max(right, Math.max(x[i], endX[i]));
+			top = Math.max(top, Math.max(y[i], endY[i]));
+		}
+		minX = left;
+		minY = bottom;
+		maxX = right;
+		maxY = top;
+		int side = size < MIN_GRID_LINES ? 1 : Math.min(MAX_CELLS_PER_SIDE, (int) Math.ceil(Math.sqrt(size)));
+		columns = side;
+		rows = side;
+		cellWidth = size == 0 || maxX == minX ? 1 : (maxX - minX) / columns;
+		cellHeight = size == 0 || maxY == minY ? 1 : (maxY - minY) / rows;
+
+		// Count the lines in each cell, then fill in the lines
+		cellStart = new int[columns * rows + 1];
+		for (int i = 0; i < size; i++) {
+			for (int r = row(Math.min(y[i], endY[i])); r <= row(Math.max(y[i], endY[i])); r++) {
+				for (int c = column(Math.min(x[i], endX[i])); c <= column(Math.max(x[i], endX[i])); c++) {
+					cellStart[r * columns + c + 1]++;
+				}
+			}
+		}
+		for (int i = 1; i < cellStart.length; i++) {
+			cellStart[i] += cellStart[i - 1];
+		}
+		cellLines = new int[cellStart[cellStart.length - 1]];
+		int[] next = new int[columns * rows];
+		System.arraycopy(cellStart, 0, next, 0, next.length);
+		for (int i = 0; i < size; i++) {
+			for (int r = row(Math.min(y[i], endY[i])); r <= row(Math.max(y[i], endY[i])); r++) {
+				for (int c = column(Math.min(x[i], endX[i])); c <= column(Math.max(x[i], endX[i])); c++) {
+					cellLines[next[r * columns + c]++] = i;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the number of lines in this index.
+	 *
+	 * @return The number of lines.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Get a line.
+	 *
+	 * @param i
+	 *            The index of the line.
+	 * @return The line.
+	 */
+	public Line2D getLine(int i) {
+		return lines.get(i);
+	}
+
+	/**
+	 * Get the X coordinate of the origin of a line.
+	 *
+	 * @param i
+	 *            The index of the line.
+	 * @return The X coordinate of the origin.
+	 */
+	public double getX(int i) {
+		return x[i];
+	}
+
+	/**
+	 * Get the Y coordinate of the origin of a line.
+	 *
+	 * @param i
+	 *            The index of the line.
+	 * @return The Y coordinate of the origin.
+	 */
+	public double getY(int i) {
+		return y[i];
+	}
+
+	/**
+	 * Get the X coordinate of the end of a line.
+	 *
+	 * @param i
+	 *            The index of the line.
+	 * @return The X coordinate of the end point.
+	 */
+	public double getEndX(int i) {
+		return endX[i];
+	}
+
+	/**
+	 * Get the Y coordinate of the end of a line.
+	 *
+	 * @param i
+	 *            The index of the line.
+	 * @return The Y coordinate of the end point.
+	 */
+	public double getEndY(int i) {
+		return endY[i];
+	}
+
+	/**
+	 * Get the X component of the direction of a line.
+	 *
+	 * @param i
+	 *            The index of the line.
+	 * @return The X component of the direction.
+	 */
+	public double getDX(int i) {
+		return dx[i];
+	}
+
+	/**
+	 * Get the Y component of the direction of a line.
+	 *
+	 * @param i
+	 *            The index of the line.
+	 * @return The Y component of the direction.
+	 */
+	public double getDY(int i) {
+		return dy[i];
+	}
+
+	/**
+	 * Get the squared length of a line.
+	 *
+	 * @param i
+	 *            The index of the line.
+	 * @return The squared length.
+	 */
+	public double getLengthSquared(int i) {
+		return lengthSquared[i];
+	}
+
+	/**
+	 * Find out if a line segment crosses any of the lines in this index.
+	 *
+	 * @param sx
+	 *            The X coordinate of the start of the segment.
+	 * @param sy
+	 *            The Y coordinate of the start of the segment.
+	 * @param sdx
+	 *            The X component of the segment direction.
+	 * @param sdy
+	 *            The Y component of the segment direction.
+	 * @return True if
+	 *         {@link GeometryTools2D#getSegmentIntersectionPoint(Line2D, Line2D)}
+	 *         would find an intersection with any line.
+	 */
+	public boolean intersects(double sx, double sy, double sdx, double sdy) {
+		if (size == 0) {
+			return false;
+		}
+		double left = Math.min(sx, sx + sdx) - PADDING;
+		double right = Math.max(sx, sx + sdx) + PADDING;
+		double bottom = Math.min(sy, sy + sdy) - PADDING;
+		double top = Math.max(sy, sy + sdy) + PADDING;
+		if (left > maxX || right < minX || bottom > maxY || top < minY) {
+			return false;
+		}
+		for (int r = row(bottom); r <= row(top); r++) {
+			for (int c = column(left); c <= column(right); c++) {
+				int cell = r * columns + c;
+				for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+					int i = cellLines[k];
+					if (segmentsIntersect(sx, sy, sdx, sdy, x[i], y[i], dx[i], dy[i])) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Find out if a line segment crosses any of the lines in this index.
+	 *
+	 * @param line
+	 *            The line segment.
+	 * @return True if
+	 *         {@link GeometryTools2D#getSegmentIntersectionPoint(Line2D, Line2D)}
+	 *         would find an intersection with any line.
+	 */
+	public boolean intersects(Line2D line) {
+		return intersects(line.getOrigin().getX(), line.getOrigin().getY(), line.getDirection().getX(), line.getDirection().getY());
+	}
+
+	/**
+	 * Get the distance from a point to the closest line in this index.
+	 *
+	 * @param px
+	 *            The X coordinate of the point.
+	 * @param py
+	 *            The Y coordinate of the point.
+	 * @return The shortest distance to any line, or positive infinity if the
+	 *         index is empty.
+	 */
+	public double getMinDistance(double px, double py) {
+		double best = Double.POSITIVE_INFINITY;
+		if (px < minX || px > maxX || py < minY || py > maxY || columns * rows == 1) {
+			// Rings around a cell only bound the distance inside the grid
+			for (int i = 0; i < size; i++) {
+				best = Math.min(best, getDistance(i, px, py));
+			}
+			return best;
+		}
+		int column = column(px);
+		int row = row(py);
+		int lastRing = Math.max(Math.max(column, columns - 1 - column), Math.max(row, rows - 1 - row));
+		double cellSize = Math.min(cellWidth, cellHeight);
+		for (int ring = 0; ring <= lastRing; ring++) {
+			// Lines not seen yet are in this ring or further out, so there
+			// are at least ring - 1 whole cells between them and the point
+			if (best < (ring - 1) * cellSize) {
+				break;
+			}
+			for (int r = Math.max(0, row - ring); r <= Math.min(rows - 1, row + ring); r++) {
+				boolean edgeRow = r == row - ring || r == row + ring;
+				for (int c = Math.max(0, column - ring); c <= Math.min(columns - 1, column + ring); c++) {
+					if (!edgeRow && c != column - ring && c != column + ring) {
+						// Inside the ring: seen already
+						continue;
+					}
+					int cell = r * columns + c;
+					for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+						best = Math.min(best, getDistance(cellLines[k], px, py));
+					}
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Get the distance from a point to a line. This is the same as
+	 * {@link GeometryTools2D#getDistance(rescuecore2.misc.geometry.Point2D, rescuecore2.misc.geometry.Point2D)}
+	 * from the point to
+	 * {@link GeometryTools2D#getClosestPointOnSegment(Line2D, rescuecore2.misc.geometry.Point2D)}.
+	 *
+	 * @param i
+	 *            The index of the line.
+	 * @param px
+	 *            The X coordinate of the point.
+	 * @param py
+	 *            The Y coordinate of the point.
+	 * @return The distance from the point to the line.
+	 */
+	public double getDistance(int i, double px, double py) {
+		double u = (((px - x[i]) * (endX[i] - x[i])) + ((py - y[i]) * (endY[i] - y[i]))) / lengthSquared[i];
+		if (u <= 0) {
+			return Math.hypot(px - x[i], py - y[i]);
+		}
+		if (u >= 1) {
+			return Math.hypot(px - endX[i], py - endY[i]);
+		}
+		return Math.hypot(px - (x[i] + u * dx[i]), py - (y[i] + u * dy[i]));
+	}
+
+	/**
+	 * Find out if two line segments intersect. This gives the same result as
+	 * checking {@link GeometryTools2D#getSegmentIntersectionPoint(Line2D, Line2D)}
+	 * for null, without creating any objects.
+	 *
+	 * @param x1
+	 *            The X coordinate of the origin of the first segment.
+	 * @param y1
+	 *            The Y coordinate of the origin of the first segment.
+	 * @param dx1
+	 *            The X component of the direction of the first segment.
+	 * @param dy1
+	 *            The Y component of the direction of the first segment.
+	 * @param x2
+	 *            The X coordinate of the origin of the second segment.
+	 * @param y2
+	 *            The Y coordinate of the origin of the second segment.
+	 * @param dx2
+	 *            The X component of the direction of the second segment.
+	 * @param dy2
+	 *            The Y component of the direction of the second segment.
+	 * @return True if the segments intersect.
+	 */
+	public static boolean segmentsIntersect(double x1, double y1, double dx1, double dy1, double x2, double y2, double dx2, double dy2) {
+		double t1 = intersection(x1, y1, dx1, dy1, x2, y2, dx2, dy2);
+		double t2 = intersection(x2, y2, dx2, dy2, x1, y1, dx1, dy1);
+		return !(Double.isNaN(t1) || Double.isNaN(t2) || t1 < 0 || t1 > 1 || t2 < 0 || t2 > 1);
+	}
+
+	/**
+	 * See {@link Line2D#getIntersection(Line2D)}.
+	 */
+	private static double intersection(double x1, double y1, double dx1, double dy1, double x2, double y2, double dx2, double dy2) {
+		double d = (dx1 * dy2) - (dy1 * dx2);
+		double t = ((x2 - x1) * dy2) - ((y2 - y1) * dx2);
+		if (GeometryTools2D.nearlyZero(d)) {
+			return Double.NaN;
+		}
+		return t / d;
+	}
+
+	private int column(double value) {
+		int c = (int) ((value - minX) / cellWidth);
+		return Math.max(0, Math.min(columns - 1, c));
+	}
+
+	private int row(double value) {
+		int r = (int) ((value - minY) / cellHeight);
+		return Math.max(0, Math.min(rows - 1, r));
+	}
+}
@@ -1,7 +1,7 @@
 package traffic3.objects;
 
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -12,7 +12,6 @@ import rescuecore2.log.Logger;
 import rescuecore2.misc.geometry.GeometryTools2D;
 import rescuecore2.misc.geometry.Line2D;
 import rescuecore2.misc.geometry.Point2D;
-import rescuecore2.misc.geometry.Vector2D;
 import rescuecore2.standard.entities.Building;
 import rescuecore2.standard.entities.Civilian;
 import rescuecore2.standard.entities.Human;
@@ -27,34 +26,61 @@ import traffic3.simulator.TrafficConstants;
 public class TrafficAgent {
 
 	/**
-	 * This class is used to compute and cache wall related information.
+	 * This class is used to compute and cache wall related information. The
+	 * geometry is copied from the area's {@link SegmentIndex} into primitive
+	 * fields so that one instance can be reused for different walls without
+	 * allocating anything in a microstep.
 	 *
 	 * @author goebelbe
 	 *
 	 */
-	private static class WallInfo {
+	static class WallInfo {
 		private Line2D wall;
 		private TrafficArea area;
 		private double distance;
-		private Point2D closest;
-		private Point2D origin;
-		private Line2D line;
-		private Vector2D vector;
+		// The wall
+		private double wallX;
+		private double wallY;
+		private double wallEndX;
+		private double wallEndY;
+		private double wallDX;
+		private double wallDY;
+		private double wallLengthSquared;
+		// The closest point on the wall and whether it is an end of the wall
+		private boolean hasClosest;
+		private double closestX;
+		private double closestY;
+		private boolean endPoint;
+		// The agent position the closest point was computed for
+		private double originX;
+		private double originY;
+		// The vector from the agent to the closest point
+		private double vectorX;
+		private double vectorY;
 
 		/**
-		 * Create a new WallInfo object from a Line2D in a TrafficArea.
+		 * Make this WallInfo represent a line in a TrafficArea. Any cached
+		 * information about the previous wall is discarded.
 		 *
-		 * @param wall
-		 *            The wall to cache.
-		 * @param area
+		 * @param index
+		 *            The blocking line index of the area.
+		 * @param i
+		 *            The index of the wall to cache.
+		 * @param trafficArea
 		 *            The area this wall belongs to.
 		 */
-		public WallInfo(Line2D wall, TrafficArea area) {
-			this.wall = wall;
-			this.area = area;
+		public void set(SegmentIndex index, int i, TrafficArea trafficArea) {
+			this.wall = index.getLine(i);
+			this.area = trafficArea;
 			this.distance = -1;
-			this.closest = null;
-			this.origin = null;
+			this.hasClosest = false;
+			wallX = index.getX(i);
+			wallY = index.getY(i);
+			wallEndX = index.getEndX(i);
+			wallEndY = index.getEndY(i);
+			wallDX = index.getDX(i);
+			wallDY = index.getDY(i);
+			wallLengthSquared = index.getLengthSquared(i);
 		}
 
 		/**
@@ -69,66 +95,114 @@ public class TrafficAgent {
 
 		/**
 		 * Recompute the distance to the agent and the closest point on the
-		 * line.
+		 * line. This gives the same result as
+		 * {@link GeometryTools2D#getClosestPointOnSegment(Line2D, Point2D)}.
 		 *
-		 * @param from
-		 *            The position of the agent.
+		 * @param x
+		 *            The X coordinate of the agent.
+		 * @param y
+		 *            The Y coordinate of the agent.
 		 */
-		public void computeClostestPoint(Point2D from) {
-			if (from.equals(origin) && distance >= 0 && closest != null) {
+		public void computeClostestPoint(double x, double y) {
+			if (hasClosest && x == originX && y == originY && distance >= 0) {
 				return;
 			}
-			origin = from;
-			closest = GeometryTools2D.getClosestPointOnSegment(wall, origin);
-			line = new Line2D(origin, closest);
-			vector = line.getDirection();
-			distance = vector.getLength();
+			originX = x;
+			originY = y;
+			double u = (((x - wallX) * (wallEndX - wallX)) + ((y - wallY) * (wallEndY - wallY))) / wallLengthSquared;
+			if (u <= 0) {
+				closestX = wallX;
+				closestY = wallY;
+				endPoint = true;
+			} else if (u >= 1) {
+				closestX = wallEndX;
+				closestY = wallEndY;
+				endPoint = true;
+			} else {
+				closestX = wallX + u * wallDX;
+				closestY = wallY + u * wallDY;
+				endPoint = false;
+			}
+			hasClosest = true;
+			vectorX = closestX - originX;
+			vectorY = closestY - originY;
+			distance = Math.hypot(vectorX, vectorY);
 		}
 
 		/**
-		 * Get the clostest point to the agent on the wall.
+		 * Get the X coordinate of the closest point on the wall to the agent.
 		 *
-		 * @return The closest point.
+		 * @return The X coordinate of the closest point.
 		 */
-		public Point2D getClosestPoint() {
-			return closest;
+		public double getClosestX() {
+			return closestX;
 		}
 
 		/**
-		 * Decrease the distance from the wall by an amount.
+		 * Get the Y coordinate of the closest point on the wall to the agent.
 		 *
-		 * @param d
-		 *            The amount by which to decrease the distance.
+		 * @return The Y coordinate of the closest point.
 		 */
-		public void decreaseDistance(double d) {
-			distance -= d;
+		public double getClosestY() {
+			return closestY;
 		}
 
 		/**
-		 * Get the wall this WallInfo represents.
+		 * Find out if the closest point is one of the ends of the wall.
 		 *
-		 * @return The wall.
+		 * @return True if the closest point is an end point.
 		 */
-		public Line2D getWall() {
-			return wall;
+		public boolean isEndPoint() {
+			return endPoint;
+		}
+
+		/**
+		 * Find out if a point is one of the ends of the wall.
+		 *
+		 * @param x
+		 *            The X coordinate of the point.
+		 * @param y
+		 *            The Y coordinate of the point.
+		 * @return True if the point is the origin or end point of the wall.
+		 */
+		public boolean isEnd(double x, double y) {
+			return (x == wallX && y == wallY) || (x == wallEndX && y == wallEndY);
+		}
+
+		/**
+		 * Decrease the distance from the wall by an amount.
+		 *
+		 * @param d
+		 *            The amount by which to decrease the distance.
+		 */
+		public void decreaseDistance(double d) {
+			distance -= d;
 		}
 
 		/**
-		 * Get the line from the agent to the closest point on the wall.
+		 * Find out if a line segment crosses the wall.
 		 *
-		 * @return Line2D to wall.
+		 * @param x
+		 *            The X coordinate of the start of the segment.
+		 * @param y
+		 *            The Y coordinate of the start of the segment.
+		 * @param dx
+		 *            The X component of the segment direction.
+		 * @param dy
+		 *            The Y component of the segment direction.
+		 * @return True if the segment and the wall intersect.
 		 */
-		public Line2D getLine() {
-			return line;
+		public boolean intersects(double x, double y, double dx, double dy) {
+			return SegmentIndex.segmentsIntersect(x, y, dx, dy, wallX, wallY, wallDX, wallDY);
 		}
 
 		/**
-		 * Get the vector from the agent to the closest point on the wall.
+		 * Get the wall this WallInfo represents.
 		 *
-		 * @return Vector2D to wall.
+		 * @return The wall.
 		 */
-		public Vector2D getVector() {
-			return vector;
+		public Line2D getWall() {
+			return wall;
 		}
 
 		/**
@@ -165,8 +239,13 @@ public class TrafficAgent {
 	// Force
 	private final double[] force = new double[D];
 
-	// List of blocking lines near the agent.
-	private List<WallInfo> blockingLines;
+	// Blocking lines near the agent, sorted by distance. The WallInfo objects
+	// are reused, so only the first blockingLineCount entries are valid.
+	private WallInfo[] blockingLines;
+	private int blockingLineCount;
+
+	// Reused by computeAgentsForce
+	private final List<TrafficAgent> nearbyAgents = new ArrayList<TrafficAgent>();
 
 	private double radius;
 	private double velocityLimit;
@@ -222,7 +301,7 @@ public class TrafficAgent {
 		historyCount = 0;
 		positionHistoryFrequency = DEFAULT_POSITION_HISTORY_FREQUENCY;
 		mobile = true;
-		blockingLines = new ArrayList<WallInfo>();
+		blockingLines = new WallInfo[0];
 	}
 
 	/**
@@ -639,12 +718,17 @@ public class TrafficAgent {
 		if (currentPathElement != null) {
 			// Assume we're heading for the target edge.
 			currentDestination = currentPathElement.getGoal();
-			Point2D current = new Point2D(location[0], location[1]);
-			Vector2D vectorToEdge = currentDestination.minus(current).normalised();
+			double x = location[0];
+			double y = location[1];
+			double edgeX = currentDestination.getX() - x;
+			double edgeY = currentDestination.getY() - y;
+			double edgeScale = 1.0 / Math.hypot(edgeX, edgeY);
+			edgeX *= edgeScale;
+			edgeY *= edgeScale;
 			if (verbose) {
 				Logger.debug(this + " finding goal point");
 				Logger.debug(this + " current path element: " + currentPathElement);
-				Logger.debug(this + " current position: " + current);
+				Logger.debug(this + " current position: " + x + ", " + y);
 				Logger.debug(this + " edge goal: " + currentDestination);
 			}
 			for (Point2D next : currentPathElement.getWaypoints()) {
@@ -652,18 +736,22 @@ public class TrafficAgent {
 					Logger.debug(this + " next possible goal: " + next);
 				}
 				if (next != currentPathElement.getGoal()) {
-					Vector2D vectorToNext = next.minus(current).normalised();
-					double dot = vectorToNext.dot(vectorToEdge);
+					double nextX = next.getX() - x;
+					double nextY = next.getY() - y;
+					double nextScale = 1.0 / Math.hypot(nextX, nextY);
+					nextX *= nextScale;
+					nextY *= nextScale;
+					double dot = nextX * edgeX + nextY * edgeY;
 					if (dot < 0 || dot > 1) {
 						if (verbose) {
-							Logger.debug("Dot product of " + vectorToNext + " and " + vectorToEdge + " is " + dot);
+							Logger.debug("Dot product of " + nextX + ", " + nextY + " and " + edgeX + ", " + edgeY + " is " + dot);
 							Logger.debug(this + " next point is " + (dot < 0 ? "backwards" : "too distant") + "; ignoring");
 						}
 						continue;
 					}
 				}
 
-				if (hasLos(current, next, currentArea)) {
+				if (hasLos(x, y, next, currentArea)) {
 					currentDestination = next;
 					if (verbose) {
 						Logger.debug(this + " has line-of-sight to " + next);
@@ -726,23 +814,26 @@ public class TrafficAgent {
 		velocity[1] = newVY;
 		if (newVX != 0 || newVY != 0) {
 			double dist = v * dt;
-			for (WallInfo wall : blockingLines) {
-				wall.decreaseDistance(dist);
+			for (int i = 0; i < blockingLineCount; i++) {
+				blockingLines[i].decreaseDistance(dist);
 			}
 			setLocation(x, y);
 		}
 	}
 
-	private boolean hasLos(WallInfo target, List<WallInfo> blocking) {
-		Line2D line = target.getLine();
+	private boolean hasLos(WallInfo target) {
+		double x = target.originX;
+		double y = target.originY;
+		double dx = target.vectorX;
+		double dy = target.vectorY;
 
-		for (WallInfo wall : blocking) {
+		for (int i = 0; i < blockingLineCount; i++) {
+			WallInfo wall = blockingLines[i];
 			if (wall == target) {
 				break;
 			}
 
-			Line2D next = wall.getWall();
-			if (target.getClosestPoint().equals(next.getOrigin()) || target.getClosestPoint().equals(next.getEndPoint())) {
+			if (wall.isEnd(target.closestX, target.closestY)) {
 				continue;
 			}
 
@@ -757,29 +848,30 @@ public class TrafficAgent {
 			// be
 			// acute (because they intersect at the closest point), so we never
 			// prune real intersections here.
-			double dotp = line.getDirection().dot(wall.getVector());
+			double dotp = dx * wall.vectorX + dy * wall.vectorY;
 			if (dotp < wall.getDistance() * wall.getDistance()) {
 				continue;
 			}
 
-			if (GeometryTools2D.getSegmentIntersectionPoint(line, next) != null) {
+			if (wall.intersects(x, y, dx, dy)) {
 				return false;
 			}
 		}
 		return true;
 	}
 
-	private boolean hasLos(Point2D source, Point2D target, TrafficArea area) {
-		Line2D line = new Line2D(source, target);
-		double dist = line.getDirection().getLength();
+	private boolean hasLos(double x, double y, Point2D target, TrafficArea area) {
+		double dx = target.getX() - x;
+		double dy = target.getY() - y;
+		double dist = Math.hypot(dx, dy);
 
-		for (WallInfo wall : blockingLines) {
+		for (int i = 0; i < blockingLineCount; i++) {
+			WallInfo wall = blockingLines[i];
 			if (wall.getDistance() > dist || wall.getArea() != area) {
 				break;
 			}
 
-			Line2D next = wall.getWall();
-			if (GeometryTools2D.getSegmentIntersectionPoint(line, next) != null) {
+			if (wall.intersects(x, y, dx, dy)) {
 				return false;
 			}
 		}
@@ -799,8 +891,10 @@ public class TrafficAgent {
 	}
 
 	private boolean crossedLine(double oldX, double oldY, double newX, double newY, Line2D line) {
-		Line2D moved = new Line2D(oldX, oldY, newX - oldX, newY - oldY);
-		return (GeometryTools2D.getSegmentIntersectionPoint(moved, line) != null);
+		// Same rounding as new Line2D(oldX, oldY, newX - oldX, newY - oldY)
+		double dx = (oldX + (newX - oldX)) - oldX;
+		double dy = (oldY + (newY - oldY)) - oldY;
+		return SegmentIndex.segmentsIntersect(oldX, oldY, dx, dy, line.getOrigin().getX(), line.getOrigin().getY(), line.getDirection().getX(), line.getDirection().getY());
 		/*
 		 * Vector2D normal = line.getDirection().getNormal().normalised();
 		 * double dot1 = new Vector2D(oldX - line.getOrigin().getX(), oldY -
@@ -813,23 +907,20 @@ public class TrafficAgent {
 	}
 
 	private boolean crossedWall(double oldX, double oldY, double newX, double newY) {
-		Line2D moved = new Line2D(oldX, oldY, newX - oldX, newY - oldY);
-		double dist = moved.getDirection().getLength();
-		for (WallInfo wall : blockingLines) {
+		double dx = (oldX + (newX - oldX)) - oldX;
+		double dy = (oldY + (newY - oldY)) - oldY;
+		double dist = Math.hypot(dx, dy);
+		for (int i = 0; i < blockingLineCount; i++) {
+			WallInfo wall = blockingLines[i];
 			if (wall.getDistance() >= dist) {
 				break;
 			}
-			Line2D test = wall.getWall();
-			if (GeometryTools2D.getSegmentIntersectionPoint(moved, test) != null) {
-				// if (crossedLine(oldX, oldY, newX, newY, test)) {
+			if (wall.intersects(oldX, oldY, dx, dy)) {
 				/*
 				 * Logger.warn(this + " crossed wall");
 				 * Logger.warn("Old location: " + oldX + ", " + oldY);
 				 * Logger.warn("New location: " + newX + ", " + newY);
-				 * Logger.warn("Movement line: " + moved);
-				 * Logger.warn("Wall         : " + test);
-				 * Logger.warn("Crossed at " +
-				 * GeometryTools2D.getSegmentIntersectionPoint(moved, test));
+				 * Logger.warn("Wall         : " + wall.getWall());
 				 */
 				return true;
 			}
@@ -838,50 +929,58 @@ public class TrafficAgent {
 	}
 
 	private void findBlockingLines() {
-		blockingLines.clear();
+		blockingLineCount = 0;
 		if (currentArea != null) {
-			for (Line2D line : currentArea.getAllBlockingLines()) {
-				blockingLines.add(new WallInfo(line, currentArea));
-			}
+			addBlockingLines(currentArea);
 			for (TrafficArea neighbour : manager.getNeighbours(currentArea)) {
-				for (Line2D line : neighbour.getAllBlockingLines()) {
-					blockingLines.add(new WallInfo(line, neighbour));
-				}
+				addBlockingLines(neighbour);
+			}
+		}
+	}
+
+	private void addBlockingLines(TrafficArea area) {
+		SegmentIndex index = area.getBlockingLineIndex();
+		int count = blockingLineCount + index.size();
+		if (count > blockingLines.length) {
+			blockingLines = Arrays.copyOf(blockingLines, Math.max(count, blockingLines.length * 2));
+		}
+		for (int i = 0; i < index.size(); i++) {
+			WallInfo info = blockingLines[blockingLineCount];
+			if (info == null) {
+				info = new WallInfo();
+				blockingLines[blockingLineCount] = info;
 			}
+			info.set(index, i, area);
+			blockingLineCount++;
 		}
 	}
 
 	private void updateWalls(double dt) {
-		Point2D position = new Point2D(location[0], location[1]);
+		double x = location[0];
+		double y = location[1];
 		double crossingCutoff = dt * this.velocityLimit;
 		double forceCutoff = TrafficConstants.getWallDistanceCutoff();
 		double cutoff = Math.max(forceCutoff, crossingCutoff);
-		// double dist;
 
-		for (WallInfo wall : blockingLines) {
+		for (int i = 0; i < blockingLineCount; i++) {
+			WallInfo wall = blockingLines[i];
 			if (wall.getDistance() > cutoff) {
 				continue;
 			}
-			wall.computeClostestPoint(position);
+			wall.computeClostestPoint(x, y);
 		}
 
 		// Hand coded, in-sito insertion sort is much faster than
-		// Collection.sort() for lists of this size.
-		for (int i = 1; i < blockingLines.size(); i++) {
-			WallInfo info = blockingLines.get(i);
-			for (int j = i; j >= 0; j--) {
-				if (j == 0) {
-					blockingLines.remove(i);
-					blockingLines.add(0, info);
-				} else if (blockingLines.get(j - 1).getDistance() < info.getDistance()) {
-					if (j == i) {
-						break;
-					}
-					blockingLines.remove(i);
-					blockingLines.add(j, info);
-					break;
-				}
+		// Collection.sort() for lists of this size. Walls are moved in front
+		// of walls at the same distance.
+		for (int i = 1; i < blockingLineCount; i++) {
+			WallInfo info = blockingLines[i];
+			int j = i;
+			while (j > 0 && !(blockingLines[j - 1].getDistance() < info.getDistance())) {
+				blockingLines[j] = blockingLines[j - 1];
+				j--;
 			}
+			blockingLines[j] = info;
 		}
 	}
 
@@ -947,8 +1046,9 @@ public class TrafficAgent {
 		double k = TrafficConstants.getAgentForceCoefficientK();
 		double forceLimit = TrafficConstants.getAgentForceLimit();
 
-		Collection<TrafficAgent> nearby = manager.getNearbyAgents(this);
-		for (TrafficAgent agent : nearby) {
+		manager.getNearbyAgents(this, nearbyAgents);
+		for (int i = 0; i < nearbyAgents.size(); i++) {
+			TrafficAgent agent = nearbyAgents.get(i);
 			if (!agent.isMobile()) {
 				continue;
 			}
@@ -1017,27 +1117,25 @@ public class TrafficAgent {
 			double cutoff = TrafficConstants.getWallDistanceCutoff();
 			// double a = TrafficConstants.getWallForceCoefficientA();
 			double b = TrafficConstants.getWallForceCoefficientB();
-			Point2D position = new Point2D(location[0], location[1]);
 			if (verbose) {
 				Logger.debug("Computing wall forces for " + this);
-				Logger.debug("Position: " + position);
+				Logger.debug("Position: " + location[0] + ", " + location[1]);
 			}
 
-			for (WallInfo wall : blockingLines) {
+			for (int i = 0; i < blockingLineCount; i++) {
+				WallInfo wall = blockingLines[i];
 				if (wall.getDistance() > cutoff) {
 					break;
 				}
-				Line2D line = wall.getWall();
 				dist = wall.getDistance();
-				Point2D closest = wall.getClosestPoint();
 
 				if (verbose) {
-					Logger.debug("Next wall: " + line);
+					Logger.debug("Next wall: " + wall.getWall());
 				}
 				// Point2D closest =
 				// GeometryTools2D.getClosestPointOnSegment(line, position);
 				if (verbose) {
-					Logger.debug("Closest point: " + closest);
+					Logger.debug("Closest point: " + wall.closestX + ", " + wall.closestY);
 				}
 				// dist = GeometryTools2D.getDistance(closest, position);
 				// if (dist > cutoff) {
@@ -1047,7 +1145,7 @@ public class TrafficAgent {
 				// }
 				// continue;
 				// }
-				if (!hasLos(wall, blockingLines)) {
+				if (!hasLos(wall)) {
 					// No line-of-sight to closest point
 					if (verbose) {
 						Logger.debug("No line of sight");
@@ -1055,10 +1153,7 @@ public class TrafficAgent {
 					continue;
 				}
 
-				boolean endPoint = false;
-				if (closest == line.getOrigin() || closest == line.getEndPoint()) {
-					endPoint = true;
-				}
+				boolean endPoint = wall.isEndPoint();
 				// Two forces apply:
 				// If the agent is moving towards this wall then apply a force
 				// to bring the agent to a stop. This force applies when the
@@ -1071,13 +1166,14 @@ public class TrafficAgent {
 				double currentFY = destinationForce[1] + agentsForce[1];
 				double expectedVX = currentVX + dt * currentFX;
 				double expectedVY = currentVY + dt * currentFY;
-				Vector2D expectedVelocity = new Vector2D(expectedVX, expectedVY);
-				Vector2D wallForceVector = wall.getVector().scale(-1.0 / dist);
+				double wallScale = -1.0 / dist;
+				double wallFX = wall.vectorX * wallScale;
+				double wallFY = wall.vectorY * wallScale;
 				double radii = dist / r;
 				// Compute the stopping force
-				// Magnitude is the multiple of wallForceVector required to
-				// bring the agent to a stop.
-				double magnitude = -expectedVelocity.dot(wallForceVector);
+				// Magnitude is the multiple of the wall force vector required
+				// to bring the agent to a stop.
+				double magnitude = -(expectedVX * wallFX + expectedVY * wallFY);
 				if (magnitude < 0 || radii >= 1) {
 					magnitude = 0;
 					// Agent is moving away or far enough away - no stopping
@@ -1093,14 +1189,16 @@ public class TrafficAgent {
 						magnitude /= 2;
 					}
 				}
-				Vector2D stopForce = wallForceVector.scale(magnitude / dt);
+				double stopScale = magnitude / dt;
+				double stopFX = wallFX * stopScale;
+				double stopFY = wallFY * stopScale;
 				// Compute the repulsion force
 				// Decreases exponentially with distance in terms of agent
 				// radii.
 				// double factor = a * Math.min(1, Math.exp(-(radii - 1) * b));
 				// Vector2D repulsionForce = wallForceVector.scale(factor / dt);
-				xSum += stopForce.getX();
-				ySum += stopForce.getY();
+				xSum += stopFX;
+				ySum += stopFY;
 				// xSum += repulsionForce.getX();
 				// ySum += repulsionForce.getY();
 				if (verbose) {
@@ -1108,10 +1206,10 @@ public class TrafficAgent {
 					Logger.debug("Distance to wall : " + radii + " radii");
 					Logger.debug("Current velocity : " + currentVX + ", " + currentVY);
 					Logger.debug("Current force    : " + currentFX + ", " + currentFY);
-					Logger.debug("Expected velocity: " + expectedVelocity);
-					Logger.debug("Wall force       : " + wallForceVector);
+					Logger.debug("Expected velocity: " + expectedVX + ", " + expectedVY);
+					Logger.debug("Wall force       : " + wallFX + ", " + wallFY);
 					Logger.debug("Magnitude        : " + magnitude);
-					Logger.debug("Stop force       : " + stopForce);
+					Logger.debug("Stop force       : " + stopFX + ", " + stopFY);
 					// Logger.debug("Factor           : " + factor + " (e^" +
 					// (-(dist / r) * b) + ")");
 					// Logger.debug("Repulsion force  : " + repulsionForce);
@@ -37,6 +37,7 @@ public class TrafficArea {
 	private List<Line2D> blockingLines;
 	private List<Line2D> blockadeLines;
 	private List<Line2D> allBlockingLines;
+	private SegmentIndex blockingLineIndex;
 	private List<Line2D> areaLines;
 
 	private Area area;
@@ -58,6 +59,7 @@ public class TrafficArea {
 		blockingLines = null;
 		blockadeLines = null;
 		allBlockingLines = null;
+		blockingLineIndex = null;
 		areaLines = null;
 		Rectangle2D r = area.getShape().getBounds2D();
 		bounds = new Rectangle((float) r.getMinX(), (float) r.getMinY(), (float) r.getMaxX(), (float) r.getMaxY());
@@ -147,6 +149,19 @@ public class TrafficArea {
 		return Collections.unmodifiableList(allBlockingLines);
 	}
 
+	/**
+	 * Get an index of all lines that block movement. The index is rebuilt
+	 * only when the blockades in this area change.
+	 *
+	 * @return An index of the lines returned by {@link #getAllBlockingLines()}.
+	 */
+	public SegmentIndex getBlockingLineIndex() {
+		if (blockingLineIndex == null) {
+			blockingLineIndex = new SegmentIndex(getAllBlockingLines());
+		}
+		return blockingLineIndex;
+	}
+
 	/**
 	 * Find out whether this area contains a point (x, y).
 	 *
@@ -217,6 +232,7 @@ public class TrafficArea {
 	public void clearBlockadeCache() {
 		blockadeLines = null;
 		allBlockingLines = null;
+		blockingLineIndex = null;
 		openLines = null;
 		graph=null;
 	}
@@ -271,11 +287,9 @@ public class TrafficArea {
 				FOR: for (int j = 0; j < graph.length; j++) {
 					Line2D line = new Line2D(getMidPoint(oLines.get(i).getOrigin(), oLines.get(i).getEndPoint()), getMidPoint(oLines.get(j).getOrigin(), oLines.get(j)
 							.getEndPoint()));
-					for (Line2D is : getAllBlockingLines()) {
-						if (GeometryTools2D.getSegmentIntersectionPoint(line, is) != null) {
-							graph[i][j] = 100000;
-							continue FOR;
-						}
+					if (getBlockingLineIndex().intersects(line)) {
+						graph[i][j] = 100000;
+						continue;
 					}
 					for (int k = 0; k < oLines.size(); k++) {
 						if(k==i||k==j)
@@ -16,7 +16,7 @@ import rescuecore2.log.Logger;
 import rescuecore2.messages.Command;
 import rescuecore2.messages.control.KSCommands;
 import rescuecore2.messages.control.KSUpdate;
-import rescuecore2.misc.geometry.GeometryTools2D;
+import rescuecore2.metrics.MetricsRegistry;
 import rescuecore2.misc.geometry.Line2D;
 import rescuecore2.misc.geometry.Point2D;
 import rescuecore2.misc.geometry.Vector2D;
@@ -67,12 +67,18 @@ public class TrafficSimulator extends StandardSimulator implements GUIComponent
 
   private static final int RESCUE_AGENT_RADIUS = 500;
   private static final int CIVILIAN_RADIUS = 200;
+  private static final long NANOS_PER_MILLI = 1000000;
   private static final double RESCUE_AGENT_VELOCITY_MEAN = 0.7;
   private static final double RESCUE_AGENT_VELOCITY_SD = 0.1;
   private static final double CIVILIAN_VELOCITY_MEAN = 0.2;
   private static final double CIVILIAN_VELOCITY_SD = 0.002;
 
-  private TrafficSimulatorGUI gui;
+  private static final String GUI_FRAME_RATE_KEY = "traffic3.gui.fps";
+
+  // Only created when someone asks to see it
+  private volatile TrafficSimulatorGUI gui;
+  private int guiFrameRate;
+  private boolean connected;
 
   private TrafficManager manager;
 
@@ -81,11 +87,19 @@ public class TrafficSimulator extends StandardSimulator implements GUIComponent
    */
   public TrafficSimulator() {
     manager = new TrafficManager();
-    gui = new TrafficSimulatorGUI(manager);
+    guiFrameRate = TrafficSimulatorGUI.DEFAULT_FRAME_RATE;
   }
 
   @Override
-  public JComponent getGUIComponent() {
+  public synchronized JComponent getGUIComponent() {
+    if (gui == null) {
+      TrafficSimulatorGUI newGUI = new TrafficSimulatorGUI(manager);
+      newGUI.setFrameRate(guiFrameRate);
+      if (connected) {
+        newGUI.initialise();
+      }
+      gui = newGUI;
+    }
     return gui;
   }
 
@@ -133,13 +147,20 @@ public class TrafficSimulator extends StandardSimulator implements GUIComponent
         }
       }
     });
-    gui.initialise();
     manager.cacheInformation(model);
+    synchronized (this) {
+      guiFrameRate = config.getIntValue(GUI_FRAME_RATE_KEY, TrafficSimulatorGUI.DEFAULT_FRAME_RATE);
+      connected = true;
+      if (gui != null) {
+        gui.setFrameRate(guiFrameRate);
+        gui.initialise();
+      }
+    }
   }
 
   @Override
   protected void processCommands(KSCommands c, ChangeSet changes) {
-    long start = System.currentTimeMillis();
+    long start = System.nanoTime();
     Logger.info("Timestep " + c.getTime());
 
     // Clear all destinations and position history
@@ -180,23 +201,23 @@ public class TrafficSimulator extends StandardSimulator implements GUIComponent
       if (next instanceof Human) {
         Human h = (Human) next;
         if (h.isHPDefined() && h.getHP() <= 0) {
-          Logger.debug("Agent " + h + " is dead");
+          Logger.debug("Agent {} is dead", h);
           manager.getTrafficAgent(h).setMobile(false);
         }
         if (h.isPositionDefined() && (model.getEntity(h.getPosition()) instanceof AmbulanceTeam)) {
-          Logger.debug("Agent " + h + " is in an ambulance");
+          Logger.debug("Agent {} is in an ambulance", h);
           manager.getTrafficAgent(h).setMobile(false);
         }
         if (h.isBuriednessDefined() && h.getBuriedness() > 0) {
-          Logger.debug("Agent " + h + " is buried");
+          Logger.debug("Agent {} is buried", h);
           manager.getTrafficAgent(h).setMobile(false);
         }
         if (h instanceof Civilian && h.isDamageDefined() && h.getDamage() > 0) {
-          Logger.debug("Agent " + h + " is injured");
+          Logger.debug("Agent {} is injured", h);
           manager.getTrafficAgent(h).setMobile(false);
         }
         if (h instanceof Civilian && h.isPositionDefined() && (model.getEntity(h.getPosition()) instanceof Refuge)) {
-          Logger.debug("Agent " + h + " is in a refuge");
+          Logger.debug("Agent {} is in a refuge", h);
           manager.getTrafficAgent(h).setMobile(false);
         }
       }
@@ -235,8 +256,8 @@ public class TrafficSimulator extends StandardSimulator implements GUIComponent
       changes.addChange(human, human.getPositionHistoryProperty());
       changes.addChange(human, human.getTravelDistanceProperty());
     }
-    long end = System.currentTimeMillis();
-    Logger.info("Timestep " + c.getTime() + " took " + (end - start) + " ms");
+    long elapsed = MetricsRegistry.getCurrentRegistry().getTimer("traffic.timestep").stop(start);
+    Logger.info("Timestep {} took {} ms", c.getTime(), elapsed / NANOS_PER_MILLI);
   }
 
   @Override
@@ -301,11 +322,11 @@ public class TrafficSimulator extends StandardSimulator implements GUIComponent
   }
 
   private void convertBlockade(Blockade b) {
-    Logger.debug("Converting blockade: " + b.getFullDescription());
+    Logger.debug(() -> "Converting blockade: " + b.getFullDescription());
     Area a = (Area) model.getEntity(b.getPosition());
-    Logger.debug("Area: " + a);
+    Logger.debug("Area: {}", a);
     TrafficArea area = manager.getTrafficArea(a);
-    Logger.debug("Traffic area: " + area);
+    Logger.debug("Traffic area: {}", area);
     TrafficBlockade block = new TrafficBlockade(b, area);
     manager.register(block);
     area.addBlockade(block);
@@ -546,7 +567,8 @@ public class TrafficSimulator extends StandardSimulator implements GUIComponent
         if (block.getBlockade().getShape().contains(pathElement.getGoal().getX(), pathElement.getGoal().getY()))
           return false;
       }
-      double minDistance = getMinDistance(area.getAllBlockingLines(), pathElement.getGoal());
+      double minDistance = area.getBlockingLineIndex().getMinDistance(pathElement.getGoal().getX(),
+          pathElement.getGoal().getY());
 
       if (minDistance < TrafficSimulator.RESCUE_AGENT_RADIUS / 2)
         return false;
@@ -570,10 +592,8 @@ public class TrafficSimulator extends StandardSimulator implements GUIComponent
 
     for (int i = 1; i < sameAreaElements.size(); i++) {
       Line2D line2D = new Line2D(sameAreaElements.get(i - 1).getGoal(), sameAreaElements.get(i).getGoal());
-      for (Line2D block : lastArea.getAllBlockingLines()) {
-        if (GeometryTools2D.getSegmentIntersectionPoint(line2D, block) != null)
-          return false;
-      }
+      if (lastArea.getBlockingLineIndex().intersects(line2D))
+        return false;
     }
     return true;
   }
@@ -591,18 +611,6 @@ public class TrafficSimulator extends StandardSimulator implements GUIComponent
     return getMidPoint(edge.getStart(), edge.getEnd());
   }
 
-  private double getMinDistance(List<Line2D> blockingLines, Point2D point) {
-    double min = Integer.MAX_VALUE;
-    for (Line2D block : blockingLines) {
-      Point2D tempPoint = GeometryTools2D.getClosestPointOnSegment(block, point);
-      double tempDistance = GeometryTools2D.getDistance(point, tempPoint);
-      if (tempDistance < min)
-        min = tempDistance;
-    }
-    return min;
-
-  }
-
   // Return the loaded civilian (if any)
   private Civilian handleLoad(AKLoad load, ChangeSet changes) {
     EntityID agentID = load.getAgentID();
@@ -697,13 +705,13 @@ public class TrafficSimulator extends StandardSimulator implements GUIComponent
     }
     // Is there something loaded?
     Civilian target = null;
-    Logger.debug("Looking for civilian carried by " + agentID);
+    Logger.debug("Looking for civilian carried by {}", agentID);
     for (Entity e : model.getEntitiesOfType(StandardEntityURN.CIVILIAN)) {
       Civilian c = (Civilian) e;
-      Logger.debug(c + " is at " + c.getPosition());
+      Logger.debug("{} is at {}", c, c.getPosition());
       if (c.isPositionDefined() && agentID.equals(c.getPosition())) {
         target = c;
-        Logger.debug("Found civilian " + c);
+        Logger.debug("Found civilian {}", c);
         break;
       }
     }
@@ -770,35 +778,48 @@ public class TrafficSimulator extends StandardSimulator implements GUIComponent
   }
 
   private void timestep() {
-    long start = System.currentTimeMillis();
+    MetricsRegistry metrics = MetricsRegistry.getCurrentRegistry();
+    long start = System.nanoTime();
     for (TrafficAgent agent : manager.getAgents()) {
       agent.beginTimestep();
     }
-    long pre = System.currentTimeMillis();
+    long pre = System.nanoTime();
+    metrics.getTimer("traffic.pre-timestep").record(pre - start);
     Logger.debug("Running " + MICROSTEPS + " microsteps");
     for (int i = 0; i < MICROSTEPS; i++) {
       microstep();
     }
+    TrafficSimulatorGUI currentGUI = gui;
+    if (currentGUI != null) {
+      currentGUI.refreshNow();
+    }
 
-    long post = System.currentTimeMillis();
+    long post = System.nanoTime();
+    metrics.getTimer("traffic.microsteps").record(post - pre);
     for (TrafficAgent agent : manager.getAgents()) {
       agent.endTimestep();
     }
-    long end = System.currentTimeMillis();
-    if (manager.getAgents().size() != 0) {
-      Logger.debug("Pre-timestep took " + (pre - start) + " ms (average " + ((pre - start) / manager.getAgents().size())
-          + "ms per agent)");
-      Logger.debug("Microsteps took: " + (post - pre) + "ms (average " + ((post - pre) / MICROSTEPS) + "ms)");
-      Logger.debug("Post-timestep took " + (end - post) + " ms (average " + ((end - post) / manager.getAgents().size())
-          + "ms per agent)");
-    }
-    Logger.debug("Total time: " + (end - start) + "ms");
+    long end = System.nanoTime();
+    metrics.getTimer("traffic.post-timestep").record(end - post);
+    if (manager.getAgents().size() != 0 && Logger.isDebugEnabled()) {
+      int agents = manager.getAgents().size();
+      Logger.debug("Pre-timestep took " + (pre - start) / NANOS_PER_MILLI + " ms (average "
+          + ((pre - start) / agents) / NANOS_PER_MILLI + "ms per agent)");
+      Logger.debug("Microsteps took: " + (post - pre) / NANOS_PER_MILLI + "ms (average "
+          + ((post - pre) / MICROSTEPS) / NANOS_PER_MILLI + "ms)");
+      Logger.debug("Post-timestep took " + (end - post) / NANOS_PER_MILLI + " ms (average "
+          + ((end - post) / agents) / NANOS_PER_MILLI + "ms per agent)");
+    }
+    Logger.debug("Total time: {}ms", (end - start) / NANOS_PER_MILLI);
   }
 
   private void microstep() {
     for (TrafficAgent agent : manager.getAgents()) {
       agent.step(STEP_TIME_MS);
     }
-    gui.refresh();
+    TrafficSimulatorGUI currentGUI = gui;
+    if (currentGUI != null) {
+      currentGUI.refresh();
+    }
   }
 }
\ No newline at end of file
@@ -30,8 +30,10 @@ import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import traffic3.objects.TrafficArea;
 import traffic3.objects.TrafficAgent;
@@ -48,7 +50,10 @@ import rescuecore2.log.Logger;
 import rescuecore2.standard.entities.Edge;
 
 /**
- * A GUI for watching the traffic simulator.
+ * A GUI for watching the traffic simulator. The simulation thread publishes
+ * snapshots of the agents at most once per frame and the view repaints from
+ * the latest snapshot on a Swing timer, so the simulation never waits for
+ * painting unless "wait on refresh" is turned on.
  */
 public class TrafficSimulatorGUI extends JPanel {
 	private static final Color SELECTED_AREA_COLOUR = new Color(0, 0, 255, 128);
@@ -68,6 +73,9 @@ public class TrafficSimulatorGUI extends JPanel {
 
 	private static final double FORCE_GUI_FACTOR = 1000;
 
+	/** The default number of frames drawn per second. */
+	public static final int DEFAULT_FRAME_RATE = 25;
+
 	private TrafficManager manager;
 
 	private volatile boolean waitOnRefresh;
@@ -79,8 +87,14 @@ public class TrafficSimulatorGUI extends JPanel {
 	private JCheckBox wait;
 	private JCheckBox animate;
 	private Timer timer;
+	private Timer frameTimer;
 	private Box verboseBox;
 
+	private final AtomicReference<AgentSnapshot> snapshot;
+	// Only used by the simulation thread
+	private volatile long frameIntervalNanos;
+	private long lastPublish;
+
 	/**
 	 * Construct a TrafficSimulatorGUI.
 	 *
@@ -91,6 +105,7 @@ public class TrafficSimulatorGUI extends JPanel {
 		super(new BorderLayout());
 		this.manager = manager;
 		waitOnRefresh = false;
+		snapshot = new AtomicReference<AgentSnapshot>();
 
 		view = new WorldView();
 		cont = new JButton("Continue");
@@ -147,6 +162,28 @@ public class TrafficSimulatorGUI extends JPanel {
 				}
 			}
 		});
+		frameTimer = new Timer(1000 / DEFAULT_FRAME_RATE, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				if (snapshot.get() != view.painted) {
+					view.repaint();
+				}
+			}
+		});
+		setFrameRate(DEFAULT_FRAME_RATE);
+	}
+
+	/**
+	 * Set how many times per second the view is redrawn while the simulation
+	 * is running.
+	 *
+	 * @param fps
+	 *            The frame rate.
+	 */
+	public void setFrameRate(int fps) {
+		int rate = Math.max(1, fps);
+		frameIntervalNanos = 1000000000L / rate;
+		frameTimer.setDelay(1000 / rate);
 	}
 
 	/**
@@ -154,6 +191,8 @@ public class TrafficSimulatorGUI extends JPanel {
 	 */
 	public void initialise() {
 		view.initialise();
+		snapshot.set(new AgentSnapshot(manager.getAgents()));
+		frameTimer.start();
 		SwingUtilities.invokeLater(new Runnable() {
 			@Override
 			public void run() {
@@ -175,13 +214,15 @@ public class TrafficSimulatorGUI extends JPanel {
 	}
 
 	/**
-	 * Refresh the view and wait for user input if required.
+	 * Publish the agent positions if a frame is due, or publish them and wait
+	 * for user input if waiting on refresh.
 	 *
 	 * @see #setWaitOnRefresh(boolean).
 	 */
 	public void refresh() {
-		repaint();
 		if (waitOnRefresh) {
+			refreshNow();
+			repaint();
 			SwingUtilities.invokeLater(new Runnable() {
 				@Override
 				public void run() {
@@ -198,7 +239,21 @@ public class TrafficSimulatorGUI extends JPanel {
 			} catch (InterruptedException e) {
 				Logger.error("Error waiting for continue", e);
 			}
+			return;
 		}
+		long now = System.nanoTime();
+		if (now - lastPublish >= frameIntervalNanos) {
+			lastPublish = now;
+			snapshot.set(new AgentSnapshot(manager.getAgents()));
+		}
+	}
+
+	/**
+	 * Publish the agent positions regardless of the frame rate.
+	 */
+	public void refreshNow() {
+		lastPublish = System.nanoTime();
+		snapshot.set(new AgentSnapshot(manager.getAgents()));
 	}
 
 	/**
@@ -218,6 +273,7 @@ public class TrafficSimulatorGUI extends JPanel {
 		private TrafficAgent selectedAgent;
 		private Map<Shape, TrafficArea> areas;
 		private Map<Shape, TrafficAgent> agents;
+		private volatile AgentSnapshot painted;
 
 		public WorldView() {
 		}
@@ -277,7 +333,10 @@ public class TrafficSimulatorGUI extends JPanel {
 
 		private void drawObjects(Graphics2D g) {
 			drawAreas((Graphics2D) g.create());
-			drawAgents((Graphics2D) g.create());
+			painted = snapshot.get();
+			if (painted != null) {
+				drawAgents(painted, (Graphics2D) g.create());
+			}
 			drawBlockades((Graphics2D) g.create());
 		}
 
@@ -355,18 +414,23 @@ public class TrafficSimulatorGUI extends JPanel {
 			}
 		}
 
-		private void drawAgents(Graphics2D g) {
-			for (TrafficAgent agent : manager.getAgents()) {
-				double agentX = agent.getX();
-				double agentY = agent.getY();
-				double ellipseX1 = agentX - agent.getRadius();
-				double ellipseY1 = agentY - agent.getRadius();
-				double ellipseX2 = agentX + agent.getRadius();
-				double ellipseY2 = agentY + agent.getRadius();
-				double velocityX = agentX + (agent.getVX() * 1000);
-				double velocityY = agentY + (agent.getVY() * 1000);
-				double forceX = agentX + (agent.getFX() * FORCE_GUI_FACTOR);
-				double forceY = agentY + (agent.getFY() * FORCE_GUI_FACTOR);
+		private void drawAgents(AgentSnapshot agentSnapshot, Graphics2D g) {
+			agents.clear();
+			for (int i = 0; i < agentSnapshot.agents.length; ++i) {
+				TrafficAgent agent = agentSnapshot.agents[i];
+				double[] data = agentSnapshot.data;
+				int base = i * AgentSnapshot.STRIDE;
+				double agentX = data[base];
+				double agentY = data[base + 1];
+				double radius = data[base + 2];
+				double ellipseX1 = agentX - radius;
+				double ellipseY1 = agentY - radius;
+				double ellipseX2 = agentX + radius;
+				double ellipseY2 = agentY + radius;
+				double velocityX = agentX + (data[base + 3] * 1000);
+				double velocityY = agentY + (data[base + 4] * 1000);
+				double forceX = agentX + (data[base + 5] * FORCE_GUI_FACTOR);
+				double forceY = agentY + (data[base + 6] * FORCE_GUI_FACTOR);
 
 				int x = transform.xToScreen(agentX);
 				int y = transform.yToScreen(agentY);
@@ -447,4 +511,31 @@ public class TrafficSimulatorGUI extends JPanel {
 			}
 		}
 	}
+
+	/**
+	 * An immutable copy of the agent state needed to draw one frame.
+	 */
+	private static final class AgentSnapshot {
+		// x, y, radius, vx, vy, fx, fy
+		private static final int STRIDE = 7;
+
+		private final TrafficAgent[] agents;
+		private final double[] data;
+
+		AgentSnapshot(Collection<TrafficAgent> all) {
+			agents = all.toArray(new TrafficAgent[all.size()]);
+			data = new double[agents.length * STRIDE];
+			for (int i = 0; i < agents.length; ++i) {
+				TrafficAgent next = agents[i];
+				int base = i * STRIDE;
+				data[base] = next.getX();
+				data[base + 1] = next.getY();
+				data[base + 2] = next.getRadius();
+				data[base + 3] = next.getVX();
+				data[base + 4] = next.getVY();
+				data[base + 5] = next.getFX();
+				data[base + 6] = next.getFY();
+			}
+		}
+	}
 }
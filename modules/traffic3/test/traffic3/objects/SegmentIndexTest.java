@@ -0,0 +1,172 @@
+package traffic3.objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import rescuecore2.misc.geometry.GeometryTools2D;
+import rescuecore2.misc.geometry.Line2D;
+import rescuecore2.misc.geometry.Point2D;
+
+/**
+ * Compares {@link SegmentIndex} with a brute force search using
+ * {@link GeometryTools2D}. The index must give exactly the same answers.
+ */
+public class SegmentIndexTest {
+	private static final long SEED = 49;
+	private static final int TRIALS = 100;
+	private static final int MAX_LINES = 200;
+	private static final int QUERIES = 500;
+	// Below this the index uses a single cell
+	private static final int MIN_GRID_LINES = 16;
+
+	@Test
+	public void testEmpty() {
+		SegmentIndex index = new SegmentIndex(new ArrayList<Line2D>());
+		assertFalse(index.intersects(new Line2D(0, 0, 10, 10)));
+		assertEquals(Double.POSITIVE_INFINITY, index.getMinDistance(0, 0));
+	}
+
+	@Test
+	public void testRandomLines() {
+		Random random = new Random(SEED);
+		for (int trial = 0; trial < TRIALS; trial++) {
+			double span = 1000 + random.nextInt(100000);
+			int count = 1 + random.nextInt(MAX_LINES);
+			List<Line2D> lines = new ArrayList<Line2D>();
+			for (int i = 0; i < count; i++) {
+				double x = random.nextDouble() * span;
+				double y = random.nextDouble() * span;
+				double length = random.nextDouble() * span / (random.nextBoolean() ? 10 : 1);
+				double angle = random.nextInt(5) == 0 ? random.nextInt(4) * Math.PI / 2 : random.nextDouble() * Math.PI * 2;
+				lines.add(new Line2D(new Point2D(x, y), new Point2D(x + length * Math.cos(angle), y + length * Math.sin(angle))));
+				// Blockade outlines share end points
+				if (random.nextInt(3) == 0) {
+					lines.add(new Line2D(lines.get(lines.size() - 1).getEndPoint(), new Point2D(x, y)));
+				}
+			}
+			check(lines, span, random);
+		}
+	}
+
+	@Test
+	public void testSmallIndexes() {
+		Random random = new Random(SEED);
+		for (int count = 1; count <= MIN_GRID_LINES + 1; count++) {
+			List<Line2D> lines = new ArrayList<Line2D>();
+			for (int i = 0; i < count; i++) {
+				lines.add(new Line2D(new Point2D(random.nextInt(1000), random.nextInt(1000)), new Point2D(random.nextInt(1000), random.nextInt(1000))));
+			}
+			check(lines, 1000, random);
+		}
+	}
+
+	@Test
+	public void testAllLinesOnOneX() {
+		Random random = new Random(SEED);
+		for (int count : new int[] {1, MIN_GRID_LINES - 1, MIN_GRID_LINES, MAX_LINES}) {
+			List<Line2D> lines = new ArrayList<Line2D>();
+			for (int i = 0; i < count; i++) {
+				double y = random.nextInt(10000);
+				lines.add(new Line2D(new Point2D(500, y), new Point2D(500, y + 1 + random.nextInt(500))));
+			}
+			check(lines, 10000, random);
+			checkOnLine(lines, random, true);
+		}
+	}
+
+	@Test
+	public void testAllLinesOnOneY() {
+		Random random = new Random(SEED);
+		for (int count : new int[] {1, MIN_GRID_LINES - 1, MIN_GRID_LINES, MAX_LINES}) {
+			List<Line2D> lines = new ArrayList<Line2D>();
+			for (int i = 0; i < count; i++) {
+				double x = random.nextInt(10000);
+				lines.add(new Line2D(new Point2D(x, 500), new Point2D(x + 1 + random.nextInt(500), 500)));
+			}
+			check(lines, 10000, random);
+			checkOnLine(lines, random, false);
+		}
+	}
+
+	@Test
+	public void testAllLinesAtOnePoint() {
+		List<Line2D> lines = new ArrayList<Line2D>();
+		for (int i = 0; i < MAX_LINES; i++) {
+			double angle = i * Math.PI * 2 / MAX_LINES;
+			lines.add(new Line2D(new Point2D(500, 500), new Point2D(500 + 100 * Math.cos(angle), 500 + 100 * Math.sin(angle))));
+		}
+		check(lines, 1000, new Random(SEED));
+	}
+
+	/**
+	 * Query segments and points all over the bounds of the lines, well outside
+	 * them and on the end points of the lines.
+	 */
+	private void check(List<Line2D> lines, double span, Random random) {
+		SegmentIndex index = new SegmentIndex(lines);
+		for (int q = 0; q < QUERIES; q++) {
+			double x;
+			double y;
+			switch (random.nextInt(4)) {
+			case 0:
+				Point2D end = lines.get(random.nextInt(lines.size())).getEndPoint();
+				x = end.getX();
+				y = end.getY();
+				break;
+			case 1:
+				x = (random.nextDouble() * 10 - 5) * span;
+				y = (random.nextDouble() * 10 - 5) * span;
+				break;
+			default:
+				x = random.nextDouble() * span * 1.4 - span * 0.2;
+				y = random.nextDouble() * span * 1.4 - span * 0.2;
+				break;
+			}
+			double length = random.nextDouble() * span / (random.nextBoolean() ? 50 : 2);
+			double angle = random.nextDouble() * Math.PI * 2;
+			checkQuery(index, lines, new Line2D(new Point2D(x, y), new Point2D(x + length * Math.cos(angle), y + length * Math.sin(angle))));
+		}
+	}
+
+	/**
+	 * Query points and segments that lie on the one line that all the lines
+	 * are on.
+	 */
+	private void checkOnLine(List<Line2D> lines, Random random, boolean vertical) {
+		SegmentIndex index = new SegmentIndex(lines);
+		for (int q = 0; q < QUERIES; q++) {
+			double along = random.nextInt(12000) - 1000;
+			double length = random.nextInt(1000) - 500;
+			Point2D start = vertical ? new Point2D(500, along) : new Point2D(along, 500);
+			Point2D end = vertical ? new Point2D(500, along + length) : new Point2D(along + length, 500);
+			checkQuery(index, lines, new Line2D(start, end));
+			// Crossing the line
+			Point2D left = vertical ? new Point2D(500 - length, along) : new Point2D(along, 500 - length);
+			Point2D right = vertical ? new Point2D(500 + length, along) : new Point2D(along, 500 + length);
+			checkQuery(index, lines, new Line2D(left, right));
+		}
+	}
+
+	private void checkQuery(SegmentIndex index, List<Line2D> lines, Line2D query) {
+		boolean intersects = false;
+		for (Line2D next : lines) {
+			if (GeometryTools2D.getSegmentIntersectionPoint(query, next) != null) {
+				intersects = true;
+				break;
+			}
+		}
+		assertEquals(intersects, index.intersects(query), query.toString());
+		Point2D p = query.getOrigin();
+		double distance = Double.POSITIVE_INFINITY;
+		for (Line2D next : lines) {
+			distance = Math.min(distance, GeometryTools2D.getDistance(p, GeometryTools2D.getClosestPointOnSegment(next, p)));
+		}
+		assertEquals(distance, index.getMinDistance(p.getX(), p.getY()), p.toString());
+	}
+}
@@ -0,0 +1,137 @@
+package traffic3.objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import rescuecore2.misc.geometry.GeometryTools2D;
+import rescuecore2.misc.geometry.Line2D;
+import rescuecore2.misc.geometry.Point2D;
+
+/**
+ * Checks that the primitive wall geometry used by TrafficAgent gives exactly
+ * the same results as the {@link GeometryTools2D} code it replaced, so that
+ * agent trajectories do not change.
+ */
+public class WallInfoTest {
+	private static final long SEED = 48;
+	private static final int WALLS = 2000;
+	private static final int QUERIES = 200;
+	private static final int SIZE = 10000;
+
+	@Test
+	public void testClosestPoint() {
+		Random random = new Random(SEED);
+		List<Line2D> walls = randomWalls(random);
+		SegmentIndex index = new SegmentIndex(walls);
+		TrafficAgent.WallInfo info = new TrafficAgent.WallInfo();
+		for (int i = 0; i < walls.size(); i++) {
+			info.set(index, i, null);
+			Line2D wall = walls.get(i);
+			for (int j = 0; j < QUERIES; j++) {
+				Point2D point = randomPoint(random, wall);
+				info.computeClostestPoint(point.getX(), point.getY());
+				Point2D closest = GeometryTools2D.getClosestPointOnSegment(wall, point);
+				assertEquals(closest.getX(), info.getClosestX());
+				assertEquals(closest.getY(), info.getClosestY());
+				assertEquals(new Line2D(point, closest).getDirection().getLength(), info.getDistance());
+				boolean end = closest == wall.getOrigin() || closest == wall.getEndPoint();
+				assertEquals(end, info.isEndPoint());
+			}
+		}
+	}
+
+	@Test
+	public void testClosestPointIsRecomputedAfterSet() {
+		List<Line2D> walls = new ArrayList<Line2D>();
+		walls.add(new Line2D(new Point2D(0, 0), new Point2D(100, 0)));
+		walls.add(new Line2D(new Point2D(0, 50), new Point2D(100, 50)));
+		SegmentIndex index = new SegmentIndex(walls);
+		TrafficAgent.WallInfo info = new TrafficAgent.WallInfo();
+		info.set(index, 0, null);
+		info.computeClostestPoint(50, 10);
+		assertEquals(10, info.getDistance());
+		info.decreaseDistance(4);
+		info.set(index, 1, null);
+		info.computeClostestPoint(50, 10);
+		assertEquals(40, info.getDistance());
+		assertEquals(50, info.getClosestY());
+	}
+
+	@Test
+	public void testIntersects() {
+		Random random = new Random(SEED);
+		List<Line2D> walls = randomWalls(random);
+		SegmentIndex index = new SegmentIndex(walls);
+		TrafficAgent.WallInfo info = new TrafficAgent.WallInfo();
+		for (int i = 0; i < walls.size(); i++) {
+			info.set(index, i, null);
+			Line2D wall = walls.get(i);
+			for (int j = 0; j < QUERIES; j++) {
+				Point2D start = randomPoint(random, wall);
+				Point2D end = randomPoint(random, wall);
+				Line2D move = new Line2D(start, end);
+				boolean expected = GeometryTools2D.getSegmentIntersectionPoint(move, wall) != null;
+				assertEquals(expected, info.intersects(start.getX(), start.getY(), move.getDirection().getX(), move.getDirection().getY()));
+				assertEquals(expected, SegmentIndex.segmentsIntersect(start.getX(), start.getY(), move.getDirection().getX(), move.getDirection().getY(),
+						wall.getOrigin().getX(), wall.getOrigin().getY(), wall.getDirection().getX(), wall.getDirection().getY()));
+			}
+		}
+	}
+
+	/**
+	 * Walls with integer coordinates like those read from a map, including
+	 * axis-aligned walls, which are common.
+	 */
+	private static List<Line2D> randomWalls(Random random) {
+		List<Line2D> result = new ArrayList<Line2D>();
+		for (int i = 0; i < WALLS; i++) {
+			int x1 = random.nextInt(SIZE);
+			int y1 = random.nextInt(SIZE);
+			int x2 = x1;
+			int y2 = y1;
+			switch (i % 3) {
+			case 0:
+				x2 = random.nextInt(SIZE);
+				break;
+			case 1:
+				y2 = random.nextInt(SIZE);
+				break;
+			default:
+				x2 = random.nextInt(SIZE);
+				y2 = random.nextInt(SIZE);
+				break;
+			}
+			if (x1 == x2 && y1 == y2) {
+				x2++;
+			}
+			result.add(new Line2D(new Point2D(x1, y1), new Point2D(x2, y2)));
+		}
+		return result;
+	}
+
+	/**
+	 * Pick a point near a wall: anywhere around it, on one of its ends, on the
+	 * wall itself or on the line through it beyond the ends.
+	 */
+	private static Point2D randomPoint(Random random, Line2D wall) {
+		switch (random.nextInt(5)) {
+		case 0:
+			return wall.getOrigin();
+		case 1:
+			return wall.getEndPoint();
+		case 2:
+			return wall.getPoint(random.nextDouble());
+		case 3:
+			return wall.getPoint(random.nextDouble() * 4 - 1.5);
+		default:
+			Point2D middle = wall.getPoint(0.5);
+			double range = wall.getDirection().getLength() * 2;
+			return new Point2D(middle.getX() + (random.nextDouble() - 0.5) * range, middle.getY() + (random.nextDouble() - 0.5) * range);
+		}
+	}
+}